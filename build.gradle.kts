@@ -11,6 +11,7 @@ buildscript {
         classpath("com.android.tools.build:gradle:${property("ANDROID_BUILD_VERSION")}")
         classpath("org.jetbrains.kotlin:kotlin-gradle-plugin:${property("KOTLIN_VERSION")}")
         classpath("com.vanniktech:gradle-maven-publish-plugin:0.15.1")
+        classpath("me.champeau.gradle:jmh-gradle-plugin:${property("JMH_GRADLE_PLUGIN_VERSION")}")
     }
 }
 
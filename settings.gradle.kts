@@ -1 +1 @@
-include(":sample", ":sketch", ":sketch-gif", ":sample-video-thumbnail")
\ No newline at end of file
+include(":sample", ":sketch", ":sketch-gif", ":sample-video-thumbnail", ":sketch-benchmark")
\ No newline at end of file
@@ -0,0 +1,88 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    id("java")
+    id("me.champeau.gradle.jmh")
+}
+
+// 需要引用 sketch 模块的打包任务
+evaluationDependsOn(":sketch")
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+/*
+ * sketch 是 Android 库，这里直接用它打包出来的 classes.jar，Android 框架中的类由 Robolectric 的 android-all 提供，
+ * 所以不需要设备或模拟器，在电脑上就能跑。android-all 中的 native 方法不能用，例如 android.util.Log，所以只测那些不输出日志的代码
+ */
+val sketchClassesJar = project(":sketch").tasks.named("bundleLibRuntimeToJarRelease")
+
+dependencies {
+    jmh(files(sketchClassesJar))
+    jmh("org.robolectric:android-all:${property("ROBOLECTRIC_ANDROID_ALL")}")
+    jmh("androidx.annotation:annotation:${property("ANDROIDX_ANNOTATION")}")
+}
+
+val jmhResultsFile = file("$buildDir/reports/jmh/results.json")
+
+/*
+ * 运行：./gradlew :sketch-benchmark:jmh
+ * 只运行部分：./gradlew :sketch-benchmark:jmh -PjmhInclude=DiskLruCacheBenchmark
+ * 开了 gc profiler，结果里会多出 gc.alloc.rate.norm 等分配数据（每次操作分配的字节数）
+ */
+jmh {
+    jmhVersion = property("JMH_VERSION").toString()
+    resultFormat = "JSON"
+    resultsFile = jmhResultsFile
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    profilers = listOf("gc")
+    (findProperty("jmhInclude") as String?)?.let { include = listOf(it) }
+}
+
+/*
+ * 和之前保存的结果对比，有变慢超过阈值的就失败：
+ * ./gradlew :sketch-benchmark:jmhCompare -PjmhBaseline=baseline.json [-PjmhThreshold=0.1]
+ */
+tasks.register("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the latest JMH results with a baseline and fails on regressions."
+
+    doLast {
+        val baselineFile = (findProperty("jmhBaseline") as String?)?.let { file(it) }
+            ?: throw GradleException("Missing -PjmhBaseline=<baseline results json>")
+        val threshold = (findProperty("jmhThreshold") as String?)?.toDouble() ?: 0.1
+
+        fun load(file: File): Map<String, Pair<String, Double>> {
+            @Suppress("UNCHECKED_CAST")
+            val results = JsonSlurper().parse(file) as List<Map<String, Any?>>
+            return results.associate { result ->
+                val params = (result["params"] as Map<*, *>?)?.entries?.joinToString(",", "(", ")") { "${it.key}=${it.value}" } ?: ""
+                val metric = result["primaryMetric"] as Map<*, *>
+                "${result["benchmark"]}$params" to Pair(result["mode"].toString(), (metric["score"] as Number).toDouble())
+            }
+        }
+
+        val baseline = load(baselineFile)
+        val current = load(jmhResultsFile)
+        val regressions = mutableListOf<String>()
+        current.forEach { (name, result) ->
+            val (mode, score) = result
+            val baseScore = baseline[name]?.second ?: return@forEach
+            // thrpt 越大越好，其它模式都是耗时，越小越好
+            val change = if (mode == "thrpt") (baseScore - score) / baseScore else (score - baseScore) / baseScore
+            val line = String.format("%s %s: %.3f -> %.3f (slower %+.1f%%)", name, mode, baseScore, score, change * 100)
+            println(line)
+            if (change > threshold) {
+                regressions.add(line)
+            }
+        }
+
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Benchmark regressions over ${threshold * 100}%:\n" + regressions.joinToString("\n"))
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.util.DiskLruCache;
+import me.panpf.sketch.util.SketchMD5Utils;
+
+/**
+ * {@link DiskLruCache} 的读、写、启动时回放日志以及重建日志，在临时目录中进行
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiskLruCacheBenchmark {
+    private static final int ENTRY_COUNT = 1000;
+    private static final int VALUE_SIZE = 4 * 1024;
+    private static final long MAX_SIZE = 100L * 1024 * 1024;
+
+    private File directory;
+    private DiskLruCache cache;
+    private String[] keys;
+    private byte[] value;
+    private int index;
+    private Method rebuildJournalMethod;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("sketch-disk-lru-cache").toFile();
+        value = new byte[VALUE_SIZE];
+        keys = new String[ENTRY_COUNT];
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            keys[i] = SketchMD5Utils.md5("http://img.example.com/images/" + i + ".jpg");
+        }
+
+        cache = DiskLruCache.open(directory, 1, 1, MAX_SIZE);
+        for (String key : keys) {
+            write(key);
+        }
+
+        // 重建日志是私有的，平时由后台线程在冗余记录超过 2000 条时触发
+        rebuildJournalMethod = DiskLruCache.class.getDeclaredMethod("rebuildJournal");
+        rebuildJournalMethod.setAccessible(true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        cache.delete();
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    private String nextKey() {
+        index = (index + 1) % ENTRY_COUNT;
+        return keys[index];
+    }
+
+    private void write(String key) throws Exception {
+        DiskLruCache.Editor editor = cache.edit(key);
+        OutputStream outputStream = editor.newOutputStream(0);
+        try {
+            outputStream.write(value);
+        } finally {
+            outputStream.close();
+        }
+        editor.commit();
+    }
+
+    @Benchmark
+    public boolean get() throws Exception {
+        DiskLruCache.Snapshot snapshot = cache.get(nextKey());
+        if (snapshot == null) {
+            return false;
+        }
+        snapshot.close();
+        return true;
+    }
+
+    /**
+     * 覆盖已有的条目，包括写日志、写临时文件和重命名
+     */
+    @Benchmark
+    public void editAndCommit() throws Exception {
+        write(nextKey());
+    }
+
+    /**
+     * 打开已有的缓存，读取并回放日志，Sketch 初始化磁盘缓存时就是这个流程
+     */
+    @Benchmark
+    public long openAndReplayJournal() throws IOException {
+        DiskLruCache newCache = DiskLruCache.open(directory, 1, 1, MAX_SIZE);
+        long size = newCache.size();
+        newCache.close();
+        return size;
+    }
+
+    @Benchmark
+    public void rebuildJournal() throws Exception {
+        rebuildJournalMethod.invoke(cache);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.util.ExifInterface;
+
+/**
+ * 每次解码 jpeg 前读取方向用的 {@link ExifInterface} 解析
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExifInterfaceBenchmark {
+    private byte[] jpegData;
+
+    @Setup
+    public void setup() throws IOException {
+        jpegData = makeJpeg(ExifInterface.ORIENTATION_ROTATE_90);
+
+        // 确认构造的数据是可以解析的，否则测的就只是出错的流程了
+        int orientation = readOrientation();
+        if (orientation != ExifInterface.ORIENTATION_ROTATE_90) {
+            throw new IllegalStateException("Unexpected orientation: " + orientation);
+        }
+    }
+
+    @Benchmark
+    public int readOrientation() throws IOException {
+        ExifInterface exifInterface = new ExifInterface(new ByteArrayInputStream(jpegData));
+        return exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
+    }
+
+    /**
+     * 构造一个只有 EXIF 和 SOF 的 jpeg 头，EXIF 中有方向、宽高和厂商四个属性，图片数据用 64KB 的 0 填充
+     */
+    private static byte[] makeJpeg(int orientation) throws IOException {
+        byte[] make = "Sketch\0".getBytes(Charset.forName("US-ASCII"));
+        int entryCount = 4;
+        int ifdOffset = 8;
+        int makeOffset = ifdOffset + 2 + entryCount * 12 + 4;
+
+        ByteBuffer tiff = ByteBuffer.allocate(makeOffset + make.length).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(ifdOffset);
+        tiff.putShort((short) entryCount);
+        putShortEntry(tiff, 0x0100, 4032);  // ImageWidth
+        putShortEntry(tiff, 0x0101, 3024);  // ImageLength
+        tiff.putShort((short) 0x010F).putShort((short) 2).putInt(make.length).putInt(makeOffset);   // Make
+        putShortEntry(tiff, 0x0112, orientation);   // Orientation
+        tiff.putInt(0);
+        tiff.put(make);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{(byte) 0xFF, (byte) 0xD8});
+
+        byte[] exifHeader = "Exif\0\0".getBytes(Charset.forName("US-ASCII"));
+        writeSegment(out, 0xE1, concat(exifHeader, tiff.array()));
+
+        // SOF0: 8 位精度，高，宽，3 个分量
+        ByteBuffer sof = ByteBuffer.allocate(15).order(ByteOrder.BIG_ENDIAN);
+        sof.put((byte) 8).putShort((short) 3024).putShort((short) 4032).put((byte) 3);
+        for (int i = 1; i <= 3; i++) {
+            sof.put((byte) i).put((byte) 0x11).put((byte) 0);
+        }
+        writeSegment(out, 0xC0, sof.array());
+
+        writeSegment(out, 0xDA, new byte[]{1, 1, 0, 0, 0x3F, 0});
+        out.write(new byte[64 * 1024]);
+        out.write(new byte[]{(byte) 0xFF, (byte) 0xD9});
+        return out.toByteArray();
+    }
+
+    private static void putShortEntry(ByteBuffer buffer, int tag, int value) {
+        buffer.putShort((short) tag).putShort((short) 3).putInt(1).putShort((short) value).putShort((short) 0);
+    }
+
+    private static void writeSegment(ByteArrayOutputStream out, int marker, byte[] data) {
+        int length = data.length + 2;
+        out.write(0xFF);
+        out.write(marker);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.write(data, 0, data.length);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import androidx.annotation.NonNull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.request.FreeRideManager;
+
+/**
+ * {@link FreeRideManager} 在多个线程同时上车、注册和取消注册时的开销，每次操作先尝试坐顺风车，坐不上就注册成顺风车主然后马上结束并回调顺风车。
+ * keyCount 越小同一个 key 的竞争越激烈，1 就是所有线程都在请求同一张图片，对比不同线程数下每次操作的耗时就能看出扩展性
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FreeRideManagerBenchmark {
+    @Param({"1", "16", "1024"})
+    public int keyCount;
+
+    private FreeRideManager freeRideManager;
+    private String[] keys;
+    private CacheKey[] cacheKeys;
+
+    @Setup
+    public void setup() {
+        freeRideManager = new FreeRideManager();
+        keys = new String[keyCount];
+        cacheKeys = new CacheKey[keyCount];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "http://img.example.com/images/" + i + ".jpg?options=Resize(320x320)";
+            cacheKeys[i] = CacheKey.of(keys[i]);
+        }
+    }
+
+    private boolean rideOrProvide() {
+        int index = ThreadLocalRandom.current().nextInt(keyCount);
+        FakeFreeRide request = new FakeFreeRide(keys[index], cacheKeys[index]);
+        if (freeRideManager.byDisplayFreeRide(request)) {
+            return true;
+        }
+
+        freeRideManager.registerDisplayFreeRideProvider(request);
+        freeRideManager.unregisterDisplayFreeRideProvider(request);
+        return false;
+    }
+
+    @Benchmark
+    public boolean rideOrProvide1Thread() {
+        return rideOrProvide();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean rideOrProvide2Threads() {
+        return rideOrProvide();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean rideOrProvide4Threads() {
+        return rideOrProvide();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean rideOrProvide8Threads() {
+        return rideOrProvide();
+    }
+
+    /**
+     * 只有顺风车相关的逻辑，回调时什么也不做
+     */
+    private static class FakeFreeRide implements FreeRideManager.DisplayFreeRide {
+        @NonNull
+        private final String key;
+        @NonNull
+        private final CacheKey cacheKey;
+        @NonNull
+        private final FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> riders = new FreeRideManager.Riders<>();
+
+        FakeFreeRide(@NonNull String key, @NonNull CacheKey cacheKey) {
+            this.key = key;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public CacheKey getDisplayFreeRideKey() {
+            return cacheKey;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayFreeRideLog() {
+            return key;
+        }
+
+        @Override
+        public boolean canByDisplayFreeRide() {
+            return true;
+        }
+
+        @Override
+        public boolean byDisplayFreeRide(@NonNull FreeRideManager.DisplayFreeRide request) {
+            return riders.add(request);
+        }
+
+        @NonNull
+        @Override
+        public FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> getDisplayFreeRiders() {
+            return riders;
+        }
+
+        @Override
+        public boolean processDisplayFreeRide() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.util.MurmurHash3;
+import me.panpf.sketch.util.SketchMD5Utils;
+
+/**
+ * {@link SketchMD5Utils#md5(String)} 用来生成磁盘缓存文件名，{@link MurmurHash3#hash128Hex(CharSequence)} 用来把超长的 uri 缩短成 key
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashBenchmark {
+
+    /**
+     * 普通的 http uri 大约 100 个字符，base64 uri 可能有几十 KB
+     */
+    @Param({"100", "10000"})
+    public int length;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder(length);
+        builder.append("http://img.example.com/images/");
+        while (builder.length() < length) {
+            builder.append((char) ('a' + builder.length() % 26));
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public String md5() {
+        return SketchMD5Utils.md5(text);
+    }
+
+    @Benchmark
+    public String murmur3() {
+        return MurmurHash3.hash128Hex(text);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.util.KeyCounter;
+import me.panpf.sketch.util.ObjectPool;
+
+/**
+ * 请求取消时用的 {@link KeyCounter} 和复用对象的 {@link ObjectPool}，都会被多个线程同时访问，所以也测一下 4 个线程竞争时的情况
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyCounterAndObjectPoolBenchmark {
+    private KeyCounter keyCounter;
+    private ObjectPool<StringBuilder> objectPool;
+
+    @Setup
+    public void setup() {
+        keyCounter = new KeyCounter();
+        objectPool = new ObjectPool<>(StringBuilder.class);
+    }
+
+    @Benchmark
+    public int keyCounterRefreshAndGet() {
+        keyCounter.refresh();
+        return keyCounter.getKey();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int keyCounterRefreshAndGetContended() {
+        keyCounter.refresh();
+        return keyCounter.getKey();
+    }
+
+    @Benchmark
+    public StringBuilder objectPoolGetAndPut() {
+        StringBuilder builder = objectPool.get();
+        objectPool.put(builder);
+        return builder;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public StringBuilder objectPoolGetAndPutContended() {
+        StringBuilder builder = objectPool.get();
+        objectPool.put(builder);
+        return builder;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.util.LruCache;
+
+/**
+ * {@link LruCache} 的命中、未命中和写入淘汰
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LruCacheBenchmark {
+    private static final int MAX_SIZE = 128;
+
+    private LruCache<String, String> cache;
+    private String[] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        cache = new LruCache<>(MAX_SIZE);
+        keys = new String[MAX_SIZE * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "http://img.example.com/images/" + i + ".jpg?options=Resize(320x320)";
+        }
+        for (int i = 0; i < MAX_SIZE; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (MAX_SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public String getHit() {
+        return cache.get(keys[next()]);
+    }
+
+    @Benchmark
+    public String getMiss() {
+        return cache.get(keys[MAX_SIZE + next()]);
+    }
+
+    /**
+     * 一半的 key 不在缓存中，写入时会淘汰最久没用的
+     */
+    @Benchmark
+    public String putWithEviction() {
+        String key = keys[next() * 2];
+        return cache.put(key, key);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import android.graphics.Bitmap;
+import android.text.TextUtils;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.process.ImageProcessor;
+import me.panpf.sketch.request.LoadOptions;
+import me.panpf.sketch.request.MaxSize;
+import me.panpf.sketch.request.Resize;
+import me.panpf.sketch.uri.Base64UriModel;
+import me.panpf.sketch.uri.HttpUriModel;
+import me.panpf.sketch.uri.UriModel;
+import me.panpf.sketch.util.SketchMD5Utils;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 每次 commit 都会在主线程上执行的 {@link LoadOptions#makeKey()} 和 {@link SketchUtils#makeRequestKey(String, UriModel, String)}，
+ * 以 old 开头的是优化前的实现（每次都拼接选项 key，长 uri 用 MD5 缩短），作为对比的基准
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestKeyBenchmark {
+    /**
+     * 不同 uri 的数量，要比 SketchUtils 中短 uri 缓存的 32 个槽位多很多，这样轮流使用时基本都不会命中缓存
+     */
+    private static final int URI_COUNT = 256;
+
+    private LoadOptions options;
+    private MaxSize[] maxSizes;
+    private int index;
+
+    private String[] httpUris;
+    private UriModel httpUriModel;
+    private String[] base64Uris;
+    private UriModel base64UriModel;
+    private String optionsKey;
+    private int uriIndex;
+
+    @Setup
+    public void setup() {
+        options = new LoadOptions()
+                .setResize(new Resize(320, 320, ImageView.ScaleType.CENTER_CROP))
+                .setBitmapConfig(Bitmap.Config.RGB_565)
+                .setLowQualityImage(true);
+        maxSizes = new MaxSize[]{new MaxSize(1080, 1920), new MaxSize(720, 1280)};
+        options.setMaxSize(maxSizes[0]);
+        optionsKey = options.makeKey();
+
+        httpUris = new String[URI_COUNT];
+        base64Uris = new String[URI_COUNT];
+        for (int i = 0; i < URI_COUNT; i++) {
+            httpUris[i] = "http://img.example.com/images/2019/01/23/f6a7b8c9d0e1f2a3b4c5d6e7f8a9b0c1_" + i + ".jpg";
+
+            StringBuilder builder = new StringBuilder(Base64UriModel.SCHEME).append("jpeg;base64,").append(i).append('/');
+            while (builder.length() < 8 * 1024) {
+                builder.append("/9j/4AAQSkZJRgABAQEASABIAAD");
+            }
+            base64Uris[i] = builder.toString();
+        }
+        httpUriModel = new HttpUriModel();
+        base64UriModel = new Base64UriModel();
+    }
+
+    /**
+     * 选项没变，直接返回缓存的 key，列表滑动时绝大多数都是这种情况
+     */
+    @Benchmark
+    public String makeKeyCached() {
+        return options.makeKey();
+    }
+
+    /**
+     * 每次都改了选项，需要重新拼接 key
+     */
+    @Benchmark
+    public String makeKeyChanged() {
+        index ^= 1;
+        options.setMaxSize(maxSizes[index]);
+        return options.makeKey();
+    }
+
+    /**
+     * 优化前选项没变也要重新拼接，和 {@link #makeKeyCached()} 对比
+     */
+    @Benchmark
+    public String oldMakeKey() {
+        return oldMakeKey(options);
+    }
+
+    /**
+     * 和 {@link #makeKeyChanged()} 对比
+     */
+    @Benchmark
+    public String oldMakeKeyChanged() {
+        index ^= 1;
+        options.setMaxSize(maxSizes[index]);
+        return oldMakeKey(options);
+    }
+
+    @Benchmark
+    public String makeRequestKeyHttp() {
+        return SketchUtils.makeRequestKey(nextHttpUri(), httpUriModel, optionsKey);
+    }
+
+    @Benchmark
+    public String oldMakeRequestKeyHttp() {
+        return oldMakeRequestKey(nextHttpUri(), httpUriModel, optionsKey);
+    }
+
+    /**
+     * 同一个 base64 uri 反复使用，短 uri 每次都命中缓存，例如同一张图片反复显示
+     */
+    @Benchmark
+    public String makeRequestKeyBase64Cached() {
+        return SketchUtils.makeRequestKey(base64Uris[0], base64UriModel, optionsKey);
+    }
+
+    /**
+     * 轮流使用 {@link #URI_COUNT} 个不同的 base64 uri，基本每次都要重新计算 hash
+     */
+    @Benchmark
+    public String makeRequestKeyBase64() {
+        return SketchUtils.makeRequestKey(nextBase64Uri(), base64UriModel, optionsKey);
+    }
+
+    /**
+     * 和 {@link #makeRequestKeyBase64()} 对比
+     */
+    @Benchmark
+    public String oldMakeRequestKeyBase64() {
+        return oldMakeRequestKey(nextBase64Uri(), base64UriModel, optionsKey);
+    }
+
+    @NonNull
+    private String nextHttpUri() {
+        uriIndex = (uriIndex + 1) % URI_COUNT;
+        return httpUris[uriIndex];
+    }
+
+    @NonNull
+    private String nextBase64Uri() {
+        uriIndex = (uriIndex + 1) % URI_COUNT;
+        return base64Uris[uriIndex];
+    }
+
+    /**
+     * 优化前的 LoadOptions.makeKey()
+     */
+    @NonNull
+    static String oldMakeKey(@NonNull LoadOptions options) {
+        StringBuilder builder = new StringBuilder();
+        MaxSize maxSize = options.getMaxSize();
+        Resize resize = options.getResize();
+        if (maxSize != null) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append(maxSize.getKey());
+        }
+        if (resize != null) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append(resize.getKey());
+            if (options.isThumbnailMode()) {
+                if (builder.length() > 0) builder.append('-');
+                builder.append("thumbnailMode");
+            }
+        }
+        if (options.isExifThumbnailMode() && (maxSize != null || resize != null)) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append("exifThumbnailMode");
+        }
+        if (options.isCorrectImageOrientationDisabled()) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append("ignoreOrientation");
+        }
+        if (options.isLowQualityImage()) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append("lowQuality");
+        }
+        if (options.isInPreferQualityOverSpeed()) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append("preferQuality");
+        }
+        Bitmap.Config bitmapConfig = options.getBitmapConfig();
+        if (bitmapConfig != null) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append(bitmapConfig.name());
+        }
+        ImageProcessor processor = options.getProcessor();
+        if (processor != null) {
+            String processorKey = processor.getKey();
+            if (!TextUtils.isEmpty(processorKey)) {
+                if (builder.length() > 0) builder.append('-');
+                builder.append(processorKey);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 优化前的 SketchUtils.makeRequestKey()，长 uri 用 MD5 缩短
+     */
+    @NonNull
+    static String oldMakeRequestKey(@NonNull String imageUri, @NonNull UriModel uriModel, @NonNull String optionsKey) {
+        if (uriModel.isConvertShortUriForKey()) {
+            imageUri = SketchMD5Utils.md5(imageUri);
+        }
+
+        if (TextUtils.isEmpty(optionsKey)) {
+            return imageUri;
+        }
+
+        StringBuilder builder = new StringBuilder(imageUri);
+        if (imageUri.lastIndexOf("?") == -1) {
+            builder.append('?');
+        } else {
+            builder.append('&');
+        }
+        builder.append("options");
+        builder.append("=");
+        builder.append(optionsKey);
+        return builder.toString();
+    }
+}
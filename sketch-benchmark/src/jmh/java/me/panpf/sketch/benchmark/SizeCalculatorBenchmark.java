@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.benchmark;
+
+import android.widget.ImageView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.decode.ImageSizeCalculator;
+import me.panpf.sketch.decode.ResizeCalculator;
+
+/**
+ * 解码前计算 inSampleSize 的 {@link ImageSizeCalculator#calculateInSampleSize(int, int, int, int, boolean)}
+ * 和 resize 时计算裁剪区域的 {@link ResizeCalculator#calculator(int, int, int, int, ImageView.ScaleType, boolean)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SizeCalculatorBenchmark {
+    private ImageSizeCalculator sizeCalculator;
+    private ResizeCalculator resizeCalculator;
+
+    @Setup
+    public void setup() {
+        sizeCalculator = new ImageSizeCalculator();
+        // 电脑上没有 OpenGL，用一个常见的值
+        sizeCalculator.setOpenGLMaxTextureSize(4096);
+        resizeCalculator = new ResizeCalculator();
+    }
+
+    @Benchmark
+    public int calculateInSampleSize() {
+        return sizeCalculator.calculateInSampleSize(4032, 3024, 1080, 1920, false);
+    }
+
+    @Benchmark
+    public int calculateInSampleSizeLongImage() {
+        return sizeCalculator.calculateInSampleSize(1080, 30000, 1080, 1920, true);
+    }
+
+    @Benchmark
+    public ResizeCalculator.Mapping resizeCenterCrop() {
+        return resizeCalculator.calculator(4032, 3024, 320, 320, ImageView.ScaleType.CENTER_CROP, false);
+    }
+
+    @Benchmark
+    public ResizeCalculator.Mapping resizeMatrixExactlySame() {
+        return resizeCalculator.calculator(4032, 3024, 320, 480, ImageView.ScaleType.MATRIX, true);
+    }
+}
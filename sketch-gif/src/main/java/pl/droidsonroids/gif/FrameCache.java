@@ -0,0 +1,181 @@
+package pl.droidsonroids.gif;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * Keeps all frames of a short, infinitely looping animation once they have been decoded during one whole loop,
+ * so later loops only switch between already decoded bitmaps instead of decoding every frame again.
+ * Frame bitmaps are obtained with {@link GifDrawable#makeBitmap(int, int, Bitmap.Config)} and handed to
+ * {@link GifDrawable#releaseFrameBitmapAfterDraw(Bitmap)} when dropped, since main thread may still be drawing them.
+ * Bytes of all frames are reserved from {@link GifDrawable#getFrameCacheBudget()} before capturing starts
+ * and released when frames are dropped, capturing is skipped while the budget has no room.
+ * All methods are thread-safe.
+ */
+final class FrameCache implements FrameCacheBudget.Holder {
+
+	/**
+	 * Returned by {@link #advance()} when frames are not cached yet.
+	 */
+	static final long NOT_CACHED = Long.MIN_VALUE;
+
+	private final GifDrawable mGifDrawable;
+	private final FrameCacheBudget mBudget;
+	private final int mWidth;
+	private final int mHeight;
+	private final Bitmap[] mFrames;
+	private final long[] mDurations;
+	private int mCapturedCount;
+	private int mIndex;
+	private boolean mComplete;
+	private boolean mUnusable;
+	private boolean mReserved;
+	private volatile Bitmap mCurrentFrame;
+
+	private FrameCache(GifDrawable gifDrawable, FrameCacheBudget budget, int width, int height, int numberOfFrames) {
+		mGifDrawable = gifDrawable;
+		mBudget = budget;
+		mWidth = width;
+		mHeight = height;
+		mFrames = new Bitmap[numberOfFrames];
+		mDurations = new long[numberOfFrames];
+	}
+
+	/**
+	 * @return new cache or null if animation is not looping forever, has one frame only or all frames could never fit in <code>budget</code>
+	 */
+	static FrameCache create(GifDrawable gifDrawable, GifInfoHandle infoHandle, FrameCacheBudget budget) {
+		final int numberOfFrames = infoHandle.getNumberOfFrames();
+		if (numberOfFrames <= 1 || infoHandle.getLoopCount() != 0) {
+			return null;
+		}
+		final int width = infoHandle.getWidth();
+		final int height = infoHandle.getHeight();
+		if (getByteCount(width, height, numberOfFrames) > budget.getMaxBytes()) {
+			return null;
+		}
+		return new FrameCache(gifDrawable, budget, width, height, numberOfFrames);
+	}
+
+	private static long getByteCount(int width, int height, int numberOfFrames) {
+		return (long) width * height * 4 * numberOfFrames;
+	}
+
+	/**
+	 * Stores copy of just rendered frame, capturing starts at frame 0 and restarts whenever a frame is missed.
+	 * Capturing does not start if bytes of all frames cannot be reserved, it is tried again on next frame 0.
+	 */
+	synchronized void capture(int frameIndex, Bitmap buffer, long duration) {
+		if (mComplete || mUnusable) {
+			return;
+		}
+		if (frameIndex != mCapturedCount) {
+			mCapturedCount = 0;
+			if (frameIndex != 0) {
+				return;
+			}
+		}
+		if (!mReserved) {
+			if (!mBudget.reserve(this, getByteCount(mWidth, mHeight, mFrames.length))) {
+				return;
+			}
+			mReserved = true;
+		}
+
+		Bitmap frame = mFrames[frameIndex];
+		if (frame == null) {
+			try {
+				frame = mGifDrawable.makeBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+			} catch (OutOfMemoryError e) {
+				mUnusable = true;
+				releaseFrames();
+				return;
+			}
+			mFrames[frameIndex] = frame;
+		}
+		frame.eraseColor(Color.TRANSPARENT);
+		new Canvas(frame).drawBitmap(buffer, 0, 0, null);
+		frame.setHasAlpha(buffer.hasAlpha());
+		mDurations[frameIndex] = duration;
+
+		mCapturedCount++;
+		if (mCapturedCount == mFrames.length) {
+			mComplete = true;
+			mIndex = frameIndex;
+			mCurrentFrame = frame;
+		}
+	}
+
+	/**
+	 * Moves to the next cached frame, tells drawable when a new loop starts since native decoder does not count it.
+	 *
+	 * @return duration of the new current frame or {@link #NOT_CACHED}
+	 */
+	synchronized long advance() {
+		if (!mComplete) {
+			return NOT_CACHED;
+		}
+		mIndex = (mIndex + 1) % mFrames.length;
+		mCurrentFrame = mFrames[mIndex];
+		if (mIndex == 0) {
+			mGifDrawable.mCachedLoopCount++;
+		}
+		return mDurations[mIndex];
+	}
+
+	/**
+	 * @return frame to draw or null if frames are not cached yet
+	 */
+	Bitmap getCurrentFrame() {
+		return mCurrentFrame;
+	}
+
+	/**
+	 * @return index of current frame or -1 if frames are not cached yet
+	 */
+	synchronized int getCurrentFrameIndex() {
+		return mComplete ? mIndex : -1;
+	}
+
+	synchronized long getByteCount() {
+		long byteCount = 0;
+		for (Bitmap frame : mFrames) {
+			if (frame != null) {
+				byteCount += frame.getRowBytes() * frame.getHeight();
+			}
+		}
+		return byteCount;
+	}
+
+	/**
+	 * Drops all frames, capturing starts again from next frame 0.
+	 */
+	synchronized void clear() {
+		releaseFrames();
+	}
+
+	/**
+	 * Reservation was taken away from {@link FrameCacheBudget}, frames are dropped on rendering thread without jumping.
+	 */
+	@Override
+	public void onTrimmed() {
+		mGifDrawable.clearFrameCacheKeepingPosition(false);
+	}
+
+	private void releaseFrames() {
+		if (mReserved) {
+			mReserved = false;
+			mBudget.release(this);
+		}
+		mComplete = false;
+		mCapturedCount = 0;
+		mCurrentFrame = null;
+		for (int i = 0; i < mFrames.length; i++) {
+			if (mFrames[i] != null) {
+				mGifDrawable.releaseFrameBitmapAfterDraw(mFrames[i]);
+				mFrames[i] = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package pl.droidsonroids.gif;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Byte budget shared by frame caches of many {@link GifDrawable}s, see {@link GifDrawable#getFrameCacheBudget()}.
+ * A frame cache reserves bytes for all its frames before capturing them and releases them when frames are dropped,
+ * a reservation which does not fit is refused, so frame caches never evict each other.
+ * Reservations are held weakly, bytes of a holder collected without being released are freed automatically.
+ * All methods are thread-safe.
+ */
+public class FrameCacheBudget {
+
+	/**
+	 * Something holding a reservation, it is asked to drop its frames by {@link #trimToSize(long)}.
+	 */
+	public interface Holder {
+		/**
+		 * Called without budget lock held after reservation has been taken away.
+		 * Holder should drop its frames, {@link #release(Holder)} is not needed anymore.
+		 */
+		void onTrimmed();
+	}
+
+	private final long mMaxBytes;
+	/**
+	 * Reservations in order they were made, the oldest are trimmed first
+	 */
+	private final List<Reservation> mReservations = new ArrayList<>();
+
+	/**
+	 * @param maxBytes maximum number of bytes all reservations together may use
+	 */
+	public FrameCacheBudget(long maxBytes) {
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * @return maximum number of bytes all reservations together may use
+	 */
+	public long getMaxBytes() {
+		return mMaxBytes;
+	}
+
+	/**
+	 * @return number of bytes currently reserved
+	 */
+	public synchronized long getReservedBytes() {
+		long reservedBytes = 0;
+		final Iterator<Reservation> iterator = mReservations.iterator();
+		while (iterator.hasNext()) {
+			final Reservation reservation = iterator.next();
+			if (reservation.mHolder.get() == null) {
+				iterator.remove();
+			} else {
+				reservedBytes += reservation.mBytes;
+			}
+		}
+		return reservedBytes;
+	}
+
+	/**
+	 * Reserves bytes for given holder, replacing its previous reservation if any.
+	 *
+	 * @param holder holder of the reservation
+	 * @param bytes  number of bytes
+	 * @return false if the bytes do not fit in what is left of the budget
+	 */
+	public synchronized boolean reserve(Holder holder, long bytes) {
+		removeReservation(holder);
+		if (bytes > mMaxBytes - getReservedBytes()) {
+			return false;
+		}
+		mReservations.add(new Reservation(holder, bytes));
+		return true;
+	}
+
+	/**
+	 * Releases reservation of given holder, does nothing if it has none.
+	 *
+	 * @param holder holder of the reservation
+	 */
+	public synchronized void release(Holder holder) {
+		removeReservation(holder);
+	}
+
+	/**
+	 * Takes away the oldest reservations until no more than <code>size</code> bytes are reserved,
+	 * their holders are notified by {@link Holder#onTrimmed()}.
+	 *
+	 * @param size number of bytes which may stay reserved, 0 trims all
+	 */
+	public void trimToSize(long size) {
+		final List<Holder> trimmedHolders = new ArrayList<>();
+		synchronized (this) {
+			long reservedBytes = getReservedBytes();
+			final Iterator<Reservation> iterator = mReservations.iterator();
+			while (reservedBytes > size && iterator.hasNext()) {
+				final Reservation reservation = iterator.next();
+				iterator.remove();
+				reservedBytes -= reservation.mBytes;
+				final Holder holder = reservation.mHolder.get();
+				if (holder != null) {
+					trimmedHolders.add(holder);
+				}
+			}
+		}
+		// Holders take their own locks when dropping frames, so they are notified after budget lock is released
+		for (Holder holder : trimmedHolders) {
+			holder.onTrimmed();
+		}
+	}
+
+	private void removeReservation(Holder holder) {
+		final Iterator<Reservation> iterator = mReservations.iterator();
+		while (iterator.hasNext()) {
+			final Holder reservationHolder = iterator.next().mHolder.get();
+			if (reservationHolder == null || reservationHolder == holder) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static final class Reservation {
+		final WeakReference<Holder> mHolder;
+		final long mBytes;
+
+		Reservation(Holder holder, long bytes) {
+			mHolder = new WeakReference<>(holder);
+			mBytes = bytes;
+		}
+	}
+}
@@ -36,6 +36,7 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
@@ -82,6 +83,22 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	private int mScaledWidth;
 	private int mScaledHeight;
 	private Transform mTransform;
+	volatile FrameCache mFrameCache;
+	/**
+	 * Frames dropped from {@link #mFrameCache} which may still be referenced by the last draw, guarded by itself
+	 */
+	private final ArrayList<Bitmap> mDroppedFrames = new ArrayList<>();
+
+	/**
+	 * Number of loops played from {@link #mFrameCache}, native decoder does not count them, written on rendering thread only
+	 */
+	volatile int mCachedLoopCount;
+
+	/**
+	 * Size of the frame cache budget shared by all drawables which do not override {@link #getFrameCacheBudget()}
+	 */
+	static final long DEFAULT_FRAME_CACHE_MAX_BYTES = 4 * 1024 * 1024;
+	private static final FrameCacheBudget DEFAULT_FRAME_CACHE_BUDGET = new FrameCacheBudget(DEFAULT_FRAME_CACHE_MAX_BYTES);
 
 	/**
 	 * Creates drawable from resource.
@@ -262,6 +279,126 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		return Bitmap.createBitmap(width, height, config);
 	}
 
+	/**
+	 * Releases bitmap of the frame cache obtained from {@link #makeBitmap(int, int, Bitmap.Config)}.
+	 * Called on main thread after a draw which no longer used that frame, or from {@link #recycle()},
+	 * so the bitmap may be reused right away. Default implementation just leaves it to garbage collector.
+	 *
+	 * @param bitmap frame bitmap
+	 */
+	protected void recycleFrameBitmap(Bitmap bitmap) {
+	}
+
+	/**
+	 * Called by {@link FrameCache} when it drops a frame, possibly on rendering thread while main thread is drawing it.
+	 * Frame is passed to {@link #recycleFrameBitmap(Bitmap)} once a later draw did not use it.
+	 */
+	void releaseFrameBitmapAfterDraw(Bitmap bitmap) {
+		synchronized (mDroppedFrames) {
+			mDroppedFrames.add(bitmap);
+		}
+	}
+
+	/**
+	 * Schedules release of dropped frames if just finished draw did not use any of them.
+	 * Release is posted so it also happens after the frame has been synced to render thread.
+	 */
+	private void releaseDroppedFrames(Bitmap drawnFrame) {
+		final ArrayList<Bitmap> frames;
+		synchronized (mDroppedFrames) {
+			if (mDroppedFrames.isEmpty() || mDroppedFrames.contains(drawnFrame)) {
+				return;
+			}
+			frames = new ArrayList<>(mDroppedFrames);
+			mDroppedFrames.clear();
+		}
+		mInvalidationHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				for (Bitmap frame : frames) {
+					recycleFrameBitmap(frame);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns budget the frame cache reserves its bytes from, see {@link #setFrameCacheEnabled(boolean)}.
+	 * It should be shared by many drawables, so together they cannot use more memory than the budget allows.
+	 * Default implementation returns one budget of {@link #DEFAULT_FRAME_CACHE_MAX_BYTES} bytes shared by all drawables.
+	 *
+	 * @return frame cache budget
+	 */
+	protected FrameCacheBudget getFrameCacheBudget() {
+		return DEFAULT_FRAME_CACHE_BUDGET;
+	}
+
+	/**
+	 * Enables or disables the frame cache. When enabled all frames are kept after one whole loop has been rendered
+	 * and later loops draw them without decoding again, trading memory for CPU. It is used only for animations
+	 * looping forever whose all frames fit in {@link #getFrameCacheBudget()}, otherwise this call has no effect.
+	 * Frames are captured only while the budget shared with other drawables has room for all of them.
+	 * Seeking, resetting or changing speed or loop count drops cached frames, they are captured again during next loop.
+	 * Disabling is performed on rendering thread, animation continues from the frame shown from cache.
+	 *
+	 * @param enabled true to enable
+	 */
+	public void setFrameCacheEnabled(boolean enabled) {
+		if (enabled) {
+			synchronized (this) {
+				if (mFrameCache == null && !isRecycled()) {
+					mFrameCache = FrameCache.create(this, mNativeInfoHandle, getFrameCacheBudget());
+				}
+			}
+		} else {
+			clearFrameCacheKeepingPosition(true);
+		}
+	}
+
+	/**
+	 * @return true if frame cache is in use, see {@link #setFrameCacheEnabled(boolean)}
+	 */
+	public boolean isFrameCacheEnabled() {
+		return mFrameCache != null;
+	}
+
+	private void clearFrameCache() {
+		final FrameCache frameCache = mFrameCache;
+		if (frameCache != null) {
+			frameCache.clear();
+		}
+	}
+
+	/**
+	 * Drops cached frames without jumping. Native decoder does not advance while cached frames are played,
+	 * so it is moved to the frame shown from cache before frames are dropped.
+	 *
+	 * @param disable true to also disable the frame cache
+	 */
+	void clearFrameCacheKeepingPosition(final boolean disable) {
+		mExecutor.execute(new SafeRunnable(this) {
+			@Override
+			public void doWork() {
+				final FrameCache frameCache = mFrameCache;
+				if (frameCache == null) {
+					return;
+				}
+				final int cachedFrameIndex = frameCache.getCurrentFrameIndex();
+				if (cachedFrameIndex >= 0 && cachedFrameIndex != mNativeInfoHandle.getCurrentFrameIndex()) {
+					mNativeInfoHandle.seekToFrame(cachedFrameIndex, mBuffer);
+				}
+				if (disable) {
+					synchronized (mGifDrawable) {
+						if (mFrameCache == frameCache) {
+							mFrameCache = null;
+						}
+					}
+				}
+				frameCache.clear();
+			}
+		});
+	}
+
 	/**
 	 * Frees any memory allocated native way.
 	 * Operation is irreversible. After this call, nothing will be drawn.
@@ -271,6 +408,23 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 */
 	public void recycle() {
 		shutdown();
+		final FrameCache frameCache;
+		synchronized (this) {
+			frameCache = mFrameCache;
+			mFrameCache = null;
+		}
+		if (frameCache != null) {
+			frameCache.clear();
+		}
+		// Nothing is drawn after recycling, dropped frames can be released right away
+		final ArrayList<Bitmap> frames;
+		synchronized (mDroppedFrames) {
+			frames = new ArrayList<>(mDroppedFrames);
+			mDroppedFrames.clear();
+		}
+		for (Bitmap frame : frames) {
+			recycleFrameBitmap(frame);
+		}
 		recycleBitmap();
 	}
 
@@ -355,7 +509,9 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 			mInvalidationHandler.sendEmptyMessageAtTime(MSG_TYPE_INVALIDATION, 0);
 		} else {
 			cancelPendingRenderTask();
-			mRenderTaskSchedule = mExecutor.schedule(mRenderTask, Math.max(lastFrameRemainder, 0), TimeUnit.MILLISECONDS);
+			final long renderDelay = Math.max(lastFrameRemainder, 0);
+			mRenderTask.mFrameDueTime = SystemClock.uptimeMillis() + renderDelay;
+			mRenderTaskSchedule = mExecutor.schedule(mRenderTask, renderDelay, TimeUnit.MILLISECONDS);
 		}
 	}
 
@@ -368,6 +524,8 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		mExecutor.execute(new SafeRunnable(this) {
 			@Override
 			public void doWork() {
+				clearFrameCache();
+				mCachedLoopCount = 0;
 				if (mNativeInfoHandle.reset()) {
 					start();
 				}
@@ -430,6 +588,9 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 * @param loopCount loop count, 0 means infinity
 	 */
 	public void setLoopCount(@IntRange(from = 0, to = Character.MAX_VALUE) final int loopCount) {
+		if (loopCount != 0) {
+			setFrameCacheEnabled(false);
+		}
 		mNativeInfoHandle.setLoopCount(loopCount);
 	}
 
@@ -487,6 +648,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 * @throws IllegalArgumentException if factor&lt;=0
 	 */
 	public void setSpeed(@FloatRange(from = 0, fromInclusive = false) final float factor) {
+		clearFrameCacheKeepingPosition(false);
 		mNativeInfoHandle.setSpeedFactor(factor);
 	}
 
@@ -542,6 +704,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		mExecutor.execute(new SafeRunnable(this) {
 			@Override
 			public void doWork() {
+				clearFrameCache();
 				mNativeInfoHandle.seekToTime(position, mBuffer);
 				mGifDrawable.mInvalidationHandler.sendEmptyMessageAtTime(MSG_TYPE_INVALIDATION, 0);
 			}
@@ -560,6 +723,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		}
 
 		synchronized (mNativeInfoHandle) {
+			clearFrameCache();
 			mNativeInfoHandle.seekToTime(position, mBuffer);
 		}
 		mInvalidationHandler.sendEmptyMessageAtTime(MSG_TYPE_INVALIDATION, 0);
@@ -579,6 +743,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		mExecutor.execute(new SafeRunnable(this) {
 			@Override
 			public void doWork() {
+				clearFrameCache();
 				mNativeInfoHandle.seekToFrame(frameIndex, mBuffer);
 				mInvalidationHandler.sendEmptyMessageAtTime(MSG_TYPE_INVALIDATION, 0);
 			}
@@ -598,6 +763,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		}
 		final Bitmap bitmap;
 		synchronized (mNativeInfoHandle) {
+			clearFrameCache();
 			mNativeInfoHandle.seekToFrame(frameIndex, mBuffer);
 			bitmap = getCurrentFrame();
 		}
@@ -618,6 +784,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		}
 		final Bitmap bitmap;
 		synchronized (mNativeInfoHandle) {
+			clearFrameCache();
 			mNativeInfoHandle.seekToTime(position, mBuffer);
 			bitmap = getCurrentFrame();
 		}
@@ -713,6 +880,10 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		} else {
 			byteCount += getFrameByteCount();
 		}
+		final FrameCache frameCache = mFrameCache;
+		if (frameCache != null) {
+			byteCount += frameCache.getByteCount();
+		}
 		return byteCount;
 	}
 
@@ -746,7 +917,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 * @throws ArrayIndexOutOfBoundsException if the pixels array is too small to receive required number of pixels
 	 */
 	public void getPixels(@NonNull int[] pixels) {
-		mBuffer.getPixels(pixels, 0, mNativeInfoHandle.getWidth(), 0, 0, mNativeInfoHandle.getWidth(), mNativeInfoHandle.getHeight());
+		getDrawnFrame().getPixels(pixels, 0, mNativeInfoHandle.getWidth(), 0, 0, mNativeInfoHandle.getWidth(), mNativeInfoHandle.getHeight());
 	}
 
 	/**
@@ -767,7 +938,7 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		if (y >= mNativeInfoHandle.getHeight()) {
 			throw new IllegalArgumentException("y must be < height");
 		}
-		return mBuffer.getPixel(x, y);
+		return getDrawnFrame().getPixel(x, y);
 	}
 
 	@Override
@@ -792,20 +963,22 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 		} else {
 			clearColorFilter = false;
 		}
+		final Bitmap frame = getDrawnFrame();
 		if (mTransform == null) {
-			canvas.drawBitmap(mBuffer, mSrcRect, mDstRect, mPaint);
+			canvas.drawBitmap(frame, mSrcRect, mDstRect, mPaint);
 		} else {
-			mTransform.onDraw(canvas, mPaint, mBuffer);
+			mTransform.onDraw(canvas, mPaint, frame);
 		}
 		if (clearColorFilter) {
 			mPaint.setColorFilter(null);
 		}
-
+		releaseDroppedFrames(frame);
 	}
 
 	private void scheduleNextRender() {
 		if (mIsRenderingTriggeredOnDraw && mIsRunning && mNextFrameRenderTime != Long.MIN_VALUE) {
 			final long renderDelay = Math.max(0, mNextFrameRenderTime - SystemClock.uptimeMillis());
+			mRenderTask.mFrameDueTime = mNextFrameRenderTime;
 			mNextFrameRenderTime = Long.MIN_VALUE;
 			mExecutor.remove(mRenderTask);
 			mRenderTaskSchedule = mExecutor.schedule(mRenderTask, renderDelay, TimeUnit.MILLISECONDS);
@@ -870,11 +1043,35 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 * @return current frame
 	 */
 	public Bitmap getCurrentFrame() {
-		final Bitmap copy = mBuffer.copy(mBuffer.getConfig(), mBuffer.isMutable());
-		copy.setHasAlpha(mBuffer.hasAlpha());
+		final Bitmap frame = getDrawnFrame();
+		final Bitmap copy = frame.copy(frame.getConfig(), frame.isMutable());
+		copy.setHasAlpha(frame.hasAlpha());
 		return copy;
 	}
 
+	/**
+	 * @return cached frame when frame cache is playing, {@link #mBuffer} otherwise
+	 */
+	private Bitmap getDrawnFrame() {
+		final FrameCache frameCache = mFrameCache;
+		final Bitmap frame = frameCache != null ? frameCache.getCurrentFrame() : null;
+		return frame != null ? frame : mBuffer;
+	}
+
+	/**
+	 * Draws current frame into given bounds using given paint, ignoring this drawable's own bounds, paint and transform.
+	 * Used by subclasses which share single animation between several drawables.
+	 *
+	 * @param canvas  canvas to draw into
+	 * @param dstRect destination bounds
+	 * @param paint   paint to draw with
+	 */
+	protected void drawFrame(@NonNull Canvas canvas, @NonNull Rect dstRect, @NonNull Paint paint) {
+		final Bitmap frame = getDrawnFrame();
+		canvas.drawBitmap(frame, mSrcRect, dstRect, paint);
+		releaseDroppedFrames(frame);
+	}
+
 	private PorterDuffColorFilter updateTintFilter(ColorStateList tint, PorterDuff.Mode tintMode) {
 		if (tint == null || tintMode == null) {
 			return null;
@@ -950,21 +1147,23 @@ public class GifDrawable extends Drawable implements Animatable, MediaPlayerCont
 	 * @return index of recently rendered frame or -1 when drawable is recycled
 	 */
 	public int getCurrentFrameIndex() {
-		return mNativeInfoHandle.getCurrentFrameIndex();
+		final FrameCache frameCache = mFrameCache;
+		final int cachedFrameIndex = frameCache != null ? frameCache.getCurrentFrameIndex() : -1;
+		return cachedFrameIndex >= 0 ? cachedFrameIndex : mNativeInfoHandle.getCurrentFrameIndex();
 	}
 
 	/**
 	 * Returns zero-based index of currently played animation loop. If animation is infinite or
-	 * drawable is recycled 0 is returned.
+	 * drawable is recycled 0 is returned. Loops played from the frame cache are counted as well.
 	 *
 	 * @return index of currently played animation loop
 	 */
 	public int getCurrentLoop() {
 		final int currentLoop = mNativeInfoHandle.getCurrentLoop();
 		if (currentLoop == 0 || currentLoop < mNativeInfoHandle.getLoopCount()) {
-			return currentLoop;
+			return currentLoop + mCachedLoopCount;
 		} else {
-			return currentLoop - 1;
+			return currentLoop - 1 + mCachedLoopCount;
 		}
 	}
 
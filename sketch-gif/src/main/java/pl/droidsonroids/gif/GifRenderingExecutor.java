@@ -1,23 +1,56 @@
 package pl.droidsonroids.gif;
 
+import androidx.annotation.NonNull;
+
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Default executor for rendering tasks - {@link java.util.concurrent.ScheduledThreadPoolExecutor}
- * with 1 worker thread and {@link java.util.concurrent.ThreadPoolExecutor.DiscardPolicy}.
+ * Default executors for rendering tasks - a small pool of {@link java.util.concurrent.ScheduledThreadPoolExecutor}s,
+ * each with 1 worker thread and {@link java.util.concurrent.ThreadPoolExecutor.DiscardPolicy}.
+ * <p>
+ * Drawables are spread over the pool round-robin and keep the executor they got for their whole life,
+ * so frames of different animations are decoded in parallel while all native calls of one
+ * {@link GifInfoHandle} still happen on one thread. Idle worker threads are released after {@link #KEEP_ALIVE_SECONDS}.
  */
 final class GifRenderingExecutor extends ScheduledThreadPoolExecutor {
 
+	private static final int POOL_SIZE = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	private static final long KEEP_ALIVE_SECONDS = 10;
+
+	private static final AtomicInteger sNextIndex = new AtomicInteger();
+
 	// Lazy initialization via inner-class holder
 	private static final class InstanceHolder {
-		private static final GifRenderingExecutor INSTANCE = new GifRenderingExecutor();
+		private static final GifRenderingExecutor[] INSTANCES = new GifRenderingExecutor[POOL_SIZE];
+
+		static {
+			for (int i = 0; i < INSTANCES.length; i++) {
+				INSTANCES[i] = new GifRenderingExecutor(i);
+			}
+		}
 	}
 
+	/**
+	 * @return next executor of the pool, callers must keep using the returned executor for the same drawable
+	 */
 	static GifRenderingExecutor getInstance() {
-		return InstanceHolder.INSTANCE;
+		final GifRenderingExecutor[] instances = InstanceHolder.INSTANCES;
+		return instances[(sNextIndex.getAndIncrement() & Integer.MAX_VALUE) % instances.length];
 	}
 
-	private GifRenderingExecutor() {
-		super(1, new DiscardPolicy());
+	private GifRenderingExecutor(final int index) {
+		super(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(@NonNull Runnable runnable) {
+				final Thread thread = new Thread(runnable, "GifRenderingThread-" + index);
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new DiscardPolicy());
+		setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+		allowCoreThreadTimeOut(true);
 	}
 }
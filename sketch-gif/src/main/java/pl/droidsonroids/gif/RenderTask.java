@@ -8,18 +8,60 @@ import static pl.droidsonroids.gif.InvalidationHandler.MSG_TYPE_INVALIDATION;
 
 class RenderTask extends SafeRunnable {
 
+	/**
+	 * Longest lag caught up by dropping frames, when rendering falls further behind the timeline is restarted from now.
+	 */
+	private static final long MAX_CATCH_UP_MILLIS = 500;
+	/**
+	 * Maximum number of consecutive frames not shown while catching up.
+	 */
+	private static final int MAX_DROPPED_FRAMES = 3;
+
+	/**
+	 * Uptime at which the frame about to be rendered is due or {@link Long#MIN_VALUE} if unknown.
+	 */
+	long mFrameDueTime = Long.MIN_VALUE;
+	private int mDroppedFrames;
+
 	RenderTask(GifDrawable gifDrawable) {
 		super(gifDrawable);
 	}
 
 	@Override
 	public void doWork() {
-		final long invalidationDelay = mGifDrawable.mNativeInfoHandle.renderFrame(mGifDrawable.mBuffer);
+		// Task could have been queued before drawable was hidden or stopped
+		if (!mGifDrawable.mIsRunning || !mGifDrawable.isVisible()) {
+			return;
+		}
+
+		// Later loops of a cached animation only switch to the next decoded frame
+		final FrameCache frameCache = mGifDrawable.mFrameCache;
+		long invalidationDelay = frameCache != null ? frameCache.advance() : FrameCache.NOT_CACHED;
+		if (invalidationDelay == FrameCache.NOT_CACHED) {
+			invalidationDelay = mGifDrawable.mNativeInfoHandle.renderFrame(mGifDrawable.mBuffer);
+			if (frameCache != null && invalidationDelay >= 0) {
+				frameCache.capture(mGifDrawable.mNativeInfoHandle.getCurrentFrameIndex(), mGifDrawable.mBuffer, invalidationDelay);
+			}
+		}
+		boolean dropFrame = false;
 		if (invalidationDelay >= 0) {
-			mGifDrawable.mNextFrameRenderTime = SystemClock.uptimeMillis() + invalidationDelay;
+			final long now = SystemClock.uptimeMillis();
+			// Next frame is timed from when this frame was due, not from when rendering finished, so animation does not drift
+			final long nextFrameRenderTime;
+			if (mFrameDueTime != Long.MIN_VALUE && now - mFrameDueTime <= MAX_CATCH_UP_MILLIS) {
+				nextFrameRenderTime = mFrameDueTime + invalidationDelay;
+				// Rendering triggered on draw needs every invalidation to keep going
+				dropFrame = !mGifDrawable.mIsRenderingTriggeredOnDraw && invalidationDelay > 0
+						&& nextFrameRenderTime < now && mDroppedFrames < MAX_DROPPED_FRAMES;
+			} else {
+				nextFrameRenderTime = now + invalidationDelay;
+			}
+			mDroppedFrames = dropFrame ? mDroppedFrames + 1 : 0;
+			mFrameDueTime = nextFrameRenderTime;
+			mGifDrawable.mNextFrameRenderTime = nextFrameRenderTime;
 			if (mGifDrawable.isVisible() && mGifDrawable.mIsRunning && !mGifDrawable.mIsRenderingTriggeredOnDraw) {
 				mGifDrawable.mExecutor.remove(this);
-				mGifDrawable.mRenderTaskSchedule = mGifDrawable.mExecutor.schedule(this, invalidationDelay, TimeUnit.MILLISECONDS);
+				mGifDrawable.mRenderTaskSchedule = mGifDrawable.mExecutor.schedule(this, Math.max(0, nextFrameRenderTime - now), TimeUnit.MILLISECONDS);
 			}
 			if (!mGifDrawable.mListeners.isEmpty() && mGifDrawable.getCurrentFrameIndex() == mGifDrawable.mNativeInfoHandle.getNumberOfFrames() - 1) {
 				mGifDrawable.mInvalidationHandler.sendEmptyMessageAtTime(mGifDrawable.getCurrentLoop(), mGifDrawable.mNextFrameRenderTime);
@@ -28,7 +70,8 @@ class RenderTask extends SafeRunnable {
 			mGifDrawable.mNextFrameRenderTime = Long.MIN_VALUE;
 			mGifDrawable.mIsRunning = false;
 		}
-		if (mGifDrawable.isVisible() && !mGifDrawable.mInvalidationHandler.hasMessages(MSG_TYPE_INVALIDATION)) {
+		// Next frame is already late, skip showing this one
+		if (!dropFrame && mGifDrawable.isVisible() && !mGifDrawable.mInvalidationHandler.hasMessages(MSG_TYPE_INVALIDATION)) {
 			mGifDrawable.mInvalidationHandler.sendEmptyMessageAtTime(MSG_TYPE_INVALIDATION, 0);
 		}
 	}
@@ -25,13 +25,33 @@ android {
             proguardFiles(getDefaultProguardFile("proguard-android.txt"), "proguard-rules.pro")
         }
     }
+
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
+}
+
+/*
+ * 把 -PpipelineBenchmark 开头的参数转给单元测试，用来运行 PipelineBenchmarkTest：
+ * ./gradlew :sketch:testDebugUnitTest --tests "*PipelineBenchmarkTest" -PpipelineBenchmark=true
+ */
+tasks.withType<Test>().configureEach {
+    maxHeapSize = "2g"
+    project.properties.filterKeys { it.startsWith("pipelineBenchmark") }.forEach { (key, value) ->
+        systemProperty(key, value.toString())
+    }
+    if (project.hasProperty("pipelineBenchmark")) {
+        outputs.upToDateWhen { false }
+    }
 }
 
 dependencies {
     compileOnly(project(":sketch-gif"))
     implementation("androidx.annotation:annotation:${property("ANDROIDX_ANNOTATION")}")
 
+    testImplementation(project(":sketch-gif"))
     testImplementation("junit:junit:${property("JUNIT_VERSION")}")
+    testImplementation("org.robolectric:robolectric:${property("ROBOLECTRIC_VERSION")}")
     androidTestImplementation("com.android.support.test:runner:${property("ANDROIDX_TEST_RUNNER")}")
     androidTestImplementation("com.android.support.test:rules:${property("ANDROIDX_TEST_RULES")}")
     androidTestImplementation("androidx.test.espresso:espresso-core:${property("ANDROIDX_TEST_ESPRESSO")}")
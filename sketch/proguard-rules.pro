@@ -16,9 +16,10 @@
 #   public *;
 #}
 
-# 只有 SketchGifDrawableImpl 类与 sketch-gif 有联系，因此当缺失 sketch-gif 时 SketchGifDrawableImpl 类在混淆时会发出警告
+# 只有 SketchGifDrawableImpl 和 SketchGifFrameDecoder 类与 sketch-gif 有联系，因此当缺失 sketch-gif 时这两个类在混淆时会发出警告
 -dontwarn me.panpf.sketch.drawable.SketchGifDrawableImpl
 -dontwarn me.panpf.sketch.drawable.SketchGifDrawableImpl$1
+-dontwarn me.panpf.sketch.drawable.SketchGifFrameDecoder
 
 # 实现了 Initializer 接口的类需要在 AndroidManifest 中配置，然后在运行时实例化，因此不能混淆
 -keep public class * implements me.panpf.sketch.Initializer
\ No newline at end of file
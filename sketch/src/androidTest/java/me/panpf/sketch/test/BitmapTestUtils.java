@@ -0,0 +1,88 @@
+package me.panpf.sketch.test;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 图片处理器测试共用的测试图片和误差计算
+ */
+public class BitmapTestUtils {
+
+    private static final int TEST_BITMAP_WIDTH = 720;
+    private static final int TEST_BITMAP_HEIGHT = 540;
+
+    private BitmapTestUtils() {
+    }
+
+    /**
+     * 创建一张加了白色竖条纹的渐变图片，纯渐变太容易模糊了，加些细节才能看出差别
+     */
+    @NonNull
+    public static Bitmap makeStripedBitmap() {
+        Bitmap bitmap = makeGradientBitmap();
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(Color.WHITE);
+        for (int x = 0; x < bitmap.getWidth(); x += 40) {
+            canvas.drawRect(x, 0, x + 8, bitmap.getHeight(), paint);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 创建一张左上角四分之一是半透明的渐变图片，遮罩只能盖在有像素的地方
+     */
+    @NonNull
+    public static Bitmap makeTranslucentBitmap() {
+        Bitmap bitmap = makeGradientBitmap();
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(0x80FFFFFF);
+        canvas.drawRect(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2, paint);
+        return bitmap;
+    }
+
+    @NonNull
+    private static Bitmap makeGradientBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(TEST_BITMAP_WIDTH, TEST_BITMAP_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setShader(new LinearGradient(0, 0, bitmap.getWidth(), bitmap.getHeight(),
+                new int[]{Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW}, null, Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, bitmap.getWidth(), bitmap.getHeight(), paint);
+        return bitmap;
+    }
+
+    /**
+     * 计算两张同样尺寸的图片每个通道的平均误差，取值为 0 到 255
+     *
+     * @param compareAlpha 是否也比较透明度通道
+     */
+    public static double meanError(@NonNull Bitmap bitmap1, @NonNull Bitmap bitmap2, boolean compareAlpha) {
+        int width = bitmap1.getWidth();
+        int height = bitmap1.getHeight();
+        int[] pixels1 = new int[width * height];
+        int[] pixels2 = new int[width * height];
+        bitmap1.getPixels(pixels1, 0, width, 0, 0, width, height);
+        bitmap2.getPixels(pixels2, 0, width, 0, 0, width, height);
+
+        long sum = 0;
+        for (int i = 0; i < pixels1.length; i++) {
+            int p1 = pixels1[i];
+            int p2 = pixels2[i];
+            if (compareAlpha) {
+                sum += Math.abs(((p1 >> 24) & 0xff) - ((p2 >> 24) & 0xff));
+            }
+            sum += Math.abs(((p1 >> 16) & 0xff) - ((p2 >> 16) & 0xff));
+            sum += Math.abs(((p1 >> 8) & 0xff) - ((p2 >> 8) & 0xff));
+            sum += Math.abs((p1 & 0xff) - (p2 & 0xff));
+        }
+        return (double) sum / (pixels1.length * (compareAlpha ? 4 : 3));
+    }
+}
@@ -0,0 +1,61 @@
+package me.panpf.sketch.test;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.process.MaskImageProcessor;
+import me.panpf.sketch.process.RoundRectImageProcessor;
+import me.panpf.sketch.process.WrappedImageProcessor;
+import me.panpf.sketch.request.Resize;
+
+@RunWith(AndroidJUnit4.class)
+public class FusedProcessorPipelineTest {
+
+    /**
+     * 融合处理与逐步处理的平均误差（每个通道，0 到 255）不能超过这个值，只允许抗锯齿边缘有细微差别
+     */
+    private static final double MAX_MEAN_ERROR = 1;
+
+    @Test
+    public void testTranslucentMaskDiff() {
+        Context context = InstrumentationRegistry.getContext();
+        Sketch sketch = Sketch.with(context);
+        Resize resize = new Resize(300, 200);
+
+        int[] maskColors = {0x80FF0000, 0x33000000, 0xCC00FF00};
+        for (int maskColor : maskColors) {
+            // MaskImageProcessor 本身可以融合
+            Bitmap fusedBitmap = new MaskImageProcessor(maskColor, new RoundRectImageProcessor(30))
+                    .process(sketch, BitmapTestUtils.makeTranslucentBitmap(), resize, false);
+            // 子类不会被融合，走原来的逐步处理流程
+            Bitmap sequentialBitmap = new SequentialMaskImageProcessor(maskColor, new RoundRectImageProcessor(30))
+                    .process(sketch, BitmapTestUtils.makeTranslucentBitmap(), resize, false);
+
+            Assert.assertEquals(sequentialBitmap.getWidth(), fusedBitmap.getWidth());
+            Assert.assertEquals(sequentialBitmap.getHeight(), fusedBitmap.getHeight());
+
+            double meanError = BitmapTestUtils.meanError(sequentialBitmap, fusedBitmap, true);
+            fusedBitmap.recycle();
+            sequentialBitmap.recycle();
+
+            if (meanError > MAX_MEAN_ERROR) {
+                Assert.fail(String.format("mask color %08x fused mean error %.2f > %.2f", maskColor, meanError, MAX_MEAN_ERROR));
+            }
+        }
+    }
+
+    private static class SequentialMaskImageProcessor extends MaskImageProcessor {
+        SequentialMaskImageProcessor(int maskColor, @Nullable WrappedImageProcessor wrappedProcessor) {
+            super(maskColor, wrappedProcessor);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package me.panpf.sketch.test;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.process.GaussianBlurImageProcessor;
+
+@RunWith(AndroidJUnit4.class)
+public class GaussianBlurImageProcessorTest {
+
+    /**
+     * 快速模式与直接模糊的平均误差（每个通道，0 到 255）不能超过这个值
+     */
+    private static final double MAX_MEAN_ERROR = 4;
+
+    @Test
+    public void testFastModeDiff() {
+        Context context = InstrumentationRegistry.getContext();
+        Sketch sketch = Sketch.with(context);
+
+        int[] radii = {25, 50, 100};
+        for (int radius : radii) {
+            Bitmap normalBitmap = GaussianBlurImageProcessor.make(radius, 0x66000000)
+                    .process(sketch, BitmapTestUtils.makeStripedBitmap(), null, false);
+            Bitmap fastBitmap = GaussianBlurImageProcessor.makeFastMode(radius, 0x66000000)
+                    .process(sketch, BitmapTestUtils.makeStripedBitmap(), null, false);
+
+            Assert.assertEquals(normalBitmap.getWidth(), fastBitmap.getWidth());
+            Assert.assertEquals(normalBitmap.getHeight(), fastBitmap.getHeight());
+
+            double meanError = BitmapTestUtils.meanError(normalBitmap, fastBitmap, false);
+            normalBitmap.recycle();
+            fastBitmap.recycle();
+
+            if (meanError > MAX_MEAN_ERROR) {
+                Assert.fail(String.format("radius %d fast mode mean error %.2f > %.2f", radius, meanError, MAX_MEAN_ERROR));
+            }
+        }
+    }
+
+    @Test
+    public void testFastModeKey() {
+        String normalKey = GaussianBlurImageProcessor.make(50, Color.TRANSPARENT).getKey();
+        String fastKey = GaussianBlurImageProcessor.makeFastMode(50, Color.TRANSPARENT).getKey();
+        Assert.assertNotEquals(normalKey, fastKey);
+    }
+}
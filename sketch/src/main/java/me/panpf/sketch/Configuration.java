@@ -33,21 +33,31 @@ import me.panpf.sketch.decode.ImageOrientationCorrector;
 import me.panpf.sketch.decode.ImageSizeCalculator;
 import me.panpf.sketch.decode.ProcessedImageCache;
 import me.panpf.sketch.decode.ResizeCalculator;
+import me.panpf.sketch.decode.SourceImageCache;
 import me.panpf.sketch.display.DefaultImageDisplayer;
 import me.panpf.sketch.display.ImageDisplayer;
+import me.panpf.sketch.drawable.SharedGifRegistry;
 import me.panpf.sketch.http.HttpStack;
 import me.panpf.sketch.http.HurlStack;
 import me.panpf.sketch.http.ImageDownloader;
+import me.panpf.sketch.metrics.FrameCostTracker;
+import me.panpf.sketch.metrics.MemoryAccountant;
+import me.panpf.sketch.metrics.SketchMetrics;
 import me.panpf.sketch.optionsfilter.OptionsFilter;
 import me.panpf.sketch.optionsfilter.OptionsFilterManager;
+import me.panpf.sketch.process.CircleImageProcessor;
 import me.panpf.sketch.process.ImageProcessor;
 import me.panpf.sketch.process.ResizeImageProcessor;
+import me.panpf.sketch.process.RoundRectImageProcessor;
 import me.panpf.sketch.request.FreeRideManager;
 import me.panpf.sketch.request.HelperFactory;
 import me.panpf.sketch.request.LoadListener;
 import me.panpf.sketch.request.RequestExecutor;
 import me.panpf.sketch.request.RequestFactory;
+import me.panpf.sketch.request.RequestTracer;
 import me.panpf.sketch.request.Resize;
+import me.panpf.sketch.shaper.CircleImageShaper;
+import me.panpf.sketch.shaper.RoundRectImageShaper;
 import me.panpf.sketch.uri.UriModel;
 import me.panpf.sketch.uri.UriModelManager;
 
@@ -74,6 +84,18 @@ public final class Configuration {
     private MemoryCache memoryCache;
     @NonNull
     private ProcessedImageCache processedImageCache;
+    @NonNull
+    private SourceImageCache sourceImageCache;
+    @NonNull
+    private SharedGifRegistry sharedGifRegistry;
+    @NonNull
+    private RequestTracer requestTracer;
+    @NonNull
+    private SketchMetrics metrics;
+    @NonNull
+    private FrameCostTracker frameCostTracker;
+    @NonNull
+    private MemoryAccountant memoryAccountant;
 
     @NonNull
     private HttpStack httpStack;
@@ -127,6 +149,15 @@ public final class Configuration {
         this.resizeCalculator = new ResizeCalculator();
         this.defaultDisplayer = new DefaultImageDisplayer();
         this.processedImageCache = new ProcessedImageCache();
+        this.sourceImageCache = new SourceImageCache();
+        this.sharedGifRegistry = new SharedGifRegistry();
+        this.requestTracer = new RequestTracer();
+        this.metrics = new SketchMetrics();
+        this.frameCostTracker = new FrameCostTracker();
+        this.memoryAccountant = new MemoryAccountant(context);
+        if (bitmapPool instanceof LruBitmapPool) {
+            ((LruBitmapPool) bitmapPool).setMetrics(metrics);
+        }
         this.orientationCorrector = new ImageOrientationCorrector();
 
         this.helperFactory = new HelperFactory();
@@ -216,6 +247,9 @@ public final class Configuration {
         if (newBitmapPool != null) {
             BitmapPool oldBitmapPool = this.bitmapPool;
             this.bitmapPool = newBitmapPool;
+            if (newBitmapPool instanceof LruBitmapPool) {
+                ((LruBitmapPool) newBitmapPool).setMetrics(metrics);
+            }
             oldBitmapPool.close();
             SLog.w(NAME, "bitmapPool=%s", bitmapPool.toString());
         }
@@ -276,6 +310,149 @@ public final class Configuration {
         return this;
     }
 
+    /**
+     * 获取原图内存缓存器
+     *
+     * @return {@link SourceImageCache}. 原图内存缓存器
+     */
+    @NonNull
+    public SourceImageCache getSourceImageCache() {
+        return sourceImageCache;
+    }
+
+    /**
+     * 设置原图内存缓存器
+     *
+     * @param sourceImageCache {@link SourceImageCache}. 原图内存缓存器
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setSourceImageCache(@NonNull SourceImageCache sourceImageCache) {
+        //noinspection ConstantConditions
+        if (sourceImageCache != null) {
+            this.sourceImageCache = sourceImageCache;
+            SLog.w(NAME, "sourceImageCache=%s", sourceImageCache.toString());
+        }
+        return this;
+    }
+
+    /**
+     * 获取共享 gif 动画注册表
+     *
+     * @return {@link SharedGifRegistry}. 共享 gif 动画注册表
+     */
+    @NonNull
+    public SharedGifRegistry getSharedGifRegistry() {
+        return sharedGifRegistry;
+    }
+
+    /**
+     * 获取请求阶段追踪器
+     *
+     * @return {@link RequestTracer}. 请求阶段追踪器
+     */
+    @NonNull
+    public RequestTracer getRequestTracer() {
+        return requestTracer;
+    }
+
+    /**
+     * 设置请求阶段追踪器，可以用来修改缓冲区容量
+     *
+     * @param requestTracer {@link RequestTracer}. 请求阶段追踪器
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setRequestTracer(@NonNull RequestTracer requestTracer) {
+        //noinspection ConstantConditions
+        if (requestTracer != null) {
+            this.requestTracer = requestTracer;
+            SLog.w(NAME, "requestTracer=%s", requestTracer.toString());
+        }
+        return this;
+    }
+
+    /**
+     * 获取指标统计
+     *
+     * @return {@link SketchMetrics}. 指标统计
+     */
+    @NonNull
+    public SketchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置指标统计，可以继承 {@link SketchMetrics} 把数据同时转发到自己的监控系统，见 {@link SketchMetrics#newCounter(String)}
+     *
+     * @param metrics {@link SketchMetrics}. 指标统计
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setMetrics(@NonNull SketchMetrics metrics) {
+        //noinspection ConstantConditions
+        if (metrics != null) {
+            this.metrics = metrics;
+            if (bitmapPool instanceof LruBitmapPool) {
+                ((LruBitmapPool) bitmapPool).setMetrics(metrics);
+            }
+            SLog.w(NAME, "metrics=%s", metrics.toString());
+        }
+        return this;
+    }
+
+    /**
+     * 获取主线程每帧耗时统计器
+     *
+     * @return {@link FrameCostTracker}. 主线程每帧耗时统计器
+     */
+    @NonNull
+    public FrameCostTracker getFrameCostTracker() {
+        return frameCostTracker;
+    }
+
+    /**
+     * 设置主线程每帧耗时统计器
+     *
+     * @param frameCostTracker {@link FrameCostTracker}. 主线程每帧耗时统计器
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setFrameCostTracker(@NonNull FrameCostTracker frameCostTracker) {
+        //noinspection ConstantConditions
+        if (frameCostTracker != null) {
+            this.frameCostTracker = frameCostTracker;
+            SLog.w(NAME, "frameCostTracker=%s", frameCostTracker.toString());
+        }
+        return this;
+    }
+
+    /**
+     * 获取图片内存记账器
+     *
+     * @return {@link MemoryAccountant}. 图片内存记账器
+     */
+    @NonNull
+    public MemoryAccountant getMemoryAccountant() {
+        return memoryAccountant;
+    }
+
+    /**
+     * 设置图片内存记账器
+     *
+     * @param memoryAccountant {@link MemoryAccountant}. 图片内存记账器
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setMemoryAccountant(@NonNull MemoryAccountant memoryAccountant) {
+        //noinspection ConstantConditions
+        if (memoryAccountant != null) {
+            this.memoryAccountant = memoryAccountant;
+            SLog.w(NAME, "memoryAccountant=%s", memoryAccountant.toString());
+        }
+        return this;
+    }
+
 
     /**
      * 获取 HTTP 请求执行器
@@ -710,6 +887,30 @@ public final class Configuration {
         return this;
     }
 
+    /**
+     * 全局绘制时整形？
+     */
+    public boolean isDrawTimeShapingEnabled() {
+        return optionsFilterManager.isDrawTimeShapingEnabled();
+    }
+
+    /**
+     * 设置全局绘制时整形，开启后 {@link RoundRectImageProcessor} 和 {@link CircleImageProcessor} 不再创建新图片，
+     * 而是换成 {@link RoundRectImageShaper} 和 {@link CircleImageShaper} 在绘制时整形，同一张图片可以同时用于不同形状的 View，
+     * 只影响 {@link Sketch#display(String, SketchView)} 方法
+     *
+     * @param drawTimeShapingEnabled 全局绘制时整形
+     * @return {@link Configuration}. 为了支持链式调用
+     */
+    @NonNull
+    public Configuration setDrawTimeShapingEnabled(boolean drawTimeShapingEnabled) {
+        if (optionsFilterManager.isDrawTimeShapingEnabled() != drawTimeShapingEnabled) {
+            optionsFilterManager.setDrawTimeShapingEnabled(this, drawTimeShapingEnabled);
+            SLog.w(NAME, "drawTimeShaping=%s", drawTimeShapingEnabled);
+        }
+        return this;
+    }
+
     /**
      * 全局移动数据下暂停下载？
      */
@@ -742,6 +943,12 @@ public final class Configuration {
                 "\n" + "bitmapPool：" + bitmapPool.toString() +
                 "\n" + "memoryCache：" + memoryCache.toString() +
                 "\n" + "processedImageCache：" + processedImageCache.toString() +
+                "\n" + "sourceImageCache：" + sourceImageCache.toString() +
+                "\n" + "sharedGifRegistry：" + sharedGifRegistry.toString() +
+                "\n" + "requestTracer：" + requestTracer.toString() +
+                "\n" + "metrics：" + metrics.toString() +
+                "\n" + "frameCostTracker：" + frameCostTracker.toString() +
+                "\n" + "memoryAccountant：" + memoryAccountant.toString() +
 
                 "\n" + "httpStack：" + httpStack.toString() +
                 "\n" + "decoder：" + decoder.toString() +
@@ -763,7 +970,8 @@ public final class Configuration {
                 "\n" + "pauseLoad：" + optionsFilterManager.isPauseLoadEnabled() +
                 "\n" + "lowQualityImage：" + optionsFilterManager.isLowQualityImageEnabled() +
                 "\n" + "inPreferQualityOverSpeed：" + optionsFilterManager.isInPreferQualityOverSpeedEnabled() +
-                "\n" + "mobileDataPauseDownload：" + isMobileDataPauseDownloadEnabled();
+                "\n" + "mobileDataPauseDownload：" + isMobileDataPauseDownloadEnabled() +
+                "\n" + "drawTimeShaping：" + optionsFilterManager.isDrawTimeShapingEnabled();
     }
 
     private static class MemoryChangedListener implements ComponentCallbacks2 {
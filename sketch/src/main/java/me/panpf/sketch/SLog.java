@@ -95,10 +95,16 @@ public class SLog {
     public static final String LEVEL_NAME_ERROR = "ERROR";
     public static final String LEVEL_NAME_NONE = "NONE";
 
-    private static final String TAG = "Sketch";
+    /**
+     * 结构化日志事件缓冲区的容量
+     */
+    public static final int EVENT_BUFFER_CAPACITY = 1024;
+
+    static final String TAG = "Sketch";
     private static final String NAME = "SLog";
-    private static int levelAndTypeFlags;
-    private static Proxy proxy = new ProxyImpl();
+    private static volatile int levelAndTypeFlags;
+    private static volatile Proxy proxy = new ProxyImpl();
+    private static volatile SLogRingBuffer eventBuffer;
 
     static {
         setLevel(LEVEL_INFO);
@@ -304,22 +310,10 @@ public class SLog {
     }
 
     /**
-     * 低 16 位只能有一个 1，保留最高的一个
+     * 低 16 位只能有一个 1，保留最高的一个。{@link #isLoggable(int)} 每次都会调用，所以不能创建对象
      */
     private static int low16One(int mask) {
-        int maskLow16Bits = mask & 0xFFFF;
-
-        StringBuilder builder = new StringBuilder();
-        builder.append("1");
-
-        int low16StringLength = Integer.toBinaryString(maskLow16Bits).length();
-        for (int index = 1, length = low16StringLength - 1; index <= length; index++) {
-            builder.append("0");
-        }
-        String fixLow16MaskString = builder.toString();
-        int fixLow16Mask = parseUnsignedInt(fixLow16MaskString, 2);
-
-        int finalLow16 = mask & fixLow16Mask;
+        int finalLow16 = Integer.highestOneBit(mask & 0xFFFF);
         //noinspection NumericOverflow
         int high16 = mask & (0xFFFF << 16);
         return high16 | finalLow16;
@@ -595,6 +589,107 @@ public class SLog {
         return proxy.e(TAG, assembleLog(scope, log, (Object[]) null), tr);
     }
 
+    /* *********************************** EVENT *************************************** */
+
+    /**
+     * 记录一条结构化日志，日志关闭时返回 null，开启时从无锁的环形缓冲区中取出一个复用的事件，字段填充完后调用 {@link SLogEvent#commit()} 提交，
+     * 由日志线程稍后格式化并输出，调用线程上不做格式化，也不装箱。例如：
+     * <pre>
+     * SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Download exception but can retry");
+     * if (event != null) {
+     *     event.put("retryCount", retryCount).put("key", request.getKey()).throwable(tr).commit();
+     * }
+     * </pre>
+     * 和 {@link #w(String, String, Object...)} 等方法不同，事件是异步输出的，和它们之间的先后顺序不保证。缓冲区满了会丢弃新的事件
+     *
+     * @param mask    日志级别和类型，例如 LEVEL_DEBUG | TYPE_FLOW，没有级别时按 {@link #LEVEL_DEBUG} 处理
+     * @param scope   表示当前日志所处的位置
+     * @param message 日志内容，最好是常量
+     * @return null：日志没有开启或者缓冲区满了
+     */
+    @Nullable
+    public static SLogEvent event(int mask, @Nullable String scope, @NonNull String message) {
+        int level = Integer.highestOneBit(mask & 0xFFFF);
+        if (level == 0) {
+            level = LEVEL_DEBUG;
+        }
+        if (!isLoggable(mask | level)) {
+            return null;
+        }
+
+        SLogRingBuffer buffer = eventBuffer;
+        if (buffer == null) {
+            synchronized (SLog.class) {
+                buffer = eventBuffer;
+                if (buffer == null) {
+                    buffer = new SLogRingBuffer(EVENT_BUFFER_CAPACITY);
+                    eventBuffer = buffer;
+                }
+            }
+        }
+        return buffer.claim(level, scope, message);
+    }
+
+    /**
+     * 因为缓冲区满了而丢弃的结构化日志的数量
+     */
+    public static long getDroppedEventCount() {
+        SLogRingBuffer buffer = eventBuffer;
+        return buffer != null ? buffer.getDroppedCount() : 0;
+    }
+
+    /**
+     * 在日志线程上输出一条结构化日志，代理是 {@link EventProxy} 时直接交给它，否则格式化后交给 {@link Proxy}
+     */
+    static void dispatch(@NonNull SLogEvent event, @NonNull StringBuilder builder) {
+        Proxy proxy = SLog.proxy;
+        if (proxy instanceof EventProxy) {
+            ((EventProxy) proxy).onEvent(event);
+            return;
+        }
+
+        builder.setLength(0);
+        String msg = event.format(builder).toString();
+        Throwable tr = event.getThrowable();
+        switch (event.getLevel()) {
+            case LEVEL_VERBOSE:
+                if (tr != null) {
+                    proxy.v(TAG, msg, tr);
+                } else {
+                    proxy.v(TAG, msg);
+                }
+                break;
+            case LEVEL_DEBUG:
+                if (tr != null) {
+                    proxy.d(TAG, msg, tr);
+                } else {
+                    proxy.d(TAG, msg);
+                }
+                break;
+            case LEVEL_INFO:
+                if (tr != null) {
+                    proxy.i(TAG, msg, tr);
+                } else {
+                    proxy.i(TAG, msg);
+                }
+                break;
+            case LEVEL_WARNING:
+                if (tr != null) {
+                    proxy.w(TAG, msg, tr);
+                } else {
+                    proxy.w(TAG, msg);
+                }
+                break;
+            default:
+                if (tr != null) {
+                    proxy.e(TAG, msg, tr);
+                } else {
+                    proxy.e(TAG, msg);
+                }
+                break;
+        }
+    }
+
     @SuppressWarnings("WeakerAccess")
     @Retention(RetentionPolicy.SOURCE)
     @Target({ElementType.PARAMETER, ElementType.FIELD, ElementType.METHOD, ElementType.LOCAL_VARIABLE})
@@ -653,6 +748,16 @@ public class SLog {
         void onReplaced();
     }
 
+    /**
+     * 能直接接收结构化日志的代理，{@link #event(int, String, String)} 记录的日志不再格式化成文本，而是把 {@link SLogEvent} 交给 {@link #onEvent(SLogEvent)}
+     */
+    public interface EventProxy extends Proxy {
+        /**
+         * 在日志线程上回调，event 是复用的，只在这个方法内有效，不要保存它
+         */
+        void onEvent(@NonNull SLogEvent event);
+    }
+
     private static class ProxyImpl implements Proxy {
 
         @Override
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 结构化日志事件，由 {@link SLog#event(int, String, String)} 从 {@link SLogRingBuffer} 中取出，
+ * 填充字段后调用 {@link #commit()} 提交，日志线程稍后再把它格式化成文本交给 {@link SLog.Proxy}，
+ * 或者直接交给 {@link SLog.EventProxy}
+ * <p>
+ * 事件对象是复用的，字段都存在创建时就分配好的数组中，long、int、double、boolean 类型的字段不装箱，
+ * 整个记录过程不创建任何对象。Object 类型的字段只保存引用，格式化时才调用 toString()，所以不要传会被修改的对象。
+ * <p>
+ * 取出后必须尽快调用一次 {@link #commit()}，并且调用后不能再访问这个事件。取出和提交之间不要做 IO 等耗时操作，
+ * 日志线程会一直等在这个事件上，超过 1 秒没有提交的事件会被跳过并丢弃
+ */
+public class SLogEvent {
+
+    /**
+     * 最多能记录的字段数量，超出的字段会被忽略
+     */
+    public static final int MAX_FIELD_COUNT = 8;
+
+    public static final int FIELD_TYPE_LONG = 1;
+    public static final int FIELD_TYPE_DOUBLE = 2;
+    public static final int FIELD_TYPE_BOOLEAN = 3;
+    public static final int FIELD_TYPE_OBJECT = 4;
+
+    @NonNull
+    private final SLogRingBuffer ringBuffer;
+    final int slot;
+    long position;
+
+    private int level;
+    @Nullable
+    private String scope;
+    @NonNull
+    private String message = "";
+    @Nullable
+    private Throwable throwable;
+    @Nullable
+    private String threadName;
+    private long timeMillis;
+
+    private int fieldCount;
+    @NonNull
+    private final String[] fieldNames = new String[MAX_FIELD_COUNT];
+    @NonNull
+    private final byte[] fieldTypes = new byte[MAX_FIELD_COUNT];
+    @NonNull
+    private final long[] longValues = new long[MAX_FIELD_COUNT];
+    @NonNull
+    private final Object[] objectValues = new Object[MAX_FIELD_COUNT];
+
+    SLogEvent(@NonNull SLogRingBuffer ringBuffer, int slot) {
+        this.ringBuffer = ringBuffer;
+        this.slot = slot;
+    }
+
+    void init(long position, int level, @Nullable String scope, @NonNull String message) {
+        this.position = position;
+        this.level = level;
+        this.scope = scope;
+        this.message = message;
+        this.threadName = Thread.currentThread().getName();
+        this.timeMillis = System.currentTimeMillis();
+        this.throwable = null;
+        this.fieldCount = 0;
+    }
+
+    /**
+     * 格式化之后清掉引用，避免事件在缓冲区中长时间持有大对象
+     */
+    void clear() {
+        for (int i = 0; i < fieldCount; i++) {
+            fieldNames[i] = null;
+            objectValues[i] = null;
+        }
+        fieldCount = 0;
+        scope = null;
+        message = "";
+        throwable = null;
+        threadName = null;
+    }
+
+    @NonNull
+    public SLogEvent put(@NonNull String name, long value) {
+        if (fieldCount < MAX_FIELD_COUNT) {
+            fieldNames[fieldCount] = name;
+            fieldTypes[fieldCount] = FIELD_TYPE_LONG;
+            longValues[fieldCount] = value;
+            fieldCount++;
+        }
+        return this;
+    }
+
+    @NonNull
+    public SLogEvent put(@NonNull String name, int value) {
+        return put(name, (long) value);
+    }
+
+    @NonNull
+    public SLogEvent put(@NonNull String name, double value) {
+        if (fieldCount < MAX_FIELD_COUNT) {
+            fieldNames[fieldCount] = name;
+            fieldTypes[fieldCount] = FIELD_TYPE_DOUBLE;
+            longValues[fieldCount] = Double.doubleToRawLongBits(value);
+            fieldCount++;
+        }
+        return this;
+    }
+
+    @NonNull
+    public SLogEvent put(@NonNull String name, boolean value) {
+        if (fieldCount < MAX_FIELD_COUNT) {
+            fieldNames[fieldCount] = name;
+            fieldTypes[fieldCount] = FIELD_TYPE_BOOLEAN;
+            longValues[fieldCount] = value ? 1 : 0;
+            fieldCount++;
+        }
+        return this;
+    }
+
+    @NonNull
+    public SLogEvent put(@NonNull String name, @Nullable Object value) {
+        if (fieldCount < MAX_FIELD_COUNT) {
+            fieldNames[fieldCount] = name;
+            fieldTypes[fieldCount] = FIELD_TYPE_OBJECT;
+            objectValues[fieldCount] = value;
+            fieldCount++;
+        }
+        return this;
+    }
+
+    @NonNull
+    public SLogEvent throwable(@Nullable Throwable throwable) {
+        this.throwable = throwable;
+        return this;
+    }
+
+    /**
+     * 提交事件，交给日志线程处理
+     */
+    public void commit() {
+        ringBuffer.publish(this);
+    }
+
+    /**
+     * 日志级别，取值范围 {@link SLog#LEVEL_VERBOSE}, {@link SLog#LEVEL_DEBUG}, {@link SLog#LEVEL_INFO},
+     * {@link SLog#LEVEL_WARNING}, {@link SLog#LEVEL_ERROR}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    @Nullable
+    public String getScope() {
+        return scope;
+    }
+
+    @NonNull
+    public String getMessage() {
+        return message;
+    }
+
+    @Nullable
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * 记录事件的线程的名称
+     */
+    @Nullable
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * 记录事件的时间，{@link System#currentTimeMillis()}
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @NonNull
+    public String getFieldName(int index) {
+        return fieldNames[index];
+    }
+
+    /**
+     * 字段类型，取值范围 {@link #FIELD_TYPE_LONG}, {@link #FIELD_TYPE_DOUBLE}, {@link #FIELD_TYPE_BOOLEAN}, {@link #FIELD_TYPE_OBJECT}
+     */
+    public int getFieldType(int index) {
+        return fieldTypes[index];
+    }
+
+    public long getLong(int index) {
+        return longValues[index];
+    }
+
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(longValues[index]);
+    }
+
+    public boolean getBoolean(int index) {
+        return longValues[index] != 0;
+    }
+
+    @Nullable
+    public Object getObject(int index) {
+        return objectValues[index];
+    }
+
+    /**
+     * 格式化成 "${scope}. ${message}. name=value, name=value. ${threadName}"
+     */
+    @NonNull
+    public StringBuilder format(@NonNull StringBuilder builder) {
+        if (scope != null && scope.length() > 0) {
+            builder.append(scope).append(". ");
+        }
+        builder.append(message);
+        for (int i = 0; i < fieldCount; i++) {
+            builder.append(i == 0 ? ". " : ", ").append(fieldNames[i]).append('=');
+            switch (fieldTypes[i]) {
+                case FIELD_TYPE_LONG:
+                    builder.append(longValues[i]);
+                    break;
+                case FIELD_TYPE_DOUBLE:
+                    builder.append(getDouble(i));
+                    break;
+                case FIELD_TYPE_BOOLEAN:
+                    builder.append(getBoolean(i));
+                    break;
+                default:
+                    builder.append(objectValues[i]);
+                    break;
+            }
+        }
+        if (threadName != null) {
+            builder.append(". ").append(threadName);
+        }
+        return builder;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return format(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 存放 {@link SLogEvent} 的无锁环形缓冲区，多个线程写，一个日志线程读
+ * <p>
+ * 每个位置有一个序号：序号等于写入位置时可以写，写完后序号加 1 表示可以读，读完后序号再加上容量表示下一圈可以写。
+ * 写的时候只有一次 CAS，读的时候没有竞争。缓冲区满了就丢弃新的事件而不是等待，不会阻塞调用线程。
+ * <p>
+ * 取出后超过 {@link #PUBLISH_TIMEOUT_NANOS} 还没提交的事件（例如取出后抛了异常）会被日志线程跳过，不然后面的事件都会卡住。
+ * 跳过时这个位置换成一个新的事件对象，原来的事件之后再提交也只会被丢弃，不会影响下一圈的写入
+ */
+class SLogRingBuffer {
+    private static final String THREAD_NAME = "SketchLogWriter";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long PUBLISH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int mask;
+    @NonNull
+    private final SLogEvent[] events;
+    @NonNull
+    private final AtomicLongArray sequences;
+    @NonNull
+    private final AtomicLong writePosition = new AtomicLong();
+    @NonNull
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // 只有日志线程访问
+    private long readPosition;
+    private long stalledPosition = -1;
+    private long stalledSinceNanos;
+
+    @Nullable
+    private volatile Thread writerThread;
+    private volatile boolean waiting;
+
+    /**
+     * @param capacity 缓冲区容量，会向上取整到 2 的幂
+     */
+    SLogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.mask = size - 1;
+        this.events = new SLogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            events[i] = new SLogEvent(this, i);
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 取出一个可写的事件
+     *
+     * @return null：缓冲区满了
+     */
+    @Nullable
+    SLogEvent claim(int level, @Nullable String scope, @NonNull String message) {
+        if (writerThread == null) {
+            startWriterThread();
+        }
+
+        long position = writePosition.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    SLogEvent event = events[slot];
+                    event.init(position, level, scope, message);
+                    return event;
+                }
+            } else if (difference < 0) {
+                droppedCount.incrementAndGet();
+                return null;
+            }
+            position = writePosition.get();
+        }
+    }
+
+    void publish(@NonNull SLogEvent event) {
+        // 已经超时被跳过的事件序号对不上，直接丢弃
+        if (!sequences.compareAndSet(event.slot, event.position, event.position + 1)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (waiting) {
+            Thread thread = writerThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * 因为缓冲区满了或者超时没有提交而丢弃的事件数量
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private synchronized void startWriterThread() {
+        if (writerThread != null) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        writerThread = thread;
+        thread.start();
+    }
+
+    private void drainLoop() {
+        StringBuilder builder = new StringBuilder(256);
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            int slot = (int) (readPosition & mask);
+            if (sequences.get(slot) == readPosition + 1) {
+                SLogEvent event = events[slot];
+                try {
+                    SLog.dispatch(event, builder);
+                } catch (RuntimeException e) {
+                    android.util.Log.e(SLog.TAG, THREAD_NAME + ". dispatch event exception", e);
+                }
+                event.clear();
+                sequences.set(slot, readPosition + mask + 1);
+                readPosition++;
+            } else if (isPublishTimeout(slot)) {
+                // 原来的事件对象可能还被卡住的线程拿着，换一个新的再放出去给下一圈用
+                SLogEvent stalledEvent = events[slot];
+                events[slot] = new SLogEvent(this, slot);
+                if (sequences.compareAndSet(slot, readPosition, readPosition + mask + 1)) {
+                    droppedCount.incrementAndGet();
+                    readPosition++;
+                } else {
+                    // 刚好提交了，下一轮正常读取
+                    events[slot] = stalledEvent;
+                }
+            } else {
+                // 先声明要等待再检查一次，和 publish() 中先写序号再读 waiting 配合，保证不会错过唤醒
+                waiting = true;
+                if (sequences.get(slot) != readPosition + 1) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    /**
+     * 当前读取位置已经被取出但是超过 {@link #PUBLISH_TIMEOUT_NANOS} 还没提交
+     */
+    private boolean isPublishTimeout(int slot) {
+        if (sequences.get(slot) != readPosition) {
+            stalledPosition = -1;
+            return false;
+        }
+        // 序号等于位置时可能还没被取出，写入位置超过了才是取出了没提交
+        if (writePosition.get() <= readPosition) {
+            stalledPosition = -1;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (stalledPosition != readPosition) {
+            stalledPosition = readPosition;
+            stalledSinceNanos = now;
+            return false;
+        }
+        return now - stalledSinceNanos >= PUBLISH_TIMEOUT_NANOS;
+    }
+}
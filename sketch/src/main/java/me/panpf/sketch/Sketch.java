@@ -30,13 +30,18 @@ import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.List;
+
+import me.panpf.sketch.drawable.SketchGifFactory;
 import me.panpf.sketch.request.CancelCause;
 import me.panpf.sketch.request.DisplayHelper;
+import me.panpf.sketch.request.DisplayOptions;
 import me.panpf.sketch.request.DisplayRequest;
 import me.panpf.sketch.request.DownloadHelper;
 import me.panpf.sketch.request.DownloadListener;
 import me.panpf.sketch.request.LoadHelper;
 import me.panpf.sketch.request.LoadListener;
+import me.panpf.sketch.request.PrefetchHelper;
 import me.panpf.sketch.uri.AssetUriModel;
 import me.panpf.sketch.uri.DrawableUriModel;
 import me.panpf.sketch.util.SketchUtils;
@@ -47,6 +52,7 @@ import me.panpf.sketch.util.SketchUtils;
  * <li>{@link #display(String, SketchView)}：显示图片到 {@link SketchImageView} 上</li>
  * <li>{@link #load(String, LoadListener)}：加载图片到内存中</li>
  * <li>{@link #download(String, DownloadListener)}：下载图片到磁盘上</li>
+ * <li>{@link #prefetch(List, DisplayOptions)}：预加载一批图片到磁盘缓存或内存缓存中</li>
  * </ul>
  */
 public class Sketch {
@@ -136,6 +142,18 @@ public class Sketch {
         return configuration.getHelperFactory().getLoadHelper(this, uri, listener);
     }
 
+    /**
+     * 根据指定的一批 uri 在后台以最低的优先级预加载图片，之后用同样的显示选项显示时直接命中缓存
+     *
+     * @param uris           图片 uri 列表，支持全部的 uri 类型
+     * @param displayOptions 显示时要用的显示选项，用来生成和显示时一样的请求 key
+     * @return {@link PrefetchHelper} 你可以继续通过 {@link PrefetchHelper} 设置参数，最后调用其 {@link PrefetchHelper#commit()} 方法提交
+     */
+    @NonNull
+    public PrefetchHelper prefetch(@NonNull List<String> uris, @Nullable DisplayOptions displayOptions) {
+        return configuration.getHelperFactory().getPrefetchHelper(this, uris, displayOptions);
+    }
+
     /**
      * 加载 assets 资源图片
      *
@@ -235,6 +253,7 @@ public class Sketch {
 
         configuration.getMemoryCache().trimMemory(level);
         configuration.getBitmapPool().trimMemory(level);
+        SketchGifFactory.trimFrameCacheMemory(level);
     }
 
     /**
@@ -246,5 +265,6 @@ public class Sketch {
 
         configuration.getMemoryCache().clear();
         configuration.getBitmapPool().clear();
+        SketchGifFactory.trimFrameCacheMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.cache;
+
+import androidx.annotation.NonNull;
+
+import me.panpf.sketch.Key;
+import me.panpf.sketch.util.MurmurHash3;
+
+/**
+ * 带 128 位哈希值的缓存 key
+ * <p>
+ * 请求 key 由 uri 和选项 key 拼接而成，通常有上百个字符，作为 map 的 key 时每次比较都要逐个字符对比。
+ * {@link CacheKey} 创建时计算一次哈希值，哈希值不同时只需对比两个 long 就能判断不相等。
+ * MurmurHash3 不抗碰撞，可以人为构造出哈希值相同的 key，所以哈希值相同时还会再对比原始 key，碰撞的 key 不会互相拿到对方的缓存
+ */
+public final class CacheKey implements Key {
+    /**
+     * 一个 {@link CacheKey} 对象占用的内存，12 字节对象头 + 两个 long + 一个引用，按 8 字节对齐。
+     * 原始 key 字符串和 {@link me.panpf.sketch.drawable.SketchRefBitmap} 等共用同一个对象，不算在内
+     */
+    public static final int RETAINED_SIZE = 32;
+
+    @NonNull
+    private final String key;
+    private final long high;
+    private final long low;
+
+    private CacheKey(@NonNull String key, long high, long low) {
+        this.key = key;
+        this.high = high;
+        this.low = low;
+    }
+
+    @NonNull
+    public static CacheKey of(@NonNull String key) {
+        long[] hash = new long[2];
+        MurmurHash3.hash128(key, 0, hash);
+        return new CacheKey(key, hash[0], hash[1]);
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * 转换成 32 位的 16 进制字符串，可以用作文件名
+     */
+    @NonNull
+    public String toHexString() {
+        char[] chars = new char[32];
+        writeHex(high, chars, 0);
+        writeHex(low, chars, 16);
+        return new String(chars);
+    }
+
+    private static void writeHex(long value, @NonNull char[] out, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            int digit = (int) (value & 0xf);
+            out[offset + i] = (char) (digit < 10 ? '0' + digit : 'a' + digit - 10);
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * 原始 key
+     */
+    @NonNull
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CacheKey)) return false;
+        CacheKey other = (CacheKey) o;
+        return high == other.high && low == other.low && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -8,16 +8,20 @@ import android.os.Build;
 import android.text.format.Formatter;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.cache.recycle.AttributeStrategy;
 import me.panpf.sketch.cache.recycle.LruPoolStrategy;
 import me.panpf.sketch.cache.recycle.SizeConfigStrategy;
+import me.panpf.sketch.metrics.SketchMetrics;
 import me.panpf.sketch.util.SketchUtils;
 
 /**
@@ -40,10 +44,14 @@ public class LruBitmapPool implements BitmapPool {
     private int misses;
     private int puts;
     private int evictions;
+    @NonNull
+    private final Map<Bitmap.Config, Long> sizeByConfig = new HashMap<>();
 
     private Context context;
     private boolean closed;
     private boolean disabled;
+    @Nullable
+    private SketchMetrics metrics;
 
     public LruBitmapPool(Context context, int maxSize, @NonNull LruPoolStrategy strategy, @NonNull Set<Bitmap.Config> allowedConfigs) {
         this.context = context.getApplicationContext();
@@ -121,6 +129,7 @@ public class LruBitmapPool implements BitmapPool {
 
         puts++;
         currentSize += size;
+        changeSizeByConfig(bitmap.getConfig(), size);
 
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
             SLog.d(NAME, "Put bitmap in pool=%s,%s", strategy.logBitmap(bitmap), SketchUtils.toHexString(bitmap));
@@ -153,12 +162,20 @@ public class LruBitmapPool implements BitmapPool {
                 SLog.d(NAME, "Missing bitmap=%s", strategy.logBitmap(width, height, config));
             }
             misses++;
+            if (metrics != null) {
+                metrics.increment(SketchMetrics.BITMAP_POOL_MISS);
+            }
         } else {
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
                 SLog.d(NAME, "Get bitmap=%s,%s", strategy.logBitmap(width, height, config), SketchUtils.toHexString(result));
             }
             hits++;
-            currentSize -= strategy.getSize(result);
+            if (metrics != null) {
+                metrics.increment(SketchMetrics.BITMAP_POOL_HIT);
+            }
+            int size = strategy.getSize(result);
+            currentSize -= size;
+            changeSizeByConfig(result.getConfig(), -size);
             tracker.remove(result);
             result.setHasAlpha(true);
         }
@@ -244,6 +261,13 @@ public class LruBitmapPool implements BitmapPool {
         }
     }
 
+    /**
+     * 设置用来统计命中率的 {@link SketchMetrics}，由 {@link me.panpf.sketch.Configuration} 负责设置
+     */
+    public void setMetrics(@Nullable SketchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @SuppressLint("InlinedApi")
     @Override
     public synchronized void trimMemory(int level) {
@@ -288,6 +312,7 @@ public class LruBitmapPool implements BitmapPool {
                 SLog.w(NAME, "Size mismatch, resetting");
                 dumpUnchecked();
                 currentSize = 0;
+                sizeByConfig.clear();
                 return;
             }
 
@@ -295,13 +320,35 @@ public class LruBitmapPool implements BitmapPool {
                 SLog.d(NAME, "Evicting bitmap=%s,%s", strategy.logBitmap(removed), SketchUtils.toHexString(removed));
             }
             tracker.remove(removed);
-            currentSize -= strategy.getSize(removed);
+            int removedSize = strategy.getSize(removed);
+            currentSize -= removedSize;
+            changeSizeByConfig(removed.getConfig(), -removedSize);
             removed.recycle();
             evictions++;
             dump();
         }
     }
 
+    private void changeSizeByConfig(@Nullable Bitmap.Config config, int delta) {
+        Long size = sizeByConfig.get(config);
+        long newSize = (size != null ? size : 0) + delta;
+        if (newSize > 0) {
+            sizeByConfig.put(config, newSize);
+        } else {
+            sizeByConfig.remove(config);
+        }
+    }
+
+    /**
+     * 按 {@link Bitmap.Config} 统计池中的图片大小，返回的是一份拷贝
+     *
+     * @return key 可能为 null，非公开的 {@link Bitmap.Config} 取到的就是 null
+     */
+    @NonNull
+    public synchronized Map<Bitmap.Config, Long> getSizeByConfig() {
+        return new HashMap<>(sizeByConfig);
+    }
+
     private void dump() {
         dumpUnchecked();
     }
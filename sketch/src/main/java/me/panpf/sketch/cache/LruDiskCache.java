@@ -26,9 +26,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import me.panpf.sketch.Configuration;
@@ -45,6 +47,7 @@ import me.panpf.sketch.util.UnableCreateFileException;
  */
 public class LruDiskCache implements DiskCache {
     private static final String NAME = "LruDiskCache";
+    private static final int EDIT_LOCK_PURGE_THRESHOLD = 64;
 
     private int maxSize;
     private int appVersionCode;
@@ -58,8 +61,12 @@ public class LruDiskCache implements DiskCache {
     private Configuration configuration;
     private boolean closed;
     private boolean disabled;
+    /**
+     * 编辑锁，锁本身只被正在使用它的线程引用，所以这里用弱引用保存，没人用了就会被回收
+     */
     @Nullable
-    private Map<String, ReentrantLock> editLockMap;
+    private Map<String, WeakReference<ReentrantLock>> editLockMap;
+    private int editLockPurgeSize = EDIT_LOCK_PURGE_THRESHOLD;
 
     /**
      * 创建根据最少使用规则释放缓存的磁盘缓存管理器
@@ -213,9 +220,10 @@ public class LruDiskCache implements DiskCache {
             }
         }
 
+        String encodedKey = keyEncode(key);
         DiskLruCache.Editor diskEditor = null;
         try {
-            diskEditor = cache.edit(keyEncode(key));
+            diskEditor = cache.edit(encodedKey);
         } catch (IOException e) {
             e.printStackTrace();
 
@@ -226,7 +234,7 @@ public class LruDiskCache implements DiskCache {
             }
 
             try {
-                diskEditor = cache.edit(keyEncode(key));
+                diskEditor = cache.edit(encodedKey);
             } catch (IOException | DiskLruCache.ClosedException e1) {
                 e1.printStackTrace();
             }
@@ -240,7 +248,7 @@ public class LruDiskCache implements DiskCache {
             }
 
             try {
-                diskEditor = cache.edit(keyEncode(key));
+                diskEditor = cache.edit(encodedKey);
             } catch (IOException | DiskLruCache.ClosedException e1) {
                 e1.printStackTrace();
             }
@@ -344,21 +352,50 @@ public class LruDiskCache implements DiskCache {
     @Override
     public synchronized ReentrantLock getEditLock(@NonNull String key) {
         if (editLockMap == null) {
-            synchronized (this) {
-                if (editLockMap == null) {
-                    editLockMap = new WeakHashMap<>();
-                }
-            }
+            editLockMap = new HashMap<>();
         }
 
-        ReentrantLock lock = editLockMap.get(key);
+        WeakReference<ReentrantLock> lockReference = editLockMap.get(key);
+        ReentrantLock lock = lockReference != null ? lockReference.get() : null;
         if (lock == null) {
             lock = new ReentrantLock();
-            editLockMap.put(key, lock);
+            editLockMap.put(key, new WeakReference<>(lock));
+
+            if (editLockMap.size() >= editLockPurgeSize) {
+                purgeEditLocks(editLockMap);
+                editLockPurgeSize = Math.max(editLockMap.size() * 2, EDIT_LOCK_PURGE_THRESHOLD);
+            }
         }
         return lock;
     }
 
+    /**
+     * 删除已经被回收的编辑锁
+     */
+    private static void purgeEditLocks(@NonNull Map<String, WeakReference<ReentrantLock>> editLockMap) {
+        Iterator<WeakReference<ReentrantLock>> iterator = editLockMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取编辑锁 key 占用的内存
+     */
+    public synchronized long getEditLockKeysSize() {
+        if (editLockMap == null) {
+            return 0;
+        }
+        // String 对象头加 char[] 数组头约 40 字节，每个字符 2 字节
+        long size = 0;
+        for (String key : editLockMap.keySet()) {
+            size += 40 + 2L * key.length();
+        }
+        return size;
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -28,12 +28,15 @@ import me.panpf.sketch.util.SketchUtils;
 
 /**
  * 根据最少使用规则释放缓存的内存缓存管理器
+ * <p>
+ * 内部用 {@link CacheKey} 作 key，除了 {@link MemoryCache} 的 String 方法外还提供了直接接收 {@link CacheKey} 的方法，
+ * 请求中已经算好了 {@link CacheKey}，通过 {@link MemoryCacheUtils} 调用就不用每次都重新计算哈希值
  */
 public class LruMemoryCache implements MemoryCache {
     private static final String NAME = "LruMemoryCache";
 
     @NonNull
-    private final LruCache<String, SketchRefBitmap> cache;
+    private final LruCache<CacheKey, SketchRefBitmap> cache;
     @NonNull
     private Context context;
     private boolean closed;
@@ -52,7 +55,11 @@ public class LruMemoryCache implements MemoryCache {
     }
 
     @Override
-    public synchronized void put(@NonNull String key, @NonNull SketchRefBitmap refBitmap) {
+    public void put(@NonNull String key, @NonNull SketchRefBitmap refBitmap) {
+        put(CacheKey.of(key), refBitmap);
+    }
+
+    public synchronized void put(@NonNull CacheKey key, @NonNull SketchRefBitmap refBitmap) {
         if (closed) {
             return;
         }
@@ -65,7 +72,7 @@ public class LruMemoryCache implements MemoryCache {
         }
 
         if (cache.get(key) != null) {
-            SLog.w(NAME, String.format("Exist. key=%s", key));
+            SLog.w(NAME, String.format("Exist. key=%s", refBitmap.getKey()));
             return;
         }
 
@@ -77,14 +84,18 @@ public class LruMemoryCache implements MemoryCache {
         cache.put(key, refBitmap);
 
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
-            SLog.d(NAME, "put. beforeCacheSize=%s. %s. afterCacheSize=%s",
+            SLog.d(NAME, "put. beforeCacheSize=%s. %s. afterCacheSize=%s. keysSize=%s",
                     Formatter.formatFileSize(context, oldCacheSize), refBitmap.getInfo(),
-                    Formatter.formatFileSize(context, cache.size()));
+                    Formatter.formatFileSize(context, cache.size()), Formatter.formatFileSize(context, getKeysSize()));
         }
     }
 
     @Override
-    public synchronized SketchRefBitmap get(@NonNull String key) {
+    public SketchRefBitmap get(@NonNull String key) {
+        return get(CacheKey.of(key));
+    }
+
+    public synchronized SketchRefBitmap get(@NonNull CacheKey key) {
         if (closed) {
             return null;
         }
@@ -100,7 +111,11 @@ public class LruMemoryCache implements MemoryCache {
     }
 
     @Override
-    public synchronized SketchRefBitmap remove(@NonNull String key) {
+    public SketchRefBitmap remove(@NonNull String key) {
+        return remove(CacheKey.of(key));
+    }
+
+    public synchronized SketchRefBitmap remove(@NonNull CacheKey key) {
         if (closed) {
             return null;
         }
@@ -134,6 +149,17 @@ public class LruMemoryCache implements MemoryCache {
         return cache.maxSize();
     }
 
+    /**
+     * 获取缓存 key 占用的内存，每个 key 都是一个固定大小的 {@link CacheKey}
+     */
+    public synchronized long getKeysSize() {
+        if (closed) {
+            return 0;
+        }
+
+        return (long) cache.count() * CacheKey.RETAINED_SIZE;
+    }
+
     @Override
     public synchronized void trimMemory(int level) {
         if (closed) {
@@ -149,8 +175,9 @@ public class LruMemoryCache implements MemoryCache {
         }
 
         long releasedSize = memoryCacheSize - getSize();
-        SLog.w(NAME, "trimMemory. level=%s, released: %s",
-                SketchUtils.getTrimLevelName(level), Formatter.formatFileSize(context, releasedSize));
+        SLog.w(NAME, "trimMemory. level=%s, released: %s, keysSize=%s",
+                SketchUtils.getTrimLevelName(level), Formatter.formatFileSize(context, releasedSize),
+                Formatter.formatFileSize(context, getKeysSize()));
     }
 
     @Override
@@ -201,26 +228,26 @@ public class LruMemoryCache implements MemoryCache {
         return String.format("%s(maxSize=%s)", NAME, Formatter.formatFileSize(context, getMaxSize()));
     }
 
-    private static class RefBitmapLruCache extends LruCache<String, SketchRefBitmap> {
+    private static class RefBitmapLruCache extends LruCache<CacheKey, SketchRefBitmap> {
 
         RefBitmapLruCache(int maxSize) {
             super(maxSize);
         }
 
         @Override
-        public SketchRefBitmap put(String key, SketchRefBitmap refBitmap) {
+        public SketchRefBitmap put(CacheKey key, SketchRefBitmap refBitmap) {
             refBitmap.setIsCached(NAME + ":put", true);
             return super.put(key, refBitmap);
         }
 
         @Override
-        public int sizeOf(String key, SketchRefBitmap refBitmap) {
+        public int sizeOf(CacheKey key, SketchRefBitmap refBitmap) {
             int bitmapSize = refBitmap.getByteCount();
             return bitmapSize == 0 ? 1 : bitmapSize;
         }
 
         @Override
-        protected void entryRemoved(boolean evicted, String key, SketchRefBitmap oldRefBitmap, SketchRefBitmap newRefBitmap) {
+        protected void entryRemoved(boolean evicted, CacheKey key, SketchRefBitmap oldRefBitmap, SketchRefBitmap newRefBitmap) {
             oldRefBitmap.setIsCached(NAME + ":entryRemoved", false);
         }
     }
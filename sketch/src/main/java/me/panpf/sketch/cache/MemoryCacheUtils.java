@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.drawable.SketchRefBitmap;
+
+/**
+ * 用已经算好的 {@link CacheKey} 访问 {@link MemoryCache}，是 {@link LruMemoryCache} 时直接用 {@link CacheKey}，
+ * 不用重新计算哈希值，其它实现还是用原始的 String key
+ */
+public class MemoryCacheUtils {
+
+    public static void put(@NonNull MemoryCache memoryCache, @NonNull CacheKey key, @NonNull SketchRefBitmap refBitmap) {
+        if (memoryCache instanceof LruMemoryCache) {
+            ((LruMemoryCache) memoryCache).put(key, refBitmap);
+        } else {
+            memoryCache.put(key.getKey(), refBitmap);
+        }
+    }
+
+    @Nullable
+    public static SketchRefBitmap get(@NonNull MemoryCache memoryCache, @NonNull CacheKey key) {
+        if (memoryCache instanceof LruMemoryCache) {
+            return ((LruMemoryCache) memoryCache).get(key);
+        } else {
+            return memoryCache.get(key.getKey());
+        }
+    }
+
+    @Nullable
+    public static SketchRefBitmap remove(@NonNull MemoryCache memoryCache, @NonNull CacheKey key) {
+        if (memoryCache instanceof LruMemoryCache) {
+            return ((LruMemoryCache) memoryCache).remove(key);
+        } else {
+            return memoryCache.remove(key.getKey());
+        }
+    }
+}
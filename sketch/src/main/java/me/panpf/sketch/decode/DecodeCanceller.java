@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.decode;
+
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import me.panpf.sketch.request.LoadRequest;
+
+/**
+ * 解码取消器，请求取消后中断正在进行的解码，避免已经滑出屏幕的图片继续占用解码线程
+ * <p>
+ * 有两种中断方式：通过 {@link BitmapFactory.Options#requestCancelDecode()} 通知 BitmapFactory 尽快停止解码；
+ * 通过包装 {@link InputStream} 在每次读取数据时检查请求是否已取消，已取消就抛出 {@link InterruptedIOException}，这种方式适用于所有基于流的解码
+ */
+public class DecodeCanceller {
+    @NonNull
+    private LoadRequest request;
+    @Nullable
+    private volatile BitmapFactory.Options decodingOptions;
+    private volatile boolean canceled;
+
+    public DecodeCanceller(@NonNull LoadRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * 开始解码，记录解码选项以便取消时使用
+     */
+    public void attach(@NonNull BitmapFactory.Options options) {
+        this.decodingOptions = options;
+        if (canceled) {
+            requestCancelDecode(options);
+        }
+    }
+
+    /**
+     * 解码结束
+     */
+    public void detach() {
+        this.decodingOptions = null;
+    }
+
+    /**
+     * 取消解码，由 {@link LoadRequest} 在被取消时调用，可以在任意线程调用
+     */
+    public void cancel() {
+        canceled = true;
+
+        BitmapFactory.Options options = decodingOptions;
+        if (options != null) {
+            requestCancelDecode(options);
+        }
+    }
+
+    /**
+     * 检查是否已取消，对于 {@link me.panpf.sketch.request.DisplayRequest} 来说此方法还会检查与 View 的绑定关系是否已断开，
+     * 对于加载顺风车主来说还要等所有顺风车都取消了才算，参考 {@link LoadRequest#isAbandoned()}
+     */
+    public boolean isCanceled() {
+        return canceled || request.isAbandoned();
+    }
+
+    /**
+     * 包装输入流，使其在请求取消后读取数据时抛出 {@link InterruptedIOException}
+     */
+    @NonNull
+    public InputStream wrap(@NonNull InputStream inputStream) {
+        return new CancelableInputStream(inputStream, this);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void requestCancelDecode(@NonNull BitmapFactory.Options options) {
+        options.requestCancelDecode();
+    }
+
+    private static class CancelableInputStream extends FilterInputStream {
+        @NonNull
+        private DecodeCanceller canceller;
+
+        CancelableInputStream(@NonNull InputStream in, @NonNull DecodeCanceller canceller) {
+            super(in);
+            this.canceller = canceller;
+        }
+
+        private void checkCanceled() throws InterruptedIOException {
+            if (canceller.isCanceled()) {
+                throw new InterruptedIOException("Decode canceled");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkCanceled();
+            return super.read();
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            checkCanceled();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkCanceled();
+            return super.skip(n);
+        }
+    }
+}
@@ -59,6 +59,21 @@ public abstract class DecodeHelper {
     abstract DecodeResult decode(@NonNull LoadRequest request, @NonNull DataSource dataSource, @Nullable ImageType imageType,
                                  @NonNull BitmapFactory.Options boundOptions, @NonNull BitmapFactory.Options decodeOptions, int exifOrientation) throws DecodeException;
 
+    /**
+     * 当前 {@link DecodeHelper} 不能解码时交给 {@link ImageDecoder} 中排在后面的 {@link DecodeHelper} 解码
+     *
+     * @throws DecodeException 解码失败
+     */
+    @NonNull
+    protected DecodeResult fallbackDecode(@NonNull LoadRequest request, @NonNull DataSource dataSource, @Nullable ImageType imageType,
+                                          @NonNull BitmapFactory.Options boundOptions, @NonNull BitmapFactory.Options decodeOptions,
+                                          int exifOrientation) throws DecodeException {
+        // 当前 DecodeHelper 可能已经按自己的需要改了采样比例
+        decodeOptions.inSampleSize = 1;
+        return request.getConfiguration().getDecoder().decodeAfter(this, request, dataSource, imageType,
+                boundOptions, decodeOptions, exifOrientation);
+    }
+
     /**
      * 共子类纠正图片方向
      *
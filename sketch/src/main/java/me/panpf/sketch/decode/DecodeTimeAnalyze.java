@@ -25,6 +25,8 @@ import me.panpf.sketch.SLog;
 public class DecodeTimeAnalyze {
     private volatile static long decodeCount;
     private volatile static long useTimeCount;
+    private volatile static long canceledCount;
+    private volatile static long canceledUseTimeCount;
     private static DecimalFormat decimalFormat;
 
     public long decodeStart() {
@@ -45,4 +47,19 @@ public class DecodeTimeAnalyze {
         SLog.d(logName, "decode use time %dms, average %sms. %s",
                 useTime, decimalFormat.format((double) useTimeCount / decodeCount), key);
     }
+
+    /**
+     * 解码中途被取消，统计被取消的次数以及取消前已经浪费掉的解码时间
+     */
+    public synchronized void decodeCanceled(long startTime, @NonNull String logName, String key) {
+        long useTime = System.currentTimeMillis() - startTime;
+        if ((Long.MAX_VALUE - canceledCount) < 1 || (Long.MAX_VALUE - canceledUseTimeCount) < useTime) {
+            canceledCount = 0;
+            canceledUseTimeCount = 0;
+        }
+        canceledCount++;
+        canceledUseTimeCount += useTime;
+        SLog.d(logName, "decode canceled after %dms, canceled count %d, total wasted %dms. %s",
+                useTime, canceledCount, canceledUseTimeCount, key);
+    }
 }
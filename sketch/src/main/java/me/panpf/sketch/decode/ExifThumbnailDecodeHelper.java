@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.decode;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.InputStream;
+
+import me.panpf.sketch.ErrorTracker;
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.SLogEvent;
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.BitmapPoolUtils;
+import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.request.ErrorCause;
+import me.panpf.sketch.request.LoadOptions;
+import me.panpf.sketch.request.LoadRequest;
+import me.panpf.sketch.request.MaxSize;
+import me.panpf.sketch.util.ExifInterface;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * exif 缩略图解码协助器，当开启 exif 缩略图模式并且 jpeg 图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，
+ * 相机拍摄的照片通常带有一个 160x120 左右的 exif 缩略图，在图库九宫格这类小尺寸场景下比解码原图快很多
+ * <p>
+ * {@link #match} 中只做不需要读取数据的检查，exif 只在 {@link #decode} 中解析一次，exif 缩略图不够大、宽高比与原图不一致（有黑边）
+ * 或解码失败时交给 {@link ImageDecoder} 中排在后面的 {@link DecodeHelper} 解码原图
+ */
+public class ExifThumbnailDecodeHelper extends DecodeHelper {
+    private static final String NAME = "ExifThumbnailDecodeHelper";
+
+    /**
+     * exif 缩略图必须放在 64KB 的 APP1 段中，实际中很少超过这个边长
+     */
+    private static final int MAX_EXIF_THUMBNAIL_SIZE = 512;
+
+    @Override
+    public boolean match(@NonNull LoadRequest request, @NonNull DataSource dataSource,
+                         @Nullable ImageType imageType, @NonNull BitmapFactory.Options boundOptions) {
+        LoadOptions loadOptions = request.getOptions();
+        if (!loadOptions.isExifThumbnailMode() || imageType != ImageType.JPEG) {
+            return false;
+        }
+
+        if (loadOptions.getMaxSize() == null && loadOptions.getResize() == null) {
+            return false;
+        }
+
+        // 先按最大的 exif 缩略图估算一下，要求的尺寸比它还大就不用去解析 exif 了，这里还不知道方向，两个方向都试一下
+        int imageWidth = boundOptions.outWidth;
+        int imageHeight = boundOptions.outHeight;
+        if (imageWidth <= 1 || imageHeight <= 1) {
+            return false;
+        }
+        float maxScale = Math.min((float) MAX_EXIF_THUMBNAIL_SIZE / Math.max(imageWidth, imageHeight), 1f);
+        int maxWidth = Math.max((int) (imageWidth * maxScale), 1);
+        int maxHeight = Math.max((int) (imageHeight * maxScale), 1);
+        ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+        return sizeCalculator.canUseReadyThumbnail(imageWidth, imageHeight, maxWidth, maxHeight, loadOptions.getMaxSize(), loadOptions.getResize())
+                || sizeCalculator.canUseReadyThumbnail(imageHeight, imageWidth, maxHeight, maxWidth, loadOptions.getMaxSize(), loadOptions.getResize());
+    }
+
+    @NonNull
+    @Override
+    public DecodeResult decode(@NonNull LoadRequest request, @NonNull DataSource dataSource, @Nullable ImageType imageType,
+                               @NonNull BitmapFactory.Options boundOptions, @NonNull BitmapFactory.Options decodeOptions, int exifOrientation) throws DecodeException {
+        ExifThumbnail thumbnail = readExifThumbnail(dataSource);
+        if (thumbnail == null || !isUsable(request, thumbnail, boundOptions.outWidth, boundOptions.outHeight, exifOrientation)) {
+            return fallbackDecode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+        }
+
+        int imageWidth = boundOptions.outWidth;
+        int imageHeight = boundOptions.outHeight;
+        boolean swapSize = ImageOrientationCorrector.getExifOrientationDegrees(exifOrientation) % 180 != 0;
+        int thumbnailWidth = swapSize ? thumbnail.height : thumbnail.width;
+        int thumbnailHeight = swapSize ? thumbnail.width : thumbnail.height;
+
+        // Calculate inSampleSize according to max size
+        MaxSize maxSize = request.getOptions().getMaxSize();
+        if (maxSize != null) {
+            ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+            decodeOptions.inSampleSize = sizeCalculator.calculateInSampleSize(thumbnailWidth, thumbnailHeight,
+                    maxSize.getWidth(), maxSize.getHeight(), false);
+        }
+
+        // Set inBitmap from bitmap pool
+        if (!request.getOptions().isBitmapPoolDisabled()) {
+            BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
+            BitmapPoolUtils.setInBitmapFromPool(decodeOptions, thumbnail.width, thumbnail.height, boundOptions.outMimeType, bitmapPool);
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(thumbnail.data, 0, thumbnail.data.length, decodeOptions);
+        } catch (Throwable tr) {
+            ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, tr);
+
+            if (ImageDecodeUtils.isInBitmapDecodeError(tr, decodeOptions, false)) {
+                ErrorTracker errorTracker = request.getConfiguration().getErrorTracker();
+                BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
+                ImageDecodeUtils.recycleInBitmapOnDecodeError(errorTracker, bitmapPool, request.getUri(),
+                        thumbnail.width, thumbnail.height, boundOptions.outMimeType, tr, decodeOptions, false);
+
+                try {
+                    bitmap = BitmapFactory.decodeByteArray(thumbnail.data, 0, thumbnail.data.length, decodeOptions);
+                } catch (Throwable throwable1) {
+                    SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Decode exif thumbnail failed, fallback to the original image");
+                    if (event != null) {
+                        event.put("key", request.getKey()).throwable(throwable1).commit();
+                    }
+                    bitmap = null;
+                }
+            } else {
+                SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Decode exif thumbnail failed, fallback to the original image");
+                if (event != null) {
+                    event.put("key", request.getKey()).throwable(tr).commit();
+                }
+                bitmap = null;
+            }
+        }
+
+        // 缩略图损坏就解码原图
+        if (bitmap == null || bitmap.isRecycled() || bitmap.getWidth() <= 1 || bitmap.getHeight() <= 1) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                BitmapPoolUtils.freeBitmapToPool(bitmap, request.getConfiguration().getBitmapPool());
+            } else if (decodeOptions.inBitmap != null) {
+                BitmapPoolUtils.freeBitmapToPool(decodeOptions.inBitmap, request.getConfiguration().getBitmapPool());
+            }
+            decodeOptions.inBitmap = null;
+            return fallbackDecode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+        }
+
+        ImageOrientationCorrector orientationCorrector = request.getConfiguration().getOrientationCorrector();
+        orientationCorrector.rotateSize(boundOptions, exifOrientation);
+
+        // ImageAttrs 始终是原图的属性，这样 resize 等后续处理才能得到正确的结果
+        ImageAttrs imageAttrs = new ImageAttrs(boundOptions.outMimeType, boundOptions.outWidth, boundOptions.outHeight, exifOrientation);
+        BitmapDecodeResult result = new BitmapDecodeResult(imageAttrs, bitmap);
+
+        try {
+            correctOrientation(orientationCorrector, result, exifOrientation, request);
+        } catch (CorrectOrientationException e) {
+            throw new DecodeException(e, ErrorCause.DECODE_CORRECT_ORIENTATION_FAIL);
+        }
+
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "Decode exif thumbnail. imageSize=%dx%d, thumbnailSize=%dx%d, inSampleSize=%d, finalSize=%dx%d. %s",
+                    imageWidth, imageHeight, thumbnail.width, thumbnail.height, decodeOptions.inSampleSize,
+                    result.getBitmap().getWidth(), result.getBitmap().getHeight(), request.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * exif 缩略图是否足够大并且没有黑边
+     *
+     * @param imageWidth      原图宽，未旋转
+     * @param imageHeight     原图高，未旋转
+     * @param exifOrientation 图片方向
+     */
+    private boolean isUsable(@NonNull LoadRequest request, @NonNull ExifThumbnail thumbnail,
+                             int imageWidth, int imageHeight, int exifOrientation) {
+        // 目标尺寸是旋转后的尺寸，所以原图和缩略图的尺寸也要旋转后再比较
+        boolean swapSize = !request.getOptions().isCorrectImageOrientationDisabled()
+                && ImageOrientationCorrector.getExifOrientationDegrees(exifOrientation) % 180 != 0;
+        ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+        return sizeCalculator.canUseReadyThumbnail(swapSize ? imageHeight : imageWidth, swapSize ? imageWidth : imageHeight,
+                swapSize ? thumbnail.height : thumbnail.width, swapSize ? thumbnail.width : thumbnail.height,
+                request.getOptions().getMaxSize(), request.getOptions().getResize());
+    }
+
+    /**
+     * 读取 exif 中的 jpeg 缩略图
+     *
+     * @return null：没有 exif 缩略图或读取失败
+     */
+    @Nullable
+    private ExifThumbnail readExifThumbnail(@NonNull DataSource dataSource) {
+        InputStream inputStream = null;
+        try {
+            inputStream = dataSource.getInputStream();
+            ExifInterface exifInterface = new ExifInterface(inputStream);
+            if (!exifInterface.hasThumbnail() || !exifInterface.isThumbnailCompressed()) {
+                return null;
+            }
+
+            byte[] data = exifInterface.getThumbnail();
+            if (data == null || data.length == 0) {
+                return null;
+            }
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (options.outWidth <= 1 || options.outHeight <= 1) {
+                return null;
+            }
+
+            return new ExifThumbnail(data, options.outWidth, options.outHeight);
+        } catch (Throwable e) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "Read exif thumbnail failed. %s", e.toString());
+            }
+            return null;
+        } finally {
+            SketchUtils.close(inputStream);
+        }
+    }
+
+    private static class ExifThumbnail {
+        @NonNull
+        private byte[] data;
+        private int width;
+        private int height;
+
+        ExifThumbnail(@NonNull byte[] data, int width, int height) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
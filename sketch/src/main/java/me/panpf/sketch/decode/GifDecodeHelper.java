@@ -16,6 +16,7 @@
 
 package me.panpf.sketch.decode;
 
+import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
 import androidx.annotation.NonNull;
@@ -27,12 +28,19 @@ import me.panpf.sketch.ErrorTracker;
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.cache.BitmapPool;
 import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.datasource.DrawableDataSource;
+import me.panpf.sketch.drawable.SharedGifRegistry;
 import me.panpf.sketch.drawable.SketchGifDrawable;
+import me.panpf.sketch.drawable.SketchGifDrawableImpl;
 import me.panpf.sketch.drawable.SketchGifFactory;
+import me.panpf.sketch.request.DisplayRequest;
 import me.panpf.sketch.request.ErrorCause;
 import me.panpf.sketch.request.LoadRequest;
+import me.panpf.sketch.request.MaxSize;
+import me.panpf.sketch.request.Resize;
 
 public class GifDecodeHelper extends DecodeHelper {
+    private static final String NAME = "GifDecodeHelper";
 
     @Override
     public boolean match(@NonNull LoadRequest request, @NonNull DataSource dataSource,
@@ -41,7 +49,7 @@ public class GifDecodeHelper extends DecodeHelper {
             if (SketchGifFactory.isExistGifLibrary()) {
                 return true;
             } else {
-                SLog.e("GifDecodeHelper", "Not found libpl_droidsonroids_gif.so. " +
+                SLog.e(NAME, "Not found libpl_droidsonroids_gif.so. " +
                         "Please go to “https://github.com/panpf/sketch” find how to import the sketch-gif library");
             }
         }
@@ -53,10 +61,32 @@ public class GifDecodeHelper extends DecodeHelper {
     public DecodeResult decode(@NonNull LoadRequest request, @NonNull DataSource dataSource,
                                @Nullable ImageType imageType, @NonNull BitmapFactory.Options boundOptions,
                                @NonNull BitmapFactory.Options decodeOptions, int exifOrientation) throws DecodeException {
+        // GifDrawable 的创建无法中断，只能在创建之前检查一下
+        ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, null);
+
         try {
             ImageAttrs imageAttrs = new ImageAttrs(boundOptions.outMimeType, boundOptions.outWidth, boundOptions.outHeight, exifOrientation);
+            imageAttrs.setSampleSize(calculateSampleSize(request, dataSource, imageType, boundOptions));
             BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
+
+            // 延迟播放时先只解码第一帧，等点击播放或 View 可见时再解码完整的动画
+            if (request instanceof DisplayRequest && ((DisplayRequest) request).getOptions().isLazyPlayGif()) {
+                Bitmap bitmap = SketchGifFactory.decodeFirstFrame(dataSource, imageAttrs.getSampleSize(), bitmapPool);
+                ImageDecodeUtils.decodeSuccess(bitmap, boundOptions.outWidth, boundOptions.outHeight, imageAttrs.getSampleSize(), request, NAME);
+                // 和播放时一样不处理，这样第一帧和之后的动画看起来是一样的
+                return new BitmapDecodeResult(imageAttrs, bitmap).setBanProcess(true);
+            }
+
             SketchGifDrawable gifDrawable = dataSource.makeGifDrawable(request.getKey(), request.getUri(), imageAttrs, bitmapPool);
+            // 登记的是真正持有帧缓冲区的动画，共享出去的轻量 drawable 不重复统计
+            request.getConfiguration().getMemoryAccountant().track(gifDrawable);
+
+            // 共享动画时注册到 SharedGifRegistry 中，返回的是共享这个动画的轻量 drawable
+            if (gifDrawable instanceof SketchGifDrawableImpl && request instanceof DisplayRequest
+                    && ((DisplayRequest) request).getOptions().isShareGifAnimation()) {
+                SharedGifRegistry sharedGifRegistry = request.getConfiguration().getSharedGifRegistry();
+                gifDrawable = sharedGifRegistry.register(request.getCacheKey(), (SketchGifDrawableImpl) gifDrawable);
+            }
 
             return new GifDecodeResult(imageAttrs, gifDrawable).setBanProcess(true);
         } catch (IOException e) {
@@ -72,4 +102,43 @@ public class GifDecodeHelper extends DecodeHelper {
             throw new DecodeException(e, ErrorCause.DECODE_UNABLE_CREATE_GIF_DRAWABLE);
         }
     }
+
+    /**
+     * 和 {@link NormalDecodeHelper} 一样根据 {@link MaxSize} 计算采样比例，没有 {@link MaxSize} 时用 {@link Resize}，
+     * 这样在小格子里显示大 gif 时 mBuffer 和每一帧的渲染都会小很多。
+     * maxSize 和 resize 都已经包含在请求 key 中了，所以 key 相同时采样比例一定相同
+     */
+    private int calculateSampleSize(@NonNull LoadRequest request, @NonNull DataSource dataSource,
+                                    @Nullable ImageType imageType, @NonNull BitmapFactory.Options boundOptions) {
+        // 资源中的 gif 会按屏幕密度缩放尺寸，不支持再采样
+        if (dataSource instanceof DrawableDataSource) {
+            return 1;
+        }
+
+        int targetWidth;
+        int targetHeight;
+        MaxSize maxSize = request.getOptions().getMaxSize();
+        Resize resize = request.getOptions().getResize();
+        if (maxSize != null) {
+            targetWidth = maxSize.getWidth();
+            targetHeight = maxSize.getHeight();
+        } else if (resize != null) {
+            targetWidth = resize.getWidth();
+            targetHeight = resize.getHeight();
+        } else {
+            return 1;
+        }
+
+        ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+        boolean smallerThumbnail = sizeCalculator.canUseSmallerThumbnails(request, imageType);
+        int sampleSize = sizeCalculator.calculateInSampleSize(boundOptions.outWidth, boundOptions.outHeight,
+                targetWidth, targetHeight, smallerThumbnail);
+        sampleSize = Math.max(1, Math.min(sampleSize, Character.MAX_VALUE));
+
+        if (sampleSize > 1 && SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "Decode gif. originalSize=%dx%d, targetSize=%dx%d, inSampleSize=%d. %s",
+                    boundOptions.outWidth, boundOptions.outHeight, targetWidth, targetHeight, sampleSize, request.getKey());
+        }
+        return sampleSize;
+    }
 }
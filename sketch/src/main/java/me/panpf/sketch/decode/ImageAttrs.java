@@ -27,6 +27,7 @@ public class ImageAttrs {
     @NonNull
     private String mimeType;
     private int exifOrientation;
+    private int sampleSize = 1;
 
     public ImageAttrs(@NonNull String mimeType, int width, int height, int exifOrientation) {
         this.mimeType = mimeType;
@@ -52,6 +53,17 @@ public class ImageAttrs {
         return width;
     }
 
+    /**
+     * 解码时实际使用的采样比例，目前只有 gif 会记录
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
     void resetSize(int width, int height) {
         this.width = width;
         this.height = height;
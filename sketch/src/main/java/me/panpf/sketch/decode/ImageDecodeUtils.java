@@ -20,7 +20,6 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapRegionDecoder;
 import android.graphics.Rect;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -31,12 +30,14 @@ import java.io.InputStream;
 
 import me.panpf.sketch.ErrorTracker;
 import me.panpf.sketch.SLog;
+import me.panpf.sketch.SLogEvent;
 import me.panpf.sketch.cache.BitmapPool;
 import me.panpf.sketch.cache.BitmapPoolUtils;
 import me.panpf.sketch.cache.DiskCache;
 import me.panpf.sketch.datasource.DataSource;
 import me.panpf.sketch.datasource.DiskCacheDataSource;
 import me.panpf.sketch.datasource.FileDataSource;
+import me.panpf.sketch.request.ErrorCause;
 import me.panpf.sketch.request.LoadRequest;
 import me.panpf.sketch.request.MaxSize;
 import me.panpf.sketch.util.SketchUtils;
@@ -45,13 +46,30 @@ import me.panpf.sketch.util.SketchUtils;
 public class ImageDecodeUtils {
 
     public static Bitmap decodeBitmap(@NonNull DataSource dataSource, @NonNull BitmapFactory.Options options) throws IOException {
+        return decodeBitmap(dataSource, options, null);
+    }
+
+    /**
+     * 解码图片，请求取消后会中断解码并返回 null
+     *
+     * @param canceller {@link DecodeCanceller}. 为 null 时不可中断
+     */
+    public static Bitmap decodeBitmap(@NonNull DataSource dataSource, @NonNull BitmapFactory.Options options,
+                                      @Nullable DecodeCanceller canceller) throws IOException {
         InputStream inputStream = null;
         Bitmap bitmap;
 
         try {
             inputStream = dataSource.getInputStream();
+            if (canceller != null) {
+                inputStream = canceller.wrap(inputStream);
+                canceller.attach(options);
+            }
             bitmap = BitmapFactory.decodeStream(inputStream, null, options);
         } finally {
+            if (canceller != null) {
+                canceller.detach();
+            }
             SketchUtils.close(inputStream);
         }
 
@@ -59,9 +77,22 @@ public class ImageDecodeUtils {
     }
 
     public static Bitmap decodeRegionBitmap(@NonNull DataSource dataSource, @NonNull Rect srcRect, @NonNull BitmapFactory.Options options) {
+        return decodeRegionBitmap(dataSource, srcRect, options, null);
+    }
+
+    /**
+     * 解码图片的部分区域，请求取消后会中断读取数据并返回 null
+     *
+     * @param canceller {@link DecodeCanceller}. 为 null 时不可中断
+     */
+    public static Bitmap decodeRegionBitmap(@NonNull DataSource dataSource, @NonNull Rect srcRect, @NonNull BitmapFactory.Options options,
+                                            @Nullable DecodeCanceller canceller) {
         InputStream inputStream;
         try {
             inputStream = dataSource.getInputStream();
+            if (canceller != null) {
+                inputStream = canceller.wrap(inputStream);
+            }
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -77,12 +108,44 @@ public class ImageDecodeUtils {
             SketchUtils.close(inputStream);
         }
 
+        if (canceller != null && canceller.isCanceled()) {
+            regionDecoder.recycle();
+            return null;
+        }
+
         Bitmap bitmap = regionDecoder.decodeRegion(srcRect, options);
         regionDecoder.recycle();
         SketchUtils.close(inputStream);
         return bitmap;
     }
 
+    /**
+     * 检查请求是否已经取消，已取消就归还 inBitmap 并抛出异常，避免将取消导致的失败当作解码错误处理（例如删除磁盘缓存）
+     *
+     * @throws DecodeException 请求已取消
+     */
+    static void checkDecodeCanceled(@NonNull LoadRequest request, @NonNull BitmapFactory.Options decodeOptions,
+                                    @Nullable Throwable tr) throws DecodeException {
+        if (!request.getDecodeCanceller().isCanceled()) {
+            return;
+        }
+
+        if (decodeOptions.inBitmap != null) {
+            BitmapPoolUtils.freeBitmapToPool(decodeOptions.inBitmap, request.getConfiguration().getBitmapPool());
+            decodeOptions.inBitmap = null;
+        }
+
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d("ImageDecodeUtils", "Decode canceled. %s. %s", request.getThreadName(), request.getKey());
+        }
+
+        if (tr != null) {
+            throw new DecodeException("Decode canceled", tr, ErrorCause.DECODE_CANCELED);
+        } else {
+            throw new DecodeException("Decode canceled", ErrorCause.DECODE_CANCELED);
+        }
+    }
+
     static void decodeSuccess(@NonNull Bitmap bitmap, int outWidth, int outHeight, int inSampleSize, @NonNull LoadRequest loadRequest, @NonNull String logName) {
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
             if (loadRequest.getOptions().getMaxSize() != null) {
@@ -99,25 +162,34 @@ public class ImageDecodeUtils {
     }
 
     static void decodeError(@NonNull LoadRequest request, @Nullable DataSource dataSource, @NonNull String logName, @NonNull String cause, @Nullable Throwable tr) {
-        if (tr != null) {
-            SLog.e(logName, Log.getStackTraceString(tr));
-        }
-
+        // 磁盘 IO 都在取出事件之前做完，取出到提交之间日志线程会一直等着这个事件。日志关闭时磁盘缓存也还是要删
+        boolean loggable = SLog.isLoggable(SLog.LEVEL_ERROR);
         if (dataSource instanceof DiskCacheDataSource) {
             DiskCache.Entry diskCacheEntry = ((DiskCacheDataSource) dataSource).getDiskCacheEntry();
-            File cacheFile = diskCacheEntry.getFile();
-            if (diskCacheEntry.delete()) {
-                SLog.e(logName, "Decode failed. %s. Disk cache deleted. fileLength=%d. %s", cause, cacheFile.length(), request.getKey(), tr);
-            } else {
-                SLog.e(logName, "Decode failed. %s. Disk cache can not be deleted. fileLength=%d. %s", cause, cacheFile.length(), request.getKey());
+            long fileLength = loggable ? diskCacheEntry.getFile().length() : 0;
+            boolean deleted = diskCacheEntry.delete();
+            SLogEvent event = SLog.event(SLog.LEVEL_ERROR, logName, "Decode failed");
+            if (event != null) {
+                event.put("cause", cause).put("fileLength", fileLength).put("diskCacheDeleted", deleted)
+                        .put("key", request.getKey()).throwable(tr).commit();
             }
         } else if (dataSource instanceof FileDataSource) {
-            File file = ((FileDataSource) dataSource).getFile(null, null);
-            //noinspection ConstantConditions
-            SLog.e(logName, "Decode failed. %s. filePath=%s, fileLength=%d. %s",
-                    cause, file.getPath(), file.exists() ? file.length() : -1, request.getKey());
+            if (loggable) {
+                File file = ((FileDataSource) dataSource).getFile(null, null);
+                //noinspection ConstantConditions
+                String filePath = file.getPath();
+                long fileLength = file.exists() ? file.length() : -1;
+                SLogEvent event = SLog.event(SLog.LEVEL_ERROR, logName, "Decode failed");
+                if (event != null) {
+                    event.put("cause", cause).put("filePath", filePath).put("fileLength", fileLength)
+                            .put("key", request.getKey()).throwable(tr).commit();
+                }
+            }
         } else {
-            SLog.e(logName, "Decode failed. %s. %s", cause, request.getUri());
+            SLogEvent event = SLog.event(SLog.LEVEL_ERROR, logName, "Decode failed");
+            if (event != null) {
+                event.put("cause", cause).put("uri", request.getUri()).throwable(tr).commit();
+            }
         }
     }
 
@@ -18,6 +18,7 @@ package me.panpf.sketch.decode;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -27,6 +28,8 @@ import java.util.Locale;
 
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.datasource.DiskCacheDataSource;
+import me.panpf.sketch.metrics.SketchMetrics;
 import me.panpf.sketch.process.ImageProcessor;
 import me.panpf.sketch.request.ErrorCause;
 import me.panpf.sketch.request.LoadRequest;
@@ -39,7 +42,7 @@ import me.panpf.sketch.util.ExifInterface;
  * <ol>
  * <li>读取图片的尺寸、格式和方向信息</li>
  * <li>计算采样比例、选择合适的 {@link Bitmap.Config}</li>
- * <li>解码图片</li>
+ * <li>解码图片，开启了 {@link SourceImageCache} 时优先使用内存中缓存的原图</li>
  * <li>
  * 使用 {@link ImageProcessor} 处理图片
  * </li>
@@ -62,6 +65,8 @@ public class ImageDecoder {
 
         decodeHelperList.add(new ProcessedCacheDecodeHelper());
         decodeHelperList.add(new GifDecodeHelper());
+        decodeHelperList.add(new MediaStoreThumbnailDecodeHelper());
+        decodeHelperList.add(new ExifThumbnailDecodeHelper());
         decodeHelperList.add(new ThumbnailModeDecodeHelper());
         decodeHelperList.add(new NormalDecodeHelper());
 
@@ -79,8 +84,8 @@ public class ImageDecoder {
     @NonNull
     public DecodeResult decode(@NonNull LoadRequest request) throws DecodeException {
         DecodeResult result = null;
+        long startTime = 0;
         try {
-            long startTime = 0;
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
                 startTime = timeAnalyze.decodeStart();
             }
@@ -101,6 +106,9 @@ public class ImageDecoder {
             if (result != null) {
                 result.recycle(request.getConfiguration().getBitmapPool());
             }
+            if (e.getErrorCause() == ErrorCause.DECODE_CANCELED && SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
+                timeAnalyze.decodeCanceled(startTime, NAME, request.getKey());
+            }
             throw e;
         } catch (Throwable tr) {
             if (result != null) {
@@ -127,6 +135,16 @@ public class ImageDecoder {
             throw new DecodeException("Unable create DataSource", e, ErrorCause.DECODE_UNABLE_CREATE_DATA_SOURCE);
         }
 
+        // 已处理图片的磁盘缓存里是最终结果，不需要再处理，否则优先用内存中缓存的原图重新处理
+        boolean fromProcessedCache = dataSource instanceof DiskCacheDataSource && ((DiskCacheDataSource) dataSource).isFromProcessedCache();
+        SourceImageCache sourceImageCache = request.getConfiguration().getSourceImageCache();
+        if (!fromProcessedCache && sourceImageCache.canUse(request)) {
+            DecodeResult sourceResult = sourceImageCache.getMemoryCache(request);
+            if (sourceResult != null) {
+                return sourceResult;
+            }
+        }
+
         // Decode bounds and mime info
         BitmapFactory.Options boundOptions = new BitmapFactory.Options();
         boundOptions.inJustDecodeBounds = true;
@@ -169,9 +187,16 @@ public class ImageDecoder {
         }
 
         DecodeResult decodeResult = null;
+        SketchMetrics metrics = request.getConfiguration().getMetrics();
         for (DecodeHelper decodeHelper : decodeHelperList) {
             if (decodeHelper.match(request, dataSource, imageType, boundOptions)) {
+                long startNanos = metrics.startNanos();
                 decodeResult = decodeHelper.decode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+                if (startNanos != 0) {
+                    String mimeType = !TextUtils.isEmpty(boundOptions.outMimeType) ? boundOptions.outMimeType : SketchMetrics.UNKNOWN_MIME_TYPE;
+                    metrics.recordSince(SketchMetrics.DECODE_PREFIX + decodeHelper.getClass().getSimpleName()
+                            + "." + mimeType, startNanos);
+                }
                 break;
             }
         }
@@ -185,6 +210,27 @@ public class ImageDecoder {
         }
     }
 
+    /**
+     * 交给列表中排在 from 后面的 {@link DecodeHelper} 解码，用于 {@link DecodeHelper} 自己的快速解码走不通时回退
+     *
+     * @param from 发起回退的 {@link DecodeHelper}，不在列表中时从头开始找，但会跳过它自己
+     * @throws DecodeException 解码失败了
+     */
+    @NonNull
+    DecodeResult decodeAfter(@NonNull DecodeHelper from, @NonNull LoadRequest request, @NonNull DataSource dataSource,
+                             @Nullable ImageType imageType, @NonNull BitmapFactory.Options boundOptions,
+                             @NonNull BitmapFactory.Options decodeOptions, int exifOrientation) throws DecodeException {
+        int fromIndex = decodeHelperList.indexOf(from);
+        for (DecodeHelper decodeHelper : decodeHelperList.subList(fromIndex + 1, decodeHelperList.size())) {
+            if (decodeHelper != from && decodeHelper.match(request, dataSource, imageType, boundOptions)) {
+                return decodeHelper.decode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+            }
+        }
+
+        ImageDecodeUtils.decodeError(request, null, NAME, "No matching DecodeHelper", null);
+        throw new DecodeException("No matched DecodeHelper", ErrorCause.DECODE_NO_MATCHING_DECODE_HELPER);
+    }
+
     /**
      * 执行后续的处理，包括转换、缓存
      *
@@ -197,8 +243,13 @@ public class ImageDecoder {
             return;
         }
 
+        SketchMetrics metrics = request.getConfiguration().getMetrics();
         for (ResultProcessor resultProcessor : resultProcessorList) {
+            long startNanos = metrics.startNanos();
             resultProcessor.process(request, result);
+            if (startNanos != 0) {
+                metrics.recordSince(SketchMetrics.PROCESS_PREFIX + resultProcessor.getClass().getSimpleName(), startNanos);
+            }
         }
     }
 
@@ -32,6 +32,7 @@ import me.panpf.sketch.request.DisplayRequest;
 import me.panpf.sketch.request.FixedSize;
 import me.panpf.sketch.request.LoadRequest;
 import me.panpf.sketch.request.MaxSize;
+import me.panpf.sketch.request.Resize;
 import me.panpf.sketch.util.SketchUtils;
 
 /**
@@ -283,6 +284,49 @@ public class ImageSizeCalculator {
         return Math.max(resizeScale, imageScale) > Math.min(resizeScale, imageScale) * 1.5f;
     }
 
+    /**
+     * 现成的缩略图（exif 缩略图、系统媒体库缩略图等）是否可以代替原图，要求缩略图与原图宽高比一致（没有黑边）并且足够大，
+     * 不比原图按 maxSize 或 resize 缩小后的尺寸小
+     *
+     * @param imageWidth      原图宽，已按图片方向旋转
+     * @param imageHeight     原图高，已按图片方向旋转
+     * @param thumbnailWidth  缩略图宽，已按图片方向旋转
+     * @param thumbnailHeight 缩略图高，已按图片方向旋转
+     */
+    public boolean canUseReadyThumbnail(int imageWidth, int imageHeight, int thumbnailWidth, int thumbnailHeight,
+                                        @Nullable MaxSize maxSize, @Nullable Resize resize) {
+        if (imageWidth <= 1 || imageHeight <= 1 || thumbnailWidth <= 1 || thumbnailHeight <= 1) {
+            return false;
+        }
+
+        // 宽高比不一致说明缩略图有黑边或经过裁剪
+        float imageRatio = (float) imageWidth / imageHeight;
+        float thumbnailRatio = (float) thumbnailWidth / thumbnailHeight;
+        if (Math.abs(thumbnailRatio - imageRatio) > imageRatio * 0.05f) {
+            return false;
+        }
+
+        float thumbnailScale = (float) Math.max(thumbnailWidth, thumbnailHeight) / Math.max(imageWidth, imageHeight);
+
+        // 原图等比缩放到 maxSize 范围内后的尺寸不能比缩略图大
+        if (maxSize != null && maxSize.getWidth() > 0 && maxSize.getHeight() > 0) {
+            float fitScale = Math.min((float) maxSize.getWidth() / imageWidth, (float) maxSize.getHeight() / imageHeight);
+            if (thumbnailScale < Math.min(fitScale, 1f)) {
+                return false;
+            }
+        }
+
+        // 不管是哪种 ScaleType，resize 需要的缩放比例都不会超过宽高两个方向中较大的那个比例
+        if (resize != null && resize.getWidth() > 0 && resize.getHeight() > 0) {
+            float cropScale = Math.max((float) resize.getWidth() / imageWidth, (float) resize.getHeight() / imageHeight);
+            if (thumbnailScale < Math.min(cropScale, 1f)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * 根据请求和图片类型判断是否使用更小的缩略图
      */
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.decode;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.SLogEvent;
+import me.panpf.sketch.cache.BitmapPoolUtils;
+import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.request.ErrorCause;
+import me.panpf.sketch.request.LoadOptions;
+import me.panpf.sketch.request.LoadRequest;
+import me.panpf.sketch.request.MaxSize;
+import me.panpf.sketch.request.Resize;
+import me.panpf.sketch.uri.UriModel;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 系统媒体库缩略图解码协助器，当开启系统媒体库缩略图模式并且请求的尺寸不超过 {@link MediaStore.Images.Thumbnails#MINI_KIND} 缩略图时，
+ * 直接读取系统媒体库中已经生成好的缩略图，本地相册首屏不用再解码原图
+ * <p>
+ * 通过 {@link UriModel#getMediaStoreImageUri(android.content.Context, String)} 找到图片在媒体库中的 uri，目前支持 content:// 和文件路径两种 uri。
+ * 查询媒体库只在 {@link #decode} 中做一次，媒体库中没有现成的缩略图、缩略图不够大或读取失败时交给 {@link ImageDecoder} 中排在后面的
+ * {@link DecodeHelper} 解码
+ */
+public class MediaStoreThumbnailDecodeHelper extends DecodeHelper {
+    private static final String NAME = "MediaStoreThumbnailDecodeHelper";
+
+    /**
+     * {@link MediaStore.Images.Thumbnails#MINI_KIND} 缩略图的最大边长
+     */
+    private static final int MINI_THUMBNAIL_MAX_SIZE = 512;
+
+    /**
+     * Android Q 开始系统媒体库返回的缩略图已经旋转过了
+     */
+    private static final int VERSION_CODE_Q = 29;
+
+    @Override
+    public boolean match(@NonNull LoadRequest request, @NonNull DataSource dataSource,
+                         @Nullable ImageType imageType, @NonNull BitmapFactory.Options boundOptions) {
+        LoadOptions loadOptions = request.getOptions();
+        if (!loadOptions.isMediaStoreThumbnailMode() || imageType == null || imageType == ImageType.GIF) {
+            return false;
+        }
+
+        MaxSize maxSize = loadOptions.getMaxSize();
+        Resize resize = loadOptions.getResize();
+        if (maxSize == null && resize == null) {
+            return false;
+        }
+
+        // 先按最大的缩略图估算一下，要求的尺寸比缩略图还大就不用去查询媒体库了
+        int imageWidth = boundOptions.outWidth;
+        int imageHeight = boundOptions.outHeight;
+        if (imageWidth <= 1 || imageHeight <= 1) {
+            return false;
+        }
+        float miniScale = Math.min((float) MINI_THUMBNAIL_MAX_SIZE / Math.max(imageWidth, imageHeight), 1f);
+        int miniWidth = Math.max((int) (imageWidth * miniScale), 1);
+        int miniHeight = Math.max((int) (imageHeight * miniScale), 1);
+        ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+        return sizeCalculator.canUseReadyThumbnail(imageWidth, imageHeight, miniWidth, miniHeight, maxSize, resize)
+                || sizeCalculator.canUseReadyThumbnail(imageHeight, imageWidth, miniHeight, miniWidth, maxSize, resize);
+    }
+
+    @NonNull
+    @Override
+    public DecodeResult decode(@NonNull LoadRequest request, @NonNull DataSource dataSource, @Nullable ImageType imageType,
+                               @NonNull BitmapFactory.Options boundOptions, @NonNull BitmapFactory.Options decodeOptions, int exifOrientation) throws DecodeException {
+        ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, null);
+
+        Uri mediaUri = request.getUriModel().getMediaStoreImageUri(request.getContext(), request.getUri());
+        Bitmap bitmap = mediaUri != null ? loadThumbnail(request, mediaUri, decodeOptions) : null;
+        if (bitmap == null) {
+            return fallbackDecode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+        }
+
+        // Android Q 以下的缩略图没有旋转，需要和原图一样纠正方向
+        boolean needCorrectOrientation = Build.VERSION.SDK_INT < VERSION_CODE_Q;
+        boolean swapSize = ImageOrientationCorrector.getExifOrientationDegrees(exifOrientation) % 180 != 0;
+        int imageWidth = swapSize ? boundOptions.outHeight : boundOptions.outWidth;
+        int imageHeight = swapSize ? boundOptions.outWidth : boundOptions.outHeight;
+        boolean swapThumbnailSize = needCorrectOrientation && swapSize;
+        int thumbnailWidth = swapThumbnailSize ? bitmap.getHeight() : bitmap.getWidth();
+        int thumbnailHeight = swapThumbnailSize ? bitmap.getWidth() : bitmap.getHeight();
+
+        ImageSizeCalculator sizeCalculator = request.getConfiguration().getSizeCalculator();
+        if (!sizeCalculator.canUseReadyThumbnail(imageWidth, imageHeight, thumbnailWidth, thumbnailHeight,
+                request.getOptions().getMaxSize(), request.getOptions().getResize())) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "MediaStore thumbnail unusable. imageSize=%dx%d, thumbnailSize=%dx%d. %s",
+                        imageWidth, imageHeight, thumbnailWidth, thumbnailHeight, request.getKey());
+            }
+            BitmapPoolUtils.freeBitmapToPool(bitmap, request.getConfiguration().getBitmapPool());
+            return fallbackDecode(request, dataSource, imageType, boundOptions, decodeOptions, exifOrientation);
+        }
+
+        ImageOrientationCorrector orientationCorrector = request.getConfiguration().getOrientationCorrector();
+        orientationCorrector.rotateSize(boundOptions, exifOrientation);
+
+        // ImageAttrs 始终是原图的属性，这样 resize 等后续处理才能得到正确的结果
+        ImageAttrs imageAttrs = new ImageAttrs(boundOptions.outMimeType, boundOptions.outWidth, boundOptions.outHeight, exifOrientation);
+        BitmapDecodeResult result = new BitmapDecodeResult(imageAttrs, bitmap);
+
+        if (needCorrectOrientation) {
+            try {
+                correctOrientation(orientationCorrector, result, exifOrientation, request);
+            } catch (CorrectOrientationException e) {
+                throw new DecodeException(e, ErrorCause.DECODE_CORRECT_ORIENTATION_FAIL);
+            }
+        }
+
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "Decode MediaStore thumbnail. imageSize=%dx%d, thumbnailSize=%dx%d, finalSize=%dx%d. %s",
+                    imageWidth, imageHeight, thumbnailWidth, thumbnailHeight,
+                    result.getBitmap().getWidth(), result.getBitmap().getHeight(), request.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * 读取系统媒体库中的 {@link MediaStore.Images.Thumbnails#MINI_KIND} 缩略图
+     *
+     * @return null：没有现成的缩略图或读取失败
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    private Bitmap loadThumbnail(@NonNull LoadRequest request, @NonNull Uri mediaUri, @NonNull BitmapFactory.Options decodeOptions) {
+        ContentResolver contentResolver = request.getContext().getContentResolver();
+        try {
+            long imageId = ContentUris.parseId(mediaUri);
+
+            // Android Q 以下没有现成的缩略图时 getThumbnail() 会解码原图来生成缩略图，那样还不如直接解码原图
+            if (Build.VERSION.SDK_INT < VERSION_CODE_Q) {
+                Cursor cursor = null;
+                try {
+                    cursor = MediaStore.Images.Thumbnails.queryMiniThumbnail(contentResolver, imageId,
+                            MediaStore.Images.Thumbnails.MINI_KIND, new String[]{MediaStore.Images.Thumbnails._ID});
+                    if (cursor == null || !cursor.moveToFirst()) {
+                        return null;
+                    }
+                } finally {
+                    SketchUtils.close(cursor);
+                }
+            }
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = decodeOptions.inPreferredConfig;
+            Bitmap bitmap = MediaStore.Images.Thumbnails.getThumbnail(contentResolver, imageId,
+                    MediaStore.Images.Thumbnails.MINI_KIND, options);
+            if (bitmap == null || bitmap.isRecycled() || bitmap.getWidth() <= 1 || bitmap.getHeight() <= 1) {
+                return null;
+            }
+            return bitmap;
+        } catch (Throwable e) {
+            SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Load MediaStore thumbnail failed, fallback to the original image");
+            if (event != null) {
+                event.put("key", request.getKey()).throwable(e).commit();
+            }
+            return null;
+        }
+    }
+}
@@ -51,6 +51,12 @@ public class ProcessImageResultProcessor implements ResultProcessor {
             return;
         }
 
+        // 处理前先把原图缓存起来，下次只修改 processor 时就不用再解码了
+        SourceImageCache sourceImageCache = request.getConfiguration().getSourceImageCache();
+        if (sourceImageCache.canUse(request)) {
+            sourceImageCache.saveToMemoryCache(request, bitmap, result.getImageAttrs());
+        }
+
         request.setStatus(BaseRequest.Status.PROCESSING);
 
         Bitmap newBitmap = null;
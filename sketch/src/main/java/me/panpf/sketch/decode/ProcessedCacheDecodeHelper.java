@@ -61,8 +61,10 @@ public class ProcessedCacheDecodeHelper extends DecodeHelper {
 
         Bitmap bitmap;
         try {
-            bitmap = ImageDecodeUtils.decodeBitmap(dataSource, decodeOptions);
+            bitmap = ImageDecodeUtils.decodeBitmap(dataSource, decodeOptions, request.getDecodeCanceller());
         } catch (Throwable tr) {
+            ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, tr);
+
             ErrorTracker errorTracker = request.getConfiguration().getErrorTracker();
             BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
             if (ImageDecodeUtils.isInBitmapDecodeError(tr, decodeOptions, false)) {
@@ -70,8 +72,10 @@ public class ProcessedCacheDecodeHelper extends DecodeHelper {
                         boundOptions.outWidth, boundOptions.outHeight, boundOptions.outMimeType, tr, decodeOptions, false);
 
                 try {
-                    bitmap = ImageDecodeUtils.decodeBitmap(dataSource, decodeOptions);
+                    bitmap = ImageDecodeUtils.decodeBitmap(dataSource, decodeOptions, request.getDecodeCanceller());
                 } catch (Throwable throwable1) {
+                    ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, throwable1);
+
                     errorTracker.onDecodeNormalImageError(throwable1, request, boundOptions.outWidth, boundOptions.outHeight, boundOptions.outMimeType);
                     throw new DecodeException("InBitmap retry", tr, ErrorCause.DECODE_UNKNOWN_EXCEPTION);
                 }
@@ -81,6 +85,11 @@ public class ProcessedCacheDecodeHelper extends DecodeHelper {
             }
         }
 
+        // 请求已取消导致解码中断
+        if (bitmap == null) {
+            ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, null);
+        }
+
         // 过滤掉无效的图片
         if (bitmap == null || bitmap.isRecycled()) {
             ImageDecodeUtils.decodeError(request, dataSource, NAME, "Bitmap invalid", null);
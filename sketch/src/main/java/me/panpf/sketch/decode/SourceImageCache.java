@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.decode;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.SLogEvent;
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.MemoryCache;
+import me.panpf.sketch.drawable.SketchRefBitmap;
+import me.panpf.sketch.process.ImageProcessor;
+import me.panpf.sketch.request.DisplayOptions;
+import me.panpf.sketch.request.DisplayRequest;
+import me.panpf.sketch.request.ImageFrom;
+import me.panpf.sketch.request.LoadOptions;
+import me.panpf.sketch.request.LoadRequest;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 在内存中缓存解码后、处理前的原图，只修改 {@link ImageProcessor} 时可以直接用缓存的原图重新处理，不用再读取和解码
+ * <p>
+ * 原图和处理后的图片一样放在 {@link MemoryCache} 中，共用同一个容量和淘汰规则。原图的 key 由 uri 和 {@link LoadOptions#makeSourceKey()} 组成，
+ * 处理后的图片的 key 在此基础上多了 processor 的 key，所以一张原图可以对应多个处理结果。没有 processor 的请求解码出来的图片和原图是一样的，所以它们共用一个 key
+ * <p>
+ * {@link ImageProcessor} 可能会直接修改传入的图片，因此存入和取出时都会拷贝一份，保证缓存中的原图不会被修改
+ */
+public class SourceImageCache {
+    private static final String NAME = "SourceImageCache";
+
+    /**
+     * 判断是否可以使用此功能
+     */
+    public boolean canUse(@NonNull LoadRequest request) {
+        if (!(request instanceof DisplayRequest)) {
+            return false;
+        }
+
+        DisplayOptions displayOptions = ((DisplayRequest) request).getOptions();
+        return displayOptions.isCacheSourceImageInMemory()
+                && !displayOptions.isCacheInMemoryDisabled()
+                && displayOptions.getProcessor() != null;
+    }
+
+    /**
+     * 获取原图的内存缓存 key
+     */
+    @NonNull
+    public String getMemoryCacheKey(@NonNull LoadRequest request) {
+        return SketchUtils.makeRequestKey(request.getUri(), request.getUriModel(), request.getOptions().makeSourceKey());
+    }
+
+    /**
+     * 内存缓存中有原图时拷贝一份返回，交给后续的 {@link ProcessImageResultProcessor} 重新处理
+     */
+    @Nullable
+    public BitmapDecodeResult getMemoryCache(@NonNull LoadRequest request) {
+        MemoryCache memoryCache = request.getConfiguration().getMemoryCache();
+        String memoryCacheKey = getMemoryCacheKey(request);
+        SketchRefBitmap refBitmap = memoryCache.get(memoryCacheKey);
+        if (refBitmap == null) {
+            return null;
+        }
+
+        if (refBitmap.isRecycled()) {
+            memoryCache.remove(memoryCacheKey);
+            return null;
+        }
+
+        // 要播放 gif 时不能用缓存的第一帧
+        if (request.getOptions().isDecodeGifImage() && ImageType.GIF.getMimeType().equalsIgnoreCase(refBitmap.getAttrs().getMimeType())) {
+            return null;
+        }
+
+        // 拷贝期间标记等待使用，防止被挤出内存缓存后回收掉
+        refBitmap.setIsWaitingUse(NAME + ":waitingUse:copy", true);
+        Bitmap bitmap = null;
+        try {
+            if (!refBitmap.isRecycled()) {
+                bitmap = copy(refBitmap.getBitmap(), request.getConfiguration().getBitmapPool());
+            }
+        } finally {
+            refBitmap.setIsWaitingUse(NAME + ":waitingUse:copy", false);
+        }
+
+        if (bitmap == null) {
+            return null;
+        }
+
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
+            SLog.d(NAME, "From memory get source image. %s. %s", refBitmap.getInfo(), request.getKey());
+        }
+
+        BitmapDecodeResult result = new BitmapDecodeResult(refBitmap.getAttrs(), bitmap);
+        result.setImageFrom(ImageFrom.MEMORY_CACHE);
+        return result;
+    }
+
+    /**
+     * 拷贝一份原图放到内存缓存中
+     */
+    public void saveToMemoryCache(@NonNull LoadRequest request, @NonNull Bitmap bitmap, @NonNull ImageAttrs imageAttrs) {
+        MemoryCache memoryCache = request.getConfiguration().getMemoryCache();
+        String memoryCacheKey = getMemoryCacheKey(request);
+        SketchRefBitmap cachedRefBitmap = memoryCache.get(memoryCacheKey);
+        if (cachedRefBitmap != null && !cachedRefBitmap.isRecycled()) {
+            return;
+        }
+
+        BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
+        Bitmap copyBitmap = copy(bitmap, bitmapPool);
+        if (copyBitmap == null) {
+            return;
+        }
+
+        SketchRefBitmap refBitmap = new SketchRefBitmap(copyBitmap, memoryCacheKey, request.getUri(), imageAttrs, bitmapPool);
+        request.getConfiguration().getMemoryAccountant().track(refBitmap);
+        memoryCache.put(memoryCacheKey, refBitmap);
+    }
+
+    @Nullable
+    private Bitmap copy(@NonNull Bitmap source, @NonNull BitmapPool bitmapPool) {
+        Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap bitmap;
+        try {
+            bitmap = bitmapPool.getOrMake(source.getWidth(), source.getHeight(), config);
+        } catch (OutOfMemoryError e) {
+            SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Unable copy source image");
+            if (event != null) {
+                event.put("width", source.getWidth()).put("height", source.getHeight()).throwable(e).commit();
+            }
+            return null;
+        }
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        new Canvas(bitmap).drawBitmap(source, 0, 0, null);
+        return bitmap;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
@@ -101,8 +101,10 @@ public class ThumbnailModeDecodeHelper extends DecodeHelper {
 
         Bitmap bitmap;
         try {
-            bitmap = ImageDecodeUtils.decodeRegionBitmap(dataSource, mapping.srcRect, decodeOptions);
+            bitmap = ImageDecodeUtils.decodeRegionBitmap(dataSource, mapping.srcRect, decodeOptions, request.getDecodeCanceller());
         } catch (Throwable tr) {
+            ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, tr);
+
             ErrorTracker errorTracker = request.getConfiguration().getErrorTracker();
             BitmapPool bitmapPool = request.getConfiguration().getBitmapPool();
             if (ImageDecodeUtils.isInBitmapDecodeError(tr, decodeOptions, true)) {
@@ -110,8 +112,10 @@ public class ThumbnailModeDecodeHelper extends DecodeHelper {
                         boundOptions.outWidth, boundOptions.outHeight, boundOptions.outMimeType, tr, decodeOptions, true);
 
                 try {
-                    bitmap = ImageDecodeUtils.decodeRegionBitmap(dataSource, mapping.srcRect, decodeOptions);
+                    bitmap = ImageDecodeUtils.decodeRegionBitmap(dataSource, mapping.srcRect, decodeOptions, request.getDecodeCanceller());
                 } catch (Throwable throwable1) {
+                    ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, throwable1);
+
                     errorTracker.onDecodeNormalImageError(throwable1, request, boundOptions.outWidth,
                             boundOptions.outHeight, boundOptions.outMimeType);
                     throw new DecodeException("InBitmap retry", tr, ErrorCause.DECODE_UNKNOWN_EXCEPTION);
@@ -127,6 +131,11 @@ public class ThumbnailModeDecodeHelper extends DecodeHelper {
             }
         }
 
+        // 请求已取消导致解码中断
+        if (bitmap == null) {
+            ImageDecodeUtils.checkDecodeCanceled(request, decodeOptions, null);
+        }
+
         // 过滤掉无效的图片
         if (bitmap == null || bitmap.isRecycled()) {
             ImageDecodeUtils.decodeError(request, dataSource, NAME, "Bitmap invalid", null);
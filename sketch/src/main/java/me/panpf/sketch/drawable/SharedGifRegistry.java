@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.drawable;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.request.ImageFrom;
+
+/**
+ * 共享 gif 动画的注册表，同一个请求 key 的 gif 只创建一个 {@link SketchGifDrawableImpl}，每一帧只渲染一次，
+ * 每个 View 拿到的都是一个轻量的 {@link SketchSharedGifDrawable}，同步绘制同一帧
+ * <p>
+ * 和 {@link me.panpf.sketch.cache.MemoryCache} 一样用 {@link CacheKey} 作 key，但不按容量淘汰，而是引用计数：
+ * 还没有被回收的 {@link SketchSharedGifDrawable} 的数量降到 0 时就从注册表中移除并回收共享的 {@link SketchGifDrawableImpl}
+ * <p>
+ * 没有调用 {@link SketchSharedGifDrawable#recycle()} 就被 GC 回收的 {@link SketchSharedGifDrawable} 会进入 {@link ReferenceQueue}，
+ * 每次 {@link #obtain(CacheKey)}、{@link #register(CacheKey, SketchGifDrawableImpl)} 和 {@link #size()} 时清理掉，
+ * 这样即使共享的动画已经停止，不会再刷新，它和它的 native 资源也能被释放
+ */
+public class SharedGifRegistry {
+    private static final String NAME = "SharedGifRegistry";
+
+    @NonNull
+    private final Map<CacheKey, Entry> entries = new HashMap<>();
+    @NonNull
+    private final ReferenceQueue<SketchSharedGifDrawable> collectedQueue = new ReferenceQueue<>();
+
+    /**
+     * 获取一个共享已有动画的 {@link SketchSharedGifDrawable}
+     *
+     * @param key 请求 key 的 {@link CacheKey}
+     * @return null：还没有这个 key 的动画
+     */
+    @Nullable
+    public synchronized SketchSharedGifDrawable obtain(@NonNull CacheKey key) {
+        purgeCollected();
+        Entry entry = entries.get(key);
+        if (entry == null || entry.source.isRecycled()) {
+            return null;
+        }
+        return entry.newDrawable(ImageFrom.MEMORY_CACHE);
+    }
+
+    /**
+     * 注册一个新解码的 gif，如果同时有其它请求已经注册了同一个 key 的动画，就回收新解码的，共享已有的
+     *
+     * @param key         请求 key 的 {@link CacheKey}
+     * @param gifDrawable 新解码的 gif
+     * @return 共享这个动画的 {@link SketchSharedGifDrawable}
+     */
+    @NonNull
+    public synchronized SketchSharedGifDrawable register(@NonNull CacheKey key, @NonNull SketchGifDrawableImpl gifDrawable) {
+        purgeCollected();
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.source.isRecycled()) {
+            gifDrawable.recycle();
+            return entry.newDrawable(ImageFrom.MEMORY_CACHE);
+        }
+
+        entry = new Entry(this, key, gifDrawable);
+        entries.put(key, entry);
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
+            SLog.d(NAME, "register. size=%d. %s", entries.size(), gifDrawable.getKey());
+        }
+        return entry.newDrawable(gifDrawable.getImageFrom());
+    }
+
+    /**
+     * 当前共享中的动画数量
+     */
+    public synchronized int size() {
+        purgeCollected();
+        return entries.size();
+    }
+
+    /**
+     * 释放一个 {@link SketchSharedGifDrawable}，没有其它 {@link SketchSharedGifDrawable} 了就回收共享的动画
+     *
+     * @param drawable null：只清理已经被回收的 {@link SketchSharedGifDrawable}
+     */
+    synchronized void release(@NonNull Entry entry, @Nullable SketchSharedGifDrawable drawable) {
+        entry.remove(drawable);
+        releaseIfEmpty(entry);
+    }
+
+    /**
+     * 清理没有调用 {@link SketchSharedGifDrawable#recycle()} 就被 GC 回收的 {@link SketchSharedGifDrawable}
+     */
+    private void purgeCollected() {
+        Reference<? extends SketchSharedGifDrawable> reference;
+        while ((reference = collectedQueue.poll()) != null) {
+            Entry entry = ((DrawableReference) reference).entry;
+            if (entry.drawables.remove(reference)) {
+                releaseIfEmpty(entry);
+            }
+        }
+    }
+
+    private void releaseIfEmpty(@NonNull Entry entry) {
+        if (!entry.isEmpty()) {
+            entry.updateRunning();
+            return;
+        }
+
+        if (entries.get(entry.cacheKey) == entry) {
+            entries.remove(entry.cacheKey);
+        }
+        entry.source.recycle();
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
+            SLog.d(NAME, "release. size=%d. %s", entries.size(), entry.source.getKey());
+        }
+    }
+
+    synchronized void updateRunning(@NonNull Entry entry) {
+        entry.updateRunning();
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return String.format("%s(size=%d)", NAME, entries.size());
+    }
+
+    /**
+     * 一个共享的动画，作为 {@link SketchGifDrawableImpl} 的 {@link Drawable.Callback} 把每一帧的刷新分发给所有 {@link SketchSharedGifDrawable}。
+     * {@link Drawable} 只会弱引用 Callback，所以由注册表强引用着
+     */
+    static class Entry implements Drawable.Callback {
+        @NonNull
+        final SketchGifDrawableImpl source;
+        @NonNull
+        private final SharedGifRegistry registry;
+        @NonNull
+        private final CacheKey cacheKey;
+        // 弱引用，View 没有回收 drawable 就被销毁了也能通过 collectedQueue 自动清理掉
+        @NonNull
+        private final List<DrawableReference> drawables = new ArrayList<>(2);
+
+        Entry(@NonNull SharedGifRegistry registry, @NonNull CacheKey cacheKey, @NonNull SketchGifDrawableImpl source) {
+            this.registry = registry;
+            this.cacheKey = cacheKey;
+            this.source = source;
+            source.setCallback(this);
+        }
+
+        @NonNull
+        SketchSharedGifDrawable newDrawable(@NonNull ImageFrom imageFrom) {
+            SketchSharedGifDrawable drawable = new SketchSharedGifDrawable(registry, this, imageFrom);
+            drawables.add(new DrawableReference(drawable, this, registry.collectedQueue));
+            updateRunning();
+            return drawable;
+        }
+
+        private void remove(@Nullable SketchSharedGifDrawable drawable) {
+            Iterator<DrawableReference> iterator = drawables.iterator();
+            while (iterator.hasNext()) {
+                SketchSharedGifDrawable item = iterator.next().get();
+                if (item == null || item == drawable) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return drawables.isEmpty();
+        }
+
+        /**
+         * 只要有一个可见并且在播放的 {@link SketchSharedGifDrawable} 就播放，否则暂停
+         */
+        private void updateRunning() {
+            boolean active = false;
+            for (DrawableReference reference : drawables) {
+                SketchSharedGifDrawable drawable = reference.get();
+                if (drawable != null && drawable.isVisible() && drawable.isRunning()) {
+                    active = true;
+                    break;
+                }
+            }
+
+            if (active) {
+                source.start();
+            } else {
+                source.stop();
+            }
+        }
+
+        @NonNull
+        private List<SketchSharedGifDrawable> snapshot() {
+            synchronized (registry) {
+                List<SketchSharedGifDrawable> list = new ArrayList<>(drawables.size());
+                for (DrawableReference reference : drawables) {
+                    SketchSharedGifDrawable drawable = reference.get();
+                    if (drawable != null) {
+                        list.add(drawable);
+                    }
+                }
+                return list;
+            }
+        }
+
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+            List<SketchSharedGifDrawable> list = snapshot();
+            if (list.isEmpty()) {
+                registry.release(this, null);
+                return;
+            }
+            for (SketchSharedGifDrawable drawable : list) {
+                drawable.invalidateSelf();
+            }
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+
+        }
+    }
+
+    /**
+     * 记住所属的 {@link Entry}，被 GC 回收后从 {@link #collectedQueue} 取出来时知道要从哪个 {@link Entry} 中移除
+     */
+    private static class DrawableReference extends WeakReference<SketchSharedGifDrawable> {
+        @NonNull
+        private final Entry entry;
+
+        DrawableReference(@NonNull SketchSharedGifDrawable drawable, @NonNull Entry entry,
+                          @NonNull ReferenceQueue<SketchSharedGifDrawable> queue) {
+            super(drawable, queue);
+            this.entry = entry;
+        }
+    }
+}
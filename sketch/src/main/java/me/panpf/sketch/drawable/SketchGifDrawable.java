@@ -243,6 +243,20 @@ public interface SketchGifDrawable extends SketchDrawable, Animatable, MediaCont
      */
     void followPageVisible(boolean userVisible, boolean fromDisplayCompleted);
 
+    /**
+     * 开启或关闭帧缓存，开启后播放完一遍就把所有帧保存下来，之后每一遍直接绘制保存的帧，不用再解码。
+     * 帧占用的内存从 {@link me.panpf.sketch.cache.BitmapPool} 中获取，所有 gif 的帧缓存加起来不能超过 {@link me.panpf.sketch.cache.BitmapPool} 最大容量的四分之一，
+     * 不是无限循环或者所有帧加起来超出限制时不会开启，剩余额度不够时暂不保存，适合尺寸小、帧数少的表情类 gif
+     *
+     * @param enabled 开启
+     */
+    void setFrameCacheEnabled(boolean enabled);
+
+    /**
+     * 帧缓存已经开启了？
+     */
+    boolean isFrameCacheEnabled();
+
     /**
      * Interface which can be used to run some code when particular animation event occurs.
      */
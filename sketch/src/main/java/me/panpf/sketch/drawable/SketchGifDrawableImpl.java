@@ -21,6 +21,9 @@ import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.net.Uri;
 import androidx.annotation.NonNull;
 
@@ -29,15 +32,20 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import me.panpf.sketch.cache.BitmapPool;
 import me.panpf.sketch.cache.BitmapPoolUtils;
 import me.panpf.sketch.decode.ImageAttrs;
 import me.panpf.sketch.request.ImageFrom;
 import me.panpf.sketch.util.SketchUtils;
+import pl.droidsonroids.gif.FrameCacheBudget;
 import pl.droidsonroids.gif.GifDrawable;
+import pl.droidsonroids.gif.GifDrawableBuilder;
 
 /**
  * 增加了从BitmapPool中寻找可复用Bitmap的功能以及图片的信息
@@ -51,78 +59,45 @@ public class SketchGifDrawableImpl extends GifDrawable implements SketchGifDrawa
     private ImageAttrs imageAttrs;
     private ImageFrom imageFrom;
 
+    private static final Map<BitmapPool, FrameCacheBudget> FRAME_CACHE_BUDGETS = new WeakHashMap<>();
+
     private BitmapPool bitmapPool;
 
     private Map<AnimationListener, pl.droidsonroids.gif.AnimationListener> listenerMap;
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           AssetFileDescriptor afd) throws IOException {
-        super(afd);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(afd));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           AssetManager assets, String assetName) throws IOException {
-        super(assets, assetName);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(assets, assetName));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           ByteBuffer buffer) throws IOException {
-        super(buffer);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(buffer));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           byte[] bytes) throws IOException {
-        super(bytes);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(bytes));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           FileDescriptor fd) throws IOException {
-        super(fd);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(fd));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           File file) throws IOException {
-        super(file);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(file));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           String filePath) throws IOException {
-        super(filePath);
-        this.key = key;
-        this.uri = uri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(filePath));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
@@ -137,17 +112,21 @@ public class SketchGifDrawableImpl extends GifDrawable implements SketchGifDrawa
 
     SketchGifDrawableImpl(String key, String imageUri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           ContentResolver resolver, Uri uri) throws IOException {
-        super(resolver, uri);
-        this.key = key;
-        this.uri = imageUri;
-        this.imageAttrs = imageAttrs;
-        this.imageFrom = imageFrom;
-        this.bitmapPool = bitmapPool;
+        this(key, imageUri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(resolver, uri));
     }
 
     SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
                           InputStream stream) throws IOException {
-        super(stream);
+        this(key, uri, imageAttrs, imageFrom, bitmapPool, new GifDrawableBuilder().from(stream));
+    }
+
+    /**
+     * 按 {@link ImageAttrs#getSampleSize()} 采样解码，mBuffer 和每一帧的渲染都只有采样后的尺寸
+     */
+    private SketchGifDrawableImpl(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom, BitmapPool bitmapPool,
+                                  GifDrawableBuilder builder) throws IOException {
+        super(builder.getInputSource(), builder.getOldDrawable(), builder.getExecutor(), builder.isRenderingTriggeredOnDraw(),
+                builder.sampleSize(imageAttrs.getSampleSize()).getOptions());
         this.key = key;
         this.uri = uri;
         this.imageAttrs = imageAttrs;
@@ -176,6 +155,64 @@ public class SketchGifDrawableImpl extends GifDrawable implements SketchGifDrawa
         }
     }
 
+    @Override
+    protected void recycleFrameBitmap(Bitmap bitmap) {
+        if (bitmapPool != null) {
+            BitmapPoolUtils.freeBitmapToPool(bitmap, bitmapPool);
+        } else {
+            super.recycleFrameBitmap(bitmap);
+        }
+    }
+
+    @Override
+    protected FrameCacheBudget getFrameCacheBudget() {
+        if (bitmapPool != null) {
+            return getFrameCacheBudget(bitmapPool);
+        }
+        return super.getFrameCacheBudget();
+    }
+
+    /**
+     * 获取 {@link BitmapPool} 对应的帧缓存额度，同一个 {@link BitmapPool} 的所有 gif 共用一个，大小为 {@link BitmapPool} 最大容量的四分之一
+     */
+    @NonNull
+    static FrameCacheBudget getFrameCacheBudget(@NonNull BitmapPool bitmapPool) {
+        synchronized (FRAME_CACHE_BUDGETS) {
+            FrameCacheBudget budget = FRAME_CACHE_BUDGETS.get(bitmapPool);
+            if (budget == null) {
+                budget = new FrameCacheBudget(bitmapPool.getMaxSize() / 4);
+                FRAME_CACHE_BUDGETS.put(bitmapPool, budget);
+            }
+            return budget;
+        }
+    }
+
+    /**
+     * 修整帧缓存，和 {@link BitmapPool#trimMemory(int)} 一样，级别达到 TRIM_MEMORY_MODERATE 时清空，达到 TRIM_MEMORY_BACKGROUND 时减半
+     *
+     * @param level 修剪级别，对应 {@link android.content.ComponentCallbacks2} 里的常量
+     */
+    static void trimFrameCacheMemory(int level) {
+        List<FrameCacheBudget> budgets;
+        synchronized (FRAME_CACHE_BUDGETS) {
+            budgets = new ArrayList<>(FRAME_CACHE_BUDGETS.values());
+        }
+        for (FrameCacheBudget budget : budgets) {
+            if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+                budget.trimToSize(0);
+            } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+                budget.trimToSize(budget.getMaxBytes() / 2);
+            }
+        }
+    }
+
+    /**
+     * 把当前帧画到指定区域，给共享同一个动画的 {@link SketchSharedGifDrawable} 用
+     */
+    void drawSharedFrame(@NonNull Canvas canvas, @NonNull Rect dstRect, @NonNull Paint paint) {
+        drawFrame(canvas, dstRect, paint);
+    }
+
     @Override
     public String getKey() {
         return key;
@@ -20,6 +20,7 @@ import android.content.ContentResolver;
 import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.net.Uri;
 
 import java.io.File;
@@ -29,6 +30,7 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.datasource.DataSource;
 import me.panpf.sketch.decode.ImageAttrs;
 import me.panpf.sketch.decode.NotFoundGifLibraryException;
 import me.panpf.sketch.request.ImageFrom;
@@ -60,6 +62,17 @@ public class SketchGifFactory {
         }
     }
 
+    /**
+     * 修整所有 gif 共用的帧缓存，没有 gif 库时什么也不做
+     *
+     * @param level 修剪级别，对应 {@link android.content.ComponentCallbacks2} 里的常量
+     */
+    public static void trimFrameCacheMemory(int level) {
+        if (isExistGifLibrary()) {
+            SketchGifDrawableImpl.trimFrameCacheMemory(level);
+        }
+    }
+
     @SuppressWarnings("unused")
     public static SketchGifDrawable createGifDrawable(String key, String uri, ImageAttrs imageAttrs, ImageFrom imageFrom,
                                                       BitmapPool bitmapPool, AssetFileDescriptor afd) throws IOException, NotFoundGifLibraryException {
@@ -124,4 +137,19 @@ public class SketchGifFactory {
         assetExistGifLibrary();
         return new SketchGifDrawableImpl(key, uri, imageAttrs, imageFrom, bitmapPool, stream);
     }
+
+    /**
+     * 只解码 gif 的第一帧
+     *
+     * @param dataSource 数据源
+     * @param sampleSize 采样比例
+     * @param bitmapPool {@link android.graphics.Bitmap} 缓存池，第一帧的图片从这里取
+     * @return 第一帧
+     * @throws IOException                 数据源异常
+     * @throws NotFoundGifLibraryException 没有集成 sketch-gif
+     */
+    public static Bitmap decodeFirstFrame(DataSource dataSource, int sampleSize, BitmapPool bitmapPool) throws IOException, NotFoundGifLibraryException {
+        assetExistGifLibrary();
+        return SketchGifFrameDecoder.decodeFirstFrame(dataSource, sampleSize, bitmapPool);
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.BitmapPoolUtils;
+import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.util.SketchUtils;
+import pl.droidsonroids.gif.GifDecoder;
+import pl.droidsonroids.gif.GifDrawableBuilder;
+
+/**
+ * 只解码 gif 的第一帧，不创建 {@link SketchGifDrawableImpl}，省掉了渲染任务、Handler 以及一直占用着的 native 句柄，
+ * 第一帧直接画到从 {@link BitmapPool} 中取的、采样后尺寸的图片上，画完就释放 native 句柄
+ */
+// SketchGifFrameDecoder类配置了混淆时忽略警告，以后有变化时需要同步调整混淆配置，并打包验证
+class SketchGifFrameDecoder {
+
+    private SketchGifFrameDecoder() {
+    }
+
+    @NonNull
+    static Bitmap decodeFirstFrame(@NonNull DataSource dataSource, int sampleSize, @NonNull BitmapPool bitmapPool) throws IOException {
+        GifDrawableBuilder builder = new GifDrawableBuilder().sampleSize(sampleSize);
+
+        // 本地文件直接用路径打开，其它的用流，不需要先把整个文件读到内存中
+        InputStream inputStream = null;
+        File file = dataSource.getFile(null, null);
+        if (file != null) {
+            builder.from(file);
+        } else {
+            inputStream = new BufferedInputStream(dataSource.getInputStream());
+            builder.from(inputStream);
+        }
+
+        try {
+            GifDecoder decoder = new GifDecoder(builder.getInputSource(), builder.getOptions());
+            try {
+                Bitmap bitmap = bitmapPool.getOrMake(decoder.getWidth(), decoder.getHeight(), Bitmap.Config.ARGB_8888);
+                // 第一帧不一定铺满整个画布，复用的图片要先清空
+                bitmap.eraseColor(Color.TRANSPARENT);
+                try {
+                    decoder.seekToFrame(0, bitmap);
+                } catch (RuntimeException e) {
+                    BitmapPoolUtils.freeBitmapToPool(bitmap, bitmapPool);
+                    throw e;
+                }
+                return bitmap;
+            } finally {
+                decoder.recycle();
+            }
+        } finally {
+            SketchUtils.close(inputStream);
+        }
+    }
+}
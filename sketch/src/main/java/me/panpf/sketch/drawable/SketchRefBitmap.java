@@ -19,11 +19,13 @@ package me.panpf.sketch.drawable;
 import android.graphics.Bitmap;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.cache.BitmapPool;
 import me.panpf.sketch.cache.BitmapPoolUtils;
 import me.panpf.sketch.decode.ImageAttrs;
+import me.panpf.sketch.metrics.MemoryAccountant;
 import me.panpf.sketch.util.SketchUtils;
 
 /**
@@ -38,6 +40,8 @@ public class SketchRefBitmap extends SketchBitmap {
 
     @NonNull
     private BitmapPool bitmapPool;
+    @Nullable
+    private MemoryAccountant.RefBitmapRecord accountRecord;
 
     public SketchRefBitmap(@NonNull Bitmap bitmap, @NonNull String key, @NonNull String uri, @NonNull ImageAttrs imageAttrs, @NonNull BitmapPool bitmapPool) {
         super(bitmap, key, uri, imageAttrs);
@@ -63,6 +67,25 @@ public class SketchRefBitmap extends SketchBitmap {
         return bitmap == null || bitmap.isRecycled();
     }
 
+    /**
+     * 设置 {@link MemoryAccountant} 的登记记录，释放时标记一下，用来发现引用计数泄露
+     */
+    public synchronized void setAccountRecord(@Nullable MemoryAccountant.RefBitmapRecord accountRecord) {
+        this.accountRecord = accountRecord;
+    }
+
+    public synchronized int getDisplayRefCount() {
+        return displayRefCount;
+    }
+
+    public synchronized int getMemoryCacheRefCount() {
+        return memoryCacheRefCount;
+    }
+
+    public synchronized int getWaitingUseRefCount() {
+        return waitingUseRefCount;
+    }
+
     /**
      * 设置显示引用
      *
@@ -119,6 +142,10 @@ public class SketchRefBitmap extends SketchBitmap {
     private void referenceChanged(@NonNull String callingStation) {
         if (isRecycled()) {
             SLog.e(NAME, "Recycled. %s. %s", callingStation, getKey());
+            // bitmap 已经不在了，不能算作泄露
+            if (accountRecord != null) {
+                accountRecord.onFreed();
+            }
             return;
         }
 
@@ -129,6 +156,9 @@ public class SketchRefBitmap extends SketchBitmap {
 
             BitmapPoolUtils.freeBitmapToPool(bitmap, bitmapPool);
             bitmap = null;
+            if (accountRecord != null) {
+                accountRecord.onFreed();
+            }
         } else {
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_CACHE)) {
                 SLog.d(NAME, "Can't free. %s. references(%d,%d,%d). %s",
@@ -35,6 +35,7 @@ import androidx.annotation.Nullable;
 
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.decode.ResizeCalculator;
+import me.panpf.sketch.metrics.FrameCostTracker;
 import me.panpf.sketch.request.ImageFrom;
 import me.panpf.sketch.request.ShapeSize;
 import me.panpf.sketch.shaper.ImageShaper;
@@ -67,6 +68,8 @@ public class SketchShapeBitmapDrawable extends Drawable implements SketchRefDraw
 
     @NonNull
     private ResizeCalculator resizeCalculator;
+    @NonNull
+    private FrameCostTracker frameCostTracker;
 
     public SketchShapeBitmapDrawable(@NonNull Context context, @NonNull BitmapDrawable bitmapDrawable, @Nullable ShapeSize shapeSize, @Nullable ImageShaper shaper) {
         Bitmap bitmap = bitmapDrawable.getBitmap();
@@ -82,6 +85,7 @@ public class SketchShapeBitmapDrawable extends Drawable implements SketchRefDraw
         this.paint = new Paint(DEFAULT_PAINT_FLAGS);
         this.srcRect = new Rect();
         this.resizeCalculator = Sketch.with(context).getConfiguration().getResizeCalculator();
+        this.frameCostTracker = Sketch.with(context).getConfiguration().getFrameCostTracker();
 
         setShapeSize(shapeSize);
         setShaper(shaper);
@@ -113,11 +117,13 @@ public class SketchShapeBitmapDrawable extends Drawable implements SketchRefDraw
             return;
         }
 
+        long frameStartNanos = frameCostTracker.begin();
         if (shaper != null && bitmapShader != null) {
             shaper.draw(canvas, paint, bounds);
         } else {
             canvas.drawBitmap(bitmap, !srcRect.isEmpty() ? srcRect : null, bounds, paint);
         }
+        frameCostTracker.end(FrameCostTracker.Component.DRAW, frameStartNanos);
     }
 
     @Override
@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.FloatRange;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import me.panpf.sketch.request.ImageFrom;
+
+/**
+ * 共享 gif 动画的轻量 drawable，自己不解码也不渲染，只是把 {@link SharedGifRegistry} 中共享的 {@link SketchGifDrawableImpl} 的当前帧画到自己的区域内，
+ * 所以透明度、颜色过滤、尺寸都是独立的，但是播放进度、速度、循环次数等是所有共享者一起的
+ * <p>
+ * 所有共享者中只要有一个可见并且在播放，共享的动画就会播放；{@link #recycle()} 只是释放自己的引用，最后一个共享者释放时才会真正回收
+ */
+public class SketchSharedGifDrawable extends Drawable implements SketchGifDrawable {
+    private static final String NAME = "SketchSharedGifDrawable";
+
+    @NonNull
+    private final SharedGifRegistry registry;
+    @NonNull
+    private final SharedGifRegistry.Entry entry;
+    @NonNull
+    private final SketchGifDrawableImpl source;
+    @NonNull
+    private final ImageFrom imageFrom;
+    @NonNull
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+
+    @Nullable
+    private List<AnimationListener> listeners;
+    private volatile boolean running = true;
+    private volatile boolean recycled;
+
+    SketchSharedGifDrawable(@NonNull SharedGifRegistry registry, @NonNull SharedGifRegistry.Entry entry, @NonNull ImageFrom imageFrom) {
+        this.registry = registry;
+        this.entry = entry;
+        this.source = entry.source;
+        this.imageFrom = imageFrom;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (recycled || source.isRecycled()) {
+            return;
+        }
+        source.drawSharedFrame(canvas, getBounds(), paint);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return source.getIntrinsicWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return source.getIntrinsicHeight();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        paint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return paint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return source.getOpacity() == PixelFormat.OPAQUE && paint.getAlpha() == 255 ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (changed && !recycled) {
+            registry.updateRunning(entry);
+        }
+        return changed;
+    }
+
+    /* ********************************************* Animatable ******************************************** */
+
+    @Override
+    public void start() {
+        running = true;
+        if (!recycled) {
+            registry.updateRunning(entry);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!recycled) {
+            registry.updateRunning(entry);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running && !recycled;
+    }
+
+    /* ********************************************* SketchGifDrawable ******************************************** */
+
+    @Override
+    public void recycle() {
+        if (recycled) {
+            return;
+        }
+        recycled = true;
+        running = false;
+
+        if (listeners != null) {
+            for (AnimationListener listener : listeners) {
+                source.removeAnimationListener(listener);
+            }
+            listeners.clear();
+        }
+        registry.release(entry, this);
+    }
+
+    @Override
+    public boolean isRecycled() {
+        return recycled || source.isRecycled();
+    }
+
+    @Override
+    public void reset() {
+        source.reset();
+    }
+
+    @Override
+    public String getComment() {
+        return source.getComment();
+    }
+
+    @Override
+    public int getLoopCount() {
+        return source.getLoopCount();
+    }
+
+    @Override
+    public void setLoopCount(@IntRange(from = 0, to = Character.MAX_VALUE) int loopCount) {
+        source.setLoopCount(loopCount);
+    }
+
+    @Override
+    public int getNumberOfFrames() {
+        return source.getNumberOfFrames();
+    }
+
+    @Override
+    public void setSpeed(@FloatRange(from = 0, fromInclusive = false) float factor) {
+        source.setSpeed(factor);
+    }
+
+    @Override
+    public void seekToFrame(@IntRange(from = 0, to = Integer.MAX_VALUE) int frameIndex) {
+        source.seekToFrame(frameIndex);
+    }
+
+    @Override
+    public Bitmap seekToFrameAndGet(@IntRange(from = 0, to = Integer.MAX_VALUE) int frameIndex) {
+        return source.seekToFrameAndGet(frameIndex);
+    }
+
+    @Override
+    public Bitmap seekToPositionAndGet(@IntRange(from = 0, to = Integer.MAX_VALUE) int position) {
+        return source.seekToPositionAndGet(position);
+    }
+
+    @Override
+    public int getFrameByteCount() {
+        return source.getFrameByteCount();
+    }
+
+    @Override
+    public long getAllocationByteCount() {
+        return source.getAllocationByteCount();
+    }
+
+    @Override
+    public long getMetadataAllocationByteCount() {
+        return source.getMetadataAllocationByteCount();
+    }
+
+    @Override
+    public long getInputSourceByteCount() {
+        return source.getInputSourceByteCount();
+    }
+
+    @Override
+    public void getPixels(@NonNull int[] pixels) {
+        source.getPixels(pixels);
+    }
+
+    @Override
+    public int getPixel(int x, int y) {
+        return source.getPixel(x, y);
+    }
+
+    @Override
+    public Paint getPaint() {
+        return paint;
+    }
+
+    @Override
+    public void addAnimationListener(@NonNull AnimationListener listener) {
+        if (listeners == null) {
+            listeners = new LinkedList<>();
+        }
+        listeners.add(listener);
+        source.addAnimationListener(listener);
+    }
+
+    @Override
+    public boolean removeAnimationListener(AnimationListener listener) {
+        return listeners != null && listeners.remove(listener) && source.removeAnimationListener(listener);
+    }
+
+    @Override
+    public Bitmap getCurrentFrame() {
+        return source.getCurrentFrame();
+    }
+
+    @Override
+    public int getCurrentFrameIndex() {
+        return source.getCurrentFrameIndex();
+    }
+
+    @Override
+    public int getCurrentLoop() {
+        return source.getCurrentLoop();
+    }
+
+    @Override
+    public boolean isAnimationCompleted() {
+        return source.isAnimationCompleted();
+    }
+
+    @Override
+    public int getFrameDuration(@IntRange(from = 0) int index) {
+        return source.getFrameDuration(index);
+    }
+
+    @Override
+    public void followPageVisible(boolean userVisible, boolean fromDisplayCompleted) {
+        if (userVisible) {
+            start();
+        } else {
+            stop();
+            // 其它共享者还在播放时不能把大家都拉回第一帧
+            if (fromDisplayCompleted && !source.isRunning()) {
+                source.seekToFrame(0);
+            }
+        }
+    }
+
+    @Override
+    public void setFrameCacheEnabled(boolean enabled) {
+        source.setFrameCacheEnabled(enabled);
+    }
+
+    @Override
+    public boolean isFrameCacheEnabled() {
+        return source.isFrameCacheEnabled();
+    }
+
+    /* ********************************************* SketchDrawable ******************************************** */
+
+    @Override
+    public String getKey() {
+        return source.getKey();
+    }
+
+    @Override
+    public String getUri() {
+        return source.getUri();
+    }
+
+    @Override
+    public int getOriginWidth() {
+        return source.getOriginWidth();
+    }
+
+    @Override
+    public int getOriginHeight() {
+        return source.getOriginHeight();
+    }
+
+    @Override
+    public String getMimeType() {
+        return source.getMimeType();
+    }
+
+    @Override
+    public int getExifOrientation() {
+        return source.getExifOrientation();
+    }
+
+    @Override
+    public int getByteCount() {
+        return source.getByteCount();
+    }
+
+    @Override
+    public Bitmap.Config getBitmapConfig() {
+        return source.getBitmapConfig();
+    }
+
+    @Override
+    public ImageFrom getImageFrom() {
+        return imageFrom;
+    }
+
+    @Override
+    public String getInfo() {
+        return String.format("%s(%s)", NAME, source.getInfo());
+    }
+
+    /* ********************************************* MediaPlayerControl ******************************************** */
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public int getDuration() {
+        return source.getDuration();
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return source.getCurrentPosition();
+    }
+
+    @Override
+    public void seekTo(int position) {
+        source.seekTo(position);
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return isRunning();
+    }
+
+    @Override
+    public int getBufferPercentage() {
+        return source.getBufferPercentage();
+    }
+
+    @Override
+    public boolean canPause() {
+        return true;
+    }
+
+    @Override
+    public boolean canSeekBackward() {
+        return source.canSeekBackward();
+    }
+
+    @Override
+    public boolean canSeekForward() {
+        return source.canSeekForward();
+    }
+
+    @Override
+    public int getAudioSessionId() {
+        return source.getAudioSessionId();
+    }
+}
@@ -19,7 +19,9 @@ package me.panpf.sketch.http;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import me.panpf.sketch.SLog;
+import me.panpf.sketch.SLogEvent;
 import me.panpf.sketch.cache.DiskCache;
+import me.panpf.sketch.metrics.SketchMetrics;
 import me.panpf.sketch.request.*;
 import me.panpf.sketch.util.DiskLruCache;
 import me.panpf.sketch.util.SketchUtils;
@@ -67,6 +69,7 @@ public class ImageDownloader {
             if (diskCacheEditLock != null) {
                 request.setStatus(BaseRequest.Status.CHECK_DISK_CACHE);
                 DiskCache.Entry diskCacheEntry = diskCache.get(diskCacheKey);
+                request.getConfiguration().getMetrics().increment(diskCacheEntry != null ? SketchMetrics.DISK_CACHE_HIT : SketchMetrics.DISK_CACHE_MISS);
                 if (diskCacheEntry != null) {
                     return new DownloadResult(diskCacheEntry, ImageFrom.DISK_CACHE);
                 }
@@ -112,10 +115,11 @@ public class ImageDownloader {
                     }
                     throw new DownloadException(message, tr, ErrorCause.DOWNLOAD_EXCEPTION_AND_CANCELED);
                 } else if (httpStack.canRetry(tr) && retryCount < maxRetryCount) {
-                    tr.printStackTrace();
                     retryCount++;
-                    String message = String.format("Download exception but can retry. %s. %s", request.getThreadName(), request.getKey());
-                    SLog.w(NAME, tr, message);
+                    SLogEvent event = SLog.event(SLog.LEVEL_WARNING, NAME, "Download exception but can retry");
+                    if (event != null) {
+                        event.put("retryCount", retryCount).put("key", request.getKey()).throwable(tr).commit();
+                    }
                 } else if (tr instanceof CanceledException) {
                     throw (CanceledException) tr;
                 } else if (tr instanceof DownloadException) {
@@ -148,6 +152,8 @@ public class ImageDownloader {
                                       @NonNull DiskCache diskCache, @NonNull String diskCacheKey)
             throws IOException, CanceledException, DownloadException, RedirectsException {
         // Opening http connection
+        SketchMetrics metrics = request.getConfiguration().getMetrics();
+        long startNanos = metrics.startNanos();
         request.setStatus(BaseRequest.Status.CONNECTING);
         HttpStack.Response response;
         //noinspection CaughtExceptionImmediatelyRethrown
@@ -248,7 +254,7 @@ public class ImageDownloader {
         request.setStatus(BaseRequest.Status.READ_DATA);
         int completedLength;
         try {
-            completedLength = readData(request, inputStream, outputStream, (int) contentLength);
+            completedLength = readData(request, inputStream, outputStream, (int) contentLength, metrics, startNanos);
         } catch (IOException e) {
             if (diskCacheEditor != null) {
                 diskCacheEditor.abort();
@@ -317,12 +323,15 @@ public class ImageDownloader {
      * @param inputStream   {@link InputStream}
      * @param outputStream  {@link OutputStream}
      * @param contentLength 数据长度
+     * @param metrics       {@link SketchMetrics}. 用来记录下载的字节数和耗时
+     * @param startNanos    开始连接的时间，{@link SketchMetrics#startNanos()}
      * @return 已读取数据长度
      * @throws IOException       IO 异常
      * @throws CanceledException 已取消
      */
     private int readData(@NonNull DownloadRequest request, @NonNull InputStream inputStream,
-                         @NonNull OutputStream outputStream, int contentLength) throws IOException, CanceledException {
+                         @NonNull OutputStream outputStream, int contentLength,
+                         @NonNull SketchMetrics metrics, long startNanos) throws IOException, CanceledException {
         int realReadCount;
         int completedLength = 0;
         long lastCallbackTime = 0;
@@ -339,6 +348,9 @@ public class ImageDownloader {
 
             realReadCount = inputStream.read(buffer);
             if (realReadCount != -1) {
+                if (completedLength == 0 && realReadCount > 0) {
+                    metrics.recordSince(SketchMetrics.DOWNLOAD_FIRST_BYTE, startNanos);
+                }
                 outputStream.write(buffer, 0, realReadCount);
                 completedLength += realReadCount;
 
@@ -355,6 +367,8 @@ public class ImageDownloader {
             }
         }
         outputStream.flush();
+        metrics.add(SketchMetrics.DOWNLOAD_BYTES, completedLength);
+        metrics.recordSince(SketchMetrics.DOWNLOAD_TIME, startNanos);
         return completedLength;
     }
 
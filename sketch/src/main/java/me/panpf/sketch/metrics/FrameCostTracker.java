@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 按帧统计 Sketch 在主线程上花的时间，并按组件细分，用来找出卡顿是 Sketch 的哪一部分引起的
+ * <p>
+ * 统计点用 {@link #begin()} 和 {@link #end(Component, long)} 包起来，嵌套的统计点只算自己的时间，
+ * 例如 {@link Component#CALLBACK} 中调用了 {@link Component#DISPLAYER}，显示动画的时间只算在 DISPLAYER 上。
+ * 两次 {@link Choreographer} 回调之间累计的时间算作一帧，其中包括上一帧的绘制，超出预算时回调 {@link Listener}
+ * <p>
+ * 默认不开启，关闭时每个统计点只多了一次 volatile 读取。只统计主线程，数据也只在主线程上读写，所以不需要同步。
+ * 只在有数据的时候才注册 {@link Choreographer.FrameCallback}，主线程空闲时不会唤醒 vsync
+ */
+public class FrameCostTracker {
+    private static final String NAME = "FrameCostTracker";
+    private static final int MAX_DEPTH = 16;
+    private static final Component[] COMPONENTS = Component.values();
+
+    /**
+     * 默认的每帧预算，60fps 下一帧 16.6 毫秒，Sketch 最多只应该占其中的一小部分
+     */
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    private volatile boolean enabled;
+    private volatile long budgetNanos = DEFAULT_BUDGET_NANOS;
+    @Nullable
+    private volatile Listener listener;
+
+    // 以下字段只在主线程上访问
+    @NonNull
+    private final long[] frameNanos = new long[COMPONENTS.length];
+    @NonNull
+    private final long[] totalNanos = new long[COMPONENTS.length];
+    @NonNull
+    private final long[] childNanos = new long[MAX_DEPTH];
+    private int depth;
+    private long frameCount;
+    private long overBudgetFrameCount;
+    @NonNull
+    private final FrameCost frameCost = new FrameCost();
+    private boolean frameCallbackPosted;
+    @Nullable
+    private Choreographer.FrameCallback frameCallback;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开启或关闭统计
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            SLog.w(NAME, "setEnabled. %s", enabled);
+        }
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * 设置每帧的预算，一帧中 Sketch 在主线程上花的时间超过预算就回调 {@link Listener}
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Nullable
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始一个统计点
+     *
+     * @return 开始时间，没有开启或者不在主线程上时返回 0，原样传给 {@link #end(Component, long)} 即可
+     */
+    public long begin() {
+        if (!enabled || !SketchUtils.isMainThread() || depth >= MAX_DEPTH) {
+            return 0;
+        }
+        childNanos[depth++] = 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束一个统计点，必须和 {@link #begin()} 成对调用，最好放在 finally 中
+     *
+     * @param startNanos {@link #begin()} 的返回值
+     */
+    public void end(@NonNull Component component, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        depth--;
+        long selfNanos = elapsedNanos - childNanos[depth];
+        if (depth > 0) {
+            childNanos[depth - 1] += elapsedNanos;
+        }
+        frameNanos[component.ordinal()] += selfNanos;
+
+        if (!frameCallbackPosted) {
+            if (frameCallback == null) {
+                frameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        onFrame(frameTimeNanos);
+                    }
+                };
+            }
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        // 帧回调时不会在任何统计点中，统计点中抛了异常没有结束的话在这里纠正
+        depth = 0;
+
+        long frameTotalNanos = 0;
+        for (int i = 0; i < frameNanos.length; i++) {
+            frameCost.nanos[i] = frameNanos[i];
+            totalNanos[i] += frameNanos[i];
+            frameTotalNanos += frameNanos[i];
+            frameNanos[i] = 0;
+        }
+        frameCount++;
+
+        long budgetNanos = this.budgetNanos;
+        if (frameTotalNanos > budgetNanos) {
+            overBudgetFrameCount++;
+            frameCost.frameTimeNanos = frameTimeNanos;
+            frameCost.totalNanos = frameTotalNanos;
+            frameCost.budgetNanos = budgetNanos;
+
+            Listener listener = this.listener;
+            if (listener != null) {
+                listener.onFrameBudgetExceeded(frameCost);
+            } else if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
+                SLog.d(NAME, "Frame budget exceeded. %s", frameCost.toString());
+            }
+        }
+    }
+
+    /**
+     * Sketch 在主线程上工作过的帧数，只能在主线程上调用
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 超出预算的帧数，只能在主线程上调用
+     */
+    public long getOverBudgetFrameCount() {
+        return overBudgetFrameCount;
+    }
+
+    /**
+     * 指定组件累计在主线程上花的时间，不包括还没有结束的这一帧，只能在主线程上调用
+     */
+    public long getTotalNanos(@NonNull Component component) {
+        return totalNanos[component.ordinal()];
+    }
+
+    /**
+     * 清空累计的数据，只能在主线程上调用
+     */
+    public void reset() {
+        for (int i = 0; i < totalNanos.length; i++) {
+            totalNanos[i] = 0;
+            frameNanos[i] = 0;
+        }
+        frameCount = 0;
+        overBudgetFrameCount = 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s(enabled=%s,budget=%.2fms)", NAME, enabled, budgetNanos / 1000000f);
+    }
+
+    /**
+     * Sketch 在主线程上运行的组件
+     */
+    public enum Component {
+        /**
+         * {@link me.panpf.sketch.request.DisplayHelper#commit()}，不包括其中的 CHECK_PARAMS 和 CHECK_MEMORY_CACHE
+         */
+        DISPLAY_COMMIT,
+        /**
+         * 检查、补全显示参数，包括计算 resize、maxSize
+         */
+        CHECK_PARAMS,
+        /**
+         * 在主线程上检查内存缓存
+         */
+        CHECK_MEMORY_CACHE,
+        /**
+         * {@link me.panpf.sketch.request.CallbackHandler} 推到主线程的完成、失败、取消、进度回调
+         */
+        CALLBACK,
+        /**
+         * {@link me.panpf.sketch.display.ImageDisplayer#display} 开始显示动画
+         */
+        DISPLAYER,
+        /**
+         * {@link me.panpf.sketch.viewfun.FunctionPropertyView} 中的各种 ViewFunction
+         */
+        VIEW_FUNCTION,
+        /**
+         * {@link me.panpf.sketch.drawable.SketchShapeBitmapDrawable#draw} 绘制
+         */
+        DRAW,
+    }
+
+    /**
+     * 一帧的耗时明细，对象是复用的，只在回调中有效
+     */
+    public static class FrameCost {
+        @NonNull
+        private final long[] nanos = new long[COMPONENTS.length];
+        private long frameTimeNanos;
+        private long totalNanos;
+        private long budgetNanos;
+
+        /**
+         * 帧开始的时间，{@link Choreographer.FrameCallback#doFrame(long)} 的参数
+         */
+        public long getFrameTimeNanos() {
+            return frameTimeNanos;
+        }
+
+        public long getNanos(@NonNull Component component) {
+            return nanos[component.ordinal()];
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getBudgetNanos() {
+            return budgetNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.US, "FrameCost(total=%.2fms, budget=%.2fms",
+                    totalNanos / 1000000f, budgetNanos / 1000000f));
+            for (Component component : COMPONENTS) {
+                long componentNanos = nanos[component.ordinal()];
+                if (componentNanos > 0) {
+                    builder.append(", ").append(component.name())
+                            .append(String.format(Locale.US, "=%.2fms", componentNanos / 1000000f));
+                }
+            }
+            return builder.append(")").toString();
+        }
+    }
+
+    /**
+     * 超出预算时回调，在主线程上执行
+     */
+    public interface Listener {
+        void onFrameBudgetExceeded(@NonNull FrameCost frameCost);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图，单位纳秒，参考 HdrHistogram 的分桶方式：
+ * 按 2 的幂分成若干段，每段再平均分成 8 个桶，所以任何耗时落到的桶的宽度都不超过它的 1/8，百分位数的误差在 12.5% 以内。
+ * 桶数是固定的，创建时就分配好，记录时只有几次原子操作，不创建任何对象
+ * <p>
+ * 最大能区分到 2^41 纳秒（约 36 分钟），再长的都算在最后一个桶里
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    @NonNull
+    private final String name;
+    @NonNull
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    @NonNull
+    private final AtomicLong count = new AtomicLong();
+    @NonNull
+    private final AtomicLong sum = new AtomicLong();
+    @NonNull
+    private final AtomicLong max = new AtomicLong();
+
+    protected LatencyHistogram(@NonNull String name) {
+        this.name = name;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，单位纳秒
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * 记录从 startNanos 到现在的耗时
+     *
+     * @param startNanos {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 复制一份当前的数据，之后的记录不会影响它
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(name, counts, total, sum.get(), max.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 桶中最小的值
+     */
+    static long bucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    /**
+     * 桶中最大的值
+     */
+    static long bucketHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * {@link LatencyHistogram} 某一时刻的数据
+     */
+    public static class Snapshot {
+        @NonNull
+        private final String name;
+        @NonNull
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(@NonNull String name, @NonNull long[] counts, long count, long sum, long max) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 总耗时，单位纳秒
+         */
+        public long getSumNanos() {
+            return sum;
+        }
+
+        /**
+         * 最大耗时，单位纳秒
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * 平均耗时，单位纳秒
+         */
+        public long getMeanNanos() {
+            return count > 0 ? sum / count : 0;
+        }
+
+        /**
+         * 获取百分位数，按排名在所在的桶内线性插值，结果不会超过记录到的最大耗时
+         *
+         * @param percentile 百分比，取值范围 0 到 100，例如 99 就是 p99
+         * @return 单位纳秒，没有记录时返回 0
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count <= 0) {
+                return 0;
+            }
+            double ratio = Math.max(0, Math.min(percentile, 100)) / 100;
+            long target = Math.max(1, (long) Math.ceil(ratio * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                long bucketCount = counts[i];
+                if (bucketCount > 0 && seen + bucketCount >= target) {
+                    long low = bucketLowestValue(i);
+                    long high = Math.min(bucketHighestValue(i), max);
+                    if (high <= low) {
+                        return high;
+                    }
+                    double fraction = (double) (target - seen) / bucketCount;
+                    return low + Math.round((high - low) * fraction);
+                }
+                seen += bucketCount;
+            }
+            return max;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s(count=%d, mean=%.2fms, p50=%.2fms, p90=%.2fms, p99=%.2fms, max=%.2fms)",
+                    name, count, getMeanNanos() / 1000000f, getPercentileNanos(50) / 1000000f,
+                    getPercentileNanos(90) / 1000000f, getPercentileNanos(99) / 1000000f, max / 1000000f);
+        }
+    }
+}
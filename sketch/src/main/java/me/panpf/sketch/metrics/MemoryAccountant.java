@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.LruBitmapPool;
+import me.panpf.sketch.drawable.SketchGifDrawable;
+import me.panpf.sketch.drawable.SketchRefBitmap;
+import me.panpf.sketch.zoom.block.BlockManager;
+
+/**
+ * 图片内存记账，回答“图片内存都被谁占着”：显示中、内存缓存中、等待使用的 {@link SketchRefBitmap}，
+ * bitmap pool（按 {@link Bitmap.Config} 细分），大图分块显示的碎片以及 gif 动画的帧缓冲区
+ * <p>
+ * 创建 {@link SketchRefBitmap}、{@link BlockManager}、gif 动画时登记一个弱引用，平时不做任何统计，
+ * 只有调用 {@link #snapshot()} 时才遍历一遍算出各个分类的大小，可以通过 {@link #setSnapshotListener(SnapshotListener, long)} 定时导出。
+ * <p>
+ * 还能发现引用计数泄露：引用计数一直没有归零、也就是 bitmap 一直没有还给 bitmap pool 的 {@link SketchRefBitmap} 被垃圾回收了，
+ * 说明某处 setIsDisplayed()、setIsCached() 或 setIsWaitingUse() 没有成对调用，会回调 {@link LeakListener}
+ * <p>
+ * 默认不开启，关闭时不登记，开启之前创建的对象也不会被统计
+ */
+public class MemoryAccountant {
+    private static final String NAME = "MemoryAccountant";
+
+    @NonNull
+    private final Context context;
+    private volatile boolean enabled;
+
+    @NonNull
+    private final ReferenceQueue<SketchRefBitmap> referenceQueue = new ReferenceQueue<>();
+    @NonNull
+    private final Set<RefBitmapRecord> refBitmapRecords = new HashSet<>();
+    @NonNull
+    private final Set<BlockManager> blockManagers = Collections.newSetFromMap(new WeakHashMap<BlockManager, Boolean>());
+    @NonNull
+    private final Set<SketchGifDrawable> gifDrawables = Collections.newSetFromMap(new WeakHashMap<SketchGifDrawable, Boolean>());
+    private long leakCount;
+    private long leakBytes;
+
+    @Nullable
+    private volatile LeakListener leakListener;
+    @Nullable
+    private SnapshotListener snapshotListener;
+    private long snapshotIntervalMillis;
+    @Nullable
+    private Handler handler;
+    @Nullable
+    private Runnable snapshotRunnable;
+
+    public MemoryAccountant(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开启或关闭记账，关闭后不再登记新的对象，已经登记的还会继续统计
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            SLog.w(NAME, "setEnabled. %s", enabled);
+        }
+    }
+
+    /**
+     * 登记一个 {@link SketchRefBitmap}
+     */
+    public void track(@NonNull SketchRefBitmap refBitmap) {
+        if (!enabled) {
+            return;
+        }
+        RefBitmapRecord record = new RefBitmapRecord(refBitmap, referenceQueue);
+        refBitmap.setAccountRecord(record);
+        synchronized (this) {
+            refBitmapRecords.add(record);
+        }
+        checkLeaks();
+    }
+
+    /**
+     * 登记一个 {@link BlockManager}
+     */
+    public void track(@NonNull BlockManager blockManager) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            blockManagers.add(blockManager);
+        }
+    }
+
+    /**
+     * 登记一个 gif 动画
+     */
+    public void track(@NonNull SketchGifDrawable gifDrawable) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            gifDrawables.add(gifDrawable);
+        }
+    }
+
+    /**
+     * 检查已经被垃圾回收的 {@link SketchRefBitmap}，发现泄露就回调 {@link LeakListener}。登记新对象和导出时都会检查一次
+     */
+    public void checkLeaks() {
+        List<RefBitmapRecord> leaks = null;
+        synchronized (this) {
+            Reference<? extends SketchRefBitmap> reference;
+            while ((reference = referenceQueue.poll()) != null) {
+                RefBitmapRecord record = (RefBitmapRecord) reference;
+                refBitmapRecords.remove(record);
+                if (!record.freed) {
+                    leakCount++;
+                    leakBytes += record.byteCount;
+                    if (leaks == null) {
+                        leaks = new ArrayList<>(2);
+                    }
+                    leaks.add(record);
+                }
+            }
+        }
+
+        if (leaks != null) {
+            LeakListener leakListener = this.leakListener;
+            long now = System.currentTimeMillis();
+            for (RefBitmapRecord record : leaks) {
+                long ageMillis = now - record.createTimeMillis;
+                if (leakListener != null) {
+                    leakListener.onLeak(record.key, record.byteCount, ageMillis);
+                } else {
+                    SLog.w(NAME, "Leak. byteCount=%d, age=%dms. %s", record.byteCount, ageMillis, record.key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 导出当前的内存分布，需要在主线程上调用，因为 {@link BlockManager} 只能在主线程上访问
+     */
+    @NonNull
+    public MemorySnapshot snapshot() {
+        checkLeaks();
+
+        List<RefBitmapRecord> records;
+        List<BlockManager> blockManagerList;
+        List<SketchGifDrawable> gifDrawableList;
+        long leakCount;
+        long leakBytes;
+        synchronized (this) {
+            records = new ArrayList<>(refBitmapRecords);
+            blockManagerList = new ArrayList<>(blockManagers);
+            gifDrawableList = new ArrayList<>(gifDrawables);
+            leakCount = this.leakCount;
+            leakBytes = this.leakBytes;
+        }
+
+        int displayedCount = 0;
+        long displayedBytes = 0;
+        int memoryCacheCount = 0;
+        long memoryCacheBytes = 0;
+        int waitingUseCount = 0;
+        long waitingUseBytes = 0;
+        for (RefBitmapRecord record : records) {
+            SketchRefBitmap refBitmap = record.get();
+            if (refBitmap == null) {
+                continue;
+            }
+            //noinspection SynchronizationOnLocalVariableOrMethodParameter
+            synchronized (refBitmap) {
+                if (refBitmap.isRecycled()) {
+                    continue;
+                }
+                if (refBitmap.getDisplayRefCount() > 0) {
+                    displayedCount++;
+                    displayedBytes += refBitmap.getByteCount();
+                } else if (refBitmap.getMemoryCacheRefCount() > 0) {
+                    memoryCacheCount++;
+                    memoryCacheBytes += refBitmap.getByteCount();
+                } else {
+                    waitingUseCount++;
+                    waitingUseBytes += refBitmap.getByteCount();
+                }
+            }
+        }
+
+        long blockBytes = 0;
+        for (BlockManager blockManager : blockManagerList) {
+            blockBytes += blockManager.getAllocationByteCount();
+        }
+
+        int gifCount = 0;
+        long gifBytes = 0;
+        for (SketchGifDrawable gifDrawable : gifDrawableList) {
+            if (!gifDrawable.isRecycled()) {
+                gifCount++;
+                gifBytes += gifDrawable.getByteCount();
+            }
+        }
+
+        Configuration configuration = Sketch.with(context).getConfiguration();
+        BitmapPool bitmapPool = configuration.getBitmapPool();
+        Map<Bitmap.Config, Long> bitmapPoolBytesByConfig = bitmapPool instanceof LruBitmapPool
+                ? ((LruBitmapPool) bitmapPool).getSizeByConfig() : new HashMap<Bitmap.Config, Long>();
+
+        return new MemorySnapshot(System.currentTimeMillis(), displayedCount, displayedBytes, memoryCacheCount, memoryCacheBytes,
+                waitingUseCount, waitingUseBytes, bitmapPool.getSize(), bitmapPoolBytesByConfig,
+                blockManagerList.size(), blockBytes, gifCount, gifBytes, leakCount, leakBytes);
+    }
+
+    /**
+     * 设置泄露回调，可能在任意线程上回调
+     */
+    public void setLeakListener(@Nullable LeakListener leakListener) {
+        this.leakListener = leakListener;
+    }
+
+    /**
+     * 定时导出内存分布，在主线程上回调
+     *
+     * @param snapshotListener null：停止定时导出
+     * @param intervalMillis   间隔时间，单位毫秒
+     */
+    public void setSnapshotListener(@Nullable SnapshotListener snapshotListener, long intervalMillis) {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        if (snapshotRunnable != null) {
+            handler.removeCallbacks(snapshotRunnable);
+        }
+
+        this.snapshotListener = snapshotListener;
+        this.snapshotIntervalMillis = intervalMillis;
+        if (snapshotListener == null) {
+            return;
+        }
+
+        if (snapshotRunnable == null) {
+            snapshotRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    SnapshotListener listener = MemoryAccountant.this.snapshotListener;
+                    if (listener != null && handler != null) {
+                        listener.onSnapshot(snapshot());
+                        handler.postDelayed(this, snapshotIntervalMillis);
+                    }
+                }
+            };
+        }
+        handler.postDelayed(snapshotRunnable, intervalMillis);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("%s(enabled=%s)", NAME, enabled);
+    }
+
+    /**
+     * {@link SketchRefBitmap} 的登记记录，bitmap 还给 bitmap pool 时由 {@link SketchRefBitmap} 标记为已释放，
+     * 没有标记就被回收了说明引用计数泄露了
+     */
+    public static class RefBitmapRecord extends WeakReference<SketchRefBitmap> {
+        @NonNull
+        private final String key;
+        private final int byteCount;
+        private final long createTimeMillis;
+        private volatile boolean freed;
+
+        RefBitmapRecord(@NonNull SketchRefBitmap refBitmap, @NonNull ReferenceQueue<SketchRefBitmap> queue) {
+            super(refBitmap, queue);
+            this.key = refBitmap.getKey();
+            this.byteCount = refBitmap.getByteCount();
+            this.createTimeMillis = System.currentTimeMillis();
+        }
+
+        public void onFreed() {
+            freed = true;
+        }
+    }
+
+    public interface LeakListener {
+        /**
+         * @param key       请求 key
+         * @param byteCount 图片占用的内存
+         * @param ageMillis 从创建到发现泄露的时间
+         */
+        void onLeak(@NonNull String key, int byteCount, long ageMillis);
+    }
+
+    public interface SnapshotListener {
+        void onSnapshot(@NonNull MemorySnapshot snapshot);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link MemoryAccountant} 导出的某一时刻的图片内存分布，单位都是字节
+ * <p>
+ * {@link me.panpf.sketch.drawable.SketchRefBitmap} 按引用状态互斥地归类：只要还在显示就算显示中，
+ * 否则只要还在内存缓存中就算缓存中，否则算等待使用，所以三者相加就是所有还没有释放的 SketchRefBitmap 占用的内存
+ */
+public class MemorySnapshot {
+    private final long timeMillis;
+
+    private final int displayedCount;
+    private final long displayedBytes;
+    private final int memoryCacheCount;
+    private final long memoryCacheBytes;
+    private final int waitingUseCount;
+    private final long waitingUseBytes;
+
+    private final long bitmapPoolBytes;
+    @NonNull
+    private final Map<Bitmap.Config, Long> bitmapPoolBytesByConfig;
+
+    private final int blockManagerCount;
+    private final long blockBytes;
+    private final int gifCount;
+    private final long gifBytes;
+
+    private final long leakCount;
+    private final long leakBytes;
+
+    MemorySnapshot(long timeMillis, int displayedCount, long displayedBytes, int memoryCacheCount, long memoryCacheBytes,
+                   int waitingUseCount, long waitingUseBytes, long bitmapPoolBytes, @NonNull Map<Bitmap.Config, Long> bitmapPoolBytesByConfig,
+                   int blockManagerCount, long blockBytes, int gifCount, long gifBytes, long leakCount, long leakBytes) {
+        this.timeMillis = timeMillis;
+        this.displayedCount = displayedCount;
+        this.displayedBytes = displayedBytes;
+        this.memoryCacheCount = memoryCacheCount;
+        this.memoryCacheBytes = memoryCacheBytes;
+        this.waitingUseCount = waitingUseCount;
+        this.waitingUseBytes = waitingUseBytes;
+        this.bitmapPoolBytes = bitmapPoolBytes;
+        this.bitmapPoolBytesByConfig = Collections.unmodifiableMap(bitmapPoolBytesByConfig);
+        this.blockManagerCount = blockManagerCount;
+        this.blockBytes = blockBytes;
+        this.gifCount = gifCount;
+        this.gifBytes = gifBytes;
+        this.leakCount = leakCount;
+        this.leakBytes = leakBytes;
+    }
+
+    /**
+     * 导出的时间，{@link System#currentTimeMillis()}
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * 正在显示的 SketchRefBitmap 的数量
+     */
+    public int getDisplayedCount() {
+        return displayedCount;
+    }
+
+    public long getDisplayedBytes() {
+        return displayedBytes;
+    }
+
+    /**
+     * 没有在显示、只在内存缓存中的 SketchRefBitmap 的数量
+     */
+    public int getMemoryCacheCount() {
+        return memoryCacheCount;
+    }
+
+    public long getMemoryCacheBytes() {
+        return memoryCacheBytes;
+    }
+
+    /**
+     * 既没有显示也不在内存缓存中，只是等待使用的 SketchRefBitmap 的数量，例如刚解码完还没有显示的
+     */
+    public int getWaitingUseCount() {
+        return waitingUseCount;
+    }
+
+    public long getWaitingUseBytes() {
+        return waitingUseBytes;
+    }
+
+    public long getBitmapPoolBytes() {
+        return bitmapPoolBytes;
+    }
+
+    /**
+     * bitmap pool 中按 {@link Bitmap.Config} 细分的大小，只有 {@link me.panpf.sketch.cache.LruBitmapPool} 才有
+     */
+    @NonNull
+    public Map<Bitmap.Config, Long> getBitmapPoolBytesByConfig() {
+        return bitmapPoolBytesByConfig;
+    }
+
+    /**
+     * 还存活着的 {@link me.panpf.sketch.zoom.block.BlockManager} 的数量
+     */
+    public int getBlockManagerCount() {
+        return blockManagerCount;
+    }
+
+    /**
+     * 大图分块显示的碎片占用的内存
+     */
+    public long getBlockBytes() {
+        return blockBytes;
+    }
+
+    /**
+     * 还没有回收的 gif 动画的数量
+     */
+    public int getGifCount() {
+        return gifCount;
+    }
+
+    /**
+     * gif 动画的帧缓冲区占用的内存
+     */
+    public long getGifBytes() {
+        return gifBytes;
+    }
+
+    /**
+     * 累计发现的泄露的 SketchRefBitmap 的数量，见 {@link MemoryAccountant.LeakListener}
+     */
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public long getLeakBytes() {
+        return leakBytes;
+    }
+
+    /**
+     * 所有分类相加的总内存，不包括已经泄露的
+     */
+    public long getTotalBytes() {
+        return displayedBytes + memoryCacheBytes + waitingUseBytes + bitmapPoolBytes + blockBytes + gifBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "MemorySnapshot(total=%s, displayed=%d/%s, memoryCache=%d/%s, waitingUse=%d/%s, bitmapPool=%s",
+                formatBytes(getTotalBytes()), displayedCount, formatBytes(displayedBytes), memoryCacheCount, formatBytes(memoryCacheBytes),
+                waitingUseCount, formatBytes(waitingUseBytes), formatBytes(bitmapPoolBytes)));
+        if (!bitmapPoolBytesByConfig.isEmpty()) {
+            builder.append(bitmapPoolBytesByConfig.toString());
+        }
+        builder.append(String.format(Locale.US, ", block=%d/%s, gif=%d/%s, leak=%d/%s)",
+                blockManagerCount, formatBytes(blockBytes), gifCount, formatBytes(gifBytes), leakCount, formatBytes(leakBytes)));
+        return builder.toString();
+    }
+
+    @NonNull
+    private static String formatBytes(long bytes) {
+        return String.format(Locale.US, "%.2fMB", bytes / 1024f / 1024f);
+    }
+}
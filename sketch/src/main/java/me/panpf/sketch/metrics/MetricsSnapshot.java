@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link SketchMetrics} 某一时刻的数据，可以直接导出到监控系统
+ */
+public class MetricsSnapshot {
+    @NonNull
+    private final Map<String, Long> counters;
+    @NonNull
+    private final Map<String, LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(@NonNull Map<String, Long> counters, @NonNull Map<String, LatencyHistogram.Snapshot> histograms) {
+        this.counters = Collections.unmodifiableMap(new TreeMap<>(counters));
+        this.histograms = Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * 所有计数器的值，按名称排序
+     */
+    @NonNull
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * 所有耗时直方图，按名称排序
+     */
+    @NonNull
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * 获取计数器的值，没有这个计数器时返回 0
+     */
+    public long getCounter(@NonNull String name) {
+        Long value = counters.get(name);
+        return value != null ? value : 0;
+    }
+
+    @Nullable
+    public LatencyHistogram.Snapshot getHistogram(@NonNull String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * 计算命中率，例如 getHitRatio({@link SketchMetrics#MEMORY_CACHE_HIT}, {@link SketchMetrics#MEMORY_CACHE_MISS})
+     *
+     * @return 取值范围 0 到 1，没有记录时返回 0
+     */
+    public float getHitRatio(@NonNull String hitName, @NonNull String missName) {
+        long hit = getCounter(hitName);
+        long total = hit + getCounter(missName);
+        return total > 0 ? (float) hit / total : 0f;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MetricsSnapshot:");
+        builder.append(String.format(Locale.US, "\nmemoryCacheHitRatio=%.2f, diskCacheHitRatio=%.2f, bitmapPoolHitRatio=%.2f",
+                getHitRatio(SketchMetrics.MEMORY_CACHE_HIT, SketchMetrics.MEMORY_CACHE_MISS),
+                getHitRatio(SketchMetrics.DISK_CACHE_HIT, SketchMetrics.DISK_CACHE_MISS),
+                getHitRatio(SketchMetrics.BITMAP_POOL_HIT, SketchMetrics.BITMAP_POOL_MISS)));
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            builder.append("\n").append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        for (LatencyHistogram.Snapshot histogram : histograms.values()) {
+            builder.append("\n").append(histogram.toString());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.panpf.sketch.SLog;
+
+/**
+ * 指标统计，用无锁的计数器和耗时直方图记录下载、解码、处理、显示各个环节的数据，通过 {@link #snapshot()} 导出后可以上报到自己的监控系统
+ * <p>
+ * 默认不开启，关闭时每个统计点只多了一次 volatile 读取，不会调用 {@link System#nanoTime()}，也不会查找计数器。
+ * 内置的统计点用到的名称见 {@link #DOWNLOAD_BYTES} 等常量，解码和后期处理的耗时按类名区分，
+ * 例如 decode.NormalDecodeHelper.image/jpeg、process.ProcessImageResultProcessor。
+ * 也可以通过 {@link #counter(String)} 和 {@link #histogram(String)} 记录自定义的数据
+ */
+public class SketchMetrics {
+    private static final String NAME = "SketchMetrics";
+
+    /**
+     * 下载的字节数
+     */
+    public static final String DOWNLOAD_BYTES = "download.bytes";
+    /**
+     * 下载时从开始连接到读到第一个字节的耗时
+     */
+    public static final String DOWNLOAD_FIRST_BYTE = "download.firstByte";
+    /**
+     * 下载时从开始连接到读完所有数据的耗时
+     */
+    public static final String DOWNLOAD_TIME = "download.time";
+    /**
+     * 解码耗时的前缀，后面跟着 DecodeHelper 的类名和 mimeType，读不到 mimeType 时是 {@link #UNKNOWN_MIME_TYPE}
+     */
+    public static final String DECODE_PREFIX = "decode.";
+    public static final String UNKNOWN_MIME_TYPE = "unknown";
+    /**
+     * 后期处理耗时的前缀，后面跟着 ResultProcessor 的类名
+     */
+    public static final String PROCESS_PREFIX = "process.";
+    public static final String MEMORY_CACHE_HIT = "memoryCache.hit";
+    public static final String MEMORY_CACHE_MISS = "memoryCache.miss";
+    public static final String DISK_CACHE_HIT = "diskCache.hit";
+    public static final String DISK_CACHE_MISS = "diskCache.miss";
+    public static final String BITMAP_POOL_HIT = "bitmapPool.hit";
+    public static final String BITMAP_POOL_MISS = "bitmapPool.miss";
+    /**
+     * {@link me.panpf.sketch.request.DisplayHelper#commit()} 在主线程的耗时
+     */
+    public static final String DISPLAY_COMMIT = "display.commit";
+
+    private volatile boolean enabled;
+
+    @NonNull
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    @NonNull
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开启或关闭统计，关闭后已有的数据还在，可以继续导出
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            SLog.w(NAME, "setEnabled. %s", enabled);
+        }
+    }
+
+    /**
+     * 获取指定名称的计数器，没有就创建一个
+     */
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter newCounter = newCounter(name);
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * 获取指定名称的耗时直方图，没有就创建一个
+     */
+    @NonNull
+    public LatencyHistogram histogram(@NonNull String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = newHistogram(name);
+            histogram = histograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * 创建计数器，子类可以返回自己的 {@link Counter} 把数据同时转发到自己的监控系统
+     */
+    @NonNull
+    protected Counter newCounter(@NonNull String name) {
+        return new Counter(name);
+    }
+
+    /**
+     * 创建耗时直方图，子类可以返回自己的 {@link LatencyHistogram} 把数据同时转发到自己的监控系统
+     */
+    @NonNull
+    protected LatencyHistogram newHistogram(@NonNull String name) {
+        return new LatencyHistogram(name);
+    }
+
+    /**
+     * 开启时计数器加一
+     */
+    public void increment(@NonNull String counterName) {
+        if (enabled) {
+            counter(counterName).increment();
+        }
+    }
+
+    /**
+     * 开启时计数器加上 delta
+     */
+    public void add(@NonNull String counterName, long delta) {
+        if (enabled) {
+            counter(counterName).add(delta);
+        }
+    }
+
+    /**
+     * 开启时记录从 startNanos 到现在的耗时
+     *
+     * @param startNanos {@link System#nanoTime()}，关闭时传 0 即可
+     */
+    public void recordSince(@NonNull String histogramName, long startNanos) {
+        if (enabled && startNanos != 0) {
+            histogram(histogramName).recordSince(startNanos);
+        }
+    }
+
+    /**
+     * 开启时返回 {@link System#nanoTime()}，否则返回 0，配合 {@link #recordSince(String, long)} 使用
+     */
+    public long startNanos() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 导出所有数据
+     */
+    @NonNull
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new HashMap<>(counters.size());
+        for (Counter counter : counters.values()) {
+            counterValues.put(counter.getName(), counter.get());
+        }
+        Map<String, LatencyHistogram.Snapshot> histogramSnapshots = new HashMap<>(histograms.size());
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogramSnapshots.put(histogram.getName(), histogram.snapshot());
+        }
+        return new MetricsSnapshot(counterValues, histogramSnapshots);
+    }
+
+    /**
+     * 清零所有数据
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("%s(enabled=%s)", NAME, enabled);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.optionsfilter;
+
+import androidx.annotation.NonNull;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.drawable.SketchShapeBitmapDrawable;
+import me.panpf.sketch.process.CircleImageProcessor;
+import me.panpf.sketch.process.ImageProcessor;
+import me.panpf.sketch.process.RoundRectImageProcessor;
+import me.panpf.sketch.request.DisplayOptions;
+import me.panpf.sketch.request.DownloadOptions;
+import me.panpf.sketch.shaper.CircleImageShaper;
+import me.panpf.sketch.shaper.ImageShaper;
+import me.panpf.sketch.shaper.RoundRectImageShaper;
+
+/**
+ * 绘制时整形，把最外层的 {@link RoundRectImageProcessor} 和 {@link CircleImageProcessor} 换成对应的 {@link ImageShaper}，
+ * 显示时由 {@link SketchShapeBitmapDrawable} 通过 BitmapShader 绘制出形状
+ * <p>
+ * 这样不用再为每张图片创建一张新的圆角或圆形图片，而且选项 key 里没有了形状，同一张图片在内存缓存里只有一份，可以同时给圆形头像和方形缩略图使用。
+ * 圆角半径会从图片的像素变成显示区域的像素，图片缩放显示时圆角大小会和原来略有不同
+ */
+public class DrawTimeShapingOptionsFilter implements OptionsFilter {
+    @NonNull
+    private Configuration configuration;
+
+    public DrawTimeShapingOptionsFilter(@NonNull Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void filter(@NonNull DownloadOptions options) {
+        if (!(options instanceof DisplayOptions)) {
+            return;
+        }
+
+        DisplayOptions displayOptions = (DisplayOptions) options;
+
+        // 已经有整形器了就不能再换了
+        if (displayOptions.getShaper() != null) {
+            return;
+        }
+
+        // 只替换这两个类本身，子类可能改写了 onProcess
+        ImageProcessor processor = displayOptions.getProcessor();
+        ImageShaper shaper;
+        ImageProcessor wrappedProcessor;
+        if (processor != null && processor.getClass() == RoundRectImageProcessor.class) {
+            RoundRectImageProcessor roundRectImageProcessor = (RoundRectImageProcessor) processor;
+            shaper = new RoundRectImageShaper(roundRectImageProcessor.getCornerRadius());
+            wrappedProcessor = roundRectImageProcessor.getWrappedProcessor();
+        } else if (processor != null && processor.getClass() == CircleImageProcessor.class) {
+            shaper = new CircleImageShaper();
+            wrappedProcessor = ((CircleImageProcessor) processor).getWrappedProcessor();
+        } else {
+            return;
+        }
+
+        // 形状是最后一步，去掉后嵌套的处理器照常执行，没有嵌套的处理器但有 Resize 的话还是需要默认的图片裁剪处理器
+        if (wrappedProcessor == null && displayOptions.getResize() != null) {
+            wrappedProcessor = configuration.getResizeProcessor();
+        }
+
+        displayOptions.setProcessor(wrappedProcessor);
+        displayOptions.setShaper(shaper);
+    }
+}
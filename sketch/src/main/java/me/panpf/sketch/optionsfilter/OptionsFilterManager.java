@@ -25,8 +25,11 @@ import java.util.List;
 import me.panpf.sketch.Configuration;
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchView;
+import me.panpf.sketch.process.CircleImageProcessor;
+import me.panpf.sketch.process.RoundRectImageProcessor;
 import me.panpf.sketch.request.DownloadOptions;
 import me.panpf.sketch.request.LoadListener;
+import me.panpf.sketch.shaper.ImageShaper;
 
 /**
  * 负责管理 {@link OptionsFilter} 和过滤 Options，内置了以下选项过滤器<p>
@@ -36,6 +39,7 @@ import me.panpf.sketch.request.LoadListener;
  * <li>全局使用低质量图片功能 == {@link LowQualityOptionsFilter}</li>
  * <li>全局解码时质量优先功能 == {@link InPreferQualityOverSpeedOptionsFilter}</li>
  * <li>全局移动数据下暂停下载功能 == {@link MobileDataPauseDownloadController}</li>
+ * <li>全局绘制时整形功能 == {@link DrawTimeShapingOptionsFilter}</li>
  * </ul>
  */
 public class OptionsFilterManager {
@@ -51,6 +55,8 @@ public class OptionsFilterManager {
     @Nullable
     private MobileDataPauseDownloadController mobileDataPauseDownloadController;
     @Nullable
+    private DrawTimeShapingOptionsFilter drawTimeShapingOptionsFilter;
+    @Nullable
     private List<OptionsFilter> extrasFilters;
 
     /**
@@ -124,6 +130,9 @@ public class OptionsFilterManager {
         if (inPreferQualityOverSpeedOptionsFilter != null) {
             inPreferQualityOverSpeedOptionsFilter.filter(options);
         }
+        if (drawTimeShapingOptionsFilter != null) {
+            drawTimeShapingOptionsFilter.filter(options);
+        }
 
         if (extrasFilters != null) {
             for (OptionsFilter filter : extrasFilters) {
@@ -235,6 +244,25 @@ public class OptionsFilterManager {
         }
     }
 
+    /**
+     * 全局绘制时整形？
+     */
+    public boolean isDrawTimeShapingEnabled() {
+        return drawTimeShapingOptionsFilter != null;
+    }
+
+    /**
+     * 设置全局绘制时整形，开启后 {@link RoundRectImageProcessor} 和 {@link CircleImageProcessor} 会换成对应的 {@link ImageShaper}，
+     * 只影响 {@link Sketch#display(String, SketchView)} 方法
+     *
+     * @param drawTimeShapingEnabled 全局绘制时整形
+     */
+    public void setDrawTimeShapingEnabled(@NonNull Configuration configuration, boolean drawTimeShapingEnabled) {
+        if (isDrawTimeShapingEnabled() != drawTimeShapingEnabled) {
+            this.drawTimeShapingOptionsFilter = drawTimeShapingEnabled ? new DrawTimeShapingOptionsFilter(configuration) : null;
+        }
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -72,14 +72,7 @@ public class CircleImageProcessor extends WrappedImageProcessor {
             return bitmap;
         }
 
-        int targetWidth = resize != null ? resize.getWidth() : bitmap.getWidth();
-        int targetHeight = resize != null ? resize.getHeight() : bitmap.getHeight();
-        int newBitmapSize = targetWidth < targetHeight ? targetWidth : targetHeight;
-        ImageView.ScaleType scaleType = resize != null ? resize.getScaleType() : ImageView.ScaleType.FIT_CENTER;
-
-        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
-        ResizeCalculator.Mapping mapping = resizeCalculator.calculator(bitmap.getWidth(), bitmap.getHeight(),
-                newBitmapSize, newBitmapSize, scaleType, resize != null && resize.getMode() == Resize.Mode.EXACTLY_SAME);
+        ResizeCalculator.Mapping mapping = calculateMapping(sketch, bitmap.getWidth(), bitmap.getHeight(), resize);
 
         Bitmap.Config config = lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888;
         BitmapPool bitmapPool = sketch.getConfiguration().getBitmapPool();
@@ -103,6 +96,18 @@ public class CircleImageProcessor extends WrappedImageProcessor {
         return circleBitmap;
     }
 
+    @NonNull
+    ResizeCalculator.Mapping calculateMapping(@NonNull Sketch sketch, int bitmapWidth, int bitmapHeight, @Nullable Resize resize) {
+        int targetWidth = resize != null ? resize.getWidth() : bitmapWidth;
+        int targetHeight = resize != null ? resize.getHeight() : bitmapHeight;
+        int newBitmapSize = targetWidth < targetHeight ? targetWidth : targetHeight;
+        ImageView.ScaleType scaleType = resize != null ? resize.getScaleType() : ImageView.ScaleType.FIT_CENTER;
+
+        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
+        return resizeCalculator.calculator(bitmapWidth, bitmapHeight,
+                newBitmapSize, newBitmapSize, scaleType, resize != null && resize.getMode() == Resize.Mode.EXACTLY_SAME);
+    }
+
     @NonNull
     @Override
     public String onToString() {
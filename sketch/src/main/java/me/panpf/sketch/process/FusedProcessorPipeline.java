@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.process;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.decode.ResizeCalculator;
+import me.panpf.sketch.request.Resize;
+
+/**
+ * 融合处理管道，将由 {@link RoundRectImageProcessor}、{@link CircleImageProcessor}、{@link MaskImageProcessor} 以及它们自带的 resize 组成的处理器链合并成一次绘制
+ * <p>
+ * 按 {@link WrappedImageProcessor#process(Sketch, Bitmap, Resize, boolean)} 的执行顺序推演每一步，resize 和形状的映射关系合并成一个 {@link Matrix}，
+ * 裁剪区域合并成一个矩形加一个形状，遮罩在最后按 {@link MaskImageProcessor} 的方式叠加，最终只需要从 {@link BitmapPool} 中取一张输出图片，原来每一步都要创建一张新图片。
+ * <p>
+ * 链中有其它处理器（例如高斯模糊、倒影）、有多个形状或者本来就只需要画一次时返回 null，交给原来的逐步处理流程
+ */
+final class FusedProcessorPipeline {
+    private static final String NAME = "FusedProcessorPipeline";
+
+    private FusedProcessorPipeline() {
+    }
+
+    /**
+     * 尝试一次性完成整个处理器链
+     *
+     * @return null：不能融合
+     */
+    @Nullable
+    static Bitmap process(@NonNull WrappedImageProcessor rootProcessor, @NonNull Sketch sketch, @NonNull Bitmap bitmap,
+                          @Nullable Resize resize, boolean lowQualityImage) {
+        List<WrappedImageProcessor> chain = null;
+        for (WrappedImageProcessor processor = rootProcessor; processor != null; processor = processor.getWrappedProcessor()) {
+            if (!isFusible(processor)) {
+                return null;
+            }
+            if (chain == null) {
+                chain = new ArrayList<>(4);
+            }
+            chain.add(processor);
+        }
+        if (chain == null) {
+            return null;
+        }
+
+        Plan plan = new Plan(bitmap, lowQualityImage);
+
+        // 外层不拦截 resize 的处理器会先 resize 再执行内层处理器
+        for (WrappedImageProcessor processor : chain) {
+            if (!processor.isInterceptResize()) {
+                ResizeCalculator.Mapping mapping = ResizeImageProcessor.calculateResizeMapping(sketch, plan.width, plan.height, resize);
+                if (mapping != null && !plan.map(mapping)) {
+                    return null;
+                }
+            }
+        }
+
+        // 然后从最内层开始执行 onProcess
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            WrappedImageProcessor processor = chain.get(i);
+            if (processor instanceof RoundRectImageProcessor) {
+                RoundRectImageProcessor roundRectProcessor = (RoundRectImageProcessor) processor;
+                if (plan.shapePath != null || !plan.map(roundRectProcessor.calculateMapping(sketch, plan.width, plan.height, resize))) {
+                    return null;
+                }
+                plan.shapePath = new Path();
+                plan.shapePath.addRoundRect(new RectF(0, 0, plan.width, plan.height), roundRectProcessor.getCornerRadius(), Path.Direction.CW);
+                plan.config = lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888;
+            } else if (processor instanceof CircleImageProcessor) {
+                CircleImageProcessor circleProcessor = (CircleImageProcessor) processor;
+                if (plan.shapePath != null || !plan.map(circleProcessor.calculateMapping(sketch, plan.width, plan.height, resize))) {
+                    return null;
+                }
+                plan.shapePath = new Path();
+                plan.shapePath.addCircle(plan.width / 2, plan.height / 2, (plan.width < plan.height ? plan.width : plan.height) / 2, Path.Direction.CW);
+                plan.config = lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888;
+            } else if (processor instanceof MaskImageProcessor) {
+                plan.maskColors.add(((MaskImageProcessor) processor).getMaskColor());
+            }
+        }
+
+        // 没有 resize 和形状时 MaskImageProcessor 会直接修改原图，只有一步时原来的流程本来就只画一次，都不需要融合
+        if (plan.mapCount == 0 || plan.mapCount + plan.maskColors.size() < 2) {
+            return null;
+        }
+
+        return plan.draw(sketch.getConfiguration().getBitmapPool());
+    }
+
+    private static boolean isFusible(@NonNull WrappedImageProcessor processor) {
+        Class<?> processorClass = processor.getClass();
+        // 只融合这几个类本身，子类可能改写了 onProcess
+        return processorClass == RoundRectImageProcessor.class
+                || processorClass == CircleImageProcessor.class
+                || processorClass == MaskImageProcessor.class;
+    }
+
+    private static class Plan {
+        @NonNull
+        private final Bitmap source;
+        @NonNull
+        private final Matrix matrix = new Matrix();
+        @NonNull
+        private final RectF clipRect;
+        @NonNull
+        private final List<Integer> maskColors = new ArrayList<>(2);
+        @Nullable
+        private Path shapePath;
+        @NonNull
+        private Bitmap.Config config;
+        private int width;
+        private int height;
+        private int mapCount;
+
+        Plan(@NonNull Bitmap source, boolean lowQualityImage) {
+            this.source = source;
+            this.width = source.getWidth();
+            this.height = source.getHeight();
+            this.clipRect = new RectF(0, 0, width, height);
+            Bitmap.Config sourceConfig = source.getConfig();
+            this.config = sourceConfig != null ? sourceConfig : (lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888);
+        }
+
+        /**
+         * 合并一次 drawBitmap(bitmap, srcRect, destRect) 形式的映射
+         *
+         * @return false：映射后什么都不剩了，不能融合
+         */
+        boolean map(@NonNull ResizeCalculator.Mapping mapping) {
+            // 只有 srcRect 范围内的像素会被画出来
+            if (!clipRect.intersect(mapping.srcRect.left, mapping.srcRect.top, mapping.srcRect.right, mapping.srcRect.bottom)) {
+                return false;
+            }
+
+            Matrix stepMatrix = new Matrix();
+            stepMatrix.setRectToRect(new RectF(mapping.srcRect), new RectF(mapping.destRect), Matrix.ScaleToFit.FILL);
+            stepMatrix.mapRect(clipRect);
+            matrix.postConcat(stepMatrix);
+
+            width = mapping.imageWidth;
+            height = mapping.imageHeight;
+            mapCount++;
+            return width > 0 && height > 0;
+        }
+
+        @NonNull
+        Bitmap draw(@NonNull BitmapPool bitmapPool) {
+            Bitmap outBitmap = bitmapPool.getOrMake(width, height, config);
+            outBitmap.eraseColor(Color.TRANSPARENT);
+
+            Canvas canvas = new Canvas(outBitmap);
+            BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            shader.setLocalMatrix(matrix);
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+            paint.setShader(shader);
+
+            int saveCount = canvas.save();
+            canvas.clipRect(clipRect);
+            if (shapePath != null) {
+                canvas.drawPath(shapePath, paint);
+            } else {
+                canvas.drawRect(clipRect, paint);
+            }
+            canvas.restoreToCount(saveCount);
+
+            // 遮罩的合成方式必须和 MaskImageProcessor 完全一样：图层 paint 也带着遮罩颜色，所以遮罩的 alpha 会生效两次
+            if (!maskColors.isEmpty()) {
+                Paint maskPaint = new Paint();
+                PorterDuffXfermode srcInXfermode = new PorterDuffXfermode(PorterDuff.Mode.SRC_IN);
+                for (int maskColor : maskColors) {
+                    maskPaint.setColor(maskColor);
+                    maskPaint.setXfermode(null);
+
+                    int layerCount = canvas.saveLayer(0, 0, width, height, maskPaint, Canvas.ALL_SAVE_FLAG);
+                    canvas.drawBitmap(outBitmap, 0, 0, null);
+                    maskPaint.setXfermode(srcInXfermode);
+                    canvas.drawRect(0, 0, width, height, maskPaint);
+                    canvas.restoreToCount(layerCount);
+                }
+            }
+
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "fused. %dx%d -> %dx%d, shape=%s, maskCount=%d",
+                        source.getWidth(), source.getHeight(), width, height, shapePath != null, maskColors.size());
+            }
+            return outBitmap;
+        }
+    }
+}
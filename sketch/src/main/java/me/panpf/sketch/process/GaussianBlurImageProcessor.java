@@ -2,12 +2,19 @@ package me.panpf.sketch.process;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.Locale;
 
 import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.BitmapPoolUtils;
 import me.panpf.sketch.request.Resize;
 
 /**
@@ -18,13 +25,61 @@ public class GaussianBlurImageProcessor extends WrappedImageProcessor {
     private static final int NO_LAYER_COLOR = -1;
     private static final int DEFAULT_RADIUS = 15;
 
+    /**
+     * 快速模式下缩小后的模糊半径不能小于这个值，否则缩小带来的误差就比较明显了
+     */
+    private static final int FAST_MODE_MIN_SCALED_RADIUS = 4;
+    private static final int FAST_MODE_MAX_DOWNSCALE = 8;
+
     private int radius; // 模糊半径，取值为0到100
     private int maskColor; // 图层颜色，在模糊后的图片上加一层颜色
+    private boolean fastMode; // 快速模式，先缩小再模糊最后放大
 
-    private GaussianBlurImageProcessor(int radius, int maskColor, @Nullable WrappedImageProcessor wrappedImageProcessor) {
+    private GaussianBlurImageProcessor(int radius, int maskColor, boolean fastMode, @Nullable WrappedImageProcessor wrappedImageProcessor) {
         super(wrappedImageProcessor);
         this.radius = radius;
         this.maskColor = maskColor;
+        this.fastMode = fastMode;
+    }
+
+    private GaussianBlurImageProcessor(int radius, int maskColor, @Nullable WrappedImageProcessor wrappedImageProcessor) {
+        this(radius, maskColor, false, wrappedImageProcessor);
+    }
+
+    /**
+     * 创建一个快速模式的高斯模糊图片处理器，先根据半径将图片缩小到 1/2、1/4 或 1/8，模糊后再放大回原尺寸，
+     * 半径越大速度提升越明显，效果与直接模糊几乎没有区别
+     *
+     * @param radius                模糊半径，取值为0到100
+     * @param layerColor            图层颜色，在模糊后的图片上加一层颜色
+     * @param wrappedImageProcessor 嵌套一个图片处理器
+     * @return GaussianBlurImageProcessor
+     */
+    public static GaussianBlurImageProcessor makeFastMode(int radius, int layerColor, @Nullable WrappedImageProcessor wrappedImageProcessor) {
+        return new GaussianBlurImageProcessor(radius, layerColor, true, wrappedImageProcessor);
+    }
+
+    /**
+     * 创建一个快速模式的高斯模糊图片处理器，先根据半径将图片缩小到 1/2、1/4 或 1/8，模糊后再放大回原尺寸，
+     * 半径越大速度提升越明显，效果与直接模糊几乎没有区别
+     *
+     * @param radius     模糊半径，取值为0到100
+     * @param layerColor 图层颜色，在模糊后的图片上加一层颜色
+     * @return GaussianBlurImageProcessor
+     */
+    public static GaussianBlurImageProcessor makeFastMode(int radius, int layerColor) {
+        return new GaussianBlurImageProcessor(radius, layerColor, true, null);
+    }
+
+    /**
+     * 创建一个快速模式的高斯模糊图片处理器，先根据半径将图片缩小到 1/2、1/4 或 1/8，模糊后再放大回原尺寸，
+     * 半径越大速度提升越明显，效果与直接模糊几乎没有区别
+     *
+     * @param radius 模糊半径，取值为0到100
+     * @return GaussianBlurImageProcessor
+     */
+    public static GaussianBlurImageProcessor makeFastMode(int radius) {
+        return new GaussianBlurImageProcessor(radius, NO_LAYER_COLOR, true, null);
     }
 
     /**
@@ -116,216 +171,68 @@ public class GaussianBlurImageProcessor extends WrappedImageProcessor {
      */
     @Nullable
     public static Bitmap fastGaussianBlur(@NonNull Bitmap sentBitmap, int radius, boolean canReuseInBitmap) {
-        Bitmap bitmap;
-        if (canReuseInBitmap) {
-            bitmap = sentBitmap;
-        } else {
-            bitmap = sentBitmap.copy(sentBitmap.getConfig() != null ? sentBitmap.getConfig() : Bitmap.Config.ARGB_8888, true);
-        }
-
-        try {
-            if (radius < 1) {
-                return (null);
-            }
-
-            int w = bitmap.getWidth();
-            int h = bitmap.getHeight();
-
-            int[] pix = new int[w * h];
-            bitmap.getPixels(pix, 0, w, 0, 0, w, h);
-
-            int wm = w - 1;
-            int hm = h - 1;
-            int wh = w * h;
-            int div = radius + radius + 1;
-
-            int r[] = new int[wh];
-            int g[] = new int[wh];
-            int b[] = new int[wh];
-            int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
-            int vmin[] = new int[Math.max(w, h)];
-
-            int divsum = (div + 1) >> 1;
-            divsum *= divsum;
-            int dv[] = new int[256 * divsum];
-            for (i = 0; i < 256 * divsum; i++) {
-                dv[i] = (i / divsum);
-            }
-
-            yw = yi = 0;
-
-            int[][] stack = new int[div][3];
-            int stackpointer;
-            int stackstart;
-            int[] sir;
-            int rbs;
-            int r1 = radius + 1;
-            int routsum, goutsum, boutsum;
-            int rinsum, ginsum, binsum;
-
-            for (y = 0; y < h; y++) {
-                rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-                for (i = -radius; i <= radius; i++) {
-                    p = pix[yi + Math.min(wm, Math.max(i, 0))];
-                    sir = stack[i + radius];
-                    sir[0] = (p & 0xff0000) >> 16;
-                    sir[1] = (p & 0x00ff00) >> 8;
-                    sir[2] = (p & 0x0000ff);
-                    rbs = r1 - Math.abs(i);
-                    rsum += sir[0] * rbs;
-                    gsum += sir[1] * rbs;
-                    bsum += sir[2] * rbs;
-                    if (i > 0) {
-                        rinsum += sir[0];
-                        ginsum += sir[1];
-                        binsum += sir[2];
-                    } else {
-                        routsum += sir[0];
-                        goutsum += sir[1];
-                        boutsum += sir[2];
-                    }
-                }
-                stackpointer = radius;
-
-                for (x = 0; x < w; x++) {
-
-                    r[yi] = dv[rsum];
-                    g[yi] = dv[gsum];
-                    b[yi] = dv[bsum];
-
-                    rsum -= routsum;
-                    gsum -= goutsum;
-                    bsum -= boutsum;
-
-                    stackstart = stackpointer - radius + div;
-                    sir = stack[stackstart % div];
-
-                    routsum -= sir[0];
-                    goutsum -= sir[1];
-                    boutsum -= sir[2];
-
-                    if (y == 0) {
-                        vmin[x] = Math.min(x + radius + 1, wm);
-                    }
-                    p = pix[yw + vmin[x]];
-
-                    sir[0] = (p & 0xff0000) >> 16;
-                    sir[1] = (p & 0x00ff00) >> 8;
-                    sir[2] = (p & 0x0000ff);
-
-                    rinsum += sir[0];
-                    ginsum += sir[1];
-                    binsum += sir[2];
-
-                    rsum += rinsum;
-                    gsum += ginsum;
-                    bsum += binsum;
+        return fastGaussianBlur(sentBitmap, radius, canReuseInBitmap, null);
+    }
 
-                    stackpointer = (stackpointer + 1) % div;
-                    sir = stack[(stackpointer) % div];
+    /**
+     * 快速高斯模糊，使用 {@link StackBlur} 多线程模糊
+     *
+     * @param bitmapPool 不能复用原图时从 {@link BitmapPool} 中取一张图片来存放模糊结果，为 null 时拷贝原图
+     */
+    @Nullable
+    public static Bitmap fastGaussianBlur(@NonNull Bitmap sentBitmap, int radius, boolean canReuseInBitmap, @Nullable BitmapPool bitmapPool) {
+        return blur(sentBitmap, radius, canReuseInBitmap, bitmapPool, NO_LAYER_COLOR);
+    }
 
-                    routsum += sir[0];
-                    goutsum += sir[1];
-                    boutsum += sir[2];
+    /**
+     * 模糊并在同一遍像素处理中叠加图层颜色
+     */
+    @Nullable
+    private static Bitmap blur(@NonNull Bitmap sentBitmap, int radius, boolean canReuseInBitmap,
+                               @Nullable BitmapPool bitmapPool, int layerColor) {
+        if (radius < 1) {
+            return null;
+        }
 
-                    rinsum -= sir[0];
-                    ginsum -= sir[1];
-                    binsum -= sir[2];
+        int w = sentBitmap.getWidth();
+        int h = sentBitmap.getHeight();
+        Bitmap.Config config = sentBitmap.getConfig() != null ? sentBitmap.getConfig() : Bitmap.Config.ARGB_8888;
 
-                    yi++;
-                }
-                yw += w;
+        Bitmap bitmap = null;
+        int[] pix = null;
+        try {
+            pix = StackBlur.obtainBuffer(w * h);
+            sentBitmap.getPixels(pix, 0, w, 0, 0, w, h);
+
+            if (canReuseInBitmap) {
+                bitmap = sentBitmap;
+            } else if (bitmapPool != null) {
+                bitmap = bitmapPool.getOrMake(w, h, config);
+            } else {
+                bitmap = Bitmap.createBitmap(w, h, config);
             }
-            for (x = 0; x < w; x++) {
-                rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-                yp = -radius * w;
-                for (i = -radius; i <= radius; i++) {
-                    yi = Math.max(0, yp) + x;
-
-                    sir = stack[i + radius];
-
-                    sir[0] = r[yi];
-                    sir[1] = g[yi];
-                    sir[2] = b[yi];
-
-                    rbs = r1 - Math.abs(i);
-
-                    rsum += r[yi] * rbs;
-                    gsum += g[yi] * rbs;
-                    bsum += b[yi] * rbs;
-
-                    if (i > 0) {
-                        rinsum += sir[0];
-                        ginsum += sir[1];
-                        binsum += sir[2];
-                    } else {
-                        routsum += sir[0];
-                        goutsum += sir[1];
-                        boutsum += sir[2];
-                    }
-
-                    if (i < hm) {
-                        yp += w;
-                    }
-                }
-                yi = x;
-                stackpointer = radius;
-                for (y = 0; y < h; y++) {
-                    // Preserve alpha channel: ( 0xff000000 & pix[yi] )
-                    pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
-
-                    rsum -= routsum;
-                    gsum -= goutsum;
-                    bsum -= boutsum;
-
-                    stackstart = stackpointer - radius + div;
-                    sir = stack[stackstart % div];
 
-                    routsum -= sir[0];
-                    goutsum -= sir[1];
-                    boutsum -= sir[2];
-
-                    if (x == 0) {
-                        vmin[y] = Math.min(y + r1, hm) * w;
-                    }
-                    p = x + vmin[y];
-
-                    sir[0] = r[p];
-                    sir[1] = g[p];
-                    sir[2] = b[p];
-
-                    rinsum += sir[0];
-                    ginsum += sir[1];
-                    binsum += sir[2];
-
-                    rsum += rinsum;
-                    gsum += ginsum;
-                    bsum += binsum;
-
-                    stackpointer = (stackpointer + 1) % div;
-                    sir = stack[stackpointer];
-
-                    routsum += sir[0];
-                    goutsum += sir[1];
-                    boutsum += sir[2];
-
-                    rinsum -= sir[0];
-                    ginsum -= sir[1];
-                    binsum -= sir[2];
-
-                    yi += w;
-                }
+            StackBlur.blur(pix, w, h, radius);
+            if (layerColor != NO_LAYER_COLOR) {
+                StackBlur.blendColor(pix, w * h, layerColor);
             }
 
             bitmap.setPixels(pix, 0, w, 0, 0, w, h);
-
-            return (bitmap);
+            return bitmap;
         } catch (Throwable throwable) {
             throwable.printStackTrace();
             if (bitmap != null && bitmap != sentBitmap) {
-                bitmap.recycle();
+                if (bitmapPool != null) {
+                    BitmapPoolUtils.freeBitmapToPool(bitmap, bitmapPool);
+                } else {
+                    bitmap.recycle();
+                }
             }
             return null;
+        } finally {
+            if (pix != null) {
+                StackBlur.releaseBuffer(pix);
+            }
         }
     }
 
@@ -336,20 +243,73 @@ public class GaussianBlurImageProcessor extends WrappedImageProcessor {
             return bitmap;
         }
 
-        // blur handle
-        Bitmap blurBitmap = fastGaussianBlur(bitmap, radius, bitmap.getConfig() != null && bitmap.isMutable());
+        BitmapPool bitmapPool = sketch.getConfiguration().getBitmapPool();
+        int downscale = fastMode ? getDownscale(radius) : 1;
+
+        // blur and layer color handle
+        Bitmap blurBitmap;
+        if (downscale > 1) {
+            blurBitmap = downscaleBlur(bitmap, radius, downscale, bitmapPool, maskColor);
+        } else {
+            blurBitmap = blur(bitmap, radius, bitmap.getConfig() != null && bitmap.isMutable(), bitmapPool, maskColor);
+        }
 
         if (blurBitmap == null) {
             return bitmap;
         }
 
-        // layer color handle
-        if (maskColor != NO_LAYER_COLOR) {
-            Canvas canvas = new Canvas(blurBitmap);
-            canvas.drawColor(maskColor);
+        return blurBitmap;
+    }
+
+    /**
+     * 根据半径计算缩小倍数，保证缩小后的半径不小于 {@link #FAST_MODE_MIN_SCALED_RADIUS}
+     */
+    static int getDownscale(int radius) {
+        int downscale = 1;
+        while (downscale < FAST_MODE_MAX_DOWNSCALE && radius / (downscale * 2) >= FAST_MODE_MIN_SCALED_RADIUS) {
+            downscale *= 2;
         }
+        return downscale;
+    }
 
-        return blurBitmap;
+    /**
+     * 先缩小再模糊最后放大到一张从 {@link BitmapPool} 中取出的图片上，图层颜色在缩小的图片上叠加，和放大后再叠加效果一样
+     */
+    @Nullable
+    private static Bitmap downscaleBlur(@NonNull Bitmap sentBitmap, int radius, int downscale,
+                                        @NonNull BitmapPool bitmapPool, int layerColor) {
+        int w = sentBitmap.getWidth();
+        int h = sentBitmap.getHeight();
+        int smallWidth = Math.max(1, w / downscale);
+        int smallHeight = Math.max(1, h / downscale);
+        int smallRadius = Math.max(1, Math.round((float) radius / downscale));
+        Bitmap.Config config = sentBitmap.getConfig() != null ? sentBitmap.getConfig() : Bitmap.Config.ARGB_8888;
+
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+
+        Bitmap smallBitmap = bitmapPool.getOrMake(smallWidth, smallHeight, Bitmap.Config.ARGB_8888);
+        Bitmap outBitmap = null;
+        try {
+            new Canvas(smallBitmap).drawBitmap(sentBitmap, null, new Rect(0, 0, smallWidth, smallHeight), paint);
+
+            Bitmap blurredSmallBitmap = blur(smallBitmap, smallRadius, true, bitmapPool, layerColor);
+            if (blurredSmallBitmap == null) {
+                return null;
+            }
+
+            outBitmap = bitmapPool.getOrMake(w, h, config);
+            new Canvas(outBitmap).drawBitmap(smallBitmap, null, new Rect(0, 0, w, h), paint);
+            return outBitmap;
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+            if (outBitmap != null) {
+                BitmapPoolUtils.freeBitmapToPool(outBitmap, bitmapPool);
+            }
+            return null;
+        } finally {
+            BitmapPoolUtils.freeBitmapToPool(smallBitmap, bitmapPool);
+        }
     }
 
     /**
@@ -366,14 +326,27 @@ public class GaussianBlurImageProcessor extends WrappedImageProcessor {
         return maskColor;
     }
 
+    /**
+     * 是否是快速模式
+     */
+    public boolean isFastMode() {
+        return fastMode;
+    }
+
     @NonNull
     @Override
     public String onToString() {
+        if (fastMode) {
+            return String.format(Locale.US, "%s(radius=%d,maskColor=%d,fastMode)", "GaussianBlurImageProcessor", radius, maskColor);
+        }
         return String.format(Locale.US, "%s(radius=%d,maskColor=%d)", "GaussianBlurImageProcessor", radius, maskColor);
     }
 
     @Override
     public String onGetKey() {
+        if (fastMode) {
+            return String.format(Locale.US, "%s(radius=%d,maskColor=%d,fastMode)", "GaussianBlur", radius, maskColor);
+        }
         return String.format(Locale.US, "%s(radius=%d,maskColor=%d)", "GaussianBlur", radius, maskColor);
     }
 }
\ No newline at end of file
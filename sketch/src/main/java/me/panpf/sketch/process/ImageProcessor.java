@@ -26,6 +26,8 @@ import me.panpf.sketch.request.Resize;
 
 /**
  * 用于在图片读取到内存后对图片进行修改
+ * <p>
+ * {@link #getKey()} 的结果在实例的生命周期内不能变，{@link me.panpf.sketch.request.LoadOptions#makeKey()} 会按引用缓存处理器的 key
  */
 public interface ImageProcessor extends Key {
     /**
@@ -35,15 +35,11 @@ public class ResizeImageProcessor implements ImageProcessor {
             return bitmap;
         }
 
-        if (resize == null || resize.getWidth() == 0 || resize.getHeight() == 0 ||
-                (bitmap.getWidth() == resize.getWidth() && bitmap.getHeight() == resize.getHeight())) {
+        ResizeCalculator.Mapping mapping = calculateResizeMapping(sketch, bitmap.getWidth(), bitmap.getHeight(), resize);
+        if (mapping == null) {
             return bitmap;
         }
 
-        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
-        ResizeCalculator.Mapping mapping = resizeCalculator.calculator(bitmap.getWidth(), bitmap.getHeight(),
-                resize.getWidth(), resize.getHeight(), resize.getScaleType(), resize.getMode() == Resize.Mode.EXACTLY_SAME);
-
         Bitmap.Config config = bitmap.getConfig();
         if (config == null) {
             config = lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888;
@@ -58,6 +54,23 @@ public class ResizeImageProcessor implements ImageProcessor {
         return resizeBitmap;
     }
 
+    /**
+     * 计算 resize 的映射关系
+     *
+     * @return null：不需要 resize
+     */
+    @Nullable
+    static ResizeCalculator.Mapping calculateResizeMapping(@NonNull Sketch sketch, int bitmapWidth, int bitmapHeight, @Nullable Resize resize) {
+        if (resize == null || resize.getWidth() == 0 || resize.getHeight() == 0 ||
+                (bitmapWidth == resize.getWidth() && bitmapHeight == resize.getHeight())) {
+            return null;
+        }
+
+        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
+        return resizeCalculator.calculator(bitmapWidth, bitmapHeight,
+                resize.getWidth(), resize.getHeight(), resize.getScaleType(), resize.getMode() == Resize.Mode.EXACTLY_SAME);
+    }
+
     @NonNull
     @Override
     public String toString() {
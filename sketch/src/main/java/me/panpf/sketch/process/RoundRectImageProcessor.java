@@ -104,12 +104,7 @@ public class RoundRectImageProcessor extends WrappedImageProcessor {
             return bitmap;
         }
 
-        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
-        ResizeCalculator.Mapping mapping = resizeCalculator.calculator(bitmap.getWidth(), bitmap.getHeight(),
-                resize != null ? resize.getWidth() : bitmap.getWidth(),
-                resize != null ? resize.getHeight() : bitmap.getHeight(),
-                resize != null ? resize.getScaleType() : null,
-                resize != null && resize.getMode() == Resize.Mode.EXACTLY_SAME);
+        ResizeCalculator.Mapping mapping = calculateMapping(sketch, bitmap.getWidth(), bitmap.getHeight(), resize);
 
         Bitmap.Config config = lowQualityImage ? Bitmap.Config.ARGB_4444 : Bitmap.Config.ARGB_8888;
         BitmapPool bitmapPool = sketch.getConfiguration().getBitmapPool();
@@ -134,6 +129,16 @@ public class RoundRectImageProcessor extends WrappedImageProcessor {
         return roundRectBitmap;
     }
 
+    @NonNull
+    ResizeCalculator.Mapping calculateMapping(@NonNull Sketch sketch, int bitmapWidth, int bitmapHeight, @Nullable Resize resize) {
+        ResizeCalculator resizeCalculator = sketch.getConfiguration().getResizeCalculator();
+        return resizeCalculator.calculator(bitmapWidth, bitmapHeight,
+                resize != null ? resize.getWidth() : bitmapWidth,
+                resize != null ? resize.getHeight() : bitmapHeight,
+                resize != null ? resize.getScaleType() : null,
+                resize != null && resize.getMode() == Resize.Mode.EXACTLY_SAME);
+    }
+
     @NonNull
     public float[] getCornerRadius() {
         return cornerRadius;
@@ -0,0 +1,450 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.process;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多线程 Stack Blur 模糊引擎，只依赖 int 数组，不依赖 Android 的任何类，可以直接在 JVM 上测试
+ * <p>
+ * 先横向模糊每一行再纵向模糊每一列，每个方向都按行或列分成若干段交给模糊线程池并行处理，调用线程也会处理其中一段。
+ * 除法用乘法和移位代替，不再需要 256 * divsum 大小的查找表（半径 100 时约 10MB），每个线程的模糊栈通过 {@link ThreadLocal} 复用，
+ * 不太大的中间结果数组和像素数组也会缓存起来供下次使用，参考 {@link #obtainBuffer(int)}
+ */
+public class StackBlur {
+    /**
+     * 最大半径，超过这个值乘法代替除法就不精确了
+     */
+    public static final int MAX_RADIUS = 254;
+
+    /**
+     * 像素数少于这个值就不分段了，线程切换的开销比模糊本身还大
+     */
+    private static final int PARALLEL_MIN_PIXELS = 256 * 256;
+    private static final int DIVIDE_SHIFT = 40;
+
+    private static final int PARALLELISM = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    private static volatile ThreadPoolExecutor executor;
+
+    private static final ThreadLocal<int[]> STACK_CACHE = new ThreadLocal<>();
+    /**
+     * 超过这个长度（约 100 万像素，4MB）的数组用完就丢掉不缓存，否则两千万像素的大图模糊一次后会有两个 80MB 的数组一直留在内存里
+     */
+    static final int MAX_CACHED_BUFFER_LENGTH = 1024 * 1024;
+
+    /**
+     * 缓存的大数组，一个给像素用一个给中间结果用，软引用保存，内存紧张时会被回收，最多占用 2 * {@link #MAX_CACHED_BUFFER_LENGTH} 个 int
+     */
+    private static final AtomicReferenceArray<SoftReference<int[]>> BUFFER_CACHE = new AtomicReferenceArray<>(2);
+
+    private StackBlur() {
+    }
+
+    /**
+     * 模糊像素，结果直接写回 pixels，保留原来的透明度
+     *
+     * @param pixels 像素，按行排列
+     * @param width  宽
+     * @param height 高
+     * @param radius 模糊半径，取值为 1 到 {@link #MAX_RADIUS}
+     */
+    public static void blur(@NonNull int[] pixels, int width, int height, int radius) {
+        int parallelism = (long) width * height >= PARALLEL_MIN_PIXELS ? PARALLELISM : 1;
+        blur(pixels, width, height, radius, parallelism);
+    }
+
+    /**
+     * 模糊像素，结果直接写回 pixels，保留原来的透明度
+     *
+     * @param pixels      像素，按行排列
+     * @param width       宽
+     * @param height      高
+     * @param radius      模糊半径，取值为 1 到 {@link #MAX_RADIUS}
+     * @param parallelism 并行数量，1 表示只在调用线程上模糊
+     */
+    public static void blur(@NonNull final int[] pixels, final int width, final int height, int radius, int parallelism) {
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException(String.format("pixels length %d less than %dx%d", pixels.length, width, height));
+        }
+        if (radius < 1) {
+            return;
+        }
+        final int finalRadius = Math.min(radius, MAX_RADIUS);
+
+        final int[] temp = obtainBuffer(width * height);
+        try {
+            runBands(height, parallelism, new Band() {
+                @Override
+                public void run(int start, int end) {
+                    blurRows(pixels, temp, width, height, finalRadius, start, end);
+                }
+            });
+            runBands(width, parallelism, new Band() {
+                @Override
+                public void run(int start, int end) {
+                    blurColumns(temp, pixels, width, height, finalRadius, start, end);
+                }
+            });
+        } finally {
+            releaseBuffer(temp);
+        }
+    }
+
+    /**
+     * 在像素上叠加一层颜色，效果与 {@link android.graphics.Canvas#drawColor(int)} 一样（SRC_OVER），像素和颜色都是非预乘的 ARGB
+     *
+     * @param pixels 像素
+     * @param count  像素数量
+     * @param color  颜色
+     */
+    public static void blendColor(@NonNull int[] pixels, int count, int color) {
+        final int ca = (color >>> 24) & 0xff;
+        if (ca == 0) {
+            return;
+        }
+        final int cr = (color >> 16) & 0xff;
+        final int cg = (color >> 8) & 0xff;
+        final int cb = color & 0xff;
+        if (ca == 0xff) {
+            Arrays.fill(pixels, 0, count, color);
+            return;
+        }
+
+        final int inverseAlpha = 255 - ca;
+        for (int i = 0; i < count; i++) {
+            final int p = pixels[i];
+            final int pa = (p >>> 24) & 0xff;
+            // 目标像素在结果中的权重，放大了 255 倍
+            final int pw = pa * inverseAlpha / 255;
+            final int outA = ca + pw;
+            final int r = (cr * ca + ((p >> 16) & 0xff) * pw) / outA;
+            final int g = (cg * ca + ((p >> 8) & 0xff) * pw) / outA;
+            final int b = (cb * ca + (p & 0xff) * pw) / outA;
+            pixels[i] = (outA << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * 横向模糊 [startY, endY) 行，结果不带透明度写入 out
+     */
+    private static void blurRows(@NonNull int[] in, @NonNull int[] out, int w, int h, int radius, int startY, int endY) {
+        final int wm = w - 1;
+        final int div = radius + radius + 1;
+        final int r1 = radius + 1;
+        final long mul = divideMultiplier(r1 * r1);
+        final int[] stack = obtainStack(div);
+
+        int rsum, gsum, bsum, routsum, goutsum, boutsum, rinsum, ginsum, binsum;
+        int p, rbs, stackpointer, stackIndex;
+        for (int y = startY; y < endY; y++) {
+            final int yw = y * w;
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                p = in[yw + Math.min(wm, Math.max(i, 0))];
+                stack[i + radius] = p;
+                rbs = r1 - Math.abs(i);
+                rsum += ((p >> 16) & 0xff) * rbs;
+                gsum += ((p >> 8) & 0xff) * rbs;
+                bsum += (p & 0xff) * rbs;
+                if (i > 0) {
+                    rinsum += (p >> 16) & 0xff;
+                    ginsum += (p >> 8) & 0xff;
+                    binsum += p & 0xff;
+                } else {
+                    routsum += (p >> 16) & 0xff;
+                    goutsum += (p >> 8) & 0xff;
+                    boutsum += p & 0xff;
+                }
+            }
+            stackpointer = radius;
+
+            for (int x = 0; x < w; x++) {
+                out[yw + x] = (divide(rsum, mul) << 16) | (divide(gsum, mul) << 8) | divide(bsum, mul);
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                stackIndex = (stackpointer - radius + div) % div;
+                p = stack[stackIndex];
+                routsum -= (p >> 16) & 0xff;
+                goutsum -= (p >> 8) & 0xff;
+                boutsum -= p & 0xff;
+
+                p = in[yw + Math.min(x + r1, wm)];
+                stack[stackIndex] = p;
+                rinsum += (p >> 16) & 0xff;
+                ginsum += (p >> 8) & 0xff;
+                binsum += p & 0xff;
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                p = stack[stackpointer];
+                routsum += (p >> 16) & 0xff;
+                goutsum += (p >> 8) & 0xff;
+                boutsum += p & 0xff;
+                rinsum -= (p >> 16) & 0xff;
+                ginsum -= (p >> 8) & 0xff;
+                binsum -= p & 0xff;
+            }
+        }
+    }
+
+    /**
+     * 纵向模糊 [startX, endX) 列，结果加上 out 原来的透明度写回 out
+     */
+    private static void blurColumns(@NonNull int[] in, @NonNull int[] out, int w, int h, int radius, int startX, int endX) {
+        final int hm = h - 1;
+        final int div = radius + radius + 1;
+        final int r1 = radius + 1;
+        final long mul = divideMultiplier(r1 * r1);
+        final int[] stack = obtainStack(div);
+
+        int rsum, gsum, bsum, routsum, goutsum, boutsum, rinsum, ginsum, binsum;
+        int p, rbs, stackpointer, stackIndex, yi;
+        for (int x = startX; x < endX; x++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                p = in[Math.min(hm, Math.max(i, 0)) * w + x];
+                stack[i + radius] = p;
+                rbs = r1 - Math.abs(i);
+                rsum += ((p >> 16) & 0xff) * rbs;
+                gsum += ((p >> 8) & 0xff) * rbs;
+                bsum += (p & 0xff) * rbs;
+                if (i > 0) {
+                    rinsum += (p >> 16) & 0xff;
+                    ginsum += (p >> 8) & 0xff;
+                    binsum += p & 0xff;
+                } else {
+                    routsum += (p >> 16) & 0xff;
+                    goutsum += (p >> 8) & 0xff;
+                    boutsum += p & 0xff;
+                }
+            }
+            stackpointer = radius;
+
+            yi = x;
+            for (int y = 0; y < h; y++) {
+                // Preserve alpha channel
+                out[yi] = (0xff000000 & out[yi]) | (divide(rsum, mul) << 16) | (divide(gsum, mul) << 8) | divide(bsum, mul);
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                stackIndex = (stackpointer - radius + div) % div;
+                p = stack[stackIndex];
+                routsum -= (p >> 16) & 0xff;
+                goutsum -= (p >> 8) & 0xff;
+                boutsum -= p & 0xff;
+
+                p = in[Math.min(y + r1, hm) * w + x];
+                stack[stackIndex] = p;
+                rinsum += (p >> 16) & 0xff;
+                ginsum += (p >> 8) & 0xff;
+                binsum += p & 0xff;
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                p = stack[stackpointer];
+                routsum += (p >> 16) & 0xff;
+                goutsum += (p >> 8) & 0xff;
+                boutsum += p & 0xff;
+                rinsum -= (p >> 16) & 0xff;
+                ginsum -= (p >> 8) & 0xff;
+                binsum -= p & 0xff;
+
+                yi += w;
+            }
+        }
+    }
+
+    /**
+     * 计算 sum / divisor 对应的乘数，sum 最大为 255 * divisor，在 {@link #MAX_RADIUS} 以内结果与整数除法完全一致
+     */
+    private static long divideMultiplier(int divisor) {
+        return ((1L << DIVIDE_SHIFT) + divisor - 1) / divisor;
+    }
+
+    private static int divide(int sum, long multiplier) {
+        return (int) ((sum * multiplier) >>> DIVIDE_SHIFT);
+    }
+
+    @NonNull
+    private static int[] obtainStack(int size) {
+        int[] stack = STACK_CACHE.get();
+        if (stack == null || stack.length < size) {
+            stack = new int[size];
+            STACK_CACHE.set(stack);
+        }
+        return stack;
+    }
+
+    /**
+     * 取出一个长度不小于 size 的缓存数组，没有合适的就新建，用完后请调用 {@link #releaseBuffer(int[])} 放回去
+     */
+    @NonNull
+    public static int[] obtainBuffer(int size) {
+        if (size > MAX_CACHED_BUFFER_LENGTH) {
+            return new int[size];
+        }
+        for (int i = 0; i < BUFFER_CACHE.length(); i++) {
+            SoftReference<int[]> reference = BUFFER_CACHE.get(i);
+            int[] buffer = reference != null ? reference.get() : null;
+            if (buffer != null && buffer.length >= size && BUFFER_CACHE.compareAndSet(i, reference, null)) {
+                return buffer;
+            }
+        }
+        return new int[size];
+    }
+
+    /**
+     * 放回数组供下次使用，缓存满了就替换掉较小的那个，超过 {@link #MAX_CACHED_BUFFER_LENGTH} 的不缓存
+     */
+    public static void releaseBuffer(@NonNull int[] buffer) {
+        if (buffer.length > MAX_CACHED_BUFFER_LENGTH) {
+            return;
+        }
+        int smallestIndex = -1;
+        int smallestLength = Integer.MAX_VALUE;
+        for (int i = 0; i < BUFFER_CACHE.length(); i++) {
+            SoftReference<int[]> reference = BUFFER_CACHE.get(i);
+            int[] cached = reference != null ? reference.get() : null;
+            if (cached == null) {
+                if (BUFFER_CACHE.compareAndSet(i, reference, new SoftReference<>(buffer))) {
+                    return;
+                }
+            } else if (cached.length < smallestLength) {
+                smallestLength = cached.length;
+                smallestIndex = i;
+            }
+        }
+        if (smallestIndex != -1 && smallestLength < buffer.length) {
+            BUFFER_CACHE.set(smallestIndex, new SoftReference<>(buffer));
+        }
+    }
+
+    /**
+     * 将 [0, total) 分成若干段并行执行，调用线程执行第一段，等待所有段执行完毕才返回
+     */
+    private static void runBands(int total, int parallelism, @NonNull final Band band) {
+        int bandCount = Math.max(1, Math.min(parallelism, total));
+        if (bandCount == 1) {
+            band.run(0, total);
+            return;
+        }
+
+        final int step = (total + bandCount - 1) / bandCount;
+        final CountDownLatch latch = new CountDownLatch(bandCount - 1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        ThreadPoolExecutor executor = getExecutor();
+        for (int i = 1; i < bandCount; i++) {
+            final int start = i * step;
+            final int end = Math.min(total, start + step);
+            if (start >= end) {
+                latch.countDown();
+                continue;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        band.run(start, end);
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        band.run(0, Math.min(total, step));
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                // 其它线程还在写同一个数组，必须等它们结束才能返回
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable throwable = error.get();
+        if (throwable != null) {
+            throw new RuntimeException("Blur band failed", throwable);
+        }
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            synchronized (StackBlur.class) {
+                if (executor == null) {
+                    // 任务很短，执行完立即返回，所以线程闲置一会儿就回收，队列也不限长度，保证所有段都会被执行
+                    ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(
+                            PARALLELISM, PARALLELISM,
+                            10, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(),
+                            new BlurThreadFactory());
+                    newExecutor.allowCoreThreadTimeOut(true);
+                    executor = newExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private interface Band {
+        void run(int start, int end);
+    }
+
+    private static class BlurThreadFactory implements ThreadFactory {
+        @NonNull
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @NonNull
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "BlurThread" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -47,6 +47,12 @@ public abstract class WrappedImageProcessor extends ResizeImageProcessor {
             return bitmap;
         }
 
+        // 整个链都可以融合的话一次画完，只需要一张输出图片
+        Bitmap fusedBitmap = FusedProcessorPipeline.process(this, sketch, bitmap, resize, lowQualityImage);
+        if (fusedBitmap != null) {
+            return fusedBitmap;
+        }
+
         // resize
         Bitmap newBitmap = bitmap;
         if (!isInterceptResize()) {
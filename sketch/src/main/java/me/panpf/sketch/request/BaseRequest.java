@@ -24,6 +24,7 @@ import androidx.annotation.Nullable;
 import me.panpf.sketch.Configuration;
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.CacheKey;
 import me.panpf.sketch.uri.UriModel;
 
 @SuppressWarnings("WeakerAccess")
@@ -36,6 +37,8 @@ public abstract class BaseRequest {
     private UriModel uriModel;
     @NonNull
     private String key;
+    @Nullable
+    private CacheKey cacheKey;
 
     @Nullable
     private String diskCacheKey;
@@ -48,6 +51,9 @@ public abstract class BaseRequest {
     @Nullable
     private CancelCause cancelCause;
 
+    // 由 RequestTracer 分配，0 表示还没有记录过
+    int traceId;
+
     BaseRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key) {
         this.sketch = sketch;
         this.uri = uri;
@@ -83,6 +89,27 @@ public abstract class BaseRequest {
         return key;
     }
 
+    /**
+     * 获取请求 key 的 {@link CacheKey}，只计算一次，内存缓存、共享 gif 和顺风车都用它查找
+     */
+    @NonNull
+    public CacheKey getCacheKey() {
+        // CacheKey 是不可变的，多线程同时计算也只是多算一次
+        CacheKey cacheKey = this.cacheKey;
+        if (cacheKey == null) {
+            cacheKey = CacheKey.of(key);
+            this.cacheKey = cacheKey;
+        }
+        return cacheKey;
+    }
+
+    /**
+     * 创建请求前已经算好了 {@link CacheKey} 的话就直接用，不用再算一次
+     */
+    void setCacheKey(@NonNull CacheKey cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
     public String getDiskCacheKey() {
         if (diskCacheKey == null) {
             diskCacheKey = uriModel.getDiskCacheKey(uri);
@@ -107,6 +134,11 @@ public abstract class BaseRequest {
     public void setStatus(Status status) {
         if (!isFinished()) {
             this.status = status;
+
+            RequestTracer requestTracer = getConfiguration().getRequestTracer();
+            if (requestTracer.isEnabled()) {
+                requestTracer.record(this, status);
+            }
         }
     }
 
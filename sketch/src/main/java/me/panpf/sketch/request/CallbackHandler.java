@@ -23,6 +23,7 @@ import android.os.Message;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import me.panpf.sketch.metrics.FrameCostTracker;
 import me.panpf.sketch.util.SketchUtils;
 
 public class CallbackHandler {
@@ -44,19 +45,19 @@ public class CallbackHandler {
         handler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
             @Override
             public boolean handleMessage(Message msg) {
+                if (msg.obj instanceof AsyncRequest) {
+                    // 只有请求相关的消息能拿到 Configuration，单纯的 Listener 回调不统计
+                    FrameCostTracker frameCostTracker = ((AsyncRequest) msg.obj).getConfiguration().getFrameCostTracker();
+                    long frameStartNanos = frameCostTracker.begin();
+                    try {
+                        handleRequestMessage(msg);
+                    } finally {
+                        frameCostTracker.end(FrameCostTracker.Component.CALLBACK, frameStartNanos);
+                    }
+                    return true;
+                }
+
                 switch (msg.what) {
-                    case WHAT_RUN_COMPLETED:
-                        ((AsyncRequest) msg.obj).runCompletedInMainThread();
-                        break;
-                    case WHAT_RUN_CANCELED:
-                        ((AsyncRequest) msg.obj).runCanceledInMainThread();
-                        break;
-                    case WHAT_RUN_UPDATE_PROGRESS:
-                        ((AsyncRequest) msg.obj).runUpdateProgressInMainThread(msg.arg1, msg.arg2);
-                        break;
-                    case WHAT_RUN_FAILED:
-                        ((AsyncRequest) msg.obj).runErrorInMainThread();
-                        break;
 
                     case WHAT_CALLBACK_STARTED:
                         ((Listener) msg.obj).onStarted();
@@ -77,6 +78,23 @@ public class CallbackHandler {
     private CallbackHandler() {
     }
 
+    private static void handleRequestMessage(@NonNull Message msg) {
+        switch (msg.what) {
+            case WHAT_RUN_COMPLETED:
+                ((AsyncRequest) msg.obj).runCompletedInMainThread();
+                break;
+            case WHAT_RUN_CANCELED:
+                ((AsyncRequest) msg.obj).runCanceledInMainThread();
+                break;
+            case WHAT_RUN_UPDATE_PROGRESS:
+                ((AsyncRequest) msg.obj).runUpdateProgressInMainThread(msg.arg1, msg.arg2);
+                break;
+            case WHAT_RUN_FAILED:
+                ((AsyncRequest) msg.obj).runErrorInMainThread();
+                break;
+        }
+    }
+
     /**
      * 推到主线程处理完成
      */
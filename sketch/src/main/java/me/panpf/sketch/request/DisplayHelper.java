@@ -32,17 +32,25 @@ import me.panpf.sketch.SLog;
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchView;
 import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.cache.MemoryCacheUtils;
+import me.panpf.sketch.decode.ExifThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ImageSizeCalculator;
 import me.panpf.sketch.decode.ImageType;
+import me.panpf.sketch.decode.MediaStoreThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ProcessedResultCacheProcessor;
+import me.panpf.sketch.decode.SourceImageCache;
 import me.panpf.sketch.decode.ThumbnailModeDecodeHelper;
 import me.panpf.sketch.display.ImageDisplayer;
 import me.panpf.sketch.display.TransitionImageDisplayer;
+import me.panpf.sketch.drawable.SharedGifRegistry;
 import me.panpf.sketch.drawable.SketchBitmapDrawable;
 import me.panpf.sketch.drawable.SketchLoadingDrawable;
 import me.panpf.sketch.drawable.SketchRefBitmap;
 import me.panpf.sketch.drawable.SketchRefDrawable;
 import me.panpf.sketch.drawable.SketchShapeBitmapDrawable;
+import me.panpf.sketch.metrics.FrameCostTracker;
+import me.panpf.sketch.metrics.SketchMetrics;
 import me.panpf.sketch.process.ImageProcessor;
 import me.panpf.sketch.shaper.ImageShaper;
 import me.panpf.sketch.state.StateImage;
@@ -67,6 +75,8 @@ public class DisplayHelper {
 
     @Nullable
     private String key;
+    @Nullable
+    private CacheKey cacheKey;
     @NonNull
     private DisplayOptions displayOptions = new DisplayOptions();
     @Nullable
@@ -117,6 +127,7 @@ public class DisplayHelper {
         uri = null;
         uriModel = null;
         key = null;
+        cacheKey = null;
         displayOptions.reset();
         displayListener = null;
         downloadProgressListener = null;
@@ -293,6 +304,28 @@ public class DisplayHelper {
         return this;
     }
 
+    /**
+     * 开启 exif 缩略图模式，图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，参考 {@link ExifThumbnailDecodeHelper}
+     *
+     * @return {@link DisplayHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayHelper exifThumbnailMode() {
+        displayOptions.setExifThumbnailMode(true);
+        return this;
+    }
+
+    /**
+     * 开启系统媒体库缩略图模式，系统媒体库中已有的缩略图足够大时直接读取缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     *
+     * @return {@link DisplayHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayHelper mediaStoreThumbnailMode() {
+        displayOptions.setMediaStoreThumbnailMode(true);
+        return this;
+    }
+
     /**
      * 为了加快速度，将经过 {@link #processor(ImageProcessor)}、{@link #resize(Resize)} 或 {@link #thumbnailMode()}，下次就直接读取，参考 {@link ProcessedResultCacheProcessor}
      *
@@ -326,6 +359,39 @@ public class DisplayHelper {
         return this;
     }
 
+    /**
+     * 在内存中缓存解码后、处理前的原图，只修改 {@link #processor(ImageProcessor)} 时可以跳过解码，参考 {@link SourceImageCache}
+     *
+     * @return {@link DisplayHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayHelper cacheSourceImageInMemory() {
+        displayOptions.setCacheSourceImageInMemory(true);
+        return this;
+    }
+
+    /**
+     * 和其它显示同一张 gif 的 View 共享同一个动画，请求 key 相同的 gif 只解码和渲染一次，参考 {@link SharedGifRegistry}
+     *
+     * @return {@link DisplayHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayHelper shareGifAnimation() {
+        displayOptions.setShareGifAnimation(true);
+        return this;
+    }
+
+    /**
+     * 延迟播放 gif，先只解码第一帧显示，等点击播放或 View 可见时再解码完整的动画
+     *
+     * @return {@link DisplayHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayHelper lazyPlayGif() {
+        displayOptions.setLazyPlayGif(true);
+        return this;
+    }
+
     /**
      * 设置图片显示器，在加载完成后会调用此显示器来显示图片
      *
@@ -481,6 +547,23 @@ public class DisplayHelper {
      */
     @Nullable
     public DisplayRequest commit() {
+        // doCommit() 中会回收 DisplayHelper，所以要提前拿出来
+        SketchMetrics metrics = sketch.getConfiguration().getMetrics();
+        FrameCostTracker frameCostTracker = sketch.getConfiguration().getFrameCostTracker();
+        long frameStartNanos = frameCostTracker.begin();
+        long startNanos = metrics.startNanos();
+        DisplayRequest request;
+        try {
+            request = doCommit();
+        } finally {
+            frameCostTracker.end(FrameCostTracker.Component.DISPLAY_COMMIT, frameStartNanos);
+        }
+        metrics.recordSince(SketchMetrics.DISPLAY_COMMIT, startNanos);
+        return request;
+    }
+
+    @Nullable
+    private DisplayRequest doCommit() {
         // 把 url null 和 uriModel 的检测提前，单独个方法叫 check param 其它的 processOptions
         if (!SketchUtils.isMainThread()) {
             SLog.w(NAME, "Please perform a commit in the UI thread. view(%s). %s",
@@ -492,7 +575,10 @@ public class DisplayHelper {
             return null;
         }
 
+        FrameCostTracker frameCostTracker = sketch.getConfiguration().getFrameCostTracker();
+        long frameStartNanos = frameCostTracker.begin();
         boolean checkResult = checkParams();
+        frameCostTracker.end(FrameCostTracker.Component.CHECK_PARAMS, frameStartNanos);
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
             Stopwatch.with().record("checkParams");
         }
@@ -509,10 +595,15 @@ public class DisplayHelper {
             Stopwatch.with().record("saveParams");
         }
 
+        frameStartNanos = frameCostTracker.begin();
         checkResult = checkMemoryCache();
+        frameCostTracker.end(FrameCostTracker.Component.CHECK_MEMORY_CACHE, frameStartNanos);
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
             Stopwatch.with().record("checkMemoryCache");
         }
+        if (!displayOptions.isCacheInMemoryDisabled()) {
+            sketch.getConfiguration().getMetrics().increment(checkResult ? SketchMetrics.MEMORY_CACHE_MISS : SketchMetrics.MEMORY_CACHE_HIT);
+        }
         if (!checkResult) {
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
                 Stopwatch.with().print(key);
@@ -689,6 +780,7 @@ public class DisplayHelper {
 
         // 根据 URI 和显示选项生成请求 key
         key = SketchUtils.makeRequestKey(uri, uriModel, displayOptions.makeKey());
+        cacheKey = CacheKey.of(key);
 
         return true;
     }
@@ -712,14 +804,14 @@ public class DisplayHelper {
             return true;
         }
 
-        String memoryCacheKey = key;
-        SketchRefBitmap cachedRefBitmap = sketch.getConfiguration().getMemoryCache().get(memoryCacheKey);
+        CacheKey memoryCacheKey = cacheKey;
+        SketchRefBitmap cachedRefBitmap = MemoryCacheUtils.get(sketch.getConfiguration().getMemoryCache(), memoryCacheKey);
         if (cachedRefBitmap == null) {
             return true;
         }
 
         if (cachedRefBitmap.isRecycled()) {
-            sketch.getConfiguration().getMemoryCache().remove(memoryCacheKey);
+            MemoryCacheUtils.remove(sketch.getConfiguration().getMemoryCache(), memoryCacheKey);
             String viewCode = Integer.toHexString(sketchView.hashCode());
             SLog.w(NAME, "Memory cache drawable recycled. %s. view(%s)", cachedRefBitmap.getInfo(), viewCode);
             return true;
@@ -844,6 +936,7 @@ public class DisplayHelper {
         RequestAndViewBinder requestAndViewBinder = new RequestAndViewBinder(sketchView);
         DisplayRequest request = requestFactory.newDisplayRequest(sketch, uri, uriModel, key, displayOptions, viewInfo,
                 requestAndViewBinder, displayListener, downloadProgressListener);
+        request.setCacheKey(cacheKey);
         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_TIME)) {
             Stopwatch.with().record("createRequest");
         }
@@ -26,7 +26,9 @@ import androidx.annotation.Nullable;
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchImageView;
 import me.panpf.sketch.SketchView;
+import me.panpf.sketch.decode.SourceImageCache;
 import me.panpf.sketch.display.ImageDisplayer;
+import me.panpf.sketch.drawable.SharedGifRegistry;
 import me.panpf.sketch.process.ImageProcessor;
 import me.panpf.sketch.shaper.ImageShaper;
 import me.panpf.sketch.state.DrawableStateImage;
@@ -42,6 +44,13 @@ public class DisplayOptions extends LoadOptions {
      */
     private boolean cacheInMemoryDisabled;
 
+    /**
+     * 在内存中缓存解码后、处理前的原图，只修改 processor 时可以跳过解码，参考 {@link SourceImageCache}
+     */
+    private boolean cacheSourceImageInMemory;
+    private boolean shareGifAnimation;
+    private boolean lazyPlayGif;
+
     /**
      * 图片显示器，用来在加载完成后显示图片
      */
@@ -203,6 +212,24 @@ public class DisplayOptions extends LoadOptions {
         return (DisplayOptions) super.setThumbnailMode(thumbnailMode);
     }
 
+    /**
+     * @return {@link DisplayOptions}. 为了支持链式调用
+     */
+    @NonNull
+    @Override
+    public DisplayOptions setExifThumbnailMode(boolean exifThumbnailMode) {
+        return (DisplayOptions) super.setExifThumbnailMode(exifThumbnailMode);
+    }
+
+    /**
+     * @return {@link DisplayOptions}. 为了支持链式调用
+     */
+    @NonNull
+    @Override
+    public DisplayOptions setMediaStoreThumbnailMode(boolean mediaStoreThumbnailMode) {
+        return (DisplayOptions) super.setMediaStoreThumbnailMode(mediaStoreThumbnailMode);
+    }
+
     /**
      * @return {@link DisplayOptions}. 为了支持链式调用
      */
@@ -249,6 +276,65 @@ public class DisplayOptions extends LoadOptions {
         return this;
     }
 
+    /**
+     * 是否在内存中缓存解码后、处理前的原图
+     */
+    public boolean isCacheSourceImageInMemory() {
+        return cacheSourceImageInMemory;
+    }
+
+    /**
+     * 设置是否在内存中缓存解码后、处理前的原图，只修改 processor 时可以直接用缓存的原图重新处理，不用再次解码，参考 {@link SourceImageCache}
+     *
+     * @param cacheSourceImageInMemory true：缓存
+     * @return {@link DisplayOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayOptions setCacheSourceImageInMemory(boolean cacheSourceImageInMemory) {
+        this.cacheSourceImageInMemory = cacheSourceImageInMemory;
+        return this;
+    }
+
+    /**
+     * 是否和其它显示同一张 gif 的 View 共享同一个动画
+     */
+    public boolean isShareGifAnimation() {
+        return shareGifAnimation;
+    }
+
+    /**
+     * 设置是否和其它显示同一张 gif 的 View 共享同一个动画，请求 key 相同的 gif 只解码和渲染一次，参考 {@link SharedGifRegistry}。
+     * 共享时播放进度、速度等也是共享的，适合聊天列表中重复出现的表情，只在 {@link #isDecodeGifImage()} 为 true 时有效
+     *
+     * @param shareGifAnimation true：共享
+     * @return {@link DisplayOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayOptions setShareGifAnimation(boolean shareGifAnimation) {
+        this.shareGifAnimation = shareGifAnimation;
+        return this;
+    }
+
+    /**
+     * 是否延迟播放 gif
+     */
+    public boolean isLazyPlayGif() {
+        return lazyPlayGif;
+    }
+
+    /**
+     * 设置是否延迟播放 gif，只在 {@link #isDecodeGifImage()} 为 true 时有效。延迟播放时先只解码第一帧显示，
+     * 开启了点击播放 gif 时等点击后再解码完整的动画，否则等滚动停下来 View 确实出现在屏幕上时再解码，适合 gif 很多的列表
+     *
+     * @param lazyPlayGif true：延迟播放
+     * @return {@link DisplayOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public DisplayOptions setLazyPlayGif(boolean lazyPlayGif) {
+        this.lazyPlayGif = lazyPlayGif;
+        return this;
+    }
+
     /**
      * 获取图片显示器
      *
@@ -446,6 +532,9 @@ public class DisplayOptions extends LoadOptions {
     public void reset() {
         super.reset();
         cacheInMemoryDisabled = false;
+        cacheSourceImageInMemory = false;
+        shareGifAnimation = false;
+        lazyPlayGif = false;
         displayer = null;
         loadingImage = null;
         errorImage = null;
@@ -468,6 +557,9 @@ public class DisplayOptions extends LoadOptions {
         super.copy((LoadOptions) options);
 
         cacheInMemoryDisabled = options.cacheInMemoryDisabled;
+        cacheSourceImageInMemory = options.cacheSourceImageInMemory;
+        shareGifAnimation = options.shareGifAnimation;
+        lazyPlayGif = options.lazyPlayGif;
         displayer = options.displayer;
         loadingImage = options.loadingImage;
         errorImage = options.errorImage;
@@ -29,13 +29,17 @@ import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchView;
 import me.panpf.sketch.cache.BitmapPool;
 import me.panpf.sketch.cache.MemoryCache;
+import me.panpf.sketch.cache.MemoryCacheUtils;
+import me.panpf.sketch.decode.ImageAttrs;
 import me.panpf.sketch.display.ImageDisplayer;
 import me.panpf.sketch.drawable.SketchBitmapDrawable;
 import me.panpf.sketch.drawable.SketchDrawable;
 import me.panpf.sketch.drawable.SketchGifDrawable;
+import me.panpf.sketch.drawable.SketchGifFactory;
 import me.panpf.sketch.drawable.SketchRefBitmap;
 import me.panpf.sketch.drawable.SketchRefDrawable;
 import me.panpf.sketch.drawable.SketchShapeBitmapDrawable;
+import me.panpf.sketch.metrics.FrameCostTracker;
 import me.panpf.sketch.state.StateImage;
 import me.panpf.sketch.uri.UriModel;
 
@@ -155,10 +159,11 @@ public class DisplayRequest extends LoadRequest {
         if (!displayOptions.isCacheInDiskDisabled()) {
             setStatus(Status.CHECK_MEMORY_CACHE);
             MemoryCache memoryCache = getConfiguration().getMemoryCache();
-            SketchRefBitmap cachedRefBitmap = memoryCache.get(getMemoryCacheKey());
+            SketchRefBitmap cachedRefBitmap = MemoryCacheUtils.get(memoryCache, getCacheKey());
             if (cachedRefBitmap != null) {
-                // 当 isDecodeGifImage 为 true 时是要播放 gif 的，而内存缓存里的 gif 图都是第一帧静态图片，所以不能用
-                if (!(getOptions().isDecodeGifImage() && "image/gif".equalsIgnoreCase(cachedRefBitmap.getAttrs().getMimeType()))) {
+                // 当 isDecodeGifImage 为 true 时是要播放 gif 的，而内存缓存里的 gif 图都是第一帧静态图片，所以不能用，除非是延迟播放，本来就只要第一帧
+                boolean playGif = getOptions().isDecodeGifImage() && !getOptions().isLazyPlayGif();
+                if (!(playGif && "image/gif".equalsIgnoreCase(cachedRefBitmap.getAttrs().getMimeType()))) {
                     if (!cachedRefBitmap.isRecycled()) {
                         if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
                             SLog.d(getLogName(), "From memory get drawable. bitmap=%s. %s. %s",
@@ -173,13 +178,31 @@ public class DisplayRequest extends LoadRequest {
                         displayCompleted();
                         return;
                     } else {
-                        memoryCache.remove(getMemoryCacheKey());
+                        MemoryCacheUtils.remove(memoryCache, getCacheKey());
                         SLog.e(getLogName(), "Memory cache drawable recycled. bitmap=%s. %s. %s", cachedRefBitmap.getInfo(), getThreadName(), getKey());
                     }
                 }
             }
         }
 
+        // Check shared gif animation
+        if (displayOptions.isShareGifAnimation() && displayOptions.isDecodeGifImage() && !displayOptions.isLazyPlayGif()
+                && SketchGifFactory.isExistGifLibrary()) {
+            SketchGifDrawable sharedGifDrawable = getConfiguration().getSharedGifRegistry().obtain(getCacheKey());
+            if (sharedGifDrawable != null) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(getLogName(), "From shared gif get drawable. gifDrawable=%s. %s. %s",
+                            sharedGifDrawable.getInfo(), getThreadName(), getKey());
+                }
+
+                ImageAttrs imageAttrs = new ImageAttrs(sharedGifDrawable.getMimeType(), sharedGifDrawable.getOriginWidth(),
+                        sharedGifDrawable.getOriginHeight(), sharedGifDrawable.getExifOrientation());
+                displayResult = new DisplayResult((Drawable) sharedGifDrawable, ImageFrom.MEMORY_CACHE, imageAttrs);
+                displayCompleted();
+                return;
+            }
+        }
+
         super.runLoad();
     }
 
@@ -192,13 +215,20 @@ public class DisplayRequest extends LoadRequest {
 
             BitmapPool bitmapPool = getConfiguration().getBitmapPool();
             SketchRefBitmap refBitmap = new SketchRefBitmap(bitmap, getKey(), getUri(), loadResult.getImageAttrs(), bitmapPool);
+            getConfiguration().getMemoryAccountant().track(refBitmap);
 
             // 立马标记等待使用，防止刚放入内存缓存就被挤出去回收掉
             refBitmap.setIsWaitingUse(String.format("%s:waitingUse:new", getLogName()), true);
 
+            // 延迟播放 gif 时解码出来的第一帧没有经过 ImageProcessor 处理，而 isDecodeGifImage 和 isLazyPlayGif 又不在 key 里，
+            // 放入内存缓存的话之后同样 uri 和处理器的静态图请求会拿到这张未处理的图片，所以不放入内存缓存
+            boolean lazyGifFrame = displayOptions.isDecodeGifImage() && displayOptions.isLazyPlayGif()
+                    && SketchGifFactory.isExistGifLibrary()
+                    && "image/gif".equalsIgnoreCase(loadResult.getImageAttrs().getMimeType());
+
             // 放入内存缓存中
-            if (!displayOptions.isCacheInMemoryDisabled() && getMemoryCacheKey() != null) {
-                getConfiguration().getMemoryCache().put(getMemoryCacheKey(), refBitmap);
+            if (!displayOptions.isCacheInMemoryDisabled() && !lazyGifFrame && getMemoryCacheKey() != null) {
+                MemoryCacheUtils.put(getConfiguration().getMemoryCache(), getCacheKey(), refBitmap);
             }
 
             Drawable drawable = new SketchBitmapDrawable(refBitmap, loadResult.getImageFrom());
@@ -287,7 +317,10 @@ public class DisplayRequest extends LoadRequest {
         // 一定要在 ImageDisplayer().display 之前执行
         setStatus(Status.COMPLETED);
 
+        FrameCostTracker frameCostTracker = getConfiguration().getFrameCostTracker();
+        long frameStartNanos = frameCostTracker.begin();
         displayOptions.getDisplayer().display(sketchView, drawable);
+        frameCostTracker.end(FrameCostTracker.Component.DISPLAYER, frameStartNanos);
 
         if (displayListener != null) {
             displayListener.onCompleted(displayResult.getDrawable(), displayResult.getImageFrom(), displayResult.getImageAttrs());
@@ -312,7 +345,10 @@ public class DisplayRequest extends LoadRequest {
         if (displayer != null && errorImage != null) {
             Drawable errorDrawable = errorImage.getDrawable(getContext(), sketchView, displayOptions);
             if (errorDrawable != null) {
+                FrameCostTracker frameCostTracker = getConfiguration().getFrameCostTracker();
+                long frameStartNanos = frameCostTracker.begin();
                 displayer.display(sketchView, errorDrawable);
+                frameCostTracker.end(FrameCostTracker.Component.DISPLAYER, frameStartNanos);
             }
         }
 
@@ -72,6 +72,8 @@ public enum ErrorCause {
 
     DECODE_CORRECT_ORIENTATION_FAIL,
 
+    DECODE_CANCELED,
+
 
     BITMAP_RECYCLED,
 
@@ -21,12 +21,11 @@ import android.graphics.drawable.Drawable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.CacheKey;
 import me.panpf.sketch.cache.MemoryCache;
+import me.panpf.sketch.cache.MemoryCacheUtils;
 import me.panpf.sketch.drawable.SketchBitmapDrawable;
 import me.panpf.sketch.drawable.SketchRefBitmap;
 import me.panpf.sketch.uri.UriModel;
@@ -38,8 +37,8 @@ import me.panpf.sketch.util.SketchUtils;
 @SuppressWarnings("WeakerAccess")
 public class FreeRideDisplayRequest extends DisplayRequest implements FreeRideManager.DisplayFreeRide {
 
-    @Nullable
-    private Set<FreeRideManager.DisplayFreeRide> displayFreeRideSet;
+    @NonNull
+    private final FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> displayFreeRiders = new FreeRideManager.Riders<>();
 
     public FreeRideDisplayRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key, @NonNull DisplayOptions displayOptions,
                                   @NonNull ViewInfo viewInfo, @NonNull RequestAndViewBinder requestAndViewBinder,
@@ -55,8 +54,8 @@ public class FreeRideDisplayRequest extends DisplayRequest implements FreeRideMa
 
     @NonNull
     @Override
-    public String getDisplayFreeRideKey() {
-        return getKey();
+    public CacheKey getDisplayFreeRideKey() {
+        return getCacheKey();
     }
 
     /**
@@ -98,31 +97,23 @@ public class FreeRideDisplayRequest extends DisplayRequest implements FreeRideMa
     }
 
     @Override
-    public synchronized void byDisplayFreeRide(FreeRideManager.DisplayFreeRide request) {
-        if (displayFreeRideSet == null) {
-            synchronized (this) {
-                if (displayFreeRideSet == null) {
-                    displayFreeRideSet = new HashSet<>();
-                }
-            }
-        }
-
-        displayFreeRideSet.add(request);
+    public boolean byDisplayFreeRide(@NonNull FreeRideManager.DisplayFreeRide request) {
+        return displayFreeRiders.add(request);
     }
 
-    @Nullable
+    @NonNull
     @Override
-    public Set<FreeRideManager.DisplayFreeRide> getDisplayFreeRideSet() {
-        return displayFreeRideSet;
+    public FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> getDisplayFreeRiders() {
+        return displayFreeRiders;
     }
 
     @Override
     public synchronized boolean processDisplayFreeRide() {
         if (!getOptions().isCacheInDiskDisabled()) {
             MemoryCache memoryCache = getConfiguration().getMemoryCache();
-            SketchRefBitmap cachedRefBitmap = memoryCache.get(getMemoryCacheKey());
+            SketchRefBitmap cachedRefBitmap = MemoryCacheUtils.get(memoryCache, getCacheKey());
             if (cachedRefBitmap != null && cachedRefBitmap.isRecycled()) {
-                memoryCache.remove(getMemoryCacheKey());
+                MemoryCacheUtils.remove(memoryCache, getCacheKey());
                 SLog.e(getLogName(), "memory cache drawable recycled. processFreeRideRequests. bitmap=%s. %s. %s",
                         cachedRefBitmap.getInfo(), getThreadName(), getKey());
                 cachedRefBitmap = null;
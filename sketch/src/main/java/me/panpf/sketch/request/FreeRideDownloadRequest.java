@@ -19,11 +19,9 @@ package me.panpf.sketch.request;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.CacheKey;
 import me.panpf.sketch.cache.DiskCache;
 import me.panpf.sketch.uri.UriModel;
 import me.panpf.sketch.util.SketchUtils;
@@ -33,8 +31,10 @@ import me.panpf.sketch.util.SketchUtils;
  */
 @SuppressWarnings("WeakerAccess")
 public class FreeRideDownloadRequest extends DownloadRequest implements FreeRideManager.DownloadFreeRide {
+    @NonNull
+    private final FreeRideManager.Riders<FreeRideManager.DownloadFreeRide> downloadFreeRiders = new FreeRideManager.Riders<>();
     @Nullable
-    private Set<FreeRideManager.DownloadFreeRide> downloadFreeRideSet;
+    private CacheKey downloadFreeRideKey;
 
     public FreeRideDownloadRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key, @NonNull DownloadOptions options,
                                    @Nullable DownloadListener downloadListener, @Nullable DownloadProgressListener downloadProgressListener) {
@@ -43,8 +43,14 @@ public class FreeRideDownloadRequest extends DownloadRequest implements FreeRide
 
     @NonNull
     @Override
-    public String getDownloadFreeRideKey() {
-        return getUri();
+    public CacheKey getDownloadFreeRideKey() {
+        // 下载顺风车按 uri 区分，注册、取消注册和上车都要用，只计算一次
+        CacheKey downloadFreeRideKey = this.downloadFreeRideKey;
+        if (downloadFreeRideKey == null) {
+            downloadFreeRideKey = CacheKey.of(getUri());
+            this.downloadFreeRideKey = downloadFreeRideKey;
+        }
+        return downloadFreeRideKey;
     }
 
     @NonNull
@@ -88,22 +94,14 @@ public class FreeRideDownloadRequest extends DownloadRequest implements FreeRide
     }
 
     @Override
-    public synchronized void byDownloadFreeRide(FreeRideManager.DownloadFreeRide request) {
-        if (downloadFreeRideSet == null) {
-            synchronized (this) {
-                if (downloadFreeRideSet == null) {
-                    downloadFreeRideSet = new HashSet<>();
-                }
-            }
-        }
-
-        downloadFreeRideSet.add(request);
+    public boolean byDownloadFreeRide(@NonNull FreeRideManager.DownloadFreeRide request) {
+        return downloadFreeRiders.add(request);
     }
 
-    @Nullable
+    @NonNull
     @Override
-    public Set<FreeRideManager.DownloadFreeRide> getDownloadFreeRideSet() {
-        return downloadFreeRideSet;
+    public FreeRideManager.Riders<FreeRideManager.DownloadFreeRide> getDownloadFreeRiders() {
+        return downloadFreeRiders;
     }
 
     @Override
@@ -128,8 +126,8 @@ public class FreeRideDownloadRequest extends DownloadRequest implements FreeRide
     public void updateProgress(int totalLength, int completedLength) {
         super.updateProgress(totalLength, completedLength);
 
-        if (downloadFreeRideSet != null && !downloadFreeRideSet.isEmpty()) {
-            for (FreeRideManager.DownloadFreeRide freeRide : downloadFreeRideSet) {
+        if (!downloadFreeRiders.isEmpty()) {
+            for (FreeRideManager.DownloadFreeRide freeRide : downloadFreeRiders.snapshot()) {
                 if (freeRide instanceof DownloadRequest) {
                     ((DownloadRequest) freeRide).updateProgress(totalLength, completedLength);
                 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.request;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.drawable.SketchRefBitmap;
+import me.panpf.sketch.uri.UriModel;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 支持加载顺风车的请求，开启了 {@link LoadOptions#setShareLoadResult(boolean)} 时同一个 key 同时进行中的多个请求只解码一次
+ * <p>
+ * 结果包装成 {@link SketchRefBitmap}，顺风车主和每个顺风车各持有一个等待使用引用，各自调用 {@link LoadResult#release()} 释放，
+ * 所有引用都释放后图片回收到 bitmap pool 中。顺风车主自己取消了但还有顺风车在等时会继续加载，所有人都取消了才中断解码
+ */
+@SuppressWarnings("WeakerAccess")
+public class FreeRideLoadRequest extends LoadRequest implements FreeRideManager.LoadFreeRide {
+
+    @NonNull
+    private final FreeRideManager.Riders<FreeRideManager.LoadFreeRide> loadFreeRiders = new FreeRideManager.Riders<>();
+    @Nullable
+    private volatile FreeRideLoadRequest loadFreeRideProvider;
+
+    public FreeRideLoadRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key, @NonNull LoadOptions loadOptions,
+                               @Nullable LoadListener loadListener, @Nullable DownloadProgressListener downloadProgressListener) {
+        super(sketch, uri, uriModel, key, loadOptions, loadListener, downloadProgressListener);
+    }
+
+    @NonNull
+    @Override
+    public String getLoadFreeRideLog() {
+        return String.format("%s@%s", SketchUtils.toHexString(this), getKey());
+    }
+
+    @NonNull
+    @Override
+    public CacheKey getLoadFreeRideKey() {
+        return getCacheKey();
+    }
+
+    /**
+     * 可以坐顺风车？条件是开启了共享加载结果，不解码 gif 图片，没有开同步执行，请求执行器可以用
+     */
+    @Override
+    public boolean canByLoadFreeRide() {
+        return getOptions().isShareLoadResult()
+                && !getOptions().isDecodeGifImage()
+                && !isSync() && !getConfiguration().getExecutor().isShutdown();
+    }
+
+    /**
+     * 自己取消了，但还有没取消的顺风车在等结果，就不算放弃
+     */
+    @Override
+    public boolean isAbandoned() {
+        if (!isCanceled()) {
+            return false;
+        }
+
+        if (!loadFreeRiders.isEmpty()) {
+            for (FreeRideManager.LoadFreeRide freeRide : loadFreeRiders.snapshot()) {
+                if (!freeRide.isCanceled()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doCancel(@NonNull CancelCause cancelCause) {
+        super.doCancel(cancelCause);
+
+        // 可能是最后一个等结果的，顺风车主也没人要了就中断它的解码
+        FreeRideLoadRequest provider = loadFreeRideProvider;
+        if (provider != null && provider.isAbandoned()) {
+            provider.getDecodeCanceller().cancel();
+        }
+    }
+
+    @Override
+    protected void submitRunLoad() {
+        // 可以坐顺风车的话，就先尝试坐别人的，坐不上就自己成为顺风车主让别人坐
+        if (canByLoadFreeRide()) {
+            FreeRideManager freeRideManager = getConfiguration().getFreeRideManager();
+            if (freeRideManager.byLoadFreeRide(this)) {
+                return;
+            } else {
+                freeRideManager.registerLoadFreeRideProvider(this);
+            }
+        }
+
+        super.submitRunLoad();
+    }
+
+    @Override
+    protected void runLoad() {
+        super.runLoad();
+
+        // 由于在submitRunLoad中会将自己注册成为顺风车主，因此一定要保证在这里取消注册，加载成功时已经在 loadCompleted 中取消过了
+        if (canByLoadFreeRide()) {
+            FreeRideManager freeRideManager = getConfiguration().getFreeRideManager();
+            freeRideManager.unregisterLoadFreeRideProvider(this);
+        }
+    }
+
+    @Override
+    protected void loadCompleted() {
+        LoadResult loadResult = getLoadResult();
+        Bitmap bitmap = loadResult != null ? loadResult.getBitmap() : null;
+        if (getOptions().isShareLoadResult() && loadResult != null && bitmap != null && loadResult.getRefBitmap() == null) {
+            SketchRefBitmap refBitmap = new SketchRefBitmap(bitmap, getKey(), getUri(), loadResult.getImageAttrs(), getConfiguration().getBitmapPool());
+            getConfiguration().getMemoryAccountant().track(refBitmap);
+
+            // 立马标记等待使用，这是自己的引用
+            refBitmap.setIsWaitingUse(String.format("%s:waitingUse:new", getLogName()), true);
+            this.loadResult = new LoadResult(refBitmap, loadResult.getImageFrom());
+
+            // 先把结果交给顺风车，等它们都持有了引用再回调自己，防止自己先释放导致图片被回收
+            if (canByLoadFreeRide()) {
+                getConfiguration().getFreeRideManager().unregisterLoadFreeRideProvider(this);
+            }
+        }
+
+        super.loadCompleted();
+    }
+
+    @Override
+    public boolean byLoadFreeRide(@NonNull FreeRideManager.LoadFreeRide request) {
+        // 先记下顺风车主再上车，上车之后随时可能被回调
+        FreeRideLoadRequest loadRequest = request instanceof FreeRideLoadRequest ? (FreeRideLoadRequest) request : null;
+        if (loadRequest != null) {
+            loadRequest.loadFreeRideProvider = this;
+        }
+        boolean added = loadFreeRiders.add(request);
+        if (!added && loadRequest != null) {
+            loadRequest.loadFreeRideProvider = null;
+        }
+        return added;
+    }
+
+    @NonNull
+    @Override
+    public FreeRideManager.Riders<FreeRideManager.LoadFreeRide> getLoadFreeRiders() {
+        return loadFreeRiders;
+    }
+
+    @Nullable
+    @Override
+    public LoadResult getLoadFreeRideResult() {
+        LoadResult loadResult = getLoadResult();
+        return loadResult != null && loadResult.getRefBitmap() != null ? loadResult : null;
+    }
+
+    @Override
+    public synchronized boolean processLoadFreeRide(@Nullable LoadResult providerResult) {
+        loadFreeRideProvider = null;
+
+        SketchRefBitmap refBitmap = providerResult != null ? providerResult.getRefBitmap() : null;
+        boolean obtained = false;
+        if (refBitmap != null) {
+            //noinspection SynchronizationOnLocalVariableOrMethodParameter
+            synchronized (refBitmap) {
+                if (!refBitmap.isRecycled()) {
+                    // 立马标记等待使用，这是自己的引用
+                    refBitmap.setIsWaitingUse(String.format("%s:waitingUse:freeRide", getLogName()), true);
+                    obtained = true;
+                }
+            }
+        }
+
+        if (obtained) {
+            this.loadResult = new LoadResult(refBitmap, providerResult.getImageFrom());
+            loadCompleted();
+            return true;
+        }
+
+        submitRunLoad();
+        return false;
+    }
+}
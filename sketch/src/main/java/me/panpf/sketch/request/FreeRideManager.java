@@ -19,30 +19,44 @@ package me.panpf.sketch.request;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import me.panpf.sketch.SLog;
+import me.panpf.sketch.cache.CacheKey;
 
 /**
  * 顺风车管理器，用于解决重复下载、重复加载
  * <p>
  * 对于相同的请求（不同类型条件不一样），只要第一个请求执行完毕了，后续请求可以直接使用第一个请求的结果，那么我们可以将所有后续的请求都绑定在第一个请求上，
  * 等第一个请求执行完毕后直接将结果交给后续请求处理即可，对于这样的情况我们称之为顺风车
+ * <p>
+ * 显示和下载顺风车执行结束后各自去内存缓存或磁盘缓存中取结果，加载顺风车没有缓存可取，由顺风车主直接把共享的结果交给顺风车
+ * <p>
+ * 每个请求都要经过这里，所以没有全局锁：顺风车主保存在 {@link ConcurrentHashMap} 中，每个顺风车主的顺风车保存在它自己的 {@link Riders} 中，
+ * 上车只是一次 CAS。顺风车主结束时先从 map 中移除自己，再关闭 {@link Riders} 一次性取出所有顺风车，在任何锁之外回调它们，
+ * 关闭之后再来的顺风车会上车失败，重新找顺风车主或者自己成为顺风车主，所以不会有顺风车被落下
  */
 @SuppressWarnings("WeakerAccess")
 public class FreeRideManager {
     private static final String NAME = "FreeRideManager";
+    private static final int PURGE_THRESHOLD = 64;
 
+    /**
+     * 顺风车主用弱引用保存，万一请求没有执行（例如被执行器丢弃）也不会一直留在这里
+     */
+    @NonNull
+    private final ProviderMap<DisplayFreeRide> displayFreeRideProviderMap = new ProviderMap<>();
     @NonNull
-    private final Object displayFreeRideProviderMapLock = new Object();
+    private final ProviderMap<DownloadFreeRide> downloadFreeRideProviderMap = new ProviderMap<>();
     @NonNull
-    private final Object downloadFreeRideProviderMapLock = new Object();
-    @Nullable
-    private Map<String, DisplayFreeRide> displayFreeRideProviderMap;
-    @Nullable
-    private Map<String, DownloadFreeRide> downloadFreeRideProviderMap;
+    private final ProviderMap<LoadFreeRide> loadFreeRideProviderMap = new ProviderMap<>();
 
     /**
      * 成为显示顺风车主
@@ -52,21 +66,11 @@ public class FreeRideManager {
             return;
         }
 
-        synchronized (displayFreeRideProviderMapLock) {
-            if (displayFreeRideProviderMap == null) {
-                synchronized (this) {
-                    if (displayFreeRideProviderMap == null) {
-                        displayFreeRideProviderMap = new WeakHashMap<>();
-                    }
-                }
-            }
-
-            displayFreeRideProviderMap.put(provider.getDisplayFreeRideKey(), provider);
+        displayFreeRideProviderMap.put(provider.getDisplayFreeRideKey(), provider);
 
-            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                SLog.d(NAME, "display. register free ride provider. %s",
-                        provider.getDisplayFreeRideLog());
-            }
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "display. register free ride provider. %s",
+                    provider.getDisplayFreeRideLog());
         }
     }
 
@@ -78,42 +82,33 @@ public class FreeRideManager {
             return;
         }
 
-        // 取消顺风车主身份
-        DisplayFreeRide freeRideProvider = null;
-        synchronized (displayFreeRideProviderMapLock) {
-            if (displayFreeRideProviderMap != null) {
-                freeRideProvider = displayFreeRideProviderMap.remove(provider.getDisplayFreeRideKey());
-                if (freeRideProvider != null) {
-                    if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                        SLog.d(NAME, "display. unregister free ride provider. %s",
-                                freeRideProvider.getDisplayFreeRideLog());
-                    }
-                }
+        // 取消顺风车主身份，已经被同一个 key 的新顺风车主替换了就不用移除了，但自己的顺风车还是要回调
+        if (displayFreeRideProviderMap.remove(provider.getDisplayFreeRideKey(), provider)) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "display. unregister free ride provider. %s",
+                        provider.getDisplayFreeRideLog());
             }
         }
 
         // 回调那些顺风车
-        if (freeRideProvider != null) {
-            Set<DisplayFreeRide> freeRideSet = freeRideProvider.getDisplayFreeRideSet();
-            if (freeRideSet == null || freeRideSet.size() == 0) {
-                return;
-            }
+        List<DisplayFreeRide> freeRides = provider.getDisplayFreeRiders().close();
+        if (freeRides.isEmpty()) {
+            return;
+        }
+
+        String providerId = provider.getDisplayFreeRideLog();
+        for (DisplayFreeRide childFreeRide : freeRides) {
+            if (!childFreeRide.isCanceled()) {
+                boolean success = childFreeRide.processDisplayFreeRide();
 
-            String providerId = freeRideProvider.getDisplayFreeRideLog();
-            for (DisplayFreeRide childFreeRide : freeRideSet) {
-                if (!childFreeRide.isCanceled()) {
-                    boolean success = childFreeRide.processDisplayFreeRide();
-
-                    if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                        SLog.d(NAME, "display. callback free ride. %s. %s  <-  %s",
-                                success ? "success" : "failed", childFreeRide.getDisplayFreeRideLog(), providerId);
-                    }
-                } else {
-                    SLog.w(NAME, "display. callback free ride. %s. %s  <-  %s",
-                            "canceled", childFreeRide.getDisplayFreeRideLog(), providerId);
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "display. callback free ride. %s. %s  <-  %s",
+                            success ? "success" : "failed", childFreeRide.getDisplayFreeRideLog(), providerId);
                 }
+            } else {
+                SLog.w(NAME, "display. callback free ride. %s. %s  <-  %s",
+                        "canceled", childFreeRide.getDisplayFreeRideLog(), providerId);
             }
-            freeRideSet.clear();
         }
     }
 
@@ -128,22 +123,23 @@ public class FreeRideManager {
             return false;
         }
 
-        synchronized (displayFreeRideProviderMapLock) {
-            DisplayFreeRide freeRideProvider = null;
-            if (displayFreeRideProviderMap != null) {
-                freeRideProvider = displayFreeRideProviderMap.get(childFreeRide.getDisplayFreeRideKey());
-            }
+        CacheKey key = childFreeRide.getDisplayFreeRideKey();
+        while (true) {
+            DisplayFreeRide freeRideProvider = displayFreeRideProviderMap.get(key);
             if (freeRideProvider == null) {
                 return false;
             }
 
-            freeRideProvider.byDisplayFreeRide(childFreeRide);
-
-            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                SLog.d(NAME, "display. by free ride. %s -> %s",
-                        childFreeRide.getDisplayFreeRideLog(), freeRideProvider.getDisplayFreeRideLog());
+            if (freeRideProvider.byDisplayFreeRide(childFreeRide)) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "display. by free ride. %s -> %s",
+                            childFreeRide.getDisplayFreeRideLog(), freeRideProvider.getDisplayFreeRideLog());
+                }
+                return true;
             }
-            return true;
+
+            // 顺风车主正在结束，已经不让上车了，替它移除后再找一次
+            displayFreeRideProviderMap.remove(key, freeRideProvider);
         }
     }
 
@@ -155,21 +151,11 @@ public class FreeRideManager {
             return;
         }
 
-        synchronized (downloadFreeRideProviderMapLock) {
-            if (downloadFreeRideProviderMap == null) {
-                synchronized (this) {
-                    if (downloadFreeRideProviderMap == null) {
-                        downloadFreeRideProviderMap = new WeakHashMap<>();
-                    }
-                }
-            }
-
-            downloadFreeRideProviderMap.put(provider.getDownloadFreeRideKey(), provider);
+        downloadFreeRideProviderMap.put(provider.getDownloadFreeRideKey(), provider);
 
-            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                SLog.d(NAME, "download. register free ride provider. %s",
-                        provider.getDownloadFreeRideLog());
-            }
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "download. register free ride provider. %s",
+                    provider.getDownloadFreeRideLog());
         }
     }
 
@@ -181,42 +167,33 @@ public class FreeRideManager {
             return;
         }
 
-        // 取消顺风车主身份
-        DownloadFreeRide freeRideProvider = null;
-        synchronized (downloadFreeRideProviderMapLock) {
-            if (downloadFreeRideProviderMap != null) {
-                freeRideProvider = downloadFreeRideProviderMap.remove(provider.getDownloadFreeRideKey());
-                if (freeRideProvider != null) {
-                    if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                        SLog.d(NAME, "download. unregister free ride provider. %s",
-                                freeRideProvider.getDownloadFreeRideLog());
-                    }
-                }
+        // 取消顺风车主身份，已经被同一个 key 的新顺风车主替换了就不用移除了，但自己的顺风车还是要回调
+        if (downloadFreeRideProviderMap.remove(provider.getDownloadFreeRideKey(), provider)) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "download. unregister free ride provider. %s",
+                        provider.getDownloadFreeRideLog());
             }
         }
 
         // 回调那些顺风车
-        if (freeRideProvider != null) {
-            Set<DownloadFreeRide> freeRideSet = freeRideProvider.getDownloadFreeRideSet();
-            if (freeRideSet == null || freeRideSet.size() == 0) {
-                return;
-            }
+        List<DownloadFreeRide> freeRides = provider.getDownloadFreeRiders().close();
+        if (freeRides.isEmpty()) {
+            return;
+        }
+
+        String providerId = provider.getDownloadFreeRideLog();
+        for (DownloadFreeRide childFreeRide : freeRides) {
+            if (!childFreeRide.isCanceled()) {
+                boolean success = childFreeRide.processDownloadFreeRide();
 
-            String providerId = freeRideProvider.getDownloadFreeRideLog();
-            for (DownloadFreeRide childFreeRide : freeRideSet) {
-                if (!childFreeRide.isCanceled()) {
-                    boolean success = childFreeRide.processDownloadFreeRide();
-
-                    if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                        SLog.d(NAME, "download. callback free ride. %s. %s  <-  %s",
-                                success ? "success" : "failed", childFreeRide.getDownloadFreeRideLog(), providerId);
-                    }
-                } else {
-                    SLog.w(NAME, "download. callback free ride. %s. %s  <-  %s",
-                            "canceled", childFreeRide.getDownloadFreeRideLog(), providerId);
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "download. callback free ride. %s. %s  <-  %s",
+                            success ? "success" : "failed", childFreeRide.getDownloadFreeRideLog(), providerId);
                 }
+            } else {
+                SLog.w(NAME, "download. callback free ride. %s. %s  <-  %s",
+                        "canceled", childFreeRide.getDownloadFreeRideLog(), providerId);
             }
-            freeRideSet.clear();
         }
     }
 
@@ -231,31 +208,257 @@ public class FreeRideManager {
             return false;
         }
 
-        synchronized (downloadFreeRideProviderMapLock) {
-            DownloadFreeRide freeRideProvider = null;
-            if (downloadFreeRideProviderMap != null) {
-                freeRideProvider = downloadFreeRideProviderMap.get(childFreeRide.getDownloadFreeRideKey());
-            }
+        CacheKey key = childFreeRide.getDownloadFreeRideKey();
+        while (true) {
+            DownloadFreeRide freeRideProvider = downloadFreeRideProviderMap.get(key);
             if (freeRideProvider == null) {
                 return false;
             }
 
-            freeRideProvider.byDownloadFreeRide(childFreeRide);
+            if (freeRideProvider.byDownloadFreeRide(childFreeRide)) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "download. by free ride. %s -> %s",
+                            childFreeRide.getDownloadFreeRideLog(), freeRideProvider.getDownloadFreeRideLog());
+                }
+                return true;
+            }
+
+            // 顺风车主正在结束，已经不让上车了，替它移除后再找一次
+            downloadFreeRideProviderMap.remove(key, freeRideProvider);
+        }
+    }
+
+    /**
+     * 成为加载顺风车主
+     */
+    public void registerLoadFreeRideProvider(@NonNull LoadFreeRide provider) {
+        if (!provider.canByLoadFreeRide()) {
+            return;
+        }
+
+        loadFreeRideProviderMap.put(provider.getLoadFreeRideKey(), provider);
 
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "load. register free ride provider. %s",
+                    provider.getLoadFreeRideLog());
+        }
+    }
+
+    /**
+     * 取消加载顺风车主身份并把结果交给那些加载顺风车。顺风车主在交出结果和执行结束时都会调用，第二次调用时已经没有顺风车了
+     */
+    public void unregisterLoadFreeRideProvider(@NonNull LoadFreeRide provider) {
+        if (!provider.canByLoadFreeRide()) {
+            return;
+        }
+
+        // 取消顺风车主身份，已经被同一个 key 的新顺风车主替换了就不用移除了，但自己的顺风车还是要回调
+        if (loadFreeRideProviderMap.remove(provider.getLoadFreeRideKey(), provider)) {
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
-                SLog.d(NAME, "download. by free ride. %s -> %s",
-                        childFreeRide.getDownloadFreeRideLog(), freeRideProvider.getDownloadFreeRideLog());
+                SLog.d(NAME, "load. unregister free ride provider. %s",
+                        provider.getLoadFreeRideLog());
+            }
+        }
+
+        // 把结果交给那些顺风车
+        List<LoadFreeRide> freeRides = provider.getLoadFreeRiders().close();
+        if (freeRides.isEmpty()) {
+            return;
+        }
+
+        LoadResult providerResult = provider.getLoadFreeRideResult();
+        String providerId = provider.getLoadFreeRideLog();
+        for (LoadFreeRide childFreeRide : freeRides) {
+            if (!childFreeRide.isCanceled()) {
+                boolean success = childFreeRide.processLoadFreeRide(providerResult);
+
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "load. callback free ride. %s. %s  <-  %s",
+                            success ? "success" : "failed", childFreeRide.getLoadFreeRideLog(), providerId);
+                }
+            } else {
+                SLog.w(NAME, "load. callback free ride. %s. %s  <-  %s",
+                        "canceled", childFreeRide.getLoadFreeRideLog(), providerId);
+            }
+        }
+    }
+
+    /**
+     * 坐个加载顺风车
+     *
+     * @param childFreeRide {@link LoadFreeRide}
+     * @return 坐上了
+     */
+    public boolean byLoadFreeRide(@NonNull LoadFreeRide childFreeRide) {
+        if (!childFreeRide.canByLoadFreeRide()) {
+            return false;
+        }
+
+        CacheKey key = childFreeRide.getLoadFreeRideKey();
+        while (true) {
+            LoadFreeRide freeRideProvider = loadFreeRideProviderMap.get(key);
+            if (freeRideProvider == null) {
+                return false;
+            }
+
+            if (freeRideProvider.byLoadFreeRide(childFreeRide)) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(NAME, "load. by free ride. %s -> %s",
+                            childFreeRide.getLoadFreeRideLog(), freeRideProvider.getLoadFreeRideLog());
+                }
+                return true;
             }
-            return true;
+
+            // 顺风车主正在结束，已经不让上车了，替它移除后再找一次
+            loadFreeRideProviderMap.remove(key, freeRideProvider);
         }
     }
 
+    /**
+     * 获取顺风车 key 占用的内存
+     */
+    public long getKeysSize() {
+        long size = 0;
+        size += (long) displayFreeRideProviderMap.size() * CacheKey.RETAINED_SIZE;
+        size += (long) downloadFreeRideProviderMap.size() * CacheKey.RETAINED_SIZE;
+        size += (long) loadFreeRideProviderMap.size() * CacheKey.RETAINED_SIZE;
+        return size;
+    }
+
     @NonNull
     @Override
     public String toString() {
         return NAME;
     }
 
+    /**
+     * 顺风车主表，用弱引用保存顺风车主，每注册 {@link #PURGE_THRESHOLD} 次清理一次已经被回收的顺风车主
+     */
+    private static class ProviderMap<T> {
+        @NonNull
+        private final ConcurrentHashMap<CacheKey, WeakReference<T>> map = new ConcurrentHashMap<>();
+        @NonNull
+        private final AtomicInteger putCount = new AtomicInteger();
+
+        void put(@NonNull CacheKey key, @NonNull T provider) {
+            map.put(key, new WeakReference<>(provider));
+            if (putCount.incrementAndGet() % PURGE_THRESHOLD == 0) {
+                purge();
+            }
+        }
+
+        @Nullable
+        T get(@NonNull CacheKey key) {
+            WeakReference<T> providerReference = map.get(key);
+            return providerReference != null ? providerReference.get() : null;
+        }
+
+        /**
+         * 只有 key 对应的还是这个顺风车主时才移除
+         *
+         * @return 移除了
+         */
+        boolean remove(@NonNull CacheKey key, @NonNull T provider) {
+            WeakReference<T> providerReference = map.get(key);
+            return providerReference != null && providerReference.get() == provider && map.remove(key, providerReference);
+        }
+
+        int size() {
+            return map.size();
+        }
+
+        /**
+         * 删除已经被回收的顺风车主
+         */
+        private void purge() {
+            for (Map.Entry<CacheKey, WeakReference<T>> entry : map.entrySet()) {
+                if (entry.getValue().get() == null) {
+                    map.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个顺风车主的所有顺风车，无锁的栈：上车是一次 CAS，顺风车主结束时用 {@link #close()} 一次性取出所有顺风车并关闭，关闭后就不能再上车了
+     */
+    public static class Riders<T> {
+        @SuppressWarnings("rawtypes")
+        private static final Node CLOSED = new Node<>(null);
+
+        @NonNull
+        private final AtomicReference<Node<T>> head = new AtomicReference<>();
+
+        /**
+         * 上车
+         *
+         * @return false：已经关闭了
+         */
+        public boolean add(@NonNull T rider) {
+            Node<T> node = new Node<>(rider);
+            while (true) {
+                Node<T> current = head.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+                node.next = current;
+                if (head.compareAndSet(current, node)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 没有顺风车或者已经关闭了
+         */
+        public boolean isEmpty() {
+            Node<T> current = head.get();
+            return current == null || current == CLOSED;
+        }
+
+        /**
+         * 当前所有顺风车，按上车的先后排序，已经关闭了就返回空列表
+         */
+        @NonNull
+        public List<T> snapshot() {
+            return toList(head.get());
+        }
+
+        /**
+         * 关闭并取出所有顺风车，按上车的先后排序，只有第一次调用能取到
+         */
+        @NonNull
+        @SuppressWarnings("unchecked")
+        List<T> close() {
+            return toList(head.getAndSet((Node<T>) CLOSED));
+        }
+
+        @NonNull
+        private static <T> List<T> toList(@Nullable Node<T> head) {
+            if (head == null || head == CLOSED) {
+                return Collections.emptyList();
+            }
+
+            List<T> list = new ArrayList<>(4);
+            for (Node<T> node = head; node != null; node = node.next) {
+                list.add(node.value);
+            }
+            Collections.reverse(list);
+            return list;
+        }
+
+        private static class Node<T> {
+            @Nullable
+            private final T value;
+            @Nullable
+            private Node<T> next;
+
+            Node(@Nullable T value) {
+                this.value = value;
+            }
+        }
+    }
+
     /**
      * 显示顺风车
      */
@@ -269,7 +472,7 @@ public class FreeRideManager {
          * 获取显示顺风车KEY
          */
         @NonNull
-        String getDisplayFreeRideKey();
+        CacheKey getDisplayFreeRideKey();
 
         /**
          * 获取日志
@@ -284,14 +487,16 @@ public class FreeRideManager {
 
         /**
          * 让别人搭乘显示顺风车
+         *
+         * @return false：自己已经结束了，不能再上车了
          */
-        void byDisplayFreeRide(DisplayFreeRide request);
+        boolean byDisplayFreeRide(@NonNull DisplayFreeRide request);
 
         /**
-         * 获取显示顺风车集合
+         * 获取显示顺风车
          */
-        @Nullable
-        Set<DisplayFreeRide> getDisplayFreeRideSet();
+        @NonNull
+        Riders<DisplayFreeRide> getDisplayFreeRiders();
 
         /**
          * 执行结束，处理那些坐显示顺风车的请求
@@ -314,7 +519,7 @@ public class FreeRideManager {
          * 获取下载顺风车KEY
          */
         @NonNull
-        String getDownloadFreeRideKey();
+        CacheKey getDownloadFreeRideKey();
 
         /**
          * 获取日志
@@ -329,14 +534,16 @@ public class FreeRideManager {
 
         /**
          * 让别人搭乘下载顺风车
+         *
+         * @return false：自己已经结束了，不能再上车了
          */
-        void byDownloadFreeRide(DownloadFreeRide request);
+        boolean byDownloadFreeRide(@NonNull DownloadFreeRide request);
 
         /**
-         * 获取下载顺风车集合
+         * 获取下载顺风车
          */
-        @Nullable
-        Set<DownloadFreeRide> getDownloadFreeRideSet();
+        @NonNull
+        Riders<DownloadFreeRide> getDownloadFreeRiders();
 
         /**
          * 执行结束，处理那些坐下载顺风车的请求
@@ -345,4 +552,60 @@ public class FreeRideManager {
          */
         boolean processDownloadFreeRide();
     }
+
+    /**
+     * 加载顺风车
+     */
+    public interface LoadFreeRide {
+        /**
+         * 已取消
+         */
+        boolean isCanceled();
+
+        /**
+         * 获取加载顺风车KEY
+         */
+        @NonNull
+        CacheKey getLoadFreeRideKey();
+
+        /**
+         * 获取日志
+         */
+        @NonNull
+        String getLoadFreeRideLog();
+
+        /**
+         * 是否可以使用加载顺风车功能
+         */
+        boolean canByLoadFreeRide();
+
+        /**
+         * 让别人搭乘加载顺风车
+         *
+         * @return false：自己已经结束了，不能再上车了
+         */
+        boolean byLoadFreeRide(@NonNull LoadFreeRide request);
+
+        /**
+         * 获取加载顺风车
+         */
+        @NonNull
+        Riders<LoadFreeRide> getLoadFreeRiders();
+
+        /**
+         * 获取要共享给顺风车的结果
+         *
+         * @return null：加载失败了
+         */
+        @Nullable
+        LoadResult getLoadFreeRideResult();
+
+        /**
+         * 顺风车主执行结束，处理共享的结果
+         *
+         * @param providerResult 顺风车主共享的结果，null：顺风车主加载失败了
+         * @return 成功拿到了共享的结果
+         */
+        boolean processLoadFreeRide(@Nullable LoadResult providerResult);
+    }
 }
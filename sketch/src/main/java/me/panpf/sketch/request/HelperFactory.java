@@ -19,11 +19,13 @@ package me.panpf.sketch.request;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.List;
+
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchView;
 
 /**
- * 负责创建 {@link DisplayHelper}、{@link LoadHelper}、{@link DownloadHelper}
+ * 负责创建 {@link DisplayHelper}、{@link LoadHelper}、{@link DownloadHelper}、{@link PrefetchHelper}
  */
 @SuppressWarnings("WeakerAccess")
 public class HelperFactory {
@@ -42,6 +44,11 @@ public class HelperFactory {
         return new LoadHelper(sketch, uri, listener);
     }
 
+    @NonNull
+    public PrefetchHelper getPrefetchHelper(@NonNull Sketch sketch, @NonNull List<String> uris, @Nullable DisplayOptions displayOptions) {
+        return new PrefetchHelper(sketch, uris, displayOptions);
+    }
+
     @NonNull
     public DisplayHelper getDisplayHelper(@NonNull Sketch sketch, @Nullable String uri, @NonNull SketchView sketchView) {
         if (this.cacheDisplayHelper == null) {
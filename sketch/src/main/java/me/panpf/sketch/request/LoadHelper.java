@@ -26,7 +26,9 @@ import me.panpf.sketch.Configuration;
 import me.panpf.sketch.SLog;
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.decode.ExifThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ImageType;
+import me.panpf.sketch.decode.MediaStoreThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ProcessedResultCacheProcessor;
 import me.panpf.sketch.decode.ThumbnailModeDecodeHelper;
 import me.panpf.sketch.process.ImageProcessor;
@@ -233,6 +235,28 @@ public class LoadHelper {
         return this;
     }
 
+    /**
+     * 开启 exif 缩略图模式，图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，参考 {@link ExifThumbnailDecodeHelper}
+     *
+     * @return {@link LoadHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadHelper exifThumbnailMode() {
+        loadOptions.setExifThumbnailMode(true);
+        return this;
+    }
+
+    /**
+     * 开启系统媒体库缩略图模式，系统媒体库中已有的缩略图足够大时直接读取缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     *
+     * @return {@link LoadHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadHelper mediaStoreThumbnailMode() {
+        loadOptions.setMediaStoreThumbnailMode(true);
+        return this;
+    }
+
     /**
      * 为了加快速度，将经过 {@link #processor(ImageProcessor)}、{@link #resize(Resize)} 或 {@link #thumbnailMode()} 处理过的图片保存到磁盘缓存中，下次就直接读取，参考 {@link ProcessedResultCacheProcessor}
      *
@@ -255,6 +279,17 @@ public class LoadHelper {
         return this;
     }
 
+    /**
+     * 共享加载结果，同一个 key 同时进行中的多个 load 请求只解码一次，用完后必须调用 {@link LoadResult#release()}
+     *
+     * @return {@link LoadHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadHelper shareLoadResult() {
+        loadOptions.setShareLoadResult(true);
+        return this;
+    }
+
     /**
      * 批量设置加载参数（完全覆盖）
      *
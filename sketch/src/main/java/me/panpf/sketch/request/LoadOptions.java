@@ -24,7 +24,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.cache.BitmapPool;
+import me.panpf.sketch.decode.ExifThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ImageType;
+import me.panpf.sketch.decode.MediaStoreThumbnailDecodeHelper;
 import me.panpf.sketch.decode.ProcessedResultCacheProcessor;
 import me.panpf.sketch.decode.ThumbnailModeDecodeHelper;
 import me.panpf.sketch.process.ImageProcessor;
@@ -67,6 +69,16 @@ public class LoadOptions extends DownloadOptions {
      */
     private boolean thumbnailMode;
 
+    /**
+     * 开启 exif 缩略图模式，图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，参考 {@link ExifThumbnailDecodeHelper}
+     */
+    private boolean exifThumbnailMode;
+
+    /**
+     * 开启系统媒体库缩略图模式，系统媒体库中已有的缩略图足够大时直接读取缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     */
+    private boolean mediaStoreThumbnailMode;
+
     /**
      * 图片处理器，在图片读取到内存后对图片进行修改
      */
@@ -96,6 +108,18 @@ public class LoadOptions extends DownloadOptions {
      */
     private boolean correctImageOrientationDisabled;
 
+    /**
+     * 共享加载结果，同一个 key 同时进行中的多个 load 请求只解码一次，结果通过 {@link LoadResult#getRefBitmap()} 共享，
+     * 用完后必须调用 {@link LoadResult#release()}，并且不能回收 {@link LoadResult#getBitmap()}。只对 load 请求有效
+     */
+    private boolean shareLoadResult;
+
+    /**
+     * 缓存 {@link #makeKey()} 的结果，属性没变时不用重新拼接
+     */
+    @NonNull
+    private final OptionsKeyCache keyCache = new OptionsKeyCache();
+
 
     public LoadOptions() {
         reset();
@@ -332,6 +356,46 @@ public class LoadOptions extends DownloadOptions {
         return this;
     }
 
+    /**
+     * 是否开启 exif 缩略图模式，图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，参考 {@link ExifThumbnailDecodeHelper}
+     */
+    public boolean isExifThumbnailMode() {
+        return exifThumbnailMode;
+    }
+
+    /**
+     * 设置是否开启 exif 缩略图模式，图片自带的 exif 缩略图足够大时直接解码 exif 缩略图，参考 {@link ExifThumbnailDecodeHelper}
+     *
+     * @param exifThumbnailMode exif 缩略图模式
+     * @return {@link LoadOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadOptions setExifThumbnailMode(boolean exifThumbnailMode) {
+        this.exifThumbnailMode = exifThumbnailMode;
+        return this;
+    }
+
+    /**
+     * 是否开启系统媒体库缩略图模式，系统媒体库中已有的缩略图足够大时直接读取缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     */
+    public boolean isMediaStoreThumbnailMode() {
+        return mediaStoreThumbnailMode;
+    }
+
+    /**
+     * 设置是否开启系统媒体库缩略图模式，系统媒体库中已有的缩略图足够大时直接读取缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     * <p>
+     * 只有缩略图不比原图按 maxSize 或 resize 缩小后的尺寸小时才会使用，所以不影响请求 key，内存缓存和磁盘缓存中的图片都是通用的
+     *
+     * @param mediaStoreThumbnailMode 系统媒体库缩略图模式
+     * @return {@link LoadOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadOptions setMediaStoreThumbnailMode(boolean mediaStoreThumbnailMode) {
+        this.mediaStoreThumbnailMode = mediaStoreThumbnailMode;
+        return this;
+    }
+
     /**
      * 是否为了加快速度，将经过 {@link #setProcessor(ImageProcessor)}、{@link #setResize(Resize)} 或 {@link #setThumbnailMode(boolean)} 处理过的图片保存到磁盘缓存中，下次就直接读取，参考 {@link ProcessedResultCacheProcessor}
      */
@@ -389,6 +453,26 @@ public class LoadOptions extends DownloadOptions {
         return this;
     }
 
+    /**
+     * 是否共享加载结果
+     */
+    public boolean isShareLoadResult() {
+        return shareLoadResult;
+    }
+
+    /**
+     * 设置是否共享加载结果，同一个 key 同时进行中的多个 load 请求只解码一次。开启后 {@link LoadResult} 持有一个 {@link LoadResult#getRefBitmap()} 的引用，
+     * 用完后必须调用 {@link LoadResult#release()}，并且不能回收 {@link LoadResult#getBitmap()}
+     *
+     * @param shareLoadResult true：共享
+     * @return {@link LoadOptions}. 为了支持链式调用
+     */
+    @NonNull
+    public LoadOptions setShareLoadResult(boolean shareLoadResult) {
+        this.shareLoadResult = shareLoadResult;
+        return this;
+    }
+
     @Override
     public void reset() {
         super.reset();
@@ -401,9 +485,12 @@ public class LoadOptions extends DownloadOptions {
         bitmapConfig = null;
         inPreferQualityOverSpeed = false;
         thumbnailMode = false;
+        exifThumbnailMode = false;
+        mediaStoreThumbnailMode = false;
         cacheProcessedImageInDisk = false;
         bitmapPoolDisabled = false;
         correctImageOrientationDisabled = false;
+        shareLoadResult = false;
     }
 
     /**
@@ -427,15 +514,49 @@ public class LoadOptions extends DownloadOptions {
         bitmapConfig = options.bitmapConfig;
         inPreferQualityOverSpeed = options.inPreferQualityOverSpeed;
         thumbnailMode = options.thumbnailMode;
+        exifThumbnailMode = options.exifThumbnailMode;
+        mediaStoreThumbnailMode = options.mediaStoreThumbnailMode;
         cacheProcessedImageInDisk = options.cacheProcessedImageInDisk;
         bitmapPoolDisabled = options.bitmapPoolDisabled;
         correctImageOrientationDisabled = options.correctImageOrientationDisabled;
+        shareLoadResult = options.shareLoadResult;
     }
 
+    /**
+     * 生成选项 key，属性和上次一样时直接返回上次生成的 key，参考 {@link OptionsKeyCache}
+     */
     @NonNull
     @Override
     public String makeKey() {
+        return keyCache.get(this);
+    }
+
+    @NonNull
+    String buildKey() {
         StringBuilder builder = new StringBuilder();
+        appendSourceKey(builder);
+        if (processor != null) {
+            // 旋转图片处理器在旋转0度或360度时不用旋转处理，因此也不会返回key，因此这里过滤一下
+            String processorKey = processor.getKey();
+            if (!TextUtils.isEmpty(processorKey)) {
+                if (builder.length() > 0) builder.append('-');
+                builder.append(processorKey);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成不包含 processor 的选项 key，只有影响解码结果的属性，用来缓存解码后、处理前的原图
+     */
+    @NonNull
+    public String makeSourceKey() {
+        StringBuilder builder = new StringBuilder();
+        appendSourceKey(builder);
+        return builder.toString();
+    }
+
+    private void appendSourceKey(@NonNull StringBuilder builder) {
         if (maxSize != null) {
             if (builder.length() > 0) builder.append('-');
             builder.append(maxSize.getKey());
@@ -449,6 +570,10 @@ public class LoadOptions extends DownloadOptions {
                 builder.append("thumbnailMode");
             }
         }
+        if (exifThumbnailMode && (maxSize != null || resize != null)) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append("exifThumbnailMode");
+        }
         if (correctImageOrientationDisabled) {
             if (builder.length() > 0) builder.append('-');
             builder.append("ignoreOrientation");
@@ -465,15 +590,6 @@ public class LoadOptions extends DownloadOptions {
             if (builder.length() > 0) builder.append('-');
             builder.append(bitmapConfig.name());
         }
-        if (processor != null) {
-            // 旋转图片处理器在旋转0度或360度时不用旋转处理，因此也不会返回key，因此这里过滤一下
-            String processorKey = processor.getKey();
-            if (!TextUtils.isEmpty(processorKey)) {
-                if (builder.length() > 0) builder.append('-');
-                builder.append(processorKey);
-            }
-        }
-        return builder.toString();
     }
 
     @NonNull
@@ -25,6 +25,7 @@ import me.panpf.sketch.Sketch;
 import me.panpf.sketch.cache.BitmapPoolUtils;
 import me.panpf.sketch.datasource.DataSource;
 import me.panpf.sketch.decode.BitmapDecodeResult;
+import me.panpf.sketch.decode.DecodeCanceller;
 import me.panpf.sketch.decode.DecodeException;
 import me.panpf.sketch.decode.DecodeResult;
 import me.panpf.sketch.decode.GifDecodeResult;
@@ -44,13 +45,16 @@ public class LoadRequest extends FreeRideDownloadRequest {
     private LoadListener loadListener;
 
     @Nullable
-    private LoadResult loadResult;
+    protected LoadResult loadResult;
+    @NonNull
+    private DecodeCanceller decodeCanceller;
 
     public LoadRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key, @NonNull LoadOptions loadOptions,
                        @Nullable LoadListener loadListener, @Nullable DownloadProgressListener downloadProgressListener) {
         super(sketch, uri, uriModel, key, loadOptions, null, downloadProgressListener);
 
         this.loadListener = loadListener;
+        this.decodeCanceller = new DecodeCanceller(this);
 
         setLogName("LoadRequest");
     }
@@ -97,6 +101,14 @@ public class LoadRequest extends FreeRideDownloadRequest {
         return getDataSource();
     }
 
+    /**
+     * 获取解码取消器，用于在请求取消后中断正在进行的解码
+     */
+    @NonNull
+    public DecodeCanceller getDecodeCanceller() {
+        return decodeCanceller;
+    }
+
     /**
      * 获取加载结果
      */
@@ -105,6 +117,13 @@ public class LoadRequest extends FreeRideDownloadRequest {
         return loadResult;
     }
 
+    /**
+     * 已经没有人需要这个请求的结果了，可以中断加载。一般就是已取消，坐顺风车的请求还在等结果时就算自己取消了也要继续加载
+     */
+    public boolean isAbandoned() {
+        return isCanceled();
+    }
+
     @Override
     protected void doError(@NonNull ErrorCause errorCause) {
         super.doError(errorCause);
@@ -118,6 +137,10 @@ public class LoadRequest extends FreeRideDownloadRequest {
     protected void doCancel(@NonNull CancelCause cancelCause) {
         super.doCancel(cancelCause);
 
+        if (isAbandoned()) {
+            decodeCanceller.cancel();
+        }
+
         if (loadListener != null) {
             postRunCanceled();
         }
@@ -167,7 +190,7 @@ public class LoadRequest extends FreeRideDownloadRequest {
 
     @Override
     protected void runLoad() {
-        if (isCanceled()) {
+        if (isAbandoned()) {
             if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
                 SLog.d(getLogName(), "Request end before decode. %s. %s", getThreadName(), getKey());
             }
@@ -179,6 +202,12 @@ public class LoadRequest extends FreeRideDownloadRequest {
         try {
             decodeResult = getConfiguration().getDecoder().decode(this);
         } catch (DecodeException e) {
+            if (e.getErrorCause() == ErrorCause.DECODE_CANCELED || isAbandoned()) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(getLogName(), "Request end during decode. %s. %s", getThreadName(), getKey());
+                }
+                return;
+            }
             e.printStackTrace();
             doError(e.getErrorCause());
             return;
@@ -205,7 +234,7 @@ public class LoadRequest extends FreeRideDownloadRequest {
                 SLog.d(getLogName(), "Decode success. bitmapInfo: %s. %s. %s", imageInfo, getThreadName(), getKey());
             }
 
-            if (isCanceled()) {
+            if (isAbandoned()) {
                 BitmapPoolUtils.freeBitmapToPool(bitmap, getConfiguration().getBitmapPool());
 
                 if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
@@ -230,7 +259,7 @@ public class LoadRequest extends FreeRideDownloadRequest {
                 SLog.d(getLogName(), "Decode gif success. gifInfo: %s. %s. %s", gifDrawable.getInfo(), getThreadName(), getKey());
             }
 
-            if (isCanceled()) {
+            if (isAbandoned()) {
                 gifDrawable.recycle();
 
                 if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
@@ -254,7 +283,9 @@ public class LoadRequest extends FreeRideDownloadRequest {
     @Override
     protected void runCompletedInMainThread() {
         if (isCanceled()) {
-            if (loadResult != null && loadResult.getBitmap() != null) {
+            if (loadResult != null && loadResult.getRefBitmap() != null) {
+                loadResult.release();
+            } else if (loadResult != null && loadResult.getBitmap() != null) {
                 BitmapPoolUtils.freeBitmapToPool(loadResult.getBitmap(), getConfiguration().getBitmapPool());
             } else if (loadResult != null && loadResult.getGifDrawable() != null) {
                 loadResult.getGifDrawable().recycle();
@@ -270,6 +301,9 @@ public class LoadRequest extends FreeRideDownloadRequest {
 
         if (loadListener != null && loadResult != null) {
             loadListener.onCompleted(loadResult);
+        } else if (loadResult != null) {
+            // 没有人接收共享的结果，直接释放
+            loadResult.release();
         }
     }
 
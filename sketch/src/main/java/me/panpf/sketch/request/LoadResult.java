@@ -24,6 +24,7 @@ import androidx.annotation.Nullable;
 import me.panpf.sketch.decode.DecodeResult;
 import me.panpf.sketch.decode.ImageAttrs;
 import me.panpf.sketch.drawable.SketchGifDrawable;
+import me.panpf.sketch.drawable.SketchRefBitmap;
 
 @SuppressWarnings("WeakerAccess")
 public class LoadResult {
@@ -31,6 +32,9 @@ public class LoadResult {
     private Bitmap bitmap;
     @Nullable
     private SketchGifDrawable gifDrawable;
+    @Nullable
+    private SketchRefBitmap refBitmap;
+    private boolean released;
     @NonNull
     private ImageFrom imageFrom;
     @NonNull
@@ -50,11 +54,40 @@ public class LoadResult {
         this.imageFrom = decodeResult.getImageFrom();
     }
 
+    /**
+     * 共享的加载结果，参考 {@link LoadOptions#setShareLoadResult(boolean)}，创建时已经持有了一个等待使用引用
+     */
+    public LoadResult(@NonNull SketchRefBitmap refBitmap, @NonNull ImageFrom imageFrom) {
+        this.refBitmap = refBitmap;
+        this.bitmap = refBitmap.getBitmap();
+
+        this.imageAttrs = refBitmap.getAttrs();
+        this.imageFrom = imageFrom;
+    }
+
     @Nullable
     public Bitmap getBitmap() {
         return bitmap;
     }
 
+    /**
+     * 共享的加载结果，只有开启了 {@link LoadOptions#setShareLoadResult(boolean)} 才有
+     */
+    @Nullable
+    public SketchRefBitmap getRefBitmap() {
+        return refBitmap;
+    }
+
+    /**
+     * 释放对共享的加载结果的引用，所有引用都释放后图片会回收到 bitmap pool 中，释放后就不能再使用 {@link #getBitmap()} 了。不是共享的结果什么也不做，可以多次调用
+     */
+    public synchronized void release() {
+        if (refBitmap != null && !released) {
+            released = true;
+            refBitmap.setIsWaitingUse("LoadResult:waitingUse:release", false);
+        }
+    }
+
     @Nullable
     public SketchGifDrawable getGifDrawable() {
         return gifDrawable;
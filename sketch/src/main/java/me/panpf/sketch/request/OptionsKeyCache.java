@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.request;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.process.ImageProcessor;
+
+/**
+ * {@link LoadOptions#makeKey()} 的缓存，记录上次生成 key 时用到的所有属性，属性都没变时直接返回上次的 key。
+ * <p>
+ * {@link DisplayHelper} 是复用的，列表中同一种 View 每次绑定时的选项几乎都是一样的，这样在主线程上就不用每次都拼接字符串了。
+ * 属性按值比较，{@link ImageProcessor} 按引用比较，因此 {@link ImageProcessor} 的 key 在其生命周期内不能变
+ */
+class OptionsKeyCache {
+    private static final int FLAG_THUMBNAIL_MODE = 1;
+    private static final int FLAG_EXIF_THUMBNAIL_MODE = 1 << 1;
+    private static final int FLAG_IGNORE_ORIENTATION = 1 << 2;
+    private static final int FLAG_LOW_QUALITY = 1 << 3;
+    private static final int FLAG_PREFER_QUALITY = 1 << 4;
+
+    @Nullable
+    private String key;
+
+    private boolean hasMaxSize;
+    private int maxWidth;
+    private int maxHeight;
+
+    @Nullable
+    private Class<? extends Resize> resizeClass;
+    private int resizeWidth;
+    private int resizeHeight;
+    @Nullable
+    private ImageView.ScaleType resizeScaleType;
+    @Nullable
+    private Resize.Mode resizeMode;
+
+    private int flags;
+    @Nullable
+    private Bitmap.Config bitmapConfig;
+    @Nullable
+    private ImageProcessor processor;
+
+    @NonNull
+    synchronized String get(@NonNull LoadOptions options) {
+        MaxSize maxSize = options.getMaxSize();
+        Resize resize = options.getResize();
+        int newFlags = makeFlags(options);
+
+        String cachedKey = key;
+        if (cachedKey != null
+                && sameMaxSize(maxSize)
+                && sameResize(resize)
+                && flags == newFlags
+                && bitmapConfig == options.getBitmapConfig()
+                && processor == options.getProcessor()) {
+            return cachedKey;
+        }
+
+        String newKey = options.buildKey();
+
+        this.key = newKey;
+        this.hasMaxSize = maxSize != null;
+        this.maxWidth = maxSize != null ? maxSize.getWidth() : 0;
+        this.maxHeight = maxSize != null ? maxSize.getHeight() : 0;
+        this.resizeClass = resize != null ? resize.getClass() : null;
+        this.resizeWidth = resize != null ? resize.getWidth() : 0;
+        this.resizeHeight = resize != null ? resize.getHeight() : 0;
+        this.resizeScaleType = resize != null ? resize.getScaleType() : null;
+        this.resizeMode = resize != null ? resize.getMode() : null;
+        this.flags = newFlags;
+        this.bitmapConfig = options.getBitmapConfig();
+        this.processor = options.getProcessor();
+        return newKey;
+    }
+
+    private boolean sameMaxSize(@Nullable MaxSize maxSize) {
+        if (maxSize == null) {
+            return !hasMaxSize;
+        }
+        return hasMaxSize && maxWidth == maxSize.getWidth() && maxHeight == maxSize.getHeight();
+    }
+
+    private boolean sameResize(@Nullable Resize resize) {
+        if (resize == null) {
+            return resizeClass == null;
+        }
+        return resizeClass == resize.getClass()
+                && resizeWidth == resize.getWidth()
+                && resizeHeight == resize.getHeight()
+                && resizeScaleType == resize.getScaleType()
+                && resizeMode == resize.getMode();
+    }
+
+    private static int makeFlags(@NonNull LoadOptions options) {
+        int flags = 0;
+        if (options.isThumbnailMode()) flags |= FLAG_THUMBNAIL_MODE;
+        if (options.isExifThumbnailMode()) flags |= FLAG_EXIF_THUMBNAIL_MODE;
+        if (options.isCorrectImageOrientationDisabled()) flags |= FLAG_IGNORE_ORIENTATION;
+        if (options.isLowQualityImage()) flags |= FLAG_LOW_QUALITY;
+        if (options.isInPreferQualityOverSpeed()) flags |= FLAG_PREFER_QUALITY;
+        return flags;
+    }
+}
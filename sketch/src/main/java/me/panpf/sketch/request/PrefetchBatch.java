@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.panpf.sketch.request;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.cache.MemoryCacheUtils;
+import me.panpf.sketch.drawable.SketchRefBitmap;
+import me.panpf.sketch.uri.UriModel;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 一批预加载请求，由 {@link PrefetchHelper#commit()} 创建，可以通过 {@link #cancel()} 整批取消
+ * <p>
+ * 预加载的优先级最低：同一时间只有一个请求在执行，并且只在线程池空闲时才提交下一个，前台有请求在排队时就等一会儿再看，
+ * 这样预加载既不会插在显示请求前面，也不会把线程池的队列塞满导致显示请求被丢掉
+ * <p>
+ * 除了 {@link #cancel()} 以外都在主线程中执行，查询状态和数量的方法可以在任意线程调用
+ */
+@SuppressWarnings("WeakerAccess")
+public class PrefetchBatch {
+    private static final String NAME = "PrefetchBatch";
+
+    /**
+     * 前台有请求在排队时，过多久再看一下
+     */
+    private static final int THROTTLE_DELAY_MILLIS = 100;
+
+    /**
+     * 单个请求最长等多久，线程池的队列满了时排在最前面的任务会被丢掉，被丢掉的请求永远不会结束，超时了就取消它继续下一个
+     */
+    private static final int REQUEST_TIMEOUT_MILLIS = 60 * 1000;
+
+    @NonNull
+    private final Sketch sketch;
+    @NonNull
+    private final List<String> uris;
+    @NonNull
+    private final DisplayOptions displayOptions;
+    @NonNull
+    private final String optionsKey;
+    private final boolean diskCacheOnly;
+
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final Runnable nextRunnable = new Runnable() {
+        @Override
+        public void run() {
+            next();
+        }
+    };
+    @NonNull
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            PrefetchRequest request = currentRequest;
+            if (request != null) {
+                SLog.w(NAME, "Request timeout. %s", request.getKey());
+                request.cancel(CancelCause.BE_CANCELLED);
+            }
+        }
+    };
+
+    // nextIndex 和 currentRequest 只在主线程中读写，下面几个只在主线程中写，但可以在任意线程中读，所以是 volatile 的
+    private int nextIndex;
+    @Nullable
+    private PrefetchRequest currentRequest;
+    private volatile int completedCount;
+    private volatile int failedCount;
+    private volatile boolean finished;
+    private volatile boolean canceled;
+
+    PrefetchBatch(@NonNull Sketch sketch, @NonNull List<String> uris, @NonNull DisplayOptions displayOptions,
+                  boolean diskCacheOnly) {
+        this.sketch = sketch;
+        this.uris = uris;
+        this.displayOptions = displayOptions;
+        this.optionsKey = displayOptions.makeKey();
+        this.diskCacheOnly = diskCacheOnly;
+    }
+
+    void start() {
+        handler.post(nextRunnable);
+    }
+
+    /**
+     * 取消这一批还没完成的预加载，已经放入缓存的不受影响，可以在任意线程调用
+     */
+    public void cancel() {
+        if (canceled) {
+            return;
+        }
+        canceled = true;
+
+        if (SketchUtils.isMainThread()) {
+            cancelInMainThread();
+        } else {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    cancelInMainThread();
+                }
+            });
+        }
+    }
+
+    private void cancelInMainThread() {
+        handler.removeCallbacks(nextRunnable);
+        handler.removeCallbacks(timeoutRunnable);
+
+        PrefetchRequest request = currentRequest;
+        currentRequest = null;
+        if (request != null) {
+            request.cancel(CancelCause.BE_CANCELLED);
+        }
+
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "Canceled. %s", this);
+        }
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * 取消了或者所有 uri 都处理完了，可以在任意线程调用
+     */
+    public boolean isFinished() {
+        return canceled || finished;
+    }
+
+    /**
+     * uri 的总数
+     */
+    public int getCount() {
+        return uris.size();
+    }
+
+    /**
+     * 已经在缓存中的数量，包括本来就在缓存中的，可以在任意线程调用
+     */
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * 失败的数量，包括不支持的 uri 和超时的，可以在任意线程调用
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    void onRequestFinished(@NonNull PrefetchRequest request, boolean success) {
+        if (request != currentRequest) {
+            return;
+        }
+        handler.removeCallbacks(timeoutRunnable);
+        currentRequest = null;
+
+        if (success) {
+            completedCount++;
+        } else {
+            failedCount++;
+        }
+
+        next();
+    }
+
+    private void next() {
+        if (canceled || currentRequest != null) {
+            return;
+        }
+
+        Configuration configuration = sketch.getConfiguration();
+        RequestExecutor executor = configuration.getExecutor();
+        if (executor.isShutdown()) {
+            canceled = true;
+            return;
+        }
+
+        // 前台有请求在排队就先让路，等会儿再看
+        if (executor.isBusy()) {
+            handler.removeCallbacks(nextRunnable);
+            handler.postDelayed(nextRunnable, THROTTLE_DELAY_MILLIS);
+            return;
+        }
+
+        while (nextIndex < uris.size()) {
+            String uri = uris.get(nextIndex++);
+            UriModel uriModel = !TextUtils.isEmpty(uri) ? UriModel.match(sketch, uri) : null;
+            if (uriModel == null) {
+                SLog.e(NAME, "Not support uri. %s", uri);
+                failedCount++;
+                continue;
+            }
+
+            // 生成和 DisplayHelper 一样的请求 key
+            String key = SketchUtils.makeRequestKey(uri, uriModel, optionsKey);
+            CacheKey cacheKey = CacheKey.of(key);
+
+            // 已经在内存缓存中了就不用提交了
+            if (!diskCacheOnly) {
+                SketchRefBitmap cachedRefBitmap = MemoryCacheUtils.get(configuration.getMemoryCache(), cacheKey);
+                if (cachedRefBitmap != null && !cachedRefBitmap.isRecycled()) {
+                    completedCount++;
+                    continue;
+                }
+            }
+
+            PrefetchRequest request = configuration.getRequestFactory().newPrefetchRequest(sketch, uri, uriModel, key,
+                    displayOptions, diskCacheOnly, this);
+            request.setCacheKey(cacheKey);
+            currentRequest = request;
+            handler.postDelayed(timeoutRunnable, REQUEST_TIMEOUT_MILLIS);
+
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(NAME, "Run dispatch submitted. %d/%d. %s", nextIndex, uris.size(), key);
+            }
+            request.submit();
+            return;
+        }
+
+        finished = true;
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "Finished. %s", this);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("%s(count=%d,completed=%d,failed=%d,diskCacheOnly=%s,canceled=%s)",
+                NAME, uris.size(), completedCount, failedCount, diskCacheOnly, canceled);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.panpf.sketch.request;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.Sketch;
+
+/**
+ * 预加载 Helper，负责组织、收集、初始化预加载参数，最后执行 commit() 提交一批预加载请求
+ * <p>
+ * 请求 key 按照 {@link DisplayHelper} 的规则生成，这样显示时才能命中预加载的缓存。但是没有 View，所以：
+ * <ul>
+ * <li>不能使用 {@link ShapeSize#byViewFixedSize()} 和 {@link Resize#byViewFixedSize()}</li>
+ * <li>显示时如果 View 的宽高是固定的，{@link DisplayHelper} 会用 View 的宽高作为 {@link MaxSize}，这里只能用默认的 {@link MaxSize}，
+ * 所以最好在显示选项中明确设置 {@link MaxSize} 或者带 ScaleType 的 {@link Resize}</li>
+ * </ul>
+ */
+@SuppressWarnings("WeakerAccess")
+public class PrefetchHelper {
+
+    @NonNull
+    private Sketch sketch;
+    @NonNull
+    private List<String> uris;
+    @NonNull
+    private DisplayOptions displayOptions = new DisplayOptions();
+    private boolean diskCacheOnly;
+
+    public PrefetchHelper(@NonNull Sketch sketch, @NonNull List<String> uris, @Nullable DisplayOptions displayOptions) {
+        this.sketch = sketch;
+        this.uris = new ArrayList<>(uris);
+        this.displayOptions.copy(displayOptions);
+    }
+
+    /**
+     * 只下载到磁盘缓存，不解码也不放入内存缓存。本地图片本来就在磁盘上，会直接跳过
+     *
+     * @return {@link PrefetchHelper}. 为了支持链式调用
+     */
+    @NonNull
+    public PrefetchHelper diskCacheOnly() {
+        this.diskCacheOnly = true;
+        return this;
+    }
+
+    /**
+     * 提交这一批预加载请求，默认解码并放入内存缓存，显示选项禁用了内存缓存时只下载到磁盘缓存
+     *
+     * @return {@link PrefetchBatch} 可以通过 {@link PrefetchBatch#cancel()} 整批取消
+     */
+    @NonNull
+    public PrefetchBatch commit() {
+        checkParams();
+
+        boolean diskCacheOnly = this.diskCacheOnly || displayOptions.isCacheInMemoryDisabled();
+        PrefetchBatch batch = new PrefetchBatch(sketch, uris, displayOptions, diskCacheOnly);
+        batch.start();
+        return batch;
+    }
+
+    /**
+     * 和 {@link DisplayHelper} 的 checkParams() 中跟 View 无关的部分保持一致，以后有变化时要同步修改
+     */
+    private void checkParams() {
+        Configuration configuration = sketch.getConfiguration();
+
+        // 没有 View，用不了 View 的固定宽高
+        ShapeSize shapeSize = displayOptions.getShapeSize();
+        if (shapeSize instanceof ShapeSize.ByViewFixedSizeShapeSize) {
+            throw new IllegalArgumentException("Prefetch can not be applied with the ShapeSize.byViewFixedSize() function");
+        }
+
+        // 检查 ShapeSize 的宽高都必须大于 0
+        if (shapeSize != null && (shapeSize.getWidth() == 0 || shapeSize.getHeight() == 0)) {
+            throw new IllegalArgumentException("ShapeSize width and height must be > 0");
+        }
+
+
+        // 没有 View，用不了 View 的固定宽高
+        Resize resize = displayOptions.getResize();
+        if (resize instanceof Resize.ByViewFixedSizeResize) {
+            throw new IllegalArgumentException("Prefetch can not be applied with the Resize.byViewFixedSize() function");
+        }
+
+        // 检查 Resize 的宽高都必须大于 0
+        if (resize != null && (resize.getWidth() <= 0 || resize.getHeight() <= 0)) {
+            throw new IllegalArgumentException("Resize width and height must be > 0");
+        }
+
+
+        // 没有设置 MaxSize 的话，就用默认的 MaxSize
+        MaxSize maxSize = displayOptions.getMaxSize();
+        if (maxSize == null) {
+            maxSize = configuration.getSizeCalculator().getDefaultImageMaxSize(configuration.getContext());
+            displayOptions.setMaxSize(maxSize);
+        }
+
+        // MaxSize 的宽或高大于 0 即可
+        if (maxSize != null && maxSize.getWidth() <= 0 && maxSize.getHeight() <= 0) {
+            throw new IllegalArgumentException("MaxSize width or height must be > 0");
+        }
+
+
+        // 没有 ImageProcessor 但有 Resize 的话就需要设置一个默认的图片裁剪处理器
+        if (displayOptions.getProcessor() == null && resize != null) {
+            displayOptions.setProcessor(configuration.getResizeProcessor());
+        }
+
+
+        // ImageDisplayer 必须得有
+        if (displayOptions.getDisplayer() == null) {
+            displayOptions.setDisplayer(configuration.getDefaultDisplayer());
+        }
+
+        configuration.getOptionsFilterManager().filter(displayOptions);
+    }
+}
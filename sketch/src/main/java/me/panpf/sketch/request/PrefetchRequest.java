@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.panpf.sketch.request;
+
+import android.graphics.BitmapFactory;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.cache.MemoryCache;
+import me.panpf.sketch.cache.MemoryCacheUtils;
+import me.panpf.sketch.decode.ImageDecodeUtils;
+import me.panpf.sketch.decode.ImageType;
+import me.panpf.sketch.drawable.SketchGifFactory;
+import me.panpf.sketch.drawable.SketchRefBitmap;
+import me.panpf.sketch.uri.UriModel;
+
+/**
+ * 预加载请求，由 {@link PrefetchBatch} 提交，用显示选项提前把图片下载到磁盘缓存或者解码放入内存缓存，之后显示时直接命中缓存
+ * <p>
+ * 下载和解码时把线程优先级调到最低，结果不回调给任何人，结束时只通知 {@link PrefetchBatch} 提交下一个
+ */
+@SuppressWarnings("WeakerAccess")
+public class PrefetchRequest extends LoadRequest {
+
+    @NonNull
+    private final PrefetchBatch batch;
+    private final boolean diskCacheOnly;
+
+    public PrefetchRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key,
+                           @NonNull DisplayOptions displayOptions, boolean diskCacheOnly, @NonNull PrefetchBatch batch) {
+        super(sketch, uri, uriModel, key, displayOptions, null, null);
+
+        this.batch = batch;
+        this.diskCacheOnly = diskCacheOnly;
+
+        setLogName("PrefetchRequest");
+    }
+
+    /**
+     * 获取显示选项
+     */
+    @NonNull
+    @Override
+    public DisplayOptions getOptions() {
+        return (DisplayOptions) super.getOptions();
+    }
+
+    /**
+     * 只预加载到磁盘缓存，不解码
+     */
+    public boolean isDiskCacheOnly() {
+        return diskCacheOnly;
+    }
+
+    @Override
+    protected void doError(@NonNull ErrorCause errorCause) {
+        super.doError(errorCause);
+
+        // 没有 LoadListener 时 LoadRequest 不会回调，这里一定要回调，PrefetchBatch 才能继续提交下一个
+        postRunError();
+    }
+
+    @Override
+    protected void doCancel(@NonNull CancelCause cancelCause) {
+        super.doCancel(cancelCause);
+
+        postRunCanceled();
+    }
+
+    @Override
+    protected void submitRunLoad() {
+        // 到这里数据已经在磁盘上了（磁盘缓存、已处理缓存或者本地图片），只预加载到磁盘缓存的话就结束了
+        if (diskCacheOnly) {
+            postRunCompleted();
+            return;
+        }
+
+        super.submitRunLoad();
+    }
+
+    @Override
+    protected void runDownload() {
+        int oldPriority = lowerThreadPriority();
+        try {
+            super.runDownload();
+        } finally {
+            Process.setThreadPriority(oldPriority);
+        }
+    }
+
+    @Override
+    protected void runLoad() {
+        if (isCanceled()) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(getLogName(), "Request end before decode. %s. %s", getThreadName(), getKey());
+            }
+            return;
+        }
+
+        // 排队的时候可能已经被显示请求放入内存缓存了
+        setStatus(Status.CHECK_MEMORY_CACHE);
+        SketchRefBitmap cachedRefBitmap = MemoryCacheUtils.get(getConfiguration().getMemoryCache(), getCacheKey());
+        if (cachedRefBitmap != null && !cachedRefBitmap.isRecycled()) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(getLogName(), "Already in memory cache. %s. %s", getThreadName(), getKey());
+            }
+            postRunCompleted();
+            return;
+        }
+
+        int oldPriority = lowerThreadPriority();
+        try {
+            // 要播放的 gif 解码出来是 GifDrawable，放不进内存缓存，所以和只预加载到磁盘缓存一样，到这里就结束了
+            if (isPlayableGif()) {
+                if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                    SLog.d(getLogName(), "Gif only prefetch to disk cache. %s. %s", getThreadName(), getKey());
+                }
+                postRunCompleted();
+                return;
+            }
+
+            super.runLoad();
+        } finally {
+            Process.setThreadPriority(oldPriority);
+        }
+    }
+
+    /**
+     * 是否是会被 GifDecodeHelper 解码成 GifDrawable 的 gif 图片，只读取图片的边界信息，读取失败时交给解码流程去报错
+     */
+    private boolean isPlayableGif() {
+        if (!getOptions().isDecodeGifImage() || !SketchGifFactory.isExistGifLibrary()) {
+            return false;
+        }
+
+        BitmapFactory.Options boundOptions = new BitmapFactory.Options();
+        boundOptions.inJustDecodeBounds = true;
+        try {
+            ImageDecodeUtils.decodeBitmap(getDataSource(), boundOptions);
+        } catch (Throwable e) {
+            return false;
+        }
+        return ImageType.valueOfMimeType(boundOptions.outMimeType) == ImageType.GIF;
+    }
+
+    @Override
+    protected void loadCompleted() {
+        LoadResult loadResult = getLoadResult();
+        if (loadResult != null && loadResult.getBitmap() != null) {
+            SketchRefBitmap refBitmap = new SketchRefBitmap(loadResult.getBitmap(), getKey(), getUri(),
+                    loadResult.getImageAttrs(), getConfiguration().getBitmapPool());
+            getConfiguration().getMemoryAccountant().track(refBitmap);
+
+            // 先标记等待使用再放入内存缓存，放入后再取消标记，这样就只剩内存缓存的引用，被挤出去时正常回收，没放进去就直接回收
+            refBitmap.setIsWaitingUse(String.format("%s:waitingUse:new", getLogName()), true);
+            MemoryCache memoryCache = getConfiguration().getMemoryCache();
+            MemoryCacheUtils.put(memoryCache, getCacheKey(), refBitmap);
+            refBitmap.setIsWaitingUse(String.format("%s:waitingUse:prefetched", getLogName()), false);
+        } else if (loadResult != null && loadResult.getGifDrawable() != null) {
+            // 要播放的 gif 在 runLoad 中就结束了，到这里的只可能是自定义解码器解出来的，放不进内存缓存，磁盘缓存中已经有了就够了
+            loadResult.getGifDrawable().recycle();
+        } else {
+            SLog.e(getLogName(), "Not found data after load completed. %s. %s", getThreadName(), getKey());
+            doError(ErrorCause.DATA_LOST_AFTER_LOAD_COMPLETED);
+            return;
+        }
+
+        // 结果已经交给内存缓存了，不能再让 LoadRequest 回收
+        this.loadResult = null;
+        super.loadCompleted();
+    }
+
+    @Override
+    protected void runCompletedInMainThread() {
+        if (isCanceled()) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(getLogName(), "Request end before call completed. %s. %s", getThreadName(), getKey());
+            }
+            return;
+        }
+
+        setStatus(Status.COMPLETED);
+        batch.onRequestFinished(this, true);
+    }
+
+    @Override
+    protected void runErrorInMainThread() {
+        if (isCanceled()) {
+            if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+                SLog.d(getLogName(), "Request end before call err. %s. %s", getThreadName(), getKey());
+            }
+            return;
+        }
+
+        batch.onRequestFinished(this, false);
+    }
+
+    @Override
+    protected void runCanceledInMainThread() {
+        batch.onRequestFinished(this, false);
+    }
+
+    /**
+     * 把当前线程的优先级调到最低，返回原来的优先级，用完了要还原
+     */
+    private static int lowerThreadPriority() {
+        int oldPriority = Process.getThreadPriority(Process.myTid());
+        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+        return oldPriority;
+    }
+}
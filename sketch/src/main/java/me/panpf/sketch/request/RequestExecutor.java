@@ -139,6 +139,23 @@ public class RequestExecutor {
         this.netTaskExecutor = netTaskExecutor;
     }
 
+    /**
+     * 本地或网络线程池中有任务在排队或者线程都在忙，预加载用来判断要不要给前台请求让路
+     */
+    public boolean isBusy() {
+        return isBusy(localTaskExecutor) || isBusy(netTaskExecutor);
+    }
+
+    private static boolean isBusy(@Nullable ExecutorService executor) {
+        // 自定义的线程池不知道怎么排队的，就当不忙
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            return false;
+        }
+        ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+        return !threadPoolExecutor.getQueue().isEmpty()
+                || threadPoolExecutor.getActiveCount() >= threadPoolExecutor.getMaximumPoolSize();
+    }
+
     @NonNull
     @Override
     public String toString() {
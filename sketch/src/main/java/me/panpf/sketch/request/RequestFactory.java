@@ -23,7 +23,7 @@ import me.panpf.sketch.Sketch;
 import me.panpf.sketch.uri.UriModel;
 
 /**
- * 负责创建 {@link DisplayRequest}、{@link LoadRequest}、{@link DownloadRequest}
+ * 负责创建 {@link DisplayRequest}、{@link LoadRequest}、{@link DownloadRequest}、{@link PrefetchRequest}
  */
 @SuppressWarnings("WeakerAccess")
 public class RequestFactory {
@@ -42,7 +42,7 @@ public class RequestFactory {
     public LoadRequest newLoadRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel,
                                       @NonNull String key, @NonNull LoadOptions options,
                                       @Nullable LoadListener listener, @Nullable DownloadProgressListener downloadProgressListener) {
-        return new LoadRequest(sketch, uri, uriModel, key, options, listener, downloadProgressListener);
+        return new FreeRideLoadRequest(sketch, uri, uriModel, key, options, listener, downloadProgressListener);
     }
 
     public DownloadRequest newDownloadRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel,
@@ -51,6 +51,12 @@ public class RequestFactory {
         return new FreeRideDownloadRequest(sketch, uri, uriModel, key, options, listener, downloadProgressListener);
     }
 
+    public PrefetchRequest newPrefetchRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel,
+                                              @NonNull String key, @NonNull DisplayOptions displayOptions,
+                                              boolean diskCacheOnly, @NonNull PrefetchBatch batch) {
+        return new PrefetchRequest(sketch, uri, uriModel, key, displayOptions, diskCacheOnly, batch);
+    }
+
     @NonNull
     @Override
     public String toString() {
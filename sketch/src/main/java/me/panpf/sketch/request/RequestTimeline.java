@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.request;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 一个请求的阶段时间线，由 {@link RequestTracer} 导出
+ * <p>
+ * 每个阶段的耗时是从进入这个阶段到进入下一个阶段的时间，例如 WAIT_LOAD 的耗时就是在线程池中排队的时间，
+ * WAIT_DISPLAY 的耗时就是等待主线程的时间
+ */
+public class RequestTimeline {
+    private final int traceId;
+    @NonNull
+    private final String key;
+    @NonNull
+    private final List<BaseRequest.Status> statuses = new ArrayList<>(16);
+    @NonNull
+    private final List<Long> times = new ArrayList<>(16);
+
+    RequestTimeline(int traceId, @NonNull String key) {
+        this.traceId = traceId;
+        this.key = key;
+    }
+
+    void add(@NonNull BaseRequest.Status status, long timeNanos) {
+        statuses.add(status);
+        times.add(timeNanos);
+    }
+
+    /**
+     * 请求的唯一编号，同一个 key 的多次请求编号不同
+     */
+    public int getTraceId() {
+        return traceId;
+    }
+
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    public int getStageCount() {
+        return statuses.size();
+    }
+
+    @NonNull
+    public BaseRequest.Status getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    /**
+     * 进入这个阶段的时间，{@link System#nanoTime()}
+     */
+    public long getTimeNanos(int index) {
+        return times.get(index);
+    }
+
+    /**
+     * 这个阶段的耗时，最后一个阶段没有耗时，返回 0
+     */
+    public long getDurationNanos(int index) {
+        return index < times.size() - 1 ? times.get(index + 1) - times.get(index) : 0;
+    }
+
+    /**
+     * 从第一个阶段到最后一个阶段的总耗时
+     */
+    public long getTotalNanos() {
+        return times.isEmpty() ? 0 : times.get(times.size() - 1) - times.get(0);
+    }
+
+    /**
+     * 已经结束了，最后一个阶段是 COMPLETED、FAILED 或 CANCELED
+     */
+    public boolean isFinished() {
+        if (statuses.isEmpty()) {
+            return false;
+        }
+        BaseRequest.Status lastStatus = statuses.get(statuses.size() - 1);
+        return lastStatus == BaseRequest.Status.COMPLETED || lastStatus == BaseRequest.Status.FAILED
+                || lastStatus == BaseRequest.Status.CANCELED;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RequestTimeline(").append(traceId).append(", ")
+                .append(String.format(Locale.US, "total=%.2fms", getTotalNanos() / 1000000f));
+        for (int i = 0; i < statuses.size(); i++) {
+            builder.append(", ").append(statuses.get(i).name());
+            if (i < statuses.size() - 1) {
+                builder.append(String.format(Locale.US, "=%.2fms", getDurationNanos(i) / 1000000f));
+            }
+        }
+        builder.append(", ").append(key).append(")");
+        return builder.toString();
+    }
+}
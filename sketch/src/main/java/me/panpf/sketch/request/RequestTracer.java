@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.request;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import me.panpf.sketch.SLog;
+
+/**
+ * 请求阶段追踪器，记录每个请求每次 {@link BaseRequest#setStatus(BaseRequest.Status)} 的时间，用来分析时间都花在哪了（排队、IO、解码还是等主线程）
+ * <p>
+ * 记录保存在创建时就分配好的环形缓冲区中，写满了就覆盖最早的记录，记录时只有一次原子自增和几次原子数组写入，不创建任何对象。
+ * 时间用的是 {@link System#nanoTime()}，单调递增，不受修改系统时间的影响。
+ * <p>
+ * 默认不开启，关闭时 {@link BaseRequest#setStatus(BaseRequest.Status)} 只多了一次 volatile 读取。
+ * 通过 {@link #getTimelines()} 或 {@link #getTimelines(String)} 按请求导出时间线
+ */
+public class RequestTracer {
+    private static final String NAME = "RequestTracer";
+
+    /**
+     * 默认的缓冲区容量，每条记录 28 字节（不压缩引用时 32 字节），4096 条约 112KB
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final BaseRequest.Status[] STATUSES = BaseRequest.Status.values();
+
+    private volatile boolean enabled;
+
+    private final int mask;
+    @NonNull
+    private final AtomicLong cursor = new AtomicLong();
+    @NonNull
+    private final AtomicInteger traceIdGenerator = new AtomicInteger();
+
+    // 每个位置写完后记录写入序号 + 1，0 表示正在写或者还没写过，读取前后对比一下就能丢掉被覆盖了一半的记录。
+    // 所有字段都用原子数组读写，普通数组的读写可以被重排到序号读写之外，前后对比序号也挡不住读到一半新一半旧的记录
+    @NonNull
+    private final AtomicLongArray sequences;
+    // 高位是 traceId，低 8 位是状态序号
+    @NonNull
+    private final AtomicLongArray traceIdAndStatuses;
+    @NonNull
+    private final AtomicReferenceArray<String> keys;
+    @NonNull
+    private final AtomicLongArray times;
+
+    public RequestTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 缓冲区容量，会向上取整到 2 的幂
+     */
+    public RequestTracer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.traceIdAndStatuses = new AtomicLongArray(size);
+        this.keys = new AtomicReferenceArray<>(size);
+        this.times = new AtomicLongArray(size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开启或关闭追踪，关闭后已有的记录还在，可以继续导出
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            SLog.w(NAME, "setEnabled. %s", enabled);
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    void record(@NonNull BaseRequest request, @NonNull BaseRequest.Status status) {
+        long timeNanos = System.nanoTime();
+        int traceId = request.traceId;
+        if (traceId == 0) {
+            traceId = traceIdGenerator.incrementAndGet();
+            request.traceId = traceId;
+        }
+
+        long index = cursor.getAndIncrement();
+        int slot = (int) (index & mask);
+        sequences.set(slot, 0);
+        traceIdAndStatuses.set(slot, ((long) traceId << 8) | status.ordinal());
+        keys.set(slot, request.getKey());
+        times.set(slot, timeNanos);
+        sequences.set(slot, index + 1);
+    }
+
+    /**
+     * 导出缓冲区中所有请求的时间线，按请求开始的先后排序。最早的请求的前几个阶段可能已经被覆盖了
+     */
+    @NonNull
+    public List<RequestTimeline> getTimelines() {
+        return collect(null);
+    }
+
+    /**
+     * 导出缓冲区中指定请求 key 的所有时间线，按请求开始的先后排序
+     */
+    @NonNull
+    public List<RequestTimeline> getTimelines(@NonNull String key) {
+        return collect(key);
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            sequences.set(i, 0);
+            keys.set(i, null);
+        }
+    }
+
+    @NonNull
+    private List<RequestTimeline> collect(String filterKey) {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+
+        Map<Integer, RequestTimeline> timelineMap = new LinkedHashMap<>();
+        for (long index = start; index < end; index++) {
+            int slot = (int) (index & mask);
+            long sequence = sequences.get(slot);
+            if (sequence != index + 1) {
+                continue;
+            }
+            long traceIdAndStatus = traceIdAndStatuses.get(slot);
+            String key = keys.get(slot);
+            long timeNanos = times.get(slot);
+            if (sequences.get(slot) != sequence || key == null) {
+                continue;
+            }
+            if (filterKey != null && !filterKey.equals(key)) {
+                continue;
+            }
+
+            int traceId = (int) (traceIdAndStatus >>> 8);
+            int status = (int) (traceIdAndStatus & 0xff);
+            RequestTimeline timeline = timelineMap.get(traceId);
+            if (timeline == null) {
+                timeline = new RequestTimeline(traceId, key);
+                timelineMap.put(traceId, timeline);
+            }
+            timeline.add(STATUSES[status], timeNanos);
+        }
+        return new ArrayList<>(timelineMap.values());
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("%s(enabled=%s,capacity=%d)", NAME, enabled, getCapacity());
+    }
+}
@@ -166,6 +166,7 @@ public class MakerStateImage implements StateImage {
             ImageAttrs imageAttrs = new ImageAttrs(boundsOptions.outMimeType, boundsOptions.outWidth, boundsOptions.outHeight, 0);
 
             SketchRefBitmap newRefBitmap = new SketchRefBitmap(bitmap, memoryCacheKey, uri, imageAttrs, bitmapPool);
+            configuration.getMemoryAccountant().track(newRefBitmap);
             memoryCache.put(memoryCacheKey, newRefBitmap);
             return new SketchBitmapDrawable(newRefBitmap, ImageFrom.LOCAL);
         } else {
@@ -18,11 +18,14 @@ package me.panpf.sketch.uri;
 
 import android.content.Context;
 import android.net.Uri;
+import android.provider.MediaStore;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.List;
+
 import me.panpf.sketch.datasource.ContentDataSource;
 import me.panpf.sketch.datasource.DataSource;
 import me.panpf.sketch.request.DownloadResult;
@@ -41,4 +44,24 @@ public class ContentUriModel extends UriModel {
     public DataSource getDataSource(@NonNull Context context, @NonNull String uri, @Nullable DownloadResult downloadResult) {
         return new ContentDataSource(context, Uri.parse(uri));
     }
+
+    /**
+     * 只有 content://media/external/images/media/123 这样的系统媒体库图片 uri 才有缩略图
+     */
+    @Nullable
+    @Override
+    public Uri getMediaStoreImageUri(@NonNull Context context, @NonNull String uri) {
+        Uri contentUri = Uri.parse(uri);
+        if (!MediaStore.AUTHORITY.equals(contentUri.getAuthority())) {
+            return null;
+        }
+
+        List<String> pathSegments = contentUri.getPathSegments();
+        if (pathSegments.isEmpty() || !pathSegments.contains("images")) {
+            return null;
+        }
+
+        String lastSegment = pathSegments.get(pathSegments.size() - 1);
+        return TextUtils.isDigitsOnly(lastSegment) ? contentUri : null;
+    }
 }
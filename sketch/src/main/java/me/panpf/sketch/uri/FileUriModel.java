@@ -16,7 +16,11 @@
 
 package me.panpf.sketch.uri;
 
+import android.content.ContentUris;
 import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -24,11 +28,14 @@ import androidx.annotation.Nullable;
 
 import java.io.File;
 
+import me.panpf.sketch.SLog;
 import me.panpf.sketch.datasource.DataSource;
 import me.panpf.sketch.datasource.FileDataSource;
 import me.panpf.sketch.request.DownloadResult;
+import me.panpf.sketch.util.SketchUtils;
 
 public class FileUriModel extends UriModel {
+    private static final String NAME = "FileUriModel";
 
     public static final String SCHEME = "/";
 
@@ -42,4 +49,27 @@ public class FileUriModel extends UriModel {
     public DataSource getDataSource(@NonNull Context context, @NonNull String uri, @Nullable DownloadResult downloadResult) {
         return new FileDataSource(new File(uri));
     }
+
+    /**
+     * 通过文件路径在系统媒体库中查询图片的 id
+     */
+    @Nullable
+    @Override
+    public Uri getMediaStoreImageUri(@NonNull Context context, @NonNull String uri) {
+        String filePath = getUriContent(uri);
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                    new String[]{MediaStore.Images.Media._ID}, MediaStore.Images.Media.DATA + "=?", new String[]{filePath}, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                return ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, cursor.getLong(0));
+            }
+        } catch (Exception e) {
+            // 没有读取存储权限或者媒体库不可用
+            SLog.w(NAME, e, String.format("Query MediaStore image failed. %s", filePath));
+        } finally {
+            SketchUtils.close(cursor);
+        }
+        return null;
+    }
 }
@@ -17,12 +17,14 @@
 package me.panpf.sketch.uri;
 
 import android.content.Context;
+import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import me.panpf.sketch.Sketch;
 import me.panpf.sketch.datasource.DataSource;
+import me.panpf.sketch.decode.MediaStoreThumbnailDecodeHelper;
 import me.panpf.sketch.request.DownloadResult;
 
 /**
@@ -95,6 +97,18 @@ public abstract class UriModel {
         return uri;
     }
 
+    /**
+     * 获取指定 uri 在系统媒体库中对应的图片 uri，用于读取系统已经生成好的缩略图，参考 {@link MediaStoreThumbnailDecodeHelper}
+     *
+     * @param context {@link Context}
+     * @param uri     图片 uri
+     * @return null：不是系统媒体库中的图片
+     */
+    @Nullable
+    public Uri getMediaStoreImageUri(@NonNull Context context, @NonNull String uri) {
+        return null;
+    }
+
     /**
      * 当前类型 uri 的数据是否来自网络
      */
@@ -103,7 +117,7 @@ public abstract class UriModel {
     }
 
     /**
-     * 在生成 key 时，是否需要将 uri 使用 md5 转成短 uri，适用于非常长的 uri，例如 base64 格式的 uri
+     * 在生成 key 时，是否需要将 uri 转成短 uri（哈希值），适用于非常长的 uri，例如 base64 格式的 uri
      */
     public boolean isConvertShortUriForKey() {
         return false;
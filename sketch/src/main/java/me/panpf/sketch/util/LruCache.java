@@ -263,6 +263,13 @@ public class LruCache<K, V> {
         return size;
     }
 
+    /**
+     * Returns the number of entries in the cache, regardless of {@link #sizeOf}.
+     */
+    public synchronized final int count() {
+        return map.size();
+    }
+
     /**
      * For caches that do not override {@link #sizeOf}, this returns the maximum
      * number of entries in the cache. For all other caches, this returns the
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.util;
+
+import androidx.annotation.NonNull;
+
+/**
+ * MurmurHash3 x64 128 位非加密哈希，用于把很长的 uri 缩短成 key，比 MD5 快很多
+ * <p>
+ * 直接按 char 读取字符串（每个 char 当作两个字节，小端），不需要先转换成 byte 数组。{@link #hash128} 本身没有任何分配，
+ * {@link #hash128Hex} 只分配一个 long[2]、一个 char[32] 和结果字符串
+ */
+public class MurmurHash3 {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private MurmurHash3() {
+    }
+
+    /**
+     * 计算 128 位哈希值并转换成 32 位的 16 进制字符串
+     */
+    @NonNull
+    public static String hash128Hex(@NonNull CharSequence text) {
+        long[] hash = new long[2];
+        hash128(text, 0, hash);
+        char[] chars = new char[32];
+        writeHex(hash[0], chars, 0);
+        writeHex(hash[1], chars, 16);
+        return new String(chars);
+    }
+
+    /**
+     * 计算 128 位哈希值
+     *
+     * @param text 文本
+     * @param seed 种子
+     * @param out  长度至少为 2 的数组，用来接收结果，out[0] 是高 64 位，out[1] 是低 64 位
+     */
+    public static void hash128(@NonNull CharSequence text, long seed, @NonNull long[] out) {
+        final int length = text.length();
+        long h1 = seed;
+        long h2 = seed;
+
+        // 每个块 8 个 char，即 16 个字节
+        final int blockCount = length / 8;
+        for (int i = 0; i < blockCount; i++) {
+            int index = i * 8;
+            long k1 = getLong(text, index);
+            long k2 = getLong(text, index + 4);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // 剩余不足一个块的部分
+        int tailIndex = blockCount * 8;
+        int tailLength = length - tailIndex;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = tailLength - 1; i >= 0; i--) {
+            long c = text.charAt(tailIndex + i);
+            if (i >= 4) {
+                k2 |= c << ((i - 4) * 16);
+            } else {
+                k1 |= c << (i * 16);
+            }
+        }
+        if (tailLength > 4) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (tailLength > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        long byteLength = length * 2L;
+        h1 ^= byteLength;
+        h2 ^= byteLength;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long getLong(@NonNull CharSequence text, int index) {
+        return ((long) text.charAt(index))
+                | ((long) text.charAt(index + 1) << 16)
+                | ((long) text.charAt(index + 2) << 32)
+                | ((long) text.charAt(index + 3) << 48);
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static void writeHex(long value, @NonNull char[] out, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
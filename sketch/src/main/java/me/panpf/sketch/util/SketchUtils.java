@@ -55,6 +55,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
@@ -92,6 +93,20 @@ import me.panpf.sketch.zoom.block.Block;
 public class SketchUtils {
 
     private static final float[] MATRIX_VALUES = new float[9];
+    /**
+     * 缓存长 uri 的短 uri，列表反复绑定同一个 base64 uri 对象时不用每次都重新计算。按对象身份匹配，命中时不用逐个字符比较，
+     * 并且只弱引用 uri，不会让请求结束后的长 uri 一直留在内存中
+     */
+    private static final ShortUriEntry[] SHORT_URI_CACHE = new ShortUriEntry[32];
+    /**
+     * 拼接请求 key 时复用的 {@link StringBuilder}，请求 key 主要在主线程生成
+     */
+    private static final ThreadLocal<StringBuilder> KEY_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
 
     /**
      * Read apk file icon. Although the PackageManager will cache the icon, the bitmap returned by this method every time
@@ -981,23 +996,47 @@ public class SketchUtils {
     @NonNull
     public static String makeRequestKey(@NonNull String imageUri, @NonNull UriModel uriModel, @NonNull String optionsKey) {
         if (uriModel.isConvertShortUriForKey()) {
-            imageUri = SketchMD5Utils.md5(imageUri);
+            imageUri = makeShortUri(imageUri);
         }
 
         if (TextUtils.isEmpty(optionsKey)) {
             return imageUri;
         }
 
-        StringBuilder builder = new StringBuilder(imageUri);
-        if (imageUri.lastIndexOf("?") == -1) {
+        StringBuilder builder = KEY_BUILDER.get();
+        builder.setLength(0);
+        builder.append(imageUri);
+        if (imageUri.lastIndexOf('?') == -1) {
             builder.append('?');
         } else {
             builder.append('&');
         }
-        builder.append("options");
-        builder.append("=");
+        builder.append("options=");
         builder.append(optionsKey);
-        return builder.toString();
+        String key = builder.toString();
+
+        // 避免拼接超长 key 后一直占着一块很大的内存
+        if (builder.capacity() > 4096) {
+            KEY_BUILDER.remove();
+        }
+        return key;
+    }
+
+    /**
+     * 使用 {@link MurmurHash3} 将很长的 uri 转换成 32 位的短 uri，结果会按 uri 对象缓存起来
+     */
+    @NonNull
+    private static String makeShortUri(@NonNull String imageUri) {
+        int index = System.identityHashCode(imageUri) & (SHORT_URI_CACHE.length - 1);
+        // 数组元素是不可变对象，多线程同时读写最多就是没命中，不会读到错的结果
+        ShortUriEntry entry = SHORT_URI_CACHE[index];
+        if (entry != null && entry.uriReference.get() == imageUri) {
+            return entry.shortUri;
+        }
+
+        String shortUri = MurmurHash3.hash128Hex(imageUri);
+        SHORT_URI_CACHE[index] = new ShortUriEntry(imageUri, shortUri);
+        return shortUri;
     }
 
     /**
@@ -1273,4 +1312,16 @@ public class SketchUtils {
         }
         return result;
     }
+
+    private static final class ShortUriEntry {
+        @NonNull
+        private final WeakReference<String> uriReference;
+        @NonNull
+        private final String shortUri;
+
+        private ShortUriEntry(@NonNull String uri, @NonNull String shortUri) {
+            this.uriReference = new WeakReference<>(uri);
+            this.shortUri = shortUri;
+        }
+    }
 }
@@ -120,12 +120,16 @@ public class ClickPlayGifFunction extends ViewFunction {
         return true;
     }
 
-    private static class PlayGifRedisplayListener implements RedisplayListener {
+    /**
+     * 保留当前的第一帧作为 loading 图片，重新显示完整的动画，{@link LazyPlayGifFunction} 也用它
+     */
+    static class PlayGifRedisplayListener implements RedisplayListener {
 
         @Override
         public void onPreCommit(@NonNull String cacheUri, @NonNull DisplayOptions cacheOptions) {
             cacheOptions.setLoadingImage(new OldStateImage());
             cacheOptions.setDecodeGifImage(true);
+            cacheOptions.setLazyPlayGif(false);
         }
     }
 }
@@ -42,7 +42,9 @@ class DisplayListenerProxy implements DisplayListener {
             return;
         }
 
+        long costStartNanos = view.beginFunctionCost();
         boolean needInvokeInvalidate = view.getFunctions().onDisplayStarted();
+        view.endFunctionCost(costStartNanos);
         if (needInvokeInvalidate) {
             view.invalidate();
         }
@@ -59,7 +61,9 @@ class DisplayListenerProxy implements DisplayListener {
             return;
         }
 
+        long costStartNanos = view.beginFunctionCost();
         boolean needInvokeInvalidate = view.getFunctions().onDisplayCompleted(drawable, imageFrom, imageAttrs);
+        view.endFunctionCost(costStartNanos);
         if (needInvokeInvalidate) {
             view.invalidate();
         }
@@ -76,7 +80,9 @@ class DisplayListenerProxy implements DisplayListener {
             return;
         }
 
+        long costStartNanos = view.beginFunctionCost();
         boolean needInvokeInvalidate = view.getFunctions().onDisplayError(cause);
+        view.endFunctionCost(costStartNanos);
         if (needInvokeInvalidate) {
             view.invalidate();
         }
@@ -93,7 +99,9 @@ class DisplayListenerProxy implements DisplayListener {
             return;
         }
 
+        long costStartNanos = view.beginFunctionCost();
         boolean needInvokeInvalidate = view.getFunctions().onDisplayCanceled(cause);
+        view.endFunctionCost(costStartNanos);
         if (needInvokeInvalidate) {
             view.invalidate();
         }
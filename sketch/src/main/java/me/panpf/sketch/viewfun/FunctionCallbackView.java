@@ -28,7 +28,9 @@ import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import me.panpf.sketch.Sketch;
 import me.panpf.sketch.SketchView;
+import me.panpf.sketch.metrics.FrameCostTracker;
 import me.panpf.sketch.request.DisplayCache;
 import me.panpf.sketch.request.DisplayListener;
 import me.panpf.sketch.request.DisplayOptions;
@@ -89,41 +91,69 @@ public abstract class FunctionCallbackView extends ImageView implements SketchVi
         return functions;
     }
 
+    /**
+     * 开始统计 function 在主线程上的耗时，见 {@link FrameCostTracker}
+     */
+    long beginFunctionCost() {
+        // 布局预览时不初始化 Sketch
+        return isInEditMode() ? 0 : Sketch.with(getContext()).getConfiguration().getFrameCostTracker().begin();
+    }
+
+    void endFunctionCost(long startNanos) {
+        if (startNanos != 0) {
+            Sketch.with(getContext()).getConfiguration().getFrameCostTracker().end(FrameCostTracker.Component.VIEW_FUNCTION, startNanos);
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
 
+        long costStartNanos = beginFunctionCost();
         getFunctions().onLayout(changed, left, top, right, bottom);
+        endFunctionCost(costStartNanos);
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
+        long costStartNanos = beginFunctionCost();
         getFunctions().onSizeChanged(w, h, oldw, oldh);
+        endFunctionCost(costStartNanos);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        long costStartNanos = beginFunctionCost();
         getFunctions().onDraw(canvas);
+        endFunctionCost(costStartNanos);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        return getFunctions().onTouchEvent(event) || super.onTouchEvent(event);
+        long costStartNanos = beginFunctionCost();
+        boolean handled = getFunctions().onTouchEvent(event);
+        endFunctionCost(costStartNanos);
+        return handled || super.onTouchEvent(event);
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
+        long costStartNanos = beginFunctionCost();
         getFunctions().onAttachedToWindow();
+        endFunctionCost(costStartNanos);
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        if (getFunctions().onDetachedFromWindow()) {
+        long costStartNanos = beginFunctionCost();
+        boolean needClearDrawable = getFunctions().onDetachedFromWindow();
+        endFunctionCost(costStartNanos);
+        if (needClearDrawable) {
             super.setImageDrawable(null);
         }
     }
@@ -194,7 +224,10 @@ public abstract class FunctionCallbackView extends ImageView implements SketchVi
             getFunctions().requestFunction.clean();
         }
         if (oldDrawable != newDrawable) {
-            if (getFunctions().onDrawableChanged(callPosition, oldDrawable, newDrawable)) {
+            long costStartNanos = beginFunctionCost();
+            boolean needInvokeInvalidate = getFunctions().onDrawableChanged(callPosition, oldDrawable, newDrawable);
+            endFunctionCost(costStartNanos);
+            if (needInvokeInvalidate) {
                 invalidate();
             }
         }
@@ -202,7 +235,10 @@ public abstract class FunctionCallbackView extends ImageView implements SketchVi
 
     @Override
     public void onReadyDisplay(UriModel uriModel) {
-        if (getFunctions().onReadyDisplay(uriModel)) {
+        long costStartNanos = beginFunctionCost();
+        boolean needInvokeInvalidate = getFunctions().onReadyDisplay(uriModel);
+        endFunctionCost(costStartNanos);
+        if (needInvokeInvalidate) {
             invalidate();
         }
     }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 Peng fei Pan <panpfpanpf@outlook.me>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.sketch.viewfun;
+
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.panpf.sketch.SLog;
+import me.panpf.sketch.decode.ImageAttrs;
+import me.panpf.sketch.drawable.SketchGifDrawable;
+import me.panpf.sketch.request.DisplayOptions;
+import me.panpf.sketch.request.ImageFrom;
+import me.panpf.sketch.util.SketchUtils;
+
+/**
+ * 延迟播放 gif 功能，{@link DisplayOptions#isLazyPlayGif()} 为 true 时先只显示第一帧，等滚动停下来 View 确实出现在屏幕上时再重新显示完整的动画。
+ * 列表中已经绑定但还在屏幕外的 item 以及 ViewPager 中相邻的页面 {@link android.view.View#isShown()} 也是 true，所以要用可见区域判断。
+ * 开启了点击播放 gif 功能时交给 {@link ClickPlayGifFunction}，这里什么也不做
+ */
+@SuppressWarnings("WeakerAccess")
+public class LazyPlayGifFunction extends ViewFunction {
+    private static final String NAME = "LazyPlayGifFunction";
+
+    /**
+     * 滚动停止超过这个时间才检查是否可见，快速滑过的 item 不会被升级成动画
+     */
+    private static final long SCROLL_SETTLE_DELAY_MILLIS = 300;
+
+    @NonNull
+    private FunctionCallbackView view;
+    @Nullable
+    private ClickPlayGifFunction.PlayGifRedisplayListener redisplayListener;
+    @Nullable
+    private Runnable playRunnable;
+    @Nullable
+    private ViewTreeObserver.OnScrollChangedListener scrollChangedListener;
+    @Nullable
+    private ViewTreeObserver scrollObserver;
+    @Nullable
+    private Rect visibleRect;
+
+    public LazyPlayGifFunction(@NonNull FunctionCallbackView view) {
+        this.view = view;
+    }
+
+    @Override
+    public void onAttachedToWindow() {
+        waitPlay(view.getDrawable());
+    }
+
+    @Override
+    public boolean onDisplayCompleted(@NonNull Drawable drawable, @NonNull ImageFrom imageFrom, @NonNull ImageAttrs imageAttrs) {
+        waitPlay(drawable);
+        return false;
+    }
+
+    @Override
+    public boolean onDetachedFromWindow() {
+        stopWait();
+        return false;
+    }
+
+    /**
+     * 开始等待滚动停止，停止后在屏幕上的话就播放
+     */
+    private void waitPlay(@Nullable Drawable drawable) {
+        if (!isWaitingPlay(drawable)) {
+            stopWait();
+            return;
+        }
+
+        if (playRunnable == null) {
+            playRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    playIfOnScreen();
+                }
+            };
+        }
+        if (scrollChangedListener == null) {
+            scrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    schedulePlay();
+                }
+            };
+        }
+        if (scrollObserver == null) {
+            ViewTreeObserver observer = view.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.addOnScrollChangedListener(scrollChangedListener);
+                scrollObserver = observer;
+            }
+        }
+
+        // 可能正在显示的回调中，也可能正在快速滚动，等停下来了再检查
+        schedulePlay();
+    }
+
+    private void schedulePlay() {
+        if (playRunnable != null) {
+            view.removeCallbacks(playRunnable);
+            view.postDelayed(playRunnable, SCROLL_SETTLE_DELAY_MILLIS);
+        }
+    }
+
+    private void stopWait() {
+        if (playRunnable != null) {
+            view.removeCallbacks(playRunnable);
+        }
+        if (scrollObserver != null) {
+            if (scrollObserver.isAlive()) {
+                scrollObserver.removeOnScrollChangedListener(scrollChangedListener);
+            }
+            scrollObserver = null;
+        }
+    }
+
+    private void playIfOnScreen() {
+        if (!isWaitingPlay(view.getDrawable())) {
+            stopWait();
+            return;
+        }
+        if (!isOnScreen()) {
+            return;
+        }
+
+        stopWait();
+        if (SLog.isLoggable(SLog.LEVEL_DEBUG | SLog.TYPE_FLOW)) {
+            SLog.d(NAME, "play gif on screen. %s", view.getDisplayCache() != null ? view.getDisplayCache().uri : null);
+        }
+        if (redisplayListener == null) {
+            redisplayListener = new ClickPlayGifFunction.PlayGifRedisplayListener();
+        }
+        view.redisplay(redisplayListener);
+    }
+
+    /**
+     * 至少有一半出现在屏幕上才算可见，被父容器裁掉的部分不算
+     */
+    private boolean isOnScreen() {
+        if (!view.isShown() || view.getWidth() <= 0 || view.getHeight() <= 0) {
+            return false;
+        }
+        if (visibleRect == null) {
+            visibleRect = new Rect();
+        }
+        if (!view.getGlobalVisibleRect(visibleRect)) {
+            return false;
+        }
+        long visibleArea = (long) visibleRect.width() * visibleRect.height();
+        long viewArea = (long) view.getWidth() * view.getHeight();
+        return visibleArea * 2 >= viewArea;
+    }
+
+    private boolean isWaitingPlay(@Nullable Drawable drawable) {
+        if (drawable == null || view.getFunctions().clickPlayGifFunction != null) {
+            return false;
+        }
+
+        DisplayOptions options = view.getOptions();
+        if (!options.isDecodeGifImage() || !options.isLazyPlayGif()) {
+            return false;
+        }
+
+        Drawable endDrawable = SketchUtils.getLastDrawable(drawable);
+        return SketchUtils.isGifImage(endDrawable) && !(endDrawable instanceof SketchGifDrawable);
+    }
+}
@@ -37,7 +37,9 @@ class ProgressListenerProxy implements DownloadProgressListener {
             return;
         }
 
+        long costStartNanos = view.beginFunctionCost();
         boolean needInvokeInvalidate = view.getFunctions().onUpdateDownloadProgress(totalLength, completedLength);
+        view.endFunctionCost(costStartNanos);
         if (needInvokeInvalidate) {
             view.invalidate();
         }
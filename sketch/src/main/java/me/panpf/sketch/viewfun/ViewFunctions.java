@@ -34,6 +34,8 @@ class ViewFunctions {
     RequestFunction requestFunction;
     @NonNull
     RecyclerCompatFunction recyclerCompatFunction;
+    @NonNull
+    LazyPlayGifFunction lazyPlayGifFunction;
 
     @Nullable
     ShowImageFromFunction showImageFromFunction;
@@ -53,6 +55,7 @@ class ViewFunctions {
     ViewFunctions(FunctionCallbackView view) {
         requestFunction = new RequestFunction(view);
         recyclerCompatFunction = new RecyclerCompatFunction(view);
+        lazyPlayGifFunction = new LazyPlayGifFunction(view);
     }
 
     void onAttachedToWindow() {
@@ -83,6 +86,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             clickPlayGifFunction.onAttachedToWindow();
         }
+        lazyPlayGifFunction.onAttachedToWindow();
     }
 
     void onLayout(boolean changed, int left, int top, int right, int bottom) {
@@ -113,6 +117,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             clickPlayGifFunction.onLayout(changed, left, top, right, bottom);
         }
+        lazyPlayGifFunction.onLayout(changed, left, top, right, bottom);
     }
 
     void onSizeChanged(int w, int h, int oldw, int oldh) {
@@ -143,6 +148,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             clickPlayGifFunction.onSizeChanged(w, h, oldw, oldh);
         }
+        lazyPlayGifFunction.onSizeChanged(w, h, oldw, oldh);
     }
 
     void onDraw(Canvas canvas) {
@@ -173,6 +179,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             clickPlayGifFunction.onDraw(canvas);
         }
+        lazyPlayGifFunction.onDraw(canvas);
     }
 
     /**
@@ -203,6 +210,9 @@ class ViewFunctions {
         if (clickPlayGifFunction != null && clickPlayGifFunction.onTouchEvent(event)) {
             return true;
         }
+        if (lazyPlayGifFunction.onTouchEvent(event)) {
+            return true;
+        }
         //noinspection RedundantIfStatement
         if (zoomFunction != null && zoomFunction.onTouchEvent(event)) {
             return true;
@@ -244,6 +254,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onDrawableChanged(callPosition, oldDrawable, newDrawable);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onDrawableChanged(callPosition, oldDrawable, newDrawable);
 
         return needInvokeInvalidate;
     }
@@ -282,6 +293,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needSetImageNull |= clickPlayGifFunction.onDetachedFromWindow();
         }
+        needSetImageNull |= lazyPlayGifFunction.onDetachedFromWindow();
 
         return needSetImageNull;
     }
@@ -320,6 +332,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onReadyDisplay(uriModel);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onReadyDisplay(uriModel);
 
         return needInvokeInvalidate;
     }
@@ -358,6 +371,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onDisplayStarted();
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onDisplayStarted();
 
         return needInvokeInvalidate;
     }
@@ -396,6 +410,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onDisplayCompleted(drawable, imageFrom, imageAttrs);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onDisplayCompleted(drawable, imageFrom, imageAttrs);
 
         return needInvokeInvalidate;
     }
@@ -434,6 +449,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onDisplayError(errorCause);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onDisplayError(errorCause);
 
         return needInvokeInvalidate;
     }
@@ -472,6 +488,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onDisplayCanceled(cancelCause);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onDisplayCanceled(cancelCause);
 
         return needInvokeInvalidate;
     }
@@ -510,6 +527,7 @@ class ViewFunctions {
         if (clickPlayGifFunction != null) {
             needInvokeInvalidate |= clickPlayGifFunction.onUpdateDownloadProgress(totalLength, completedLength);
         }
+        needInvokeInvalidate |= lazyPlayGifFunction.onUpdateDownloadProgress(totalLength, completedLength);
 
         return needInvokeInvalidate;
     }
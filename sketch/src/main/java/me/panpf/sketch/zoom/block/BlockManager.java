@@ -86,8 +86,10 @@ public class BlockManager {
 
     public BlockManager(@NonNull Context context, @NonNull BlockDisplayer blockDisplayer) {
         this.context = context.getApplicationContext();
-        this.bitmapPool = Sketch.with(context).getConfiguration().getBitmapPool();
+        Configuration configuration = Sketch.with(context).getConfiguration();
+        this.bitmapPool = configuration.getBitmapPool();
         this.blockDisplayer = blockDisplayer;
+        configuration.getMemoryAccountant().track(this);
     }
 
     public void update(Rect newVisibleRect, Size drawableSize, Size viewSize, Point imageSize, boolean zooming) {
@@ -0,0 +1,102 @@
+package me.panpf.sketch.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    private static final int LAST_BUCKET_INDEX = 311;
+    private static final long MAX_VALUE = (1L << 41) - 1;
+
+    @Test
+    public void testFirstBuckets() {
+        // 小于 8 的每个值一个桶
+        for (int value = 0; value < 8; value++) {
+            Assert.assertEquals(value, LatencyHistogram.bucketIndex(value));
+            Assert.assertEquals(value, LatencyHistogram.bucketLowestValue(value));
+            Assert.assertEquals(value, LatencyHistogram.bucketHighestValue(value));
+        }
+        // 8 到 15 还是一个值一个桶，16 开始每个桶宽 2
+        Assert.assertEquals(8, LatencyHistogram.bucketIndex(8));
+        Assert.assertEquals(15, LatencyHistogram.bucketIndex(15));
+        Assert.assertEquals(16, LatencyHistogram.bucketIndex(16));
+        Assert.assertEquals(16, LatencyHistogram.bucketIndex(17));
+        Assert.assertEquals(17, LatencyHistogram.bucketIndex(18));
+
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(-5);
+        histogram.record(0);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(2, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMaxNanos());
+        Assert.assertEquals(0, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testLastBucket() {
+        Assert.assertEquals(LAST_BUCKET_INDEX, LatencyHistogram.bucketIndex(MAX_VALUE));
+        Assert.assertEquals(15L << 37, LatencyHistogram.bucketLowestValue(LAST_BUCKET_INDEX));
+        Assert.assertEquals(MAX_VALUE, LatencyHistogram.bucketHighestValue(LAST_BUCKET_INDEX));
+        Assert.assertEquals(LAST_BUCKET_INDEX, LatencyHistogram.bucketIndex(15L << 37));
+        Assert.assertEquals(LAST_BUCKET_INDEX - 1, LatencyHistogram.bucketIndex((15L << 37) - 1));
+
+        // 超过最大值的都算在最后一个桶里
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(MAX_VALUE, snapshot.getMaxNanos());
+        Assert.assertEquals(MAX_VALUE, snapshot.getPercentileNanos(50));
+        Assert.assertEquals(MAX_VALUE, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        for (int index = 0; index <= LAST_BUCKET_INDEX; index++) {
+            long lowest = LatencyHistogram.bucketLowestValue(index);
+            long highest = LatencyHistogram.bucketHighestValue(index);
+            Assert.assertEquals(index, LatencyHistogram.bucketIndex(lowest));
+            Assert.assertEquals(index, LatencyHistogram.bucketIndex(highest));
+            // 桶宽不超过桶中最小值的 1/8
+            Assert.assertTrue(highest - lowest <= Math.max(0, lowest / 8));
+            if (index < LAST_BUCKET_INDEX) {
+                Assert.assertEquals(highest + 1, LatencyHistogram.bucketLowestValue(index + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentileInterpolation() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        Assert.assertEquals(0, histogram.snapshot().getPercentileNanos(50));
+
+        // 1024 到 1151 都在同一个桶里，按排名在桶内插值
+        for (long value = 1024; value < 1152; value++) {
+            histogram.record(value);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1025, snapshot.getPercentileNanos(0));
+        Assert.assertEquals(1088, snapshot.getPercentileNanos(50));
+        Assert.assertEquals(1139, snapshot.getPercentileNanos(90));
+        Assert.assertEquals(1151, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testPercentileNotAboveMax() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 0; i < 10; i++) {
+            histogram.record(8);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(100);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(8, snapshot.getPercentileNanos(50));
+        // 100 所在的桶是 96 到 103，插值的上限是记录到的最大值 100
+        Assert.assertEquals(97, snapshot.getPercentileNanos(60));
+        Assert.assertEquals(100, snapshot.getPercentileNanos(100));
+
+        LatencyHistogram single = new LatencyHistogram("single");
+        single.record(1000);
+        Assert.assertEquals(1000, single.snapshot().getPercentileNanos(1));
+        Assert.assertEquals(1000, single.snapshot().getPercentileNanos(99));
+    }
+}
@@ -0,0 +1,103 @@
+package me.panpf.sketch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.droidsonroids.gif.FrameCacheBudget;
+
+public class FrameCacheBudgetTest {
+
+    @Test
+    public void testReserveAndRelease() {
+        FrameCacheBudget budget = new FrameCacheBudget(100);
+        TestHolder holder1 = new TestHolder();
+        TestHolder holder2 = new TestHolder();
+        TestHolder holder3 = new TestHolder();
+
+        Assert.assertTrue(budget.reserve(holder1, 60));
+        Assert.assertTrue(budget.reserve(holder2, 40));
+        Assert.assertEquals(100, budget.getReservedBytes());
+
+        // 额度已经用完，不会挤掉别的帧缓存
+        Assert.assertFalse(budget.reserve(holder3, 1));
+        Assert.assertEquals(100, budget.getReservedBytes());
+        Assert.assertEquals(0, holder1.trimCount);
+        Assert.assertEquals(0, holder2.trimCount);
+
+        budget.release(holder1);
+        Assert.assertEquals(40, budget.getReservedBytes());
+        Assert.assertTrue(budget.reserve(holder3, 60));
+        Assert.assertEquals(100, budget.getReservedBytes());
+
+        // 重复释放没有影响
+        budget.release(holder1);
+        Assert.assertEquals(100, budget.getReservedBytes());
+    }
+
+    @Test
+    public void testReserveAgainReplacesReservation() {
+        FrameCacheBudget budget = new FrameCacheBudget(100);
+        TestHolder holder = new TestHolder();
+
+        Assert.assertTrue(budget.reserve(holder, 80));
+        Assert.assertTrue(budget.reserve(holder, 90));
+        Assert.assertEquals(90, budget.getReservedBytes());
+
+        Assert.assertFalse(budget.reserve(holder, 101));
+        Assert.assertEquals(0, budget.getReservedBytes());
+    }
+
+    @Test
+    public void testTrimToSize() {
+        FrameCacheBudget budget = new FrameCacheBudget(100);
+        List<TestHolder> trimOrder = new ArrayList<>();
+        TestHolder holder1 = new TestHolder(trimOrder);
+        TestHolder holder2 = new TestHolder(trimOrder);
+        TestHolder holder3 = new TestHolder(trimOrder);
+        Assert.assertTrue(budget.reserve(holder1, 30));
+        Assert.assertTrue(budget.reserve(holder2, 30));
+        Assert.assertTrue(budget.reserve(holder3, 30));
+
+        // 先修整最早的
+        budget.trimToSize(50);
+        Assert.assertEquals(30, budget.getReservedBytes());
+        Assert.assertEquals(2, trimOrder.size());
+        Assert.assertSame(holder1, trimOrder.get(0));
+        Assert.assertSame(holder2, trimOrder.get(1));
+        Assert.assertEquals(0, holder3.trimCount);
+
+        // 被修整的已经没有额度了，释放也不会影响别的
+        budget.release(holder1);
+        Assert.assertEquals(30, budget.getReservedBytes());
+
+        budget.trimToSize(50);
+        Assert.assertEquals(2, trimOrder.size());
+
+        budget.trimToSize(0);
+        Assert.assertEquals(0, budget.getReservedBytes());
+        Assert.assertEquals(1, holder3.trimCount);
+        Assert.assertTrue(budget.reserve(holder1, 100));
+    }
+
+    private static class TestHolder implements FrameCacheBudget.Holder {
+        private final List<TestHolder> trimOrder;
+        private int trimCount;
+
+        TestHolder() {
+            this(new ArrayList<TestHolder>());
+        }
+
+        TestHolder(List<TestHolder> trimOrder) {
+            this.trimOrder = trimOrder;
+        }
+
+        @Override
+        public void onTrimmed() {
+            trimCount++;
+            trimOrder.add(this);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package me.panpf.sketch.test.pipeline;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import me.panpf.sketch.util.ExifInterface;
+
+/**
+ * 测试用的图片集，包括不同尺寸的 JPEG、PNG、WebP、GIF，以及带不同 EXIF 方向的 JPEG，都是运行时画出来再编码的，不用在仓库里放图片文件
+ */
+class ImageCorpus {
+
+    @NonNull
+    private final List<Image> images;
+
+    private ImageCorpus(@NonNull List<Image> images) {
+        this.images = Collections.unmodifiableList(images);
+    }
+
+    /**
+     * 需要在 Robolectric 的 native 图形模式下调用，否则 {@link Bitmap#compress} 不能用
+     */
+    @NonNull
+    static ImageCorpus generate() {
+        List<Image> images = new ArrayList<>();
+        images.add(jpeg(320, 240, ExifInterface.ORIENTATION_NORMAL));
+        images.add(jpeg(1280, 960, ExifInterface.ORIENTATION_NORMAL));
+        images.add(jpeg(1280, 960, ExifInterface.ORIENTATION_ROTATE_90));
+        images.add(jpeg(1280, 960, ExifInterface.ORIENTATION_ROTATE_180));
+        images.add(jpeg(1280, 960, ExifInterface.ORIENTATION_ROTATE_270));
+        images.add(jpeg(4032, 3024, ExifInterface.ORIENTATION_ROTATE_90));
+        images.add(compressed(320, 240, Bitmap.CompressFormat.PNG, "png", "image/png"));
+        images.add(compressed(1280, 960, Bitmap.CompressFormat.PNG, "png", "image/png"));
+        //noinspection deprecation
+        images.add(compressed(320, 240, Bitmap.CompressFormat.WEBP, "webp", "image/webp"));
+        //noinspection deprecation
+        images.add(compressed(1280, 960, Bitmap.CompressFormat.WEBP, "webp", "image/webp"));
+        images.add(gif(320, 240));
+        images.add(gif(640, 480));
+        return new ImageCorpus(images);
+    }
+
+    @NonNull
+    List<Image> getImages() {
+        return images;
+    }
+
+    @NonNull
+    private static Bitmap draw(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, width, height, Color.rgb(255, 120, 0), Color.rgb(0, 80, 255), Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, width, height, paint);
+
+        // 画一些圆，避免整张图都是渐变，压缩率高得不真实
+        paint.setShader(null);
+        int step = Math.max(width, height) / 16;
+        for (int x = 0; x < width; x += step) {
+            for (int y = 0; y < height; y += step) {
+                paint.setColor(Color.rgb((x * 7) & 0xFF, (y * 13) & 0xFF, ((x + y) * 3) & 0xFF));
+                canvas.drawCircle(x + step / 2f, y + step / 2f, step / 3f, paint);
+            }
+        }
+        return bitmap;
+    }
+
+    @NonNull
+    private static byte[] compress(@NonNull Bitmap bitmap, @NonNull Bitmap.CompressFormat format) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bitmap.compress(format, 90, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @NonNull
+    private static Image compressed(int width, int height, @NonNull Bitmap.CompressFormat format,
+                                    @NonNull String extension, @NonNull String mimeType) {
+        Bitmap bitmap = draw(width, height);
+        byte[] data = compress(bitmap, format);
+        bitmap.recycle();
+        return new Image(String.format("%dx%d.%s", width, height, extension), mimeType, width, height, data);
+    }
+
+    @NonNull
+    private static Image jpeg(int width, int height, int orientation) {
+        Bitmap bitmap = draw(width, height);
+        byte[] data = compress(bitmap, Bitmap.CompressFormat.JPEG);
+        bitmap.recycle();
+        if (orientation != ExifInterface.ORIENTATION_NORMAL) {
+            data = insertExifOrientation(data, orientation);
+        }
+        return new Image(String.format("%dx%d_%d.jpg", width, height, orientation), "image/jpeg", width, height, data);
+    }
+
+    /**
+     * 在 SOI 之后插入一个只有方向属性的 APP1 段
+     */
+    @NonNull
+    private static byte[] insertExifOrientation(@NonNull byte[] jpeg, int orientation) {
+        byte[] app1 = new byte[]{
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                // TIFF 头，小端，IFD0 的偏移是 8
+                'I', 'I', 42, 0, 8, 0, 0, 0,
+                // 一个属性：Orientation，SHORT，1 个
+                1, 0,
+                0x12, 0x01, 3, 0, 1, 0, 0, 0, (byte) orientation, 0, 0, 0,
+                // 没有下一个 IFD
+                0, 0, 0, 0,
+        };
+        byte[] result = new byte[jpeg.length + app1.length];
+        System.arraycopy(jpeg, 0, result, 0, 2);
+        System.arraycopy(app1, 0, result, 2, app1.length);
+        System.arraycopy(jpeg, 2, result, 2 + app1.length, jpeg.length - 2);
+        return result;
+    }
+
+    /**
+     * 用 216 色的 web 安全色板编码一帧 GIF。LZW 只输出原始的颜色索引，每 250 个就输出一次清除码，码长一直是 9 位，
+     * 压缩率很低，但解码流程和普通的 GIF 是一样的
+     */
+    @NonNull
+    private static Image gif(int width, int height) {
+        Bitmap bitmap = draw(width, height);
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        bitmap.recycle();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeAscii(out, "GIF89a");
+        writeShort(out, width);
+        writeShort(out, height);
+        out.write(0xF7);    // 全局色板，256 色
+        out.write(0);
+        out.write(0);
+        for (int i = 0; i < 256; i++) {
+            int index = Math.min(i, 215);
+            out.write((index / 36) * 51);
+            out.write(((index / 6) % 6) * 51);
+            out.write((index % 6) * 51);
+        }
+
+        out.write(0x2C);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, width);
+        writeShort(out, height);
+        out.write(0);
+
+        final int minCodeSize = 8;
+        final int clearCode = 1 << minCodeSize;
+        final int endCode = clearCode + 1;
+        out.write(minCodeSize);
+        BitWriter writer = new BitWriter(out);
+        for (int i = 0; i < pixels.length; i++) {
+            if (i % 250 == 0) {
+                writer.write(clearCode, 9);
+            }
+            int pixel = pixels[i];
+            int r = ((pixel >> 16) & 0xFF) / 51;
+            int g = ((pixel >> 8) & 0xFF) / 51;
+            int b = (pixel & 0xFF) / 51;
+            writer.write(r * 36 + g * 6 + b, 9);
+        }
+        writer.write(endCode, 9);
+        writer.finish();
+        out.write(0);
+        out.write(0x3B);
+        return new Image(String.format("%dx%d.gif", width, height), "image/gif", width, height, out.toByteArray());
+    }
+
+    private static void writeAscii(@NonNull ByteArrayOutputStream out, @NonNull String text) {
+        for (int i = 0; i < text.length(); i++) {
+            out.write(text.charAt(i));
+        }
+    }
+
+    private static void writeShort(@NonNull ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+
+    /**
+     * 按 GIF 的要求低位在前写入变长的码，并切成最长 255 字节的数据块
+     */
+    private static class BitWriter {
+        @NonNull
+        private final ByteArrayOutputStream out;
+        @NonNull
+        private final byte[] block = new byte[255];
+        private int blockSize;
+        private int bitBuffer;
+        private int bitCount;
+
+        BitWriter(@NonNull ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        void write(int code, int codeSize) {
+            bitBuffer |= code << bitCount;
+            bitCount += codeSize;
+            while (bitCount >= 8) {
+                writeByte(bitBuffer & 0xFF);
+                bitBuffer >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        void finish() {
+            if (bitCount > 0) {
+                writeByte(bitBuffer & 0xFF);
+                bitBuffer = 0;
+                bitCount = 0;
+            }
+            flushBlock();
+        }
+
+        private void writeByte(int value) {
+            block[blockSize++] = (byte) value;
+            if (blockSize == block.length) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() {
+            if (blockSize > 0) {
+                out.write(blockSize);
+                out.write(block, 0, blockSize);
+                blockSize = 0;
+            }
+        }
+    }
+
+    static class Image {
+        @NonNull
+        final String name;
+        @NonNull
+        final String mimeType;
+        final int width;
+        final int height;
+        @NonNull
+        final byte[] data;
+
+        Image(@NonNull String name, @NonNull String mimeType, int width, int height, @NonNull byte[] data) {
+            this.name = name;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.panpf.sketch.test.pipeline;
+
+import androidx.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的 HTTP 服务，在本机回环地址上提供 {@link ImageCorpus} 中的图片，地址是 http://127.0.0.1:port/images/name，
+ * 忽略 query，所以可以加上不同的 query 来绕过磁盘缓存
+ */
+class LocalImageServer {
+    private static final String PATH = "/images/";
+
+    @NonNull
+    private final Map<String, ImageCorpus.Image> images = new HashMap<>();
+    @NonNull
+    private final AtomicLong bytesServed = new AtomicLong();
+    @NonNull
+    private final AtomicLong requestCount = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    LocalImageServer(@NonNull ImageCorpus corpus) {
+        for (ImageCorpus.Image image : corpus.getImages()) {
+            images.put(image.name, image);
+        }
+    }
+
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @NonNull
+    String uri(@NonNull ImageCorpus.Image image) {
+        return String.format("http://127.0.0.1:%d%s%s", server.getAddress().getPort(), PATH, image.name);
+    }
+
+    long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    private void serve(@NonNull HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            String name = exchange.getRequestURI().getPath().substring(PATH.length());
+            ImageCorpus.Image image = images.get(name);
+            if (image == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", image.mimeType);
+            exchange.sendResponseHeaders(200, image.data.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(image.data);
+            outputStream.close();
+            bytesServed.addAndGet(image.data.length);
+        } finally {
+            exchange.close();
+        }
+    }
+}
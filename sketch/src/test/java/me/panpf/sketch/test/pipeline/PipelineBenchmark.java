@@ -0,0 +1,367 @@
+package me.panpf.sketch.test.pipeline;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.SketchImageView;
+import me.panpf.sketch.cache.BitmapPoolUtils;
+import me.panpf.sketch.decode.ImageAttrs;
+import me.panpf.sketch.metrics.LatencyHistogram;
+import me.panpf.sketch.metrics.SketchMetrics;
+import me.panpf.sketch.request.CancelCause;
+import me.panpf.sketch.request.DisplayListener;
+import me.panpf.sketch.request.ErrorCause;
+import me.panpf.sketch.request.ImageFrom;
+import me.panpf.sketch.request.LoadListener;
+import me.panpf.sketch.request.LoadResult;
+import me.panpf.sketch.request.RequestExecutor;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 端到端的请求流水线基准测试，从本机的 {@link LocalImageServer} 下载 {@link ImageCorpus} 中的图片，
+ * 走完下载、磁盘缓存、解码、处理、内存缓存的完整流程，统计吞吐量、p50/p99 延迟和分配的内存
+ * <p>
+ * 回调都是通过主线程的 Handler 发出的，Robolectric 的 PAUSED 模式下需要测试线程（也就是主线程）自己去驱动主线程的消息队列，
+ * 所以提交请求、驱动消息队列、收集结果都在测试线程上进行，不会递归提交
+ */
+class PipelineBenchmark {
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int VIEW_SIZE = 300;
+
+    enum CacheState {
+        /**
+         * 每个请求都加上不同的 query，内存缓存和磁盘缓存都不会命中，每个请求都要下载
+         */
+        COLD,
+        /**
+         * 先完整加载一遍，然后清空内存缓存，只有磁盘缓存命中
+         */
+        DISK_WARM,
+        /**
+         * 先完整显示一遍，内存缓存命中。{@link me.panpf.sketch.request.LoadRequest} 不读内存缓存，所以这个状态用显示请求来测
+         */
+        MEMORY_WARM,
+    }
+
+    static class Config {
+        final int concurrency;
+        final int requestCount;
+        final int localPoolSize;
+        final int netPoolSize;
+        @NonNull
+        final CacheState cacheState;
+
+        Config(int concurrency, int requestCount, int localPoolSize, int netPoolSize, @NonNull CacheState cacheState) {
+            this.concurrency = concurrency;
+            this.requestCount = requestCount;
+            this.localPoolSize = localPoolSize;
+            this.netPoolSize = netPoolSize;
+            this.cacheState = cacheState;
+        }
+
+        @NonNull
+        String getName() {
+            return String.format(Locale.US, "%s/c%d/pool%dx%d", cacheState.name(), concurrency, localPoolSize, netPoolSize);
+        }
+    }
+
+    static class Result {
+        @NonNull
+        final Config config;
+        final int completed;
+        final int failures;
+        final long elapsedNanos;
+        @NonNull
+        final LatencyHistogram.Snapshot latency;
+        final long allocatedBytes;
+
+        Result(@NonNull Config config, int completed, int failures, long elapsedNanos,
+               @NonNull LatencyHistogram.Snapshot latency, long allocatedBytes) {
+            this.config = config;
+            this.completed = completed;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        double getThroughput() {
+            return elapsedNanos > 0 ? completed * 1e9 / elapsedNanos : 0;
+        }
+
+        @NonNull
+        String toJson() {
+            return String.format(Locale.US,
+                    "{\"name\":\"%s\",\"cacheState\":\"%s\",\"concurrency\":%d,\"localPoolSize\":%d,\"netPoolSize\":%d," +
+                            "\"requests\":%d,\"failures\":%d,\"throughput\":%.2f,\"p50Ms\":%.3f,\"p99Ms\":%.3f," +
+                            "\"maxMs\":%.3f,\"allocatedBytes\":%d}",
+                    config.getName(), config.cacheState.name(), config.concurrency, config.localPoolSize, config.netPoolSize,
+                    completed, failures, getThroughput(), latency.getPercentileNanos(50) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6, allocatedBytes);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-28s throughput=%8.2f/s, p50=%8.2fms, p99=%8.2fms, allocated=%6.1fMB, failures=%d",
+                    config.getName(), getThroughput(), latency.getPercentileNanos(50) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6, allocatedBytes / 1024f / 1024f, failures);
+        }
+    }
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final Sketch sketch;
+    @NonNull
+    private final ImageCorpus corpus;
+    @NonNull
+    private final LocalImageServer server;
+    private int uniqueId;
+
+    PipelineBenchmark(@NonNull Context context, @NonNull ImageCorpus corpus, @NonNull LocalImageServer server) {
+        this.context = context;
+        this.sketch = Sketch.with(context);
+        this.corpus = corpus;
+        this.server = server;
+    }
+
+    @NonNull
+    Result run(@NonNull Config config) {
+        Configuration configuration = sketch.getConfiguration();
+        configuration.setExecutor(new RequestExecutor(config.localPoolSize, config.netPoolSize));
+        configuration.getDiskCache().clear();
+        configuration.getMemoryCache().clear();
+        configuration.getBitmapPool().clear();
+
+        List<String> uris = new ArrayList<>(corpus.getImages().size());
+        for (ImageCorpus.Image image : corpus.getImages()) {
+            uris.add(server.uri(image));
+        }
+
+        Pass pass;
+        if (config.cacheState == CacheState.MEMORY_WARM) {
+            pass = new DisplayPass(config.concurrency);
+        } else {
+            pass = new LoadPass(config.concurrency);
+        }
+
+        if (config.cacheState != CacheState.COLD) {
+            // 预热，每张图片请求一遍
+            pass.execute(uris, uris.size(), false);
+            if (config.cacheState == CacheState.DISK_WARM) {
+                configuration.getMemoryCache().clear();
+            }
+        }
+
+        return pass.measure(config, uris);
+    }
+
+    private long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        long[] allocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds());
+        long total = 0;
+        for (long bytes : allocatedBytes) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 一轮请求，最多同时有 concurrency 个请求在执行，一个结束了就提交下一个
+     */
+    private abstract class Pass {
+        final int concurrency;
+        final long[] startTimes;
+        final boolean[] busy;
+        LatencyHistogram histogram;
+        int finished;
+        int failures;
+
+        Pass(int concurrency) {
+            this.concurrency = concurrency;
+            this.startTimes = new long[concurrency];
+            this.busy = new boolean[concurrency];
+        }
+
+        @NonNull
+        Result measure(@NonNull Config config, @NonNull List<String> uris) {
+            // 每次都是新的 SketchMetrics，只为了用它的直方图，不影响全局的统计
+            histogram = new SketchMetrics().histogram("pipeline");
+            long allocatedBefore = getAllocatedBytes();
+            long startNanos = System.nanoTime();
+            execute(uris, config.requestCount, config.cacheState == CacheState.COLD);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long allocatedBytes = allocatedBefore >= 0 ? getAllocatedBytes() - allocatedBefore : -1;
+            return new Result(config, finished, failures, elapsedNanos, histogram.snapshot(), allocatedBytes);
+        }
+
+        void execute(@NonNull List<String> uris, int requestCount, boolean unique) {
+            finished = 0;
+            failures = 0;
+            int submitted = 0;
+            long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            while (finished < requestCount) {
+                for (int slot = 0; slot < concurrency && submitted < requestCount; slot++) {
+                    if (!busy[slot]) {
+                        String uri = uris.get(submitted % uris.size());
+                        if (unique) {
+                            uri = uri + "?id=" + (++uniqueId);
+                        }
+                        submitted++;
+                        busy[slot] = true;
+                        startTimes[slot] = System.nanoTime();
+                        submit(slot, uri);
+                    }
+                }
+
+                shadowOf(Looper.getMainLooper()).idle();
+                if (finished < requestCount) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IllegalStateException(String.format(Locale.US,
+                                "Pipeline benchmark timeout. finished=%d, requestCount=%d", finished, requestCount));
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                }
+            }
+        }
+
+        void finish(int slot, boolean success) {
+            if (!busy[slot]) {
+                return;
+            }
+            busy[slot] = false;
+            finished++;
+            if (!success) {
+                failures++;
+            }
+            if (histogram != null) {
+                histogram.recordSince(startTimes[slot]);
+            }
+        }
+
+        abstract void submit(int slot, @NonNull String uri);
+    }
+
+    private class LoadPass extends Pass {
+        @NonNull
+        private final LoadListener[] listeners;
+
+        LoadPass(int concurrency) {
+            super(concurrency);
+            listeners = new LoadListener[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                listeners[i] = new SlotLoadListener(i);
+            }
+        }
+
+        @Override
+        void submit(int slot, @NonNull String uri) {
+            sketch.load(uri, listeners[slot]).commit();
+        }
+
+        private class SlotLoadListener implements LoadListener {
+            private final int slot;
+
+            SlotLoadListener(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public void onStarted() {
+
+            }
+
+            @Override
+            public void onCompleted(@NonNull LoadResult result) {
+                Bitmap bitmap = result.getBitmap();
+                if (bitmap != null) {
+                    BitmapPoolUtils.freeBitmapToPool(bitmap, sketch.getConfiguration().getBitmapPool());
+                } else if (result.getGifDrawable() != null) {
+                    result.getGifDrawable().recycle();
+                }
+                finish(slot, true);
+            }
+
+            @Override
+            public void onError(@NonNull ErrorCause cause) {
+                finish(slot, false);
+            }
+
+            @Override
+            public void onCanceled(@NonNull CancelCause cause) {
+                finish(slot, false);
+            }
+        }
+    }
+
+    private class DisplayPass extends Pass {
+        @NonNull
+        private final SketchImageView[] views;
+
+        DisplayPass(int concurrency) {
+            super(concurrency);
+            views = new SketchImageView[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                SketchImageView view = new SketchImageView(context);
+                view.setLayoutParams(new ViewGroup.LayoutParams(VIEW_SIZE, VIEW_SIZE));
+                view.setDisplayListener(new SlotDisplayListener(i));
+                views[i] = view;
+            }
+        }
+
+        @Override
+        void submit(int slot, @NonNull String uri) {
+            sketch.display(uri, views[slot]).commit();
+        }
+
+        private class SlotDisplayListener implements DisplayListener {
+            private final int slot;
+
+            SlotDisplayListener(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public void onStarted() {
+
+            }
+
+            @Override
+            public void onCompleted(@NonNull Drawable drawable, @NonNull ImageFrom imageFrom, @NonNull ImageAttrs imageAttrs) {
+                finish(slot, true);
+            }
+
+            @Override
+            public void onError(@NonNull ErrorCause cause) {
+                finish(slot, false);
+            }
+
+            @Override
+            public void onCanceled(@NonNull CancelCause cause) {
+                finish(slot, false);
+            }
+        }
+    }
+}
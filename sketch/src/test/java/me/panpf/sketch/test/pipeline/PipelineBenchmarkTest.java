@@ -0,0 +1,111 @@
+package me.panpf.sketch.test.pipeline;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在 JVM 上跑的端到端流水线基准测试，默认跳过，需要加上 -PpipelineBenchmark=true 才会执行：
+ * <pre>
+ * ./gradlew :sketch:testDebugUnitTest --tests "*PipelineBenchmarkTest" -PpipelineBenchmark=true \
+ *     -PpipelineBenchmark.concurrency=1,8,32 -PpipelineBenchmark.pools=3x3,6x6 -PpipelineBenchmark.requests=200
+ * </pre>
+ * 结果打印到标准输出，同时以 JSON 格式写到 build/reports/pipeline-benchmark/results.json
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PipelineBenchmarkTest {
+    private static final String PREFIX = "pipelineBenchmark";
+
+    private ImageCorpus corpus;
+    private LocalImageServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(Boolean.getBoolean(PREFIX));
+        corpus = ImageCorpus.generate();
+        server = new LocalImageServer(corpus);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testPipeline() throws IOException {
+        Context context = RuntimeEnvironment.getApplication();
+        PipelineBenchmark benchmark = new PipelineBenchmark(context, corpus, server);
+
+        int requestCount = Integer.getInteger(PREFIX + ".requests", 200);
+        List<PipelineBenchmark.Config> configs = new ArrayList<>();
+        for (String cacheState : System.getProperty(PREFIX + ".cacheStates", "COLD,DISK_WARM,MEMORY_WARM").split(",")) {
+            for (String pools : System.getProperty(PREFIX + ".pools", "3x3,6x6").split(",")) {
+                String[] poolSizes = pools.trim().split("x");
+                for (String concurrency : System.getProperty(PREFIX + ".concurrency", "1,8,32").split(",")) {
+                    configs.add(new PipelineBenchmark.Config(Integer.parseInt(concurrency.trim()), requestCount,
+                            Integer.parseInt(poolSizes[0]), Integer.parseInt(poolSizes[1]),
+                            PipelineBenchmark.CacheState.valueOf(cacheState.trim())));
+                }
+            }
+        }
+
+        List<PipelineBenchmark.Result> results = new ArrayList<>(configs.size());
+        for (PipelineBenchmark.Config config : configs) {
+            PipelineBenchmark.Result result = benchmark.run(config);
+            System.out.println(result);
+            results.add(result);
+        }
+        System.out.println(String.format("served %d requests, %d bytes", server.getRequestCount(), server.getBytesServed()));
+
+        writeJson(results, new File(System.getProperty(PREFIX + ".output", "build/reports/pipeline-benchmark/results.json")));
+
+        for (PipelineBenchmark.Result result : results) {
+            assertTrue(result.toString(), result.failures == 0);
+        }
+    }
+
+    private void writeJson(List<PipelineBenchmark.Result> results, File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create dir " + dir.getPath());
+        }
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                writer.write("  ");
+                writer.write(results.get(i).toJson());
+                writer.write(i < results.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package me.panpf.sketch.test.request;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.panpf.sketch.cache.CacheKey;
+import me.panpf.sketch.request.FreeRideManager;
+
+/**
+ * 多个线程同时上车、成为顺风车主、结束，每个坐上车的请求都要被回调并且只回调一次，最后顺风车主表要是空的
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FreeRideManagerStressTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 20000;
+    private static final int KEY_COUNT = 16;
+
+    @Test
+    public void testConcurrentDisplayFreeRide() throws InterruptedException {
+        final FreeRideManager freeRideManager = new FreeRideManager();
+        final CacheKey[] keys = new CacheKey[KEY_COUNT];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CacheKey.of("http://img.example.com/" + i + ".jpg?options=" + i);
+        }
+
+        final Queue<TestDisplayFreeRide> riders = new ConcurrentLinkedQueue<>();
+        final Queue<TestDisplayFreeRide> providers = new ConcurrentLinkedQueue<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch endLatch = new CountDownLatch(THREAD_COUNT);
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final long seed = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        Random random = new Random(seed);
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            TestDisplayFreeRide request = new TestDisplayFreeRide(keys[random.nextInt(keys.length)]);
+                            if (freeRideManager.byDisplayFreeRide(request)) {
+                                riders.add(request);
+                            } else {
+                                freeRideManager.registerDisplayFreeRideProvider(request);
+                                // 给别的线程一点上车的机会
+                                Thread.yield();
+                                freeRideManager.unregisterDisplayFreeRideProvider(request);
+                                providers.add(request);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        endLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+        startLatch.countDown();
+        Assert.assertTrue("stress run timed out", endLatch.await(60, TimeUnit.SECONDS));
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+
+        Assert.assertEquals(THREAD_COUNT * OPERATIONS_PER_THREAD, riders.size() + providers.size());
+        Assert.assertFalse("no request rode, the test did not exercise anything", riders.isEmpty());
+        for (TestDisplayFreeRide rider : riders) {
+            Assert.assertEquals(1, rider.processCount.get());
+        }
+
+        int riderCount = 0;
+        for (TestDisplayFreeRide provider : providers) {
+            Assert.assertEquals(0, provider.processCount.get());
+            // 结束后不能再上车了
+            Assert.assertFalse(provider.byDisplayFreeRide(new TestDisplayFreeRide(provider.key)));
+            riderCount += provider.riderCount.get();
+        }
+        Assert.assertEquals(riders.size(), riderCount);
+        Assert.assertEquals(0, freeRideManager.getKeysSize());
+    }
+
+    @Test
+    public void testRiders() {
+        FreeRideManager.Riders<String> riders = new FreeRideManager.Riders<>();
+        Assert.assertTrue(riders.isEmpty());
+        Assert.assertTrue(riders.add("a"));
+        Assert.assertTrue(riders.add("b"));
+        Assert.assertTrue(riders.add("c"));
+        Assert.assertFalse(riders.isEmpty());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), riders.snapshot());
+    }
+
+    @Test
+    public void testUnregisterReplacedProvider() {
+        FreeRideManager freeRideManager = new FreeRideManager();
+        CacheKey key = CacheKey.of("http://img.example.com/replaced.jpg");
+        TestDisplayFreeRide oldProvider = new TestDisplayFreeRide(key);
+        TestDisplayFreeRide newProvider = new TestDisplayFreeRide(key);
+        TestDisplayFreeRide oldRider = new TestDisplayFreeRide(key);
+        TestDisplayFreeRide newRider = new TestDisplayFreeRide(key);
+
+        freeRideManager.registerDisplayFreeRideProvider(oldProvider);
+        Assert.assertTrue(freeRideManager.byDisplayFreeRide(oldRider));
+        freeRideManager.registerDisplayFreeRideProvider(newProvider);
+        Assert.assertTrue(freeRideManager.byDisplayFreeRide(newRider));
+
+        // 已经被替换的顺风车主结束时不能移除新的顺风车主，但自己的顺风车要回调
+        freeRideManager.unregisterDisplayFreeRideProvider(oldProvider);
+        Assert.assertEquals(1, oldRider.processCount.get());
+        Assert.assertEquals(0, newRider.processCount.get());
+        Assert.assertTrue(freeRideManager.getKeysSize() > 0);
+
+        freeRideManager.unregisterDisplayFreeRideProvider(newProvider);
+        Assert.assertEquals(1, newRider.processCount.get());
+        Assert.assertEquals(0, freeRideManager.getKeysSize());
+    }
+
+    private static class TestDisplayFreeRide implements FreeRideManager.DisplayFreeRide {
+        @NonNull
+        private final CacheKey key;
+        @NonNull
+        private final FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> riders = new FreeRideManager.Riders<>();
+        @NonNull
+        private final AtomicInteger processCount = new AtomicInteger();
+        @NonNull
+        private final AtomicInteger riderCount = new AtomicInteger();
+
+        TestDisplayFreeRide(@NonNull CacheKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public CacheKey getDisplayFreeRideKey() {
+            return key;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayFreeRideLog() {
+            return "TestDisplayFreeRide@" + Integer.toHexString(hashCode());
+        }
+
+        @Override
+        public boolean canByDisplayFreeRide() {
+            return true;
+        }
+
+        @Override
+        public boolean byDisplayFreeRide(@NonNull FreeRideManager.DisplayFreeRide request) {
+            if (riders.add(request)) {
+                riderCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public FreeRideManager.Riders<FreeRideManager.DisplayFreeRide> getDisplayFreeRiders() {
+            return riders;
+        }
+
+        @Override
+        public boolean processDisplayFreeRide() {
+            processCount.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package me.panpf.sketch.test.request;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.sketch.Configuration;
+import me.panpf.sketch.Sketch;
+import me.panpf.sketch.request.DisplayOptions;
+import me.panpf.sketch.request.PrefetchBatch;
+import me.panpf.sketch.request.PrefetchRequest;
+import me.panpf.sketch.request.RequestExecutor;
+import me.panpf.sketch.request.RequestFactory;
+import me.panpf.sketch.uri.UriModel;
+
+/**
+ * 预加载一批图片时同一时间只能有一个请求，前台忙的时候要让路，单个请求超时了要跳过，整批取消后不能再提交
+ * <p>
+ * 请求不会真正执行，由测试手动结束
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PrefetchBatchTest {
+    private static final List<String> URIS = Arrays.asList(
+            "http://img.example.com/1.jpg",
+            "http://img.example.com/2.jpg",
+            "http://img.example.com/3.jpg");
+
+    private Sketch sketch;
+    private RequestFactory oldRequestFactory;
+    private TestRequestExecutor executor;
+    private TestRequestFactory requestFactory;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        sketch = Sketch.with(context);
+        Configuration configuration = sketch.getConfiguration();
+
+        oldRequestFactory = configuration.getRequestFactory();
+        requestFactory = new TestRequestFactory();
+        configuration.setRequestFactory(requestFactory);
+
+        executor = new TestRequestExecutor();
+        configuration.setExecutor(executor);
+    }
+
+    @After
+    public void tearDown() {
+        Configuration configuration = sketch.getConfiguration();
+        configuration.setRequestFactory(oldRequestFactory);
+        configuration.setExecutor(new RequestExecutor());
+    }
+
+    @Test
+    public void testThrottle() {
+        executor.busy = true;
+        PrefetchBatch batch = sketch.prefetch(URIS, new DisplayOptions()).commit();
+
+        // 前台一直忙就一直不提交
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, requestFactory.requests.size());
+        Assert.assertFalse(batch.isFinished());
+
+        // 前台空闲下来后过一会儿就提交，但同一时间只有一个
+        executor.busy = false;
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        Assert.assertEquals(1, requestFactory.requests.size());
+
+        // 前台又忙了，结束一个后下一个要等前台空闲
+        executor.busy = true;
+        requestFactory.requests.get(0).finish(true);
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        Assert.assertEquals(1, requestFactory.requests.size());
+
+        executor.busy = false;
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        Assert.assertEquals(2, requestFactory.requests.size());
+
+        requestFactory.requests.get(1).finish(false);
+        ShadowLooper.idleMainLooper();
+        Assert.assertEquals(3, requestFactory.requests.size());
+        Assert.assertFalse(batch.isFinished());
+
+        requestFactory.requests.get(2).finish(true);
+        ShadowLooper.idleMainLooper();
+        Assert.assertEquals(3, requestFactory.requests.size());
+        Assert.assertTrue(batch.isFinished());
+        Assert.assertFalse(batch.isCanceled());
+        Assert.assertEquals(2, batch.getCompletedCount());
+        Assert.assertEquals(1, batch.getFailedCount());
+    }
+
+    @Test
+    public void testTimeout() {
+        PrefetchBatch batch = sketch.prefetch(URIS, new DisplayOptions()).commit();
+
+        ShadowLooper.idleMainLooper();
+        Assert.assertEquals(1, requestFactory.requests.size());
+
+        // 还没到超时时间
+        ShadowLooper.idleMainLooper(30, TimeUnit.SECONDS);
+        Assert.assertEquals(1, requestFactory.requests.size());
+        Assert.assertFalse(requestFactory.requests.get(0).isCanceled());
+
+        // 超时了就取消它，算失败，继续下一个
+        ShadowLooper.idleMainLooper(31, TimeUnit.SECONDS);
+        Assert.assertTrue(requestFactory.requests.get(0).isCanceled());
+        Assert.assertEquals(2, requestFactory.requests.size());
+        Assert.assertEquals(1, batch.getFailedCount());
+
+        // 按时结束的请求不会再被超时取消
+        requestFactory.requests.get(1).finish(true);
+        ShadowLooper.idleMainLooper(61, TimeUnit.SECONDS);
+        Assert.assertFalse(requestFactory.requests.get(1).isCanceled());
+        Assert.assertEquals(3, requestFactory.requests.size());
+        Assert.assertEquals(1, batch.getCompletedCount());
+        Assert.assertEquals(2, batch.getFailedCount());
+        Assert.assertTrue(requestFactory.requests.get(2).isCanceled());
+        Assert.assertTrue(batch.isFinished());
+    }
+
+    @Test
+    public void testCancel() {
+        PrefetchBatch batch = sketch.prefetch(URIS, new DisplayOptions()).commit();
+
+        ShadowLooper.idleMainLooper();
+        Assert.assertEquals(1, requestFactory.requests.size());
+
+        // 取消后正在执行的请求也要取消，之后不能再提交，超时也不能再触发
+        batch.cancel();
+        Assert.assertTrue(batch.isCanceled());
+        Assert.assertTrue(batch.isFinished());
+        Assert.assertTrue(requestFactory.requests.get(0).isCanceled());
+
+        ShadowLooper.idleMainLooper(2, TimeUnit.MINUTES);
+        Assert.assertEquals(1, requestFactory.requests.size());
+        Assert.assertEquals(0, batch.getCompletedCount());
+
+        // 被取消的请求晚些时候结束也不能算进去
+        requestFactory.requests.get(0).finish(true);
+        ShadowLooper.idleMainLooper();
+        Assert.assertEquals(1, requestFactory.requests.size());
+        Assert.assertEquals(0, batch.getCompletedCount());
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws InterruptedException {
+        final PrefetchBatch batch = sketch.prefetch(URIS, new DisplayOptions()).commit();
+
+        // 在别的线程中取消，还没开始的不会再开始
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                batch.cancel();
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertTrue(batch.isFinished());
+
+        ShadowLooper.idleMainLooper(2, TimeUnit.MINUTES);
+        Assert.assertEquals(0, requestFactory.requests.size());
+    }
+
+    private static class TestRequestExecutor extends RequestExecutor {
+        private volatile boolean busy;
+
+        @Override
+        public boolean isBusy() {
+            return busy;
+        }
+    }
+
+    private static class TestRequestFactory extends RequestFactory {
+        private final List<TestPrefetchRequest> requests = new ArrayList<>();
+
+        @Override
+        public PrefetchRequest newPrefetchRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel,
+                                                  @NonNull String key, @NonNull DisplayOptions displayOptions,
+                                                  boolean diskCacheOnly, @NonNull PrefetchBatch batch) {
+            TestPrefetchRequest request = new TestPrefetchRequest(sketch, uri, uriModel, key, displayOptions, diskCacheOnly, batch);
+            requests.add(request);
+            return request;
+        }
+    }
+
+    private static class TestPrefetchRequest extends PrefetchRequest {
+
+        TestPrefetchRequest(@NonNull Sketch sketch, @NonNull String uri, @NonNull UriModel uriModel, @NonNull String key,
+                            @NonNull DisplayOptions displayOptions, boolean diskCacheOnly, @NonNull PrefetchBatch batch) {
+            super(sketch, uri, uriModel, key, displayOptions, diskCacheOnly, batch);
+        }
+
+        @Override
+        protected void submitRunDispatch() {
+            // 不真正执行，由测试调用 finish() 结束
+        }
+
+        void finish(boolean success) {
+            if (success) {
+                runCompletedInMainThread();
+            } else {
+                runErrorInMainThread();
+            }
+        }
+    }
+}